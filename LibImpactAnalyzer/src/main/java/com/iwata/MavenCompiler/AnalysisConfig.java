@@ -0,0 +1,217 @@
+package com.iwata.MavenCompiler;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+  1回の解析の設定（不変）
+  CleanerConfigの定数はコマンドライン実行時の既定値としてのみ使い、
+  解析を行うクラスはこのオブジェクトから設定を受け取る（同じJVMで複数の解析を同時に実行できるようにするため）
+ **/
+public final class AnalysisConfig {
+
+    private final Path projectDir;
+    private final Path srcDir;
+    private final Path testDir;
+    private final String removeGroupId;
+    private final String removeArtifactId;
+    private final boolean combined;
+    private final int maxIterations;
+    private final int hardMaxIterations;
+    private final int stallLimit;
+    private final long timeBudgetSeconds;
+    private final int fixParallelism;
+    private final String sourceEncoding;
+    private final boolean runTests;
+    private final Path reportFile;
+    private final Path buildOutputLog;
+    private final Path cacheDir;
+    private final Path libraryJar;
+    private final boolean estimateSeed;
+    private final boolean spoonClasspath;
+    private final long modelCacheBytes;
+    private final long modelCacheBytesPerSourceByte;
+    private final Path modelSnapshotDir;
+    private final long modelSnapshotMaxBytes;
+
+    private AnalysisConfig(Builder builder) {
+        this.projectDir = builder.projectDir;
+        this.srcDir = builder.projectDir.resolve("src");
+        this.testDir = builder.projectDir.resolve("tests");
+        this.removeGroupId = builder.removeGroupId;
+        this.removeArtifactId = builder.removeArtifactId;
+        this.combined = builder.combined;
+        this.maxIterations = builder.maxIterations;
+        this.hardMaxIterations = Math.max(builder.maxIterations, builder.hardMaxIterations);
+        this.stallLimit = builder.stallLimit;
+        this.timeBudgetSeconds = builder.timeBudgetSeconds;
+        this.fixParallelism = Math.max(1, builder.fixParallelism);
+        this.sourceEncoding = builder.sourceEncoding;
+        this.runTests = builder.runTests;
+        this.reportFile = builder.reportFile;
+        this.buildOutputLog = builder.buildOutputLog;
+        this.cacheDir = builder.cacheDir;
+        this.libraryJar = builder.libraryJar;
+        this.estimateSeed = builder.estimateSeed;
+        this.spoonClasspath = builder.spoonClasspath;
+        this.modelCacheBytes = builder.modelCacheBytes;
+        this.modelCacheBytesPerSourceByte = builder.modelCacheBytesPerSourceByte;
+        this.modelSnapshotDir = builder.modelSnapshotDir;
+        this.modelSnapshotMaxBytes = builder.modelSnapshotMaxBytes;
+    }
+
+    /**
+     * システムプロパティ（CleanerConfig）から作成（コマンドライン実行時の設定）
+     */
+    public static AnalysisConfig fromSystemProperties() {
+        return builder(Paths.get(CleanerConfig.PROJECT_DIR)).build();
+    }
+
+    /**
+     * CleanerConfigの値を既定値とするビルダー
+     */
+    public static Builder builder(Path projectDir) {
+        return new Builder(projectDir);
+    }
+
+    /**
+     * この設定を元にしたビルダー
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder(projectDir);
+        builder.removeGroupId = removeGroupId;
+        builder.removeArtifactId = removeArtifactId;
+        builder.combined = combined;
+        builder.maxIterations = maxIterations;
+        builder.hardMaxIterations = hardMaxIterations;
+        builder.stallLimit = stallLimit;
+        builder.timeBudgetSeconds = timeBudgetSeconds;
+        builder.fixParallelism = fixParallelism;
+        builder.sourceEncoding = sourceEncoding;
+        builder.runTests = runTests;
+        builder.reportFile = reportFile;
+        builder.buildOutputLog = buildOutputLog;
+        builder.cacheDir = cacheDir;
+        builder.libraryJar = libraryJar;
+        builder.estimateSeed = estimateSeed;
+        builder.spoonClasspath = spoonClasspath;
+        builder.modelCacheBytes = modelCacheBytes;
+        builder.modelCacheBytesPerSourceByte = modelCacheBytesPerSourceByte;
+        builder.modelSnapshotDir = modelSnapshotDir;
+        builder.modelSnapshotMaxBytes = modelSnapshotMaxBytes;
+        return builder;
+    }
+
+    public Path getProjectDir() { return projectDir; }
+    public Path getSrcDir() { return srcDir; }
+    public Path getTestDir() { return testDir; }
+    /** 解析前にpom.xmlから削除するライブラリ（指定なしの場合はnull） */
+    public String getRemoveGroupId() { return removeGroupId; }
+    public String getRemoveArtifactId() { return removeArtifactId; }
+    public boolean isCombined() { return combined; }
+    public int getMaxIterations() { return maxIterations; }
+    public int getHardMaxIterations() { return hardMaxIterations; }
+    public int getStallLimit() { return stallLimit; }
+    public long getTimeBudgetSeconds() { return timeBudgetSeconds; }
+    public int getFixParallelism() { return fixParallelism; }
+    public String getSourceEncoding() { return sourceEncoding; }
+    public boolean isRunTests() { return runTests; }
+    /** Excelレポートの出力先（nullの場合は出力しない） */
+    public Path getReportFile() { return reportFile; }
+    /** Mavenの生出力のログファイル（cleaner.buildOutput=file の場合） */
+    public Path getBuildOutputLog() { return buildOutputLog; }
+    /** 解析結果のキャッシュの保存先（nullの場合はキャッシュしない） */
+    public Path getCacheDir() { return cacheDir; }
+    /** 削除するライブラリのjar（nullの場合はリポジトリから探す） */
+    public Path getLibraryJar() { return libraryJar; }
+    /** 静的な影響推定で予測したエラーを最初の反復の前に修正するか */
+    public boolean isEstimateSeed() { return estimateSeed; }
+    /** 修正時のSpoonのモデルに依存関係のクラスパスを渡すか */
+    public boolean isSpoonClasspath() { return spoonClasspath; }
+    /** Spoonのモデルのキャッシュの予算（同じ設定の解析でJVM全体で共有する。0以下の場合はキャッシュしない） */
+    public long getModelCacheBytes() { return modelCacheBytes; }
+    /** モデルの推定サイズ（ソース1バイトあたりのバイト数） */
+    public long getModelCacheBytesPerSourceByte() { return modelCacheBytesPerSourceByte; }
+    /** Spoonのモデルのスナップショットの保存先（nullの場合は保存しない） */
+    public Path getModelSnapshotDir() { return modelSnapshotDir; }
+    /** スナップショットの合計サイズの上限 */
+    public long getModelSnapshotMaxBytes() { return modelSnapshotMaxBytes; }
+
+    @Override
+    public String toString() {
+        return "AnalysisConfig[projectDir=" + projectDir
+               + (removeArtifactId != null ? ", remove=" + removeGroupId + ":" + removeArtifactId : "")
+               + ", combined=" + combined + ", maxIterations=" + maxIterations + "]";
+    }
+
+    /**
+     * AnalysisConfigのビルダー
+     */
+    public static final class Builder {
+        private final Path projectDir;
+        private String removeGroupId;
+        private String removeArtifactId;
+        private boolean combined = CleanerConfig.COMBINED_MODE;
+        private int maxIterations = CleanerConfig.MAX_ITERATIONS;
+        private int hardMaxIterations = CleanerConfig.HARD_MAX_ITERATIONS;
+        private int stallLimit = CleanerConfig.STALL_LIMIT;
+        private long timeBudgetSeconds = CleanerConfig.TIME_BUDGET_SECONDS;
+        private int fixParallelism = CleanerConfig.FIX_PARALLELISM;
+        private String sourceEncoding = CleanerConfig.SOURCE_ENCODING;
+        private boolean runTests = true;
+        private Path reportFile = CleanerConfig.REPORT_FILE.isEmpty() ? null : Paths.get(CleanerConfig.REPORT_FILE);
+        private Path buildOutputLog = Paths.get(CleanerConfig.BUILD_OUTPUT_LOG);
+        private Path cacheDir = CleanerConfig.CACHE_DIR != null ? Paths.get(CleanerConfig.CACHE_DIR) : null;
+        private Path libraryJar = CleanerConfig.LIBRARY_JAR != null ? Paths.get(CleanerConfig.LIBRARY_JAR) : null;
+        private boolean estimateSeed = CleanerConfig.ESTIMATE_SEED;
+        private boolean spoonClasspath = CleanerConfig.SPOON_CLASSPATH;
+        private long modelCacheBytes = CleanerConfig.MODEL_CACHE_BYTES;
+        private long modelCacheBytesPerSourceByte = CleanerConfig.MODEL_CACHE_BYTES_PER_SOURCE_BYTE;
+        private Path modelSnapshotDir = CleanerConfig.MODEL_SNAPSHOT_DIR.isEmpty()
+                                        ? null : Paths.get(CleanerConfig.MODEL_SNAPSHOT_DIR);
+        private long modelSnapshotMaxBytes = CleanerConfig.MODEL_SNAPSHOT_MAX_BYTES;
+
+        private Builder(Path projectDir) {
+            this.projectDir = projectDir.toAbsolutePath().normalize();
+            if (CleanerConfig.REMOVE_LIBRARY != null) {
+                String[] coordinates = CleanerConfig.REMOVE_LIBRARY.split(":");
+                if (coordinates.length != 2) {
+                    throw new IllegalArgumentException("cleaner.removeLibrary must be groupId:artifactId");
+                }
+                removeLibrary(coordinates[0], coordinates[1]);
+            }
+        }
+
+        /**
+         * 解析前にpom.xmlから削除するライブラリ
+         */
+        public Builder removeLibrary(String groupId, String artifactId) {
+            this.removeGroupId = groupId;
+            this.removeArtifactId = artifactId;
+            return this;
+        }
+
+        public Builder combined(boolean combined) { this.combined = combined; return this; }
+        public Builder maxIterations(int maxIterations) { this.maxIterations = maxIterations; return this; }
+        public Builder hardMaxIterations(int hardMaxIterations) { this.hardMaxIterations = hardMaxIterations; return this; }
+        public Builder stallLimit(int stallLimit) { this.stallLimit = stallLimit; return this; }
+        public Builder timeBudgetSeconds(long timeBudgetSeconds) { this.timeBudgetSeconds = timeBudgetSeconds; return this; }
+        public Builder fixParallelism(int fixParallelism) { this.fixParallelism = fixParallelism; return this; }
+        public Builder sourceEncoding(String sourceEncoding) { this.sourceEncoding = sourceEncoding; return this; }
+        public Builder runTests(boolean runTests) { this.runTests = runTests; return this; }
+        public Builder reportFile(Path reportFile) { this.reportFile = reportFile; return this; }
+        public Builder buildOutputLog(Path buildOutputLog) { this.buildOutputLog = buildOutputLog; return this; }
+        public Builder cacheDir(Path cacheDir) { this.cacheDir = cacheDir; return this; }
+        public Builder libraryJar(Path libraryJar) { this.libraryJar = libraryJar; return this; }
+        public Builder estimateSeed(boolean estimateSeed) { this.estimateSeed = estimateSeed; return this; }
+        public Builder spoonClasspath(boolean spoonClasspath) { this.spoonClasspath = spoonClasspath; return this; }
+        public Builder modelCacheBytes(long modelCacheBytes) { this.modelCacheBytes = modelCacheBytes; return this; }
+        public Builder modelCacheBytesPerSourceByte(long bytes) { this.modelCacheBytesPerSourceByte = bytes; return this; }
+        public Builder modelSnapshotDir(Path modelSnapshotDir) { this.modelSnapshotDir = modelSnapshotDir; return this; }
+        public Builder modelSnapshotMaxBytes(long maxBytes) { this.modelSnapshotMaxBytes = maxBytes; return this; }
+
+        public AnalysisConfig build() {
+            return new AnalysisConfig(this);
+        }
+    }
+}
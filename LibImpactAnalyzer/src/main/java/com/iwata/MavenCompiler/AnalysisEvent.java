@@ -0,0 +1,234 @@
+package com.iwata.MavenCompiler;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+  解析の進捗を通知するイベント（AnalysisEventPublisherから購読者へ送られる）
+  種類ごとのサブクラスを持ち、getType()で分岐できる
+ **/
+public abstract class AnalysisEvent {
+
+    /**
+     * イベントの種類
+     */
+    public enum Type {
+        /** コンパイル結果から診断を抽出した */
+        DIAGNOSTICS_PARSED,
+        /** ファイルの修正を開始した */
+        FILE_FIX_STARTED,
+        /** ファイルの修正を終了した */
+        FILE_FIX_FINISHED,
+        /** 要素を削除（またはスタブ化・追加）した */
+        ELEMENT_DELETED,
+        /** 修正ループの1反復が終了した */
+        ITERATION_FINISHED,
+        /** テストメソッドの結果（失敗・エラーのみ。Surefireのコンソール出力は成功したメソッドを出力しないため） */
+        TEST_CASE_RESULT
+    }
+
+    private final Type type;
+    private final long timestampMillis = System.currentTimeMillis();
+
+    private AnalysisEvent(Type type) {
+        this.type = type;
+    }
+
+    public Type getType() { return type; }
+    public long getTimestampMillis() { return timestampMillis; }
+
+    /**
+     * コンパイル結果から診断を抽出した
+     */
+    public static final class DiagnosticsParsed extends AnalysisEvent {
+        private final String goal;
+        private final Map<String, Integer> diagnosticsByFile;
+        private final int exitCode;
+
+        DiagnosticsParsed(String goal, Map<String, ErrorInfo> errorFiles, int exitCode) {
+            super(Type.DIAGNOSTICS_PARSED);
+            this.goal = goal;
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (ErrorInfo errorInfo : errorFiles.values()) {
+                counts.put(errorInfo.getFilePath(), errorInfo.getDiagnosticCount());
+            }
+            this.diagnosticsByFile = Collections.unmodifiableMap(counts);
+            this.exitCode = exitCode;
+        }
+
+        /** Mavenのゴール（プロセス内コンパイルの場合は "in-process"） */
+        public String getGoal() { return goal; }
+        /** エラーのあるファイルのパスと診断数 */
+        public Map<String, Integer> getDiagnosticsByFile() { return diagnosticsByFile; }
+        public int getErrorFiles() { return diagnosticsByFile.size(); }
+        public int getDiagnostics() {
+            return diagnosticsByFile.values().stream().mapToInt(Integer::intValue).sum();
+        }
+        public int getExitCode() { return exitCode; }
+
+        @Override
+        public String toString() {
+            return "DiagnosticsParsed[" + goal + ", files=" + getErrorFiles() + ", diagnostics=" + getDiagnostics() + "]";
+        }
+    }
+
+    /**
+     * ファイルの修正を開始した
+     */
+    public static final class FileFixStarted extends AnalysisEvent {
+        private final String iterationLabel;
+        private final String filePath;
+        private final int diagnostics;
+
+        FileFixStarted(String iterationLabel, String filePath, int diagnostics) {
+            super(Type.FILE_FIX_STARTED);
+            this.iterationLabel = iterationLabel;
+            this.filePath = filePath;
+            this.diagnostics = diagnostics;
+        }
+
+        /** 反復のラベル（例: MAIN-1） */
+        public String getIterationLabel() { return iterationLabel; }
+        public String getFilePath() { return filePath; }
+        public int getDiagnostics() { return diagnostics; }
+
+        @Override
+        public String toString() {
+            return "FileFixStarted[" + iterationLabel + ", " + filePath + ", diagnostics=" + diagnostics + "]";
+        }
+    }
+
+    /**
+     * ファイルの修正を終了した
+     */
+    public static final class FileFixFinished extends AnalysisEvent {
+        private final String iterationLabel;
+        private final String filePath;
+        private final boolean modified;
+        private final int elementsDeleted;
+        private final long elapsedNanos;
+        private final boolean textFastPath;
+
+        FileFixFinished(CompilationMetrics.FileStats stats, boolean modified) {
+            super(Type.FILE_FIX_FINISHED);
+            this.iterationLabel = stats.getIterationLabel();
+            this.filePath = stats.getFilePath();
+            this.modified = modified;
+            this.elementsDeleted = stats.getElementsDeleted();
+            this.elapsedNanos = stats.getTotalNanos();
+            this.textFastPath = stats.isTextFastPath();
+        }
+
+        public String getIterationLabel() { return iterationLabel; }
+        public String getFilePath() { return filePath; }
+        public boolean isModified() { return modified; }
+        public int getElementsDeleted() { return elementsDeleted; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        /** Spoonを使わずにテキスト編集で修正したか */
+        public boolean isTextFastPath() { return textFastPath; }
+
+        @Override
+        public String toString() {
+            return "FileFixFinished[" + iterationLabel + ", " + filePath + ", modified=" + modified
+                   + ", elementsDeleted=" + elementsDeleted + "]";
+        }
+    }
+
+    /**
+     * 要素を削除（またはスタブ化・追加）した
+     */
+    public static final class ElementDeleted extends AnalysisEvent {
+        private final String iterationLabel;
+        private final String filePath;
+        private final String elementType;
+
+        ElementDeleted(String iterationLabel, String filePath, String elementType) {
+            super(Type.ELEMENT_DELETED);
+            this.iterationLabel = iterationLabel;
+            this.filePath = filePath;
+            this.elementType = elementType;
+        }
+
+        public String getIterationLabel() { return iterationLabel; }
+        public String getFilePath() { return filePath; }
+        /** メトリクスと同じ要素種別（例: CtInvocationImpl, CtReturn (added)） */
+        public String getElementType() { return elementType; }
+
+        @Override
+        public String toString() {
+            return "ElementDeleted[" + iterationLabel + ", " + filePath + ", " + elementType + "]";
+        }
+    }
+
+    /**
+     * 修正ループの1反復が終了した
+     */
+    public static final class IterationFinished extends AnalysisEvent {
+        private final String codeType;
+        private final int iteration;
+        private final int errorFiles;
+        private final int modifiedFiles;
+        private final IterationController.Decision decision;
+
+        IterationFinished(String codeType, int iteration, int errorFiles, int modifiedFiles,
+                          IterationController.Decision decision) {
+            super(Type.ITERATION_FINISHED);
+            this.codeType = codeType;
+            this.iteration = iteration;
+            this.errorFiles = errorFiles;
+            this.modifiedFiles = modifiedFiles;
+            this.decision = decision;
+        }
+
+        /** MAIN / TEST / COMBINED */
+        public String getCodeType() { return codeType; }
+        public int getIteration() { return iteration; }
+        public int getErrorFiles() { return errorFiles; }
+        public int getModifiedFiles() { return modifiedFiles; }
+        /** 反復後の判断（CONTINUE以外は最後の反復） */
+        public IterationController.Decision getDecision() { return decision; }
+
+        @Override
+        public String toString() {
+            return "IterationFinished[" + codeType + "-" + iteration + ", errorFiles=" + errorFiles
+                   + ", modifiedFiles=" + modifiedFiles + ", " + decision + "]";
+        }
+    }
+
+    /**
+     * テストメソッドの結果
+     */
+    public static final class TestCaseResult extends AnalysisEvent {
+
+        /**
+         * テストメソッドの結果の種類
+         */
+        public enum Outcome {
+            /** アサーションの失敗 */
+            FAILED,
+            /** 例外の発生 */
+            ERROR,
+            /** ライブラリ削除によりAssert.failを挿入したメソッドの失敗 */
+            LIB_REMOVED
+        }
+
+        private final String testName;
+        private final Outcome outcome;
+
+        TestCaseResult(String testName, Outcome outcome) {
+            super(Type.TEST_CASE_RESULT);
+            this.testName = testName;
+            this.outcome = outcome;
+        }
+
+        /** クラス名.メソッド名 */
+        public String getTestName() { return testName; }
+        public Outcome getOutcome() { return outcome; }
+
+        @Override
+        public String toString() {
+            return "TestCaseResult[" + testName + ", " + outcome + "]";
+        }
+    }
+}
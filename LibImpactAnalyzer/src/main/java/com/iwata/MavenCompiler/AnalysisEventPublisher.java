@@ -0,0 +1,71 @@
+package com.iwata.MavenCompiler;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  解析イベントの配信（解析1回につき1つ）
+  SubmissionPublisherで購読者ごとにバッファ（cleaner.events.buffer 件）を持ち、
+  購読者が request(n) で要求した分だけ送る。バッファが満杯の購読者がいる場合は、空くまで解析側が待つ（背圧）
+  購読者がいない場合はイベントを生成しない
+  配信はタスクごとのスレッド（仮想スレッドが使える場合は仮想スレッド）で行うため、終了時にスレッドプールの停止は不要
+ **/
+public class AnalysisEventPublisher implements Flow.Publisher<AnalysisEvent>, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AnalysisEventPublisher.class);
+
+    private final SubmissionPublisher<AnalysisEvent> publisher;
+
+    public AnalysisEventPublisher() {
+        this(CleanerConfig.EVENT_BUFFER);
+    }
+
+    public AnalysisEventPublisher(int bufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(task -> TaskExecutors.startThread("analysis-events", task),
+                                                   Math.max(1, bufferCapacity));
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super AnalysisEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * 購読者がいるか（イベントの生成を省略するため）
+     */
+    public boolean hasSubscribers() {
+        return publisher.hasSubscribers();
+    }
+
+    /**
+     * イベントを配信（購読者がいない場合、または終了後は何もしない）
+     */
+    public void publish(AnalysisEvent event) {
+        if (!publisher.hasSubscribers() || publisher.isClosed()) {
+            return;
+        }
+        try {
+            publisher.submit(event);
+        } catch (IllegalStateException e) {
+            // 別スレッドで終了された
+            logger.debug("終了後のイベントを破棄しました: {}", event);
+        }
+    }
+
+    /**
+     * 解析の失敗を購読者に通知して終了
+     */
+    public void closeExceptionally(Throwable error) {
+        publisher.closeExceptionally(error);
+    }
+
+    /**
+     * 購読者に完了を通知して終了（未配信のイベントは配信される）
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.iwata.MavenCompiler;
+
+import java.util.List;
+
+/**
+  1回の解析の結果
+  解析の終了後に作成され、以降メトリクスが更新されることはない
+ **/
+public final class AnalysisResult {
+
+    private final AnalysisConfig config;
+    private final boolean compilationSuccessful;
+    private final CompilationMetrics metrics;
+    private final List<CompilationMetrics.FileEdit> fileEdits;
+    private final MavenCompiler.TestResult testResult;
+    private final boolean fromCache;
+
+    AnalysisResult(AnalysisConfig config, boolean compilationSuccessful, CompilationMetrics metrics,
+                   MavenCompiler.TestResult testResult, boolean fromCache) {
+        this.config = config;
+        this.compilationSuccessful = compilationSuccessful;
+        this.metrics = metrics;
+        this.fileEdits = List.copyOf(metrics.getFileEdits());
+        this.testResult = testResult;
+        this.fromCache = fromCache;
+    }
+
+    public AnalysisConfig getConfig() { return config; }
+    /** 修正後にメインコード・テストコードともにコンパイルできたか */
+    public boolean isCompilationSuccessful() { return compilationSuccessful; }
+    public CompilationMetrics getMetrics() { return metrics; }
+    /** 修正したファイルごとの削除・追加・変更行数と削除した要素（パス順） */
+    public List<CompilationMetrics.FileEdit> getFileEdits() { return fileEdits; }
+    /** テストの実行結果（コンパイルに失敗した場合やテストを実行しない設定の場合はnull） */
+    public MavenCompiler.TestResult getTestResult() { return testResult; }
+    /** ソースが同じ以前の解析の結果をキャッシュから返したか（メトリクスの時間は以前の解析のもの） */
+    public boolean isFromCache() { return fromCache; }
+}
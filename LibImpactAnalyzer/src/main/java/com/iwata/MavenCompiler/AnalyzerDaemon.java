@@ -0,0 +1,469 @@
+package com.iwata.MavenCompiler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  解析を常駐プロセスで実行するデーモン
+  ジョブごとにJVMを起動しないため、Spoon・JDT・POIのクラスロードとJITコンパイルが2回目以降のジョブでは不要になる
+  localhostのHTTPでジョブを受け付け、優先度順のキューから cleaner.daemon.concurrency 件まで同時に実行する
+  （同じプロジェクトのジョブは順に実行する。実行中のプロジェクトのジョブはワーカーを占有せずに待機させ、
+   そのプロジェクトのジョブが終わったらキューに戻す）
+
+  起動時にデーモンごとのアクセストークンを生成し、所有者のみ読み書きできるファイル（0600）に保存する
+  全てのリクエストに Authorization: Bearer {トークン} が必要で、ブラウザからのリクエスト（Originヘッダーあり）は拒否する
+  （任意のローカルプロセスやWebページからソースの書き換えを実行させないため）
+
+  POST /jobs?projectDir=...&library=groupId:artifactId&priority=N&combined=true&maxIterations=N
+            &timeBudgetSeconds=N&runTests=false
+  GET  /jobs                  ジョブ一覧
+  GET  /jobs/{id}             ジョブの状態とメトリクス
+  GET  /jobs/{id}/stream      終了まで状態とメトリクスを1行1件のJSON（NDJSON）で送り続ける
+                              （ストリームは専用のスレッドで送信し、他のリクエストを処理するスレッドを占有しない）
+
+  終了したジョブは最終メトリクスのJSONだけを保持し（MavenCompilationCleanerへの参照は破棄する）、
+  cleaner.daemon.retainedJobs 件または cleaner.daemon.jobTtlMs を超えたものから一覧から削除する
+ **/
+public class AnalyzerDaemon implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AnalyzerDaemon.class);
+
+    // キューが空のときに待機中のジョブを再試行する間隔
+    private static final long WAITING_RETRY_MS = 1000;
+
+    /**
+     * ジョブの状態
+     */
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    /**
+     * 投入されたジョブ（優先度の高い順、同じ優先度は投入順）
+     */
+    static final class Job implements Comparable<Job> {
+        private final long id;
+        private final int priority;
+        private final AnalysisConfig config;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile Status status = Status.QUEUED;
+        private volatile MavenCompilationCleaner cleaner;
+        private volatile String error;
+        // 終了時のメトリクスのJSONと終了時刻（終了後はcleanerを保持しない）
+        private volatile String finalMetrics;
+        private volatile long finishedAt;
+
+        Job(long id, int priority, AnalysisConfig config) {
+            this.id = id;
+            this.priority = priority;
+            this.config = config;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            return priority != other.priority ? Integer.compare(other.priority, priority) : Long.compare(id, other.id);
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{\"id\":").append(id);
+            sb.append(",\"status\":\"").append(status).append('"');
+            sb.append(",\"priority\":").append(priority);
+            sb.append(",\"projectDir\":\"").append(MetricsHttpServer.escapeJson(config.getProjectDir().toString())).append('"');
+            if (error != null) {
+                sb.append(",\"error\":\"").append(MetricsHttpServer.escapeJson(error)).append('"');
+            }
+            MavenCompilationCleaner current = cleaner;
+            String metrics = current != null ? MetricsHttpServer.toJson(current.getMetrics()) : finalMetrics;
+            if (metrics != null) {
+                sb.append(",\"metrics\":").append(metrics);
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    private final HttpServer server;
+    private final String token;
+    private final Path tokenFile;
+    private final ExecutorService httpExecutor;
+    // ジョブの終了まで接続を保持するストリーム用（同時接続数に上限を設けない）
+    private final ExecutorService streamExecutor;
+    private final Function<AnalysisConfig, MavenCompilationCleaner> cleanerFactory;
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+    // 同じプロジェクトのジョブが実行中のため待機しているジョブ（waitingのロックで保護）
+    private final Map<Path, List<Job>> waiting = new HashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public AnalyzerDaemon(int port, int concurrency) throws IOException {
+        this(port, concurrency, CleanerConfig.DAEMON_TOKEN_FILE.isEmpty() ? null : Paths.get(CleanerConfig.DAEMON_TOKEN_FILE));
+    }
+
+    /**
+     * @param tokenFile アクセストークンの保存先（nullの場合は ~/.lia/daemon-{ポート}.token）
+     */
+    public AnalyzerDaemon(int port, int concurrency, Path tokenFile) throws IOException {
+        this(port, concurrency, tokenFile, MavenCompilationCleaner::new);
+    }
+
+    /**
+     * @param cleanerFactory ジョブの設定から解析を作成する（テスト用）
+     */
+    AnalyzerDaemon(int port, int concurrency, Path tokenFile,
+                   Function<AnalysisConfig, MavenCompilationCleaner> cleanerFactory) throws IOException {
+        this.cleanerFactory = cleanerFactory;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.token = HexFormat.of().formatHex(secret);
+        this.tokenFile = tokenFile != null ? tokenFile 
+            : Paths.get(System.getProperty("user.home"), ".lia", "daemon-" + getPort() + ".token");
+        writeToken(this.tokenFile, token);
+        this.server.createContext("/jobs", this::handleJobs);
+        this.httpExecutor = TaskExecutors.newExecutor("daemon-http", 4);
+        this.server.setExecutor(httpExecutor);
+        this.streamExecutor = TaskExecutors.newUnboundedExecutor("daemon-stream");
+        for (int i = 0; i < Math.max(1, concurrency); i++) {
+            workers.add(TaskExecutors.startThread("daemon-worker", this::workLoop));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        AnalyzerDaemon daemon = new AnalyzerDaemon(CleanerConfig.DAEMON_PORT, CleanerConfig.DAEMON_CONCURRENCY);
+        daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close, "daemon-shutdown"));
+        Thread.currentThread().join();
+    }
+
+    public AnalyzerDaemon start() {
+        server.start();
+        logger.info("解析デーモンを起動しました: http://localhost:{}/jobs (同時実行数 {}, トークン {})", 
+                    getPort(), workers.size(), tokenFile);
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * トークンを所有者のみ読み書きできるファイルに保存（POSIX以外のファイルシステムでは権限を設定しない）
+     */
+    private static void writeToken(Path file, String token) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.deleteIfExists(file);
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        }
+        Files.writeString(file, token, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * リクエストの認可（ブラウザからのリクエストとトークンが一致しないリクエストは拒否）
+     */
+    private boolean authorize(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            respond(exchange, 403, "{\"error\":\"cross-origin requests are not allowed\"}");
+            return false;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String expected = "Bearer " + token;
+        if (authorization == null || !MessageDigest.isEqual(authorization.getBytes(StandardCharsets.UTF_8),
+                                                            expected.getBytes(StandardCharsets.UTF_8))) {
+            respond(exchange, 401, "{\"error\":\"missing or invalid token\"}");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * ジョブを投入
+     */
+    public long submit(AnalysisConfig config, int priority) {
+        pruneJobs(CleanerConfig.DAEMON_RETAINED_JOBS, CleanerConfig.DAEMON_JOB_TTL_MS);
+        Job job = new Job(nextId.getAndIncrement(), priority, config);
+        jobs.put(job.id, job);
+        queue.add(job);
+        logger.info("ジョブ {} を受け付けました: {} (優先度 {})", job.id, config, priority);
+        return job.id;
+    }
+
+    private void workLoop() {
+        while (running) {
+            Job job;
+            try {
+                job = queue.poll(WAITING_RETRY_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == null) {
+                // デーモン外（ImpactAnalyzerなど）でロックされているプロジェクトのジョブは空いたときに再試行する
+                requeueWaiting(null);
+                continue;
+            }
+            Path projectDir = job.config.getProjectDir();
+            ReentrantLock lock = ProjectLocks.of(projectDir);
+            synchronized (waiting) {
+                if (!lock.tryLock()) {
+                    waiting.computeIfAbsent(projectDir, dir -> new ArrayList<>()).add(job);
+                    logger.info("ジョブ {} は同じプロジェクトのジョブの終了を待ちます", job.id);
+                    continue;
+                }
+            }
+            try {
+                runJob(job);
+            } finally {
+                synchronized (waiting) {
+                    lock.unlock();
+                    requeueWaiting(projectDir);
+                }
+            }
+        }
+    }
+
+    /**
+     * 待機しているジョブをキューに戻す（projectDirがnullの場合は全てのプロジェクト）
+     */
+    private void requeueWaiting(Path projectDir) {
+        synchronized (waiting) {
+            if (projectDir == null) {
+                waiting.values().forEach(queue::addAll);
+                waiting.clear();
+            } else {
+                List<Job> jobs = waiting.remove(projectDir);
+                if (jobs != null) {
+                    queue.addAll(jobs);
+                }
+            }
+        }
+    }
+
+    private void runJob(Job job) {
+        job.status = Status.RUNNING;
+        logger.info("ジョブ {} を開始します", job.id);
+        try {
+            job.cleaner = cleanerFactory.apply(job.config);
+            job.cleaner.runAnalysis();
+            job.status = Status.DONE;
+            logger.info("ジョブ {} が完了しました", job.id);
+        } catch (Throwable e) {
+            // Error（OutOfMemoryError、StackOverflowErrorなど）でもジョブを失敗として終了させ、ワーカーは次のジョブに進む
+            job.error = e.toString();
+            job.status = Status.FAILED;
+            logger.error("ジョブ {} が失敗しました: {}", job.id, e.getMessage(), e);
+        } finally {
+            MavenCompilationCleaner cleaner = job.cleaner;
+            if (cleaner != null) {
+                try {
+                    job.finalMetrics = MetricsHttpServer.toJson(cleaner.getMetrics());
+                } catch (RuntimeException e) {
+                    logger.warn("ジョブ {} のメトリクスを保存できませんでした: {}", job.id, e.toString());
+                }
+            }
+            job.cleaner = null;
+            job.finishedAt = System.currentTimeMillis();
+            job.finished.countDown();
+            pruneJobs(CleanerConfig.DAEMON_RETAINED_JOBS, CleanerConfig.DAEMON_JOB_TTL_MS);
+        }
+    }
+
+    /**
+     * 終了したジョブのうち、保持期間を過ぎたものと保持件数を超えた古いものを一覧から削除
+     */
+    void pruneJobs(int retainedJobs, long ttlMillis) {
+        long expiredBefore = System.currentTimeMillis() - ttlMillis;
+        List<Job> finished = jobs.values().stream()
+            .filter(job -> job.finished.getCount() == 0)
+            .sorted(Comparator.comparingLong((Job job) -> job.finishedAt).reversed())
+            .toList();
+        for (int i = 0; i < finished.size(); i++) {
+            Job job = finished.get(i);
+            if (i >= retainedJobs || job.finishedAt < expiredBefore) {
+                jobs.remove(job.id);
+            }
+        }
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        boolean streaming = false;
+        try {
+            if (!authorize(exchange)) {
+                return;
+            }
+            String[] parts = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+            if (parts.length == 2 && "POST".equals(method)) {
+                handleSubmit(exchange);
+            } else if (parts.length == 2 && "GET".equals(method)) {
+                StringJoiner list = new StringJoiner(",", "[", "]");
+                new TreeMap<>(jobs).values().forEach(job -> list.add(job.toJson()));
+                respond(exchange, 200, list.toString());
+            } else if (parts.length >= 3 && "GET".equals(method)) {
+                Job job = jobs.get(parseId(parts[2]));
+                if (job == null) {
+                    respond(exchange, 404, "{\"error\":\"job not found\"}");
+                } else if (parts.length == 4 && "stream".equals(parts[3])) {
+                    streaming = startStream(exchange, job);
+                } else {
+                    respond(exchange, 200, job.toJson());
+                }
+            } else {
+                respond(exchange, 405, "{\"error\":\"unsupported request\"}");
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "{\"error\":\"" + MetricsHttpServer.escapeJson(String.valueOf(e.getMessage())) + "\"}");
+        } finally {
+            if (!streaming) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String projectDir = params.get("projectDir");
+        if (projectDir == null) {
+            throw new IllegalArgumentException("projectDir is required");
+        }
+        Path dir = Paths.get(projectDir);
+        AnalysisConfig.Builder builder = AnalysisConfig.builder(dir)
+            .reportFile(CleanerConfig.REPORT_FILE.isEmpty() ? null : dir.resolve(CleanerConfig.REPORT_FILE))
+            .buildOutputLog(dir.resolve(CleanerConfig.BUILD_OUTPUT_LOG));
+        String library = params.get("library");
+        if (library != null) {
+            String[] coordinates = library.split(":");
+            if (coordinates.length != 2) {
+                throw new IllegalArgumentException("library must be groupId:artifactId");
+            }
+            builder.removeLibrary(coordinates[0], coordinates[1]);
+        }
+        if (params.containsKey("combined")) {
+            builder.combined(Boolean.parseBoolean(params.get("combined")));
+        }
+        if (params.containsKey("maxIterations")) {
+            builder.maxIterations(Integer.parseInt(params.get("maxIterations")));
+        }
+        if (params.containsKey("timeBudgetSeconds")) {
+            builder.timeBudgetSeconds(Long.parseLong(params.get("timeBudgetSeconds")));
+        }
+        if (params.containsKey("runTests")) {
+            builder.runTests(Boolean.parseBoolean(params.get("runTests")));
+        }
+        int priority = params.containsKey("priority") ? Integer.parseInt(params.get("priority")) : 0;
+        long id = submit(builder.build(), priority);
+        respond(exchange, 202, jobs.get(id).toJson());
+    }
+
+    /**
+     * ストリームの送信をストリーム用のスレッドに引き渡す（引き渡せなかった場合はfalse）
+     */
+    private boolean startStream(HttpExchange exchange, Job job) {
+        try {
+            streamExecutor.execute(() -> {
+                try {
+                    stream(exchange, job);
+                } catch (IOException e) {
+                    logger.debug("ジョブ {} のストリームが切断されました: {}", job.id, e.getMessage());
+                } finally {
+                    exchange.close();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // デーモンの終了中
+            return false;
+        }
+    }
+
+    /**
+     * ジョブが終了するまで状態を一定間隔で送信し、最後に最終結果を送信
+     */
+    private void stream(HttpExchange exchange, Job job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            boolean done = false;
+            while (!done) {
+                try {
+                    done = job.finished.await(CleanerConfig.DAEMON_STREAM_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    done = true;
+                }
+                out.write((job.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    private static long parseId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid job id: " + value);
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        server.stop(0);
+        httpExecutor.shutdownNow();
+        streamExecutor.shutdownNow();
+        workers.forEach(Thread::interrupt);
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            logger.debug("トークンのファイルを削除できませんでした: {}", tokenFile);
+        }
+    }
+}
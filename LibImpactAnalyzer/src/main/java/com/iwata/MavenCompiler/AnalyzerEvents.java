@@ -0,0 +1,115 @@
+package com.iwata.MavenCompiler;
+
+import jdk.jfr.*;
+
+/**
+  Java Flight Recorder用のカスタムイベント定義
+  記録中のSpoon/JDTのフレームを、どの反復・どのファイルの処理かに対応付けるために使用する
+  （JFRが無効な場合、イベントの生成とcommitはほぼコストなしで無視される）
+ **/
+public final class AnalyzerEvents {
+
+    private static final String CATEGORY = "LibImpactAnalyzer";
+
+    private AnalyzerEvents() {
+    }
+
+    /**
+     * 修正ループの1反復（開始から終了までの期間）
+     */
+    @Name("com.iwata.MavenCompiler.Iteration")
+    @Label("Fix Iteration")
+    @Category(CATEGORY)
+    public static class IterationEvent extends Event {
+        @Label("Code Type")
+        public String codeType;
+
+        @Label("Iteration")
+        public int iteration;
+
+        @Label("Error Files")
+        public int errorFiles;
+
+        @Label("Modified Files")
+        public int modifiedFiles;
+
+        @Label("Decision")
+        public String decision;
+    }
+
+    /**
+     * Mavenによるコンパイル呼び出し
+     */
+    @Name("com.iwata.MavenCompiler.Compile")
+    @Label("Maven Compile")
+    @Category(CATEGORY)
+    public static class CompileEvent extends Event {
+        @Label("Goal")
+        public String goal;
+
+        @Label("Error Files")
+        public int errorFiles;
+
+        @Label("Error Count")
+        public int errorCount;
+
+        @Label("Exit Code")
+        public int exitCode;
+    }
+
+    /**
+     * 1ファイルの修正処理
+     */
+    @Name("com.iwata.MavenCompiler.FileFix")
+    @Label("File Fix")
+    @Category(CATEGORY)
+    public static class FileFixEvent extends Event {
+        @Label("File")
+        public String file;
+
+        @Label("Iteration")
+        public String iteration;
+
+        @Label("Error Lines")
+        public int errorLineCount;
+
+        @Label("Elements Deleted")
+        public int elementsDeleted;
+
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytesWritten;
+
+        @Label("Modified")
+        public boolean modified;
+
+        @Label("Text Fast Path")
+        public boolean textFastPath;
+    }
+
+    /**
+     * Mavenによるテスト実行
+     */
+    @Name("com.iwata.MavenCompiler.TestRun")
+    @Label("Test Execution")
+    @Category(CATEGORY)
+    public static class TestRunEvent extends Event {
+        @Label("Total Tests")
+        public int totalTests;
+
+        @Label("Passed")
+        public int passedTests;
+
+        @Label("Failed")
+        public int failedTests;
+
+        @Label("Errors")
+        public int errorTests;
+
+        @Label("Skipped")
+        public int skippedTests;
+
+        @Label("Exit Code")
+        public int exitCode;
+    }
+}
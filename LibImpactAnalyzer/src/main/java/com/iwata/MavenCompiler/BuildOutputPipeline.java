@@ -0,0 +1,361 @@
+package com.iwata.MavenCompiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  Mavenプロセスの出力を専用スレッドで読み出すパイプライン
+  読み出した行は有界キューに積み、解析側のスレッドが順に取り出す（キューが満杯なら読み出し側が待機する）
+  生の出力はSinkへ送り（ローテーションするファイル／コンソール／破棄）、メモリには末尾N行のみ保持する
+  Sinkへの書き込みに失敗しても、解析側が途中で読むのをやめても、子プロセスが出力で詰まらないよう最後まで読み出す
+ **/
+public class BuildOutputPipeline implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(BuildOutputPipeline.class);
+
+    // 解析側が読むのをやめたかを確認する間隔
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    /**
+     * 生のビルド出力の出力先
+     * close後の書き込みは破棄する（プロセスを止めた後も読み出しスレッドが残りの出力を書き込む場合があるため）
+     */
+    public interface Sink extends Closeable {
+        void write(String line) throws IOException;
+
+        default void flush() throws IOException {
+        }
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /** 出力を破棄するSink */
+    public static final Sink DISCARD = line -> { };
+
+    /** ロガー（com.iwata.MavenCompiler.BuildOutput）経由でコンソールに出力するSink */
+    public static final Sink CONSOLE = LogManager.getLogger("com.iwata.MavenCompiler.BuildOutput")::info;
+
+    // ログファイルごとに共有しているSink（同じファイルを別々に開くとローテーション判定の書き込み量が食い違うため）
+    private static final Map<Path, SharedFile> OPEN_FILES = new HashMap<>();
+
+    // 終端を表す番兵（参照比較のみで判定する）
+    private static final String END_OF_STREAM = new String("<end-of-stream>");
+
+    private final InputStream input;
+    // 書き込みに失敗した後はDISCARDに切り替える
+    private volatile Sink activeSink;
+    // 解析側が読むのをやめた（close済み）
+    private volatile boolean abandoned = false;
+    private final BlockingQueue<String> queue;
+    private final String[] tail;
+    private int tailNext = 0;
+    private long lineCount = 0;
+    private volatile IOException failure;
+    private boolean finished = false;
+
+    public BuildOutputPipeline(InputStream input, Sink sink) {
+        this(input, sink, CleanerConfig.BUILD_OUTPUT_QUEUE_SIZE, CleanerConfig.BUILD_OUTPUT_TAIL_LINES);
+    }
+
+    public BuildOutputPipeline(InputStream input, Sink sink, int queueCapacity, int tailLines) {
+        this.input = input;
+        this.activeSink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.tail = new String[Math.max(1, tailLines)];
+    }
+
+    /**
+     * 設定（CleanerConfig.BUILD_OUTPUT）に応じたSinkを作成
+     *   none    出力しない
+     *   console コンソールに出力（従来の動作）
+     *   file    ローテーションするログファイルに出力（既定）
+     */
+    public static Sink createSink() {
+        return createSink(Paths.get(CleanerConfig.BUILD_OUTPUT_LOG));
+    }
+
+    /**
+     * 出力先のファイルを指定して作成（file 以外の設定ではファイルは使わない）
+     * 同じファイルへのSinkは1つのファイルを共有する。使い終わったらcloseすること
+     */
+    public static Sink createSink(Path logFile) {
+        return switch (CleanerConfig.BUILD_OUTPUT) {
+            case "none" -> DISCARD;
+            case "console" -> CONSOLE;
+            default -> openShared(logFile, CleanerConfig.BUILD_OUTPUT_MAX_BYTES, CleanerConfig.BUILD_OUTPUT_BACKUPS);
+        };
+    }
+
+    /**
+     * ログファイルを共有して開く（最後の参照がcloseされたときにファイルを閉じる）
+     */
+    static Sink openShared(Path logFile, long maxBytes, int backups) {
+        Path key = logFile.toAbsolutePath().normalize();
+        synchronized (OPEN_FILES) {
+            SharedFile shared = OPEN_FILES.computeIfAbsent(key,
+                k -> new SharedFile(new RotatingFileSink(k, maxBytes, backups)));
+            shared.references++;
+            return new SharedFileSink(key, shared);
+        }
+    }
+
+    /**
+     * ログファイルを開いているSinkの数（テスト用）
+     */
+    static int references(Path logFile) {
+        synchronized (OPEN_FILES) {
+            SharedFile shared = OPEN_FILES.get(logFile.toAbsolutePath().normalize());
+            return shared != null ? shared.references : 0;
+        }
+    }
+
+    /**
+     * 読み出しスレッドを開始
+     */
+    public BuildOutputPipeline start() {
+        TaskExecutors.startThread("build-output-drain", this::drain);
+        return this;
+    }
+
+    private void drain() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writeToSink(line);
+                synchronized (tail) {
+                    tail[tailNext] = line;
+                    tailNext = (tailNext + 1) % tail.length;
+                    lineCount++;
+                }
+                enqueue(line);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                activeSink.flush();
+            } catch (IOException e) {
+                // 生出力の書き込み失敗は解析結果に影響しないため無視する
+            }
+            try {
+                enqueue(END_OF_STREAM);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 生出力をSinkに書き込む（失敗した場合は警告を一度だけ出して以降の出力を破棄する）
+     */
+    private void writeToSink(String line) {
+        try {
+            activeSink.write(line);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("ビルド出力を書き込めないため以降の出力を破棄します: {}", e.toString());
+            activeSink = DISCARD;
+        }
+    }
+
+    /**
+     * 解析側のキューに積む（解析側が読むのをやめた後は積まずに捨てる）
+     */
+    private void enqueue(String line) throws InterruptedException {
+        while (!abandoned) {
+            if (queue.offer(line, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 次の行を取得（出力の終端に達した場合はnull）
+     */
+    public String nextLine() throws IOException, InterruptedException {
+        if (finished || abandoned) {
+            return null;
+        }
+        String line = queue.take();
+        if (line == END_OF_STREAM) {
+            finished = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+        return line;
+    }
+
+    /**
+     * メモリに保持している末尾の行（失敗時の状況確認用）
+     */
+    public List<String> tail() {
+        synchronized (tail) {
+            int size = (int) Math.min(lineCount, tail.length);
+            List<String> lines = new ArrayList<>(size);
+            int start = (tailNext - size + tail.length) % tail.length;
+            for (int i = 0; i < size; i++) {
+                lines.add(tail[(start + i) % tail.length]);
+            }
+            return lines;
+        }
+    }
+
+    public long getLineCount() {
+        synchronized (tail) {
+            return lineCount;
+        }
+    }
+
+    /**
+     * 解析側が読むのをやめる（読み出しスレッドは以降の行をキューに積まずに最後まで読み出す）
+     */
+    @Override
+    public void close() {
+        abandoned = true;
+        queue.clear();
+    }
+
+    private static final class SharedFile {
+        final RotatingFileSink sink;
+        int references;
+
+        SharedFile(RotatingFileSink sink) {
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * 共有しているログファイルへの参照
+     */
+    private static final class SharedFileSink implements Sink {
+        private final Path key;
+        private final SharedFile shared;
+        private volatile boolean closed = false;
+
+        SharedFileSink(Path key, SharedFile shared) {
+            this.key = key;
+            this.shared = shared;
+        }
+
+        @Override
+        public void write(String line) throws IOException {
+            if (!closed) {
+                shared.sink.write(line);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!closed) {
+                shared.sink.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (OPEN_FILES) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (--shared.references > 0) {
+                    return;
+                }
+                OPEN_FILES.remove(key);
+            }
+            shared.sink.close();
+        }
+    }
+
+    /**
+     * サイズ上限でローテーションするファイルSink
+     * build-output.log が上限を超えると build-output.log.1 ... .N にずらして新しいファイルに切り替える
+     */
+    public static class RotatingFileSink implements Sink {
+        private final Path file;
+        private final long maxBytes;
+        private final int backups;
+        private Writer writer;
+        private long written;
+        private boolean closed = false;
+
+        public RotatingFileSink(Path file, long maxBytes, int backups) {
+            this.file = file;
+            this.maxBytes = maxBytes;
+            this.backups = backups;
+        }
+
+        @Override
+        public synchronized void write(String line) throws IOException {
+            if (closed) {
+                return;
+            }
+            if (writer == null) {
+                open();
+            }
+            writer.write(line);
+            writer.write(System.lineSeparator());
+            // 文字数での概算（ローテーション判定用）
+            written += line.length() + 1;
+            if (written >= maxBytes) {
+                rotate();
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        private void open() throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            written = Files.exists(file) ? Files.size(file) : 0;
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                             StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        private void rotate() throws IOException {
+            writer.close();
+            writer = null;
+            for (int i = backups; i >= 1; i--) {
+                Path source = i == 1 ? file : backupPath(i - 1);
+                if (Files.exists(source)) {
+                    Files.move(source, backupPath(i), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (backups < 1) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        private Path backupPath(int index) {
+            return file.resolveSibling(file.getFileName() + "." + index);
+        }
+    }
+}
@@ -1,18 +1,89 @@
 package com.iwata.MavenCompiler;
 
+import java.io.File;
+
 /**
  * アプリケーション設定を管理するクラス
  */
 public class CleanerConfig {
-    public static final int MAX_ITERATIONS = 20;
-    public static final String PROJECT_DIR = "C:\\Users\\cyber\\git\\NCDSearch";
-    public static final String SRC_DIR = PROJECT_DIR + "\\src";
-    public static final String TEST_DIR = PROJECT_DIR + "\\tests";
-    
+    // 修正ループの通常の上限（収束中であれば HARD_MAX_ITERATIONS まで延長）
+    public static final int MAX_ITERATIONS = Integer.getInteger("cleaner.maxIterations", 20);
+    public static final int HARD_MAX_ITERATIONS = Integer.getInteger("cleaner.hardMaxIterations", 100);
+    // エラー数が最小値を下回らない反復がこの回数続いたら終了
+    public static final int STALL_LIMIT = Integer.getInteger("cleaner.stallLimit", 3);
+    // 修正ループ全体の時間予算（cleaner.timeBudgetSeconds、0以下で無制限）
+    public static final long TIME_BUDGET_SECONDS = Long.getLong("cleaner.timeBudgetSeconds", 0);
+    // システムプロパティ cleaner.projectDir で対象プロジェクトを差し替え可能（スケールテスト用）
+    public static final String PROJECT_DIR = System.getProperty("cleaner.projectDir", "C:\\Users\\cyber\\git\\NCDSearch");
+    public static final String SRC_DIR = PROJECT_DIR + File.separator + "src";
+    public static final String TEST_DIR = PROJECT_DIR + File.separator + "tests";
+    // メインコードとテストコードを1回のプロセス内コンパイルでまとめて修正する（cleaner.combined）
+    public static final boolean COMBINED_MODE = Boolean.getBoolean("cleaner.combined");
+    // プロセス内コンパイルで使用するソースの文字コード
+    public static final String SOURCE_ENCODING = System.getProperty("cleaner.sourceEncoding", "UTF-8");
+    // ブロッキング処理に仮想スレッドを使用する（JDK 21以降のみ有効、cleaner.virtualThreads=false で無効）
+    public static final boolean VIRTUAL_THREADS = !"false".equals(System.getProperty("cleaner.virtualThreads"));
+    // 同時に修正するファイル数の上限（Spoonのモデルを同時に保持する数）
+    public static final int FIX_PARALLELISM = Integer.getInteger("cleaner.fixParallelism", 
+                                                                 Runtime.getRuntime().availableProcessors());
+    // Excelレポートの出力先（空文字の場合は出力しない。POIはレポートを出力するときだけ読み込まれる）
+    public static final String REPORT_FILE = System.getProperty("cleaner.reportFile", "CompilationReport.xlsx");
+    // ライブメトリクスHTTPサーバーのポート（cleaner.metricsPort、未指定または負値で無効、0で空きポート）
+    public static final int METRICS_PORT = Integer.getInteger("cleaner.metricsPort", -1);
+    // 解析デーモン（AnalyzerDaemon）のポートと同時に実行するジョブ数
+    public static final int DAEMON_PORT = Integer.getInteger("cleaner.daemon.port", 8750);
+    public static final int DAEMON_CONCURRENCY = Integer.getInteger("cleaner.daemon.concurrency", 1);
+    // ジョブの進捗をストリームで送信する間隔
+    public static final long DAEMON_STREAM_INTERVAL_MS = Long.getLong("cleaner.daemon.streamIntervalMs", 1000);
+    // 終了したジョブを保持する件数と時間（超えたものから一覧から削除する）
+    public static final int DAEMON_RETAINED_JOBS = Integer.getInteger("cleaner.daemon.retainedJobs", 100);
+    public static final long DAEMON_JOB_TTL_MS = Long.getLong("cleaner.daemon.jobTtlMs", 60 * 60 * 1000L);
+    // 解析デーモンのアクセストークンの保存先（未指定の場合は ~/.lia/daemon-{ポート}.token）
+    public static final String DAEMON_TOKEN_FILE = System.getProperty("cleaner.daemon.tokenFile", "");
+    // 解析結果のキャッシュの保存先（未指定の場合はキャッシュしない）
+    public static final String CACHE_DIR = System.getProperty("cleaner.cacheDir");
+    // 解析前にpom.xmlから削除するライブラリ（groupId:artifactId、未指定の場合は削除しない）
+    public static final String REMOVE_LIBRARY = System.getProperty("cleaner.removeLibrary");
+    // 依存関係のクラスパスの保存先（pom.xmlのハッシュごとに1ファイル、空文字で保存しない）
+    public static final String CLASSPATH_CACHE_DIR = System.getProperty("cleaner.classpathCacheDir",
+        System.getProperty("java.io.tmpdir") + File.separator + "lia-classpath");
+    // 修正時のSpoonのモデルに依存関係のクラスパスを渡し、実際の型情報を使う（cleaner.spoonClasspath=false で無効）
+    public static final boolean SPOON_CLASSPATH = !"false".equals(System.getProperty("cleaner.spoonClasspath"));
+    // 修正しなかったファイルのSpoonのモデルを次の反復まで保持する予算（バイト、0で無効。既定は最大ヒープの1/4）
+    public static final long MODEL_CACHE_BYTES = Long.getLong("cleaner.modelCache.bytes", 
+                                                               Runtime.getRuntime().maxMemory() / 4);
+    // モデルの推定サイズ（ソース1バイトあたりのバイト数）
+    public static final long MODEL_CACHE_BYTES_PER_SOURCE_BYTE = Long.getLong("cleaner.modelCache.bytesPerSourceByte", 80);
+    // 構築したSpoonのモデルのスナップショットの保存先（空の場合は保存しない）
+    public static final String MODEL_SNAPSHOT_DIR = System.getProperty("cleaner.modelSnapshot.dir", "");
+    // スナップショットの合計サイズの上限（バイト、超えた場合は最も前に使ったものから削除）
+    public static final long MODEL_SNAPSHOT_MAX_BYTES = Long.getLong("cleaner.modelSnapshot.maxBytes", 256L * 1024 * 1024);
+    // 削除するライブラリのjar（未指定の場合はpom.xmlのリポジトリとローカルリポジトリから探す）
+    public static final String LIBRARY_JAR = System.getProperty("cleaner.libraryJar");
+    // コンパイル前に静的な影響推定を行い、予測したエラーを最初の反復の前に修正する（cleaner.estimate.seed）
+    public static final boolean ESTIMATE_SEED = Boolean.getBoolean("cleaner.estimate.seed");
+    // 解析イベントの購読者ごとのバッファ（満杯になると解析側が待つ）
+    public static final int EVENT_BUFFER = Integer.getInteger("cleaner.events.buffer", 256);
+    // Mavenの生出力の出力先（cleaner.buildOutput: none / console / file）
+    public static final String BUILD_OUTPUT = System.getProperty("cleaner.buildOutput", "file");
+    public static final String BUILD_OUTPUT_LOG = System.getProperty("cleaner.buildOutputLog", "build-output.log");
+    public static final long BUILD_OUTPUT_MAX_BYTES = Long.getLong("cleaner.buildOutputMaxBytes", 10L * 1024 * 1024);
+    public static final int BUILD_OUTPUT_BACKUPS = Integer.getInteger("cleaner.buildOutputBackups", 3);
+    public static final int BUILD_OUTPUT_QUEUE_SIZE = 4096;
+    // ビルド失敗時の状況確認用にメモリに保持する末尾の行数
+    public static final int BUILD_OUTPUT_TAIL_LINES = Integer.getInteger("cleaner.buildOutputTail", 200);
+
     /**
      * OSに応じたMavenコマンドを取得
      */
     public static String getMavenCmd() {
         return System.getProperty("os.name").toLowerCase().contains("win") ? "mvn.cmd" : "mvn";
     }
-}
\ No newline at end of file
+
+    /**
+     * ファイルパスがテストコード（testsディレクトリ）かを判定
+     */
+    public static boolean isTestPath(String filePath) {
+        return filePath != null && filePath.contains(File.separator + "tests" + File.separator);
+    }
+}
@@ -1,18 +1,244 @@
 package com.iwata.MavenCompiler;
 
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
   定量化指標管理クラス（メインコードとテストコード分離対応、実行時間追加）
+  解析結果のキャッシュ（ResultCache）に保存するため直列化できる
  **/
-public class CompilationMetrics {
-    private int iterationCount = 0;
+public class CompilationMetrics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(CompilationMetrics.class);
+    
+    /**
+     * 細粒度の処理フェーズ
+     */
+    public enum Phase {
+        MAVEN_COMPILE("Mavenコンパイル"),
+        MAVEN_TEST("Mavenテスト実行"),
+        FILE_READ("ファイル読み込み"),
+        TEXT_EDIT("テキスト編集（高速パス）"),
+        BUILD_MODEL("Spoonモデル構築"),
+        ELEMENT_LOOKUP("要素検索"),
+        MODEL_EDIT("要素削除・修正"),
+        RETURN_REPAIR("return文補完"),
+        PRETTY_PRINT("prettyprint"),
+        FILE_WRITE("ファイル書き込み");
+        
+        private final String label;
+        
+        Phase(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() { return label; }
+    }
+    
+    /**
+     * フェーズの経過時間と現在スレッドの割り当てバイト数を計測するタイマー
+     */
+    public static final class PhaseTimer {
+        private static final com.sun.management.ThreadMXBean THREAD_BEAN = initThreadBean();
+        
+        private final long startNanos;
+        private final long startBytes;
+        
+        private PhaseTimer() {
+            this.startNanos = System.nanoTime();
+            this.startBytes = currentAllocatedBytes();
+        }
+        
+        public static PhaseTimer start() {
+            return new PhaseTimer();
+        }
+        
+        public long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+        
+        public long allocatedBytes() {
+            return startBytes < 0 ? 0 : Math.max(0, currentAllocatedBytes() - startBytes);
+        }
+        
+        private static long currentAllocatedBytes() {
+            return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : -1;
+        }
+        
+        private static com.sun.management.ThreadMXBean initThreadBean() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * 1ファイル分の修正処理におけるフェーズ別の時間と割り当てバイト数
+     */
+    public static final class FileStats implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String fileName;
+        private final String filePath;
+        private final String iterationLabel;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private final long[] phaseBytes = new long[Phase.values().length];
+        private final transient PhaseTimer totalTimer = PhaseTimer.start();
+        private long totalNanos = 0;
+        private long totalBytes = 0;
+        private int elementsDeleted = 0;
+        private long bytesWritten = 0;
+        private boolean textFastPath = false;
+        
+        private FileStats(String fileName, String filePath, String iterationLabel) {
+            this.fileName = fileName;
+            this.filePath = filePath;
+            this.iterationLabel = iterationLabel;
+        }
+        
+        /**
+         * フェーズの計測結果を加算
+         */
+        public void record(Phase phase, PhaseTimer timer) {
+            phaseNanos[phase.ordinal()] += timer.elapsedNanos();
+            phaseBytes[phase.ordinal()] += timer.allocatedBytes();
+        }
+        
+        public String getFileName() { return fileName; }
+        public String getFilePath() { return filePath; }
+        public String getIterationLabel() { return iterationLabel; }
+        public long getPhaseNanos(Phase phase) { return phaseNanos[phase.ordinal()]; }
+        public long getPhaseBytes(Phase phase) { return phaseBytes[phase.ordinal()]; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getTotalBytes() { return totalBytes; }
+        public int getElementsDeleted() { return elementsDeleted; }
+        public long getBytesWritten() { return bytesWritten; }
+        public void addBytesWritten(long bytes) { this.bytesWritten += bytes; }
+        public boolean isTextFastPath() { return textFastPath; }
+        public void markTextFastPath() { this.textFastPath = true; }
+    }
+    
+    /**
+     * 直近N件の計測値を保持するリングバッファ（ライブメトリクスのローリング統計用）
+     */
+    public static final class RollingWindow implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final long[] values;
+        private int size = 0;
+        private int next = 0;
+        private long count = 0;
+        private long sum = 0;
+        
+        public RollingWindow(int capacity) {
+            this.values = new long[capacity];
+        }
+        
+        public synchronized void add(long value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            size = Math.min(size + 1, values.length);
+            count++;
+            sum += value;
+        }
+        
+        /**
+         * 窓内の値を昇順で取得
+         */
+        public synchronized long[] sortedValues() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+        
+        /**
+         * これまでに追加された総件数（窓の外に出たものも含む）
+         */
+        public synchronized long getCount() { return count; }
+        
+        /**
+         * これまでに追加された値の合計（窓の外に出たものも含む）
+         */
+        public synchronized long getSum() { return sum; }
+    }
+    
+    /**
+     * 反復制御の判断1件
+     */
+    public static final class IterationDecision implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String codeType;
+        private final int iteration;
+        private final IterationController.Decision decision;
+        private final String detail;
+
+        IterationDecision(String codeType, int iteration, IterationController.Decision decision, String detail) {
+            this.codeType = codeType;
+            this.iteration = iteration;
+            this.decision = decision;
+            this.detail = detail;
+        }
+
+        public String getCodeType() { return codeType; }
+        public int getIteration() { return iteration; }
+        public IterationController.Decision getDecision() { return decision; }
+        public String getDetail() { return detail; }
+    }
+
+    /**
+     * ファイル単位の修正内容の集計（全反復の合計）
+     */
+    public static final class FileEdit implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String filePath;
+        private final boolean testFile;
+        private int deletedLines = 0;
+        private int addedLines = 0;
+        private int changedLines = 0;
+        private final Map<String, Integer> deletedElementsByType = new TreeMap<>();
+
+        private FileEdit(String filePath, boolean testFile) {
+            this.filePath = filePath;
+            this.testFile = testFile;
+        }
+
+        private FileEdit(FileEdit other) {
+            this(other.filePath, other.testFile);
+            this.deletedLines = other.deletedLines;
+            this.addedLines = other.addedLines;
+            this.changedLines = other.changedLines;
+            this.deletedElementsByType.putAll(other.deletedElementsByType);
+        }
+
+        public String getFilePath() { return filePath; }
+        public boolean isTestFile() { return testFile; }
+        public int getDeletedLines() { return deletedLines; }
+        public int getAddedLines() { return addedLines; }
+        public int getChangedLines() { return changedLines; }
+        public Map<String, Integer> getDeletedElementsByType() { return Collections.unmodifiableMap(deletedElementsByType); }
+        public int getDeletedElements() {
+            return deletedElementsByType.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    private static final int SLOWEST_FILES_TO_PRINT = 10;
+    private static final int ROLLING_WINDOW_SIZE = 50;
+    
+    private volatile int iterationCount = 0;
+    private volatile int testIterationCount = 0;
     
     // メインコード用メトリクス
     private Set<String> modifiedMainFiles = new HashSet<>();
     private int totalMainFiles = 0;
     private int totalMainLines = 0;
     private int deletedMainLines = 0;
+    private int addedMainLines = 0;
+    private int changedMainLines = 0;
     private int deletedMainElements = 0;
     private Map<String, Integer> deletedMainElementsByType = new HashMap<>();
     
@@ -21,6 +247,8 @@ public class CompilationMetrics {
     private int totalTestFiles = 0;
     private int totalTestLines = 0;
     private int deletedTestLines = 0;
+    private int addedTestLines = 0;
+    private int changedTestLines = 0;
     private int deletedTestElements = 0;
     private Map<String, Integer> deletedTestElementsByType = new HashMap<>();
     
@@ -41,17 +269,54 @@ public class CompilationMetrics {
     private long testExecutionTime = 0;
     private long totalExecutionTime = 0;
     
+    // フェーズ別の実行時間・割り当てバイト数（全体、反復ごと、ファイルごと）
+    private final long[] phaseTotalNanos = new long[Phase.values().length];
+    private final long[] phaseTotalBytes = new long[Phase.values().length];
+    private final Map<String, long[]> iterationPhaseNanos = new LinkedHashMap<>();
+    private final Map<String, long[]> iterationPhaseBytes = new LinkedHashMap<>();
+    private final List<FileStats> fileStats = new ArrayList<>();
+    private int textFastPathFiles = 0;
+    private String currentIterationLabel = "-";
+    
+    // 実行中の進捗（ライブメトリクス用）
+    private volatile String currentPhase = "INIT";
+    private volatile int pendingFiles = 0;
+    private volatile long lastProgressMillis = System.currentTimeMillis();
+    private final long startMillis = System.currentTimeMillis();
+    private final RollingWindow compileLatencies = new RollingWindow(ROLLING_WINDOW_SIZE);
+    private final RollingWindow fixLatencies = new RollingWindow(ROLLING_WINDOW_SIZE);
+    private final RollingWindow writeLatencies = new RollingWindow(ROLLING_WINDOW_SIZE);
+    private long bytesWritten = 0;
+    private int filesWritten = 0;
+    private int writesSkipped = 0;
+    // ModelCache（ファイルごとのSpoonのモデルのキャッシュ）
+    private int modelCacheHits = 0;
+    private int modelCacheMisses = 0;
+    private int modelCacheEvictions = 0;
+    private int modelReparses = 0;
+    private long modelReparseNanos = 0;
+    private long modelCachePeakBytes = 0;
+    // ModelSnapshotStore（ディスクに保存したモデルのスナップショット）
+    private int modelSnapshotHits = 0;
+    private int modelSnapshotMisses = 0;
+    private long modelSnapshotLoadNanos = 0;
+    private int modelSnapshotWrites = 0;
+    private long modelSnapshotWriteNanos = 0;
+    private final List<IterationDecision> iterationDecisions = new ArrayList<>();
+    private final Map<String, FileEdit> fileEdits = new TreeMap<>();
+    
     /**
      * ファイルパスからメインかテストかを判定
      */
     private boolean isTestFile(String filePath) {
-        return filePath != null && filePath.contains("\\tests\\");
+        return CleanerConfig.isTestPath(filePath);
     }
     
     /**
      * 要素削除の記録（ファイル種別を自動判定）
      */
-    public void incrementDeletedElements(String elementType, String filePath) {
+    public synchronized void incrementDeletedElements(String elementType, String filePath) {
+        fileEdit(filePath).deletedElementsByType.merge(elementType, 1, Integer::sum);
         if (isTestFile(filePath)) {
             deletedTestElements++;
             deletedTestElementsByType.merge(elementType, 1, Integer::sum);
@@ -61,10 +326,111 @@ public class CompilationMetrics {
         }
     }
     
+    /**
+     * 要素削除の記録（ファイル単位の計測にも加算）
+     */
+    public void incrementDeletedElements(String elementType, FileStats stats) {
+        stats.elementsDeleted++;
+        incrementDeletedElements(elementType, stats.getFilePath());
+    }
+    
+    private FileEdit fileEdit(String filePath) {
+        return fileEdits.computeIfAbsent(filePath, path -> new FileEdit(path, isTestFile(path)));
+    }
+    
+    /**
+     * ファイル単位の修正内容（パス順のコピー）
+     */
+    public synchronized List<FileEdit> getFileEdits() {
+        List<FileEdit> copy = new ArrayList<>(fileEdits.size());
+        fileEdits.values().forEach(edit -> copy.add(new FileEdit(edit)));
+        return copy;
+    }
+    
+    /**
+     * ファイルの修正内容の複製（書き込みに失敗した場合に revertFileEdit で戻すため、未修正の場合はnull）
+     */
+    public synchronized FileEdit copyFileEdit(String filePath) {
+        FileEdit edit = fileEdits.get(filePath);
+        return edit != null ? new FileEdit(edit) : null;
+    }
+    
+    /**
+     * 書き込みに失敗したファイルの行差分・削除要素の記録を copyFileEdit の時点に戻す
+     * 現在の反復のファイル単位の計測の削除要素数・書き込みバイト数も0にする
+     */
+    public synchronized void revertFileEdit(String filePath, FileEdit before) {
+        FileEdit current = fileEdits.get(filePath);
+        if (current == null) {
+            return;
+        }
+        FileEdit base = before != null ? before : new FileEdit(filePath, current.testFile);
+        int deleted = current.deletedLines - base.deletedLines;
+        int added = current.addedLines - base.addedLines;
+        int changed = current.changedLines - base.changedLines;
+        boolean testFile = isTestFile(filePath);
+        if (testFile) {
+            deletedTestLines -= deleted;
+            addedTestLines -= added;
+            changedTestLines -= changed;
+        } else {
+            deletedMainLines -= deleted;
+            addedMainLines -= added;
+            changedMainLines -= changed;
+        }
+        Map<String, Integer> byType = testFile ? deletedTestElementsByType : deletedMainElementsByType;
+        for (Map.Entry<String, Integer> entry : current.deletedElementsByType.entrySet()) {
+            int count = entry.getValue() - base.deletedElementsByType.getOrDefault(entry.getKey(), 0);
+            if (testFile) {
+                deletedTestElements -= count;
+            } else {
+                deletedMainElements -= count;
+            }
+            byType.computeIfPresent(entry.getKey(), (type, total) -> total - count > 0 ? total - count : null);
+        }
+        if (before != null) {
+            fileEdits.put(filePath, new FileEdit(before));
+        } else {
+            fileEdits.remove(filePath);
+        }
+        for (FileStats stats : fileStats) {
+            if (stats.filePath.equals(filePath) && stats.iterationLabel.equals(currentIterationLabel)) {
+                stats.elementsDeleted = 0;
+                stats.bytesWritten = 0;
+            }
+        }
+    }
+    
+    /**
+     * キャッシュから再適用したファイルの修正内容を記録（修正ファイル・行数・削除要素に加算）
+     */
+    public synchronized void replayFileEdit(FileEdit cached, String fileName, String filePath) {
+        FileEdit edit = fileEdit(filePath);
+        edit.deletedLines += cached.deletedLines;
+        edit.addedLines += cached.addedLines;
+        edit.changedLines += cached.changedLines;
+        cached.deletedElementsByType.forEach((type, count) -> edit.deletedElementsByType.merge(type, count, Integer::sum));
+        boolean test = isTestFile(filePath);
+        (test ? modifiedTestFiles : modifiedMainFiles).add(fileName);
+        Map<String, Integer> byType = test ? deletedTestElementsByType : deletedMainElementsByType;
+        cached.deletedElementsByType.forEach((type, count) -> byType.merge(type, count, Integer::sum));
+        if (test) {
+            deletedTestLines += cached.deletedLines;
+            addedTestLines += cached.addedLines;
+            changedTestLines += cached.changedLines;
+            deletedTestElements += cached.getDeletedElements();
+        } else {
+            deletedMainLines += cached.deletedLines;
+            addedMainLines += cached.addedLines;
+            changedMainLines += cached.changedLines;
+            deletedMainElements += cached.getDeletedElements();
+        }
+    }
+    
     /**
      * 修正ファイルの追加（ファイル種別を自動判定）
      */
-    public void addModifiedFile(String fileName, String filePath) {
+    public synchronized void addModifiedFile(String fileName, String filePath) {
         if (isTestFile(filePath)) {
             modifiedTestFiles.add(fileName);
         } else {
@@ -75,7 +441,8 @@ public class CompilationMetrics {
     /**
      * 削除行数の追加（ファイル種別を自動判定）
      */
-    public void addDeletedLines(int lines, String filePath) {
+    public synchronized void addDeletedLines(int lines, String filePath) {
+        fileEdit(filePath).deletedLines += lines;
         if (isTestFile(filePath)) {
             deletedTestLines += lines;
         } else {
@@ -83,6 +450,164 @@ public class CompilationMetrics {
         }
     }
     
+    /**
+     * 行差分（追加・削除・変更行数）の記録（ファイル種別を自動判定）
+     */
+    public synchronized void addLineDiff(LineDiff.Result diff, String filePath) {
+        FileEdit edit = fileEdit(filePath);
+        edit.deletedLines += diff.getDeleted();
+        edit.addedLines += diff.getAdded();
+        edit.changedLines += diff.getChanged();
+        if (isTestFile(filePath)) {
+            deletedTestLines += diff.getDeleted();
+            addedTestLines += diff.getAdded();
+            changedTestLines += diff.getChanged();
+        } else {
+            deletedMainLines += diff.getDeleted();
+            addedMainLines += diff.getAdded();
+            changedMainLines += diff.getChanged();
+        }
+    }
+    
+    /**
+     * 反復の開始を記録（以降のフェーズ計測はこの反復に集計される）
+     */
+    public synchronized void startIteration(String codeType, int iteration) {
+        currentIterationLabel = codeType + "-" + iteration;
+    }
+    
+    /**
+     * ファイルに紐づかないフェーズ（Mavenサブプロセスなど）の計測結果を記録
+     */
+    public synchronized void recordPhase(Phase phase, PhaseTimer timer) {
+        long nanos = timer.elapsedNanos();
+        addPhase(currentIterationLabel, phase.ordinal(), nanos, timer.allocatedBytes());
+        if (phase == Phase.MAVEN_COMPILE) {
+            compileLatencies.add(nanos);
+        }
+        lastProgressMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * ファイル1件の書き込み（WriteBatchの書き込みスレッドから呼ばれる）
+     */
+    public synchronized void recordWrite(long bytes, long nanos) {
+        bytesWritten += bytes;
+        filesWritten++;
+        writeLatencies.add(nanos);
+    }
+    
+    /**
+     * 修正後の内容が元と同一のため書き込みを省略
+     */
+    public synchronized void recordWriteSkipped() {
+        writesSkipped++;
+    }
+    
+    /**
+     * モデルキャッシュの検索結果を記録
+     */
+    public synchronized void recordModelCacheLookup(boolean hit) {
+        if (hit) {
+            modelCacheHits++;
+        } else {
+            modelCacheMisses++;
+        }
+    }
+    
+    /**
+     * 予算を超えたためモデルを破棄
+     */
+    public synchronized void recordModelCacheEviction() {
+        modelCacheEvictions++;
+    }
+    
+    /**
+     * 破棄したモデルを内容が変わっていないファイルについて再構築
+     */
+    public synchronized void recordModelReparse(long nanos) {
+        modelReparses++;
+        modelReparseNanos += nanos;
+    }
+    
+    /**
+     * キャッシュが保持しているモデルの推定サイズ
+     */
+    public synchronized void recordModelCacheSize(long retainedBytes) {
+        modelCachePeakBytes = Math.max(modelCachePeakBytes, retainedBytes);
+    }
+    
+    /**
+     * スナップショットからの復元を記録（ヒットした場合の時間は読み込みに要した時間）
+     */
+    public synchronized void recordModelSnapshotLoad(boolean hit, long nanos) {
+        if (hit) {
+            modelSnapshotHits++;
+            modelSnapshotLoadNanos += nanos;
+        } else {
+            modelSnapshotMisses++;
+        }
+    }
+    
+    /**
+     * 構築したモデルのスナップショットの保存を記録
+     */
+    public synchronized void recordModelSnapshotWrite(long nanos) {
+        modelSnapshotWrites++;
+        modelSnapshotWriteNanos += nanos;
+    }
+    
+    /**
+     * 反復制御の判断を記録
+     */
+    public synchronized void recordIterationDecision(String codeType, int iteration, 
+                                                     IterationController.Decision decision, String detail) {
+        iterationDecisions.add(new IterationDecision(codeType, iteration, decision, detail));
+    }
+    
+    public synchronized List<IterationDecision> getIterationDecisions() {
+        return new ArrayList<>(iterationDecisions);
+    }
+    
+    /**
+     * ファイル単位の計測を開始
+     */
+    public synchronized FileStats startFile(String fileName, String filePath) {
+        return new FileStats(fileName, filePath, currentIterationLabel);
+    }
+    
+    public synchronized int getTextFastPathFiles() {
+        return textFastPathFiles;
+    }
+    
+    /**
+     * ファイル単位の計測を終了し、全体と反復ごとの集計に加算
+     */
+    public synchronized void finishFile(FileStats stats) {
+        stats.totalNanos = stats.totalTimer.elapsedNanos();
+        stats.totalBytes = stats.totalTimer.allocatedBytes();
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (stats.phaseNanos[i] > 0 || stats.phaseBytes[i] > 0) {
+                addPhase(stats.iterationLabel, i, stats.phaseNanos[i], stats.phaseBytes[i]);
+            }
+        }
+        fileStats.add(stats);
+        if (stats.textFastPath) {
+            textFastPathFiles++;
+        }
+        fixLatencies.add(stats.totalNanos);
+        pendingFiles = Math.max(0, pendingFiles - 1);
+        lastProgressMillis = System.currentTimeMillis();
+    }
+    
+    private void addPhase(String iterationLabel, int phaseIndex, long nanos, long bytes) {
+        phaseTotalNanos[phaseIndex] += nanos;
+        phaseTotalBytes[phaseIndex] += bytes;
+        iterationPhaseNanos.computeIfAbsent(iterationLabel, k -> new long[Phase.values().length])[phaseIndex] += nanos;
+        iterationPhaseBytes.computeIfAbsent(iterationLabel, k -> new long[Phase.values().length])[phaseIndex] += bytes;
+    }
+    
     /**
      * テスト結果を設定
      */
@@ -125,104 +650,180 @@ public class CompilationMetrics {
      * 定量化指標を出力（メインコードとテストコード分離）
      */
     public void printMetrics() {
-        System.out.println("\n========== 定量化指標 ==========");
-        System.out.println("修正完了までの反復回数: " + iterationCount);
+        logger.info("\n========== 定量化指標 ==========");
+        logger.info("修正完了までの反復回数: {}", iterationCount);
+        logger.info("テストコード修正の反復回数: {}", testIterationCount);
+        for (IterationDecision decision : getIterationDecisions()) {
+            logger.info("  [{}-{}] {}{}", decision.getCodeType(), decision.getIteration(), decision.getDecision(),
+                        decision.getDetail() != null ? " " + decision.getDetail() : "");
+        }
         
         // 全体のサマリー
-        System.out.println("\n---------- 全体サマリー ----------");
-        System.out.println("全ファイル数: " + (totalMainFiles + totalTestFiles));
-        System.out.println("  - メインコード: " + totalMainFiles);
-        System.out.println("  - テストコード: " + totalTestFiles);
-        System.out.println("全体の行数: " + (totalMainLines + totalTestLines));
-        System.out.println("  - メインコード: " + totalMainLines);
-        System.out.println("  - テストコード: " + totalTestLines);
-        System.out.println("修正されたファイル数: " + (modifiedMainFiles.size() + modifiedTestFiles.size()));
-        System.out.println("  - メインコード: " + modifiedMainFiles.size());
-        System.out.println("  - テストコード: " + modifiedTestFiles.size());
+        logger.info("\n---------- 全体サマリー ----------");
+        logger.info("全ファイル数: {}", (totalMainFiles + totalTestFiles));
+        logger.info("  - メインコード: {}", totalMainFiles);
+        logger.info("  - テストコード: {}", totalTestFiles);
+        logger.info("全体の行数: {}", (totalMainLines + totalTestLines));
+        logger.info("  - メインコード: {}", totalMainLines);
+        logger.info("  - テストコード: {}", totalTestLines);
+        logger.info("修正されたファイル数: {}", (modifiedMainFiles.size() + modifiedTestFiles.size()));
+        logger.info("  - メインコード: {}", modifiedMainFiles.size());
+        logger.info("  - テストコード: {}", modifiedTestFiles.size());
         
         // メインコードの詳細メトリクス
-        System.out.println("\n---------- メインコード詳細 ----------");
+        logger.info("\n---------- メインコード詳細 ----------");
         printDetailedMetrics("メインコード", totalMainFiles, totalMainLines, 
-                           modifiedMainFiles.size(), deletedMainLines, 
+                           modifiedMainFiles.size(), deletedMainLines, changedMainLines, addedMainLines,
                            deletedMainElements, deletedMainElementsByType);
         
         // テストコードの詳細メトリクス
-        System.out.println("\n---------- テストコード詳細 ----------");
+        logger.info("\n---------- テストコード詳細 ----------");
         printDetailedMetrics("テストコード", totalTestFiles, totalTestLines, 
-                           modifiedTestFiles.size(), deletedTestLines, 
+                           modifiedTestFiles.size(), deletedTestLines, changedTestLines, addedTestLines,
                            deletedTestElements, deletedTestElementsByType);
         
         // テスト実行結果の出力
-        System.out.println("\n---------- テスト実行結果 ----------");
-        System.out.println("総テスト数: " + totalTests);
-        System.out.println("成功テスト数: " + passedTests);
-        System.out.println("失敗テスト数: " + failedTests);
-        System.out.println("  - [LIB-REMOVED]による失敗: " + libRemovedTestMethods.size());
-        System.out.println("  - 通常の失敗: " + failedTestMethods.size());
-        System.out.println("エラーテスト数: " + errorTests);
-        System.out.println("スキップテスト数: " + skippedTests);
-        System.out.println("テスト通過率: " + String.format("%.1f", getTestPassRate()) + "%");
+        logger.info("\n---------- テスト実行結果 ----------");
+        logger.info("総テスト数: {}", totalTests);
+        logger.info("成功テスト数: {}", passedTests);
+        logger.info("失敗テスト数: {}", failedTests);
+        logger.info("  - [LIB-REMOVED]による失敗: {}", libRemovedTestMethods.size());
+        logger.info("  - 通常の失敗: {}", failedTestMethods.size());
+        logger.info("エラーテスト数: {}", errorTests);
+        logger.info("スキップテスト数: {}", skippedTests);
+        logger.info("テスト通過率: {}%", String.format("%.1f", getTestPassRate()));
         
         // 失敗したテストメソッド名の表示
         if (!libRemovedTestMethods.isEmpty()) {
-            System.out.println("\n[LIB-REMOVED] ライブラリ削除により失敗したテストメソッド一覧 (" + libRemovedTestMethods.size() + "件):");
+            logger.info("\n[LIB-REMOVED] ライブラリ削除により失敗したテストメソッド一覧 ({}件):", libRemovedTestMethods.size());
             for (String failedTest : libRemovedTestMethods) {
-                System.out.println("  - " + failedTest);
+                logger.info("  - {}", failedTest);
             }
         }
         
         if (!failedTestMethods.isEmpty()) {
-            System.out.println("\n通常の失敗したテストメソッド一覧 (" + failedTestMethods.size() + "件):");
+            logger.info("\n通常の失敗したテストメソッド一覧 ({}件):", failedTestMethods.size());
             for (String failedTest : failedTestMethods) {
-                System.out.println("  - " + failedTest);
+                logger.info("  - {}", failedTest);
             }
         }
         
         if (!errorTestMethods.isEmpty()) {
-            System.out.println("\nエラーが発生したテストメソッド一覧 (" + errorTestMethods.size() + "件):");
+            logger.info("\nエラーが発生したテストメソッド一覧 ({}件):", errorTestMethods.size());
             for (String errorTest : errorTestMethods) {
-                System.out.println("  - " + errorTest);
+                logger.info("  - {}", errorTest);
             }
         }
         
         if (libRemovedTestMethods.isEmpty() && failedTestMethods.isEmpty() && 
             errorTestMethods.isEmpty() && totalTests > 0) {
-            System.out.println("\n全てのテストが成功しました!");
+            logger.info("\n全てのテストが成功しました!");
+        }
+        
+        printPhaseBreakdown();
+        
+        logger.info("\n===============================");
+    }
+    
+    /**
+     * フェーズ別の処理時間と割り当てバイト数を出力
+     */
+    private synchronized void printPhaseBreakdown() {
+        logger.info("\n---------- 処理時間の内訳 ----------");
+        logger.info("テキスト高速パスで処理したファイル数: {} / {}", textFastPathFiles, fileStats.size());
+        logger.info("書き込んだファイル数: {} ({}), 変更なしのため省略: {}", filesWritten, formatBytes(bytesWritten), writesSkipped);
+        if (modelCacheHits + modelCacheMisses > 0) {
+            logger.info("モデルキャッシュ: ヒット {} / 検索 {} ({}%), 破棄 {}, 再構築 {} ({}), 最大保持 {}",
+                        modelCacheHits, modelCacheHits + modelCacheMisses, 
+                        String.format("%.1f", getModelCacheHitRate() * 100), modelCacheEvictions, 
+                        modelReparses, formatTime(modelReparseNanos), formatBytes(modelCachePeakBytes));
+        }
+        if (modelSnapshotHits + modelSnapshotMisses > 0) {
+            logger.info("モデルのスナップショット: 復元 {} ({}), 未保存 {}, 保存 {} ({})",
+                        modelSnapshotHits, formatTime(modelSnapshotLoadNanos), modelSnapshotMisses,
+                        modelSnapshotWrites, formatTime(modelSnapshotWriteNanos));
+        }
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (phaseTotalNanos[i] == 0 && phaseTotalBytes[i] == 0) {
+                continue;
+            }
+            logger.info("{}: {} / 割り当て {}", phase.getLabel(), formatTime(phaseTotalNanos[i]), formatBytes(phaseTotalBytes[i]));
+        }
+        
+        if (!iterationPhaseNanos.isEmpty()) {
+            logger.info("\n反復ごとの内訳:");
+            for (Map.Entry<String, long[]> entry : iterationPhaseNanos.entrySet()) {
+                long[] nanos = entry.getValue();
+                long[] bytes = iterationPhaseBytes.get(entry.getKey());
+                StringBuilder line = new StringBuilder("  " + entry.getKey() + ":");
+                for (Phase phase : Phase.values()) {
+                    int i = phase.ordinal();
+                    if (nanos[i] > 0) {
+                        line.append(String.format(" %s=%.0fms(%s)", phase.getLabel(), nanos[i] / 1_000_000.0, 
+                                                  formatBytes(bytes[i])));
+                    }
+                }
+                logger.info("{}", line);
+            }
         }
         
-        System.out.println("\n===============================");
+        List<FileStats> slowest = getSlowestFiles(SLOWEST_FILES_TO_PRINT);
+        if (!slowest.isEmpty()) {
+            logger.info("\n処理時間の長いファイル (上位{}件):", slowest.size());
+            for (FileStats stats : slowest) {
+                logger.info("  {} [{}] {}ms / 割り当て {}", stats.getFileName(), stats.getIterationLabel(), 
+                            stats.getTotalNanos() / 1_000_000, formatBytes(stats.getTotalBytes()));
+            }
+        }
+    }
+    
+    /**
+     * バイト数を読みやすい形式に変換
+     */
+    private String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        } else if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
     }
     
     /**
      * 詳細メトリクスの出力（共通処理）
      */
     private void printDetailedMetrics(String codeType, int totalFiles, int totalLines, 
-                                    int modifiedFilesCount, int deletedLines, 
+                                    int modifiedFilesCount, int deletedLines, int changedLines, int addedLines,
                                     int deletedElements, Map<String, Integer> deletedElementsByType) {
         
         if (totalFiles > 0) {
             double fileModificationRate = (double) modifiedFilesCount / totalFiles * 100;
-            System.out.println(codeType + "ファイル修正率: " + String.format("%.1f", fileModificationRate) + "%");
+            logger.info("{}ファイル修正率: {}%", codeType, String.format("%.1f", fileModificationRate));
         } else {
-            System.out.println(codeType + "ファイル修正率: N/A (対象ファイルなし)");
+            logger.info("{}ファイル修正率: N/A (対象ファイルなし)", codeType);
         }
         
-        System.out.println(codeType + "削除された行数: " + deletedLines);
+        logger.info("{}削除された行数: {}", codeType, deletedLines);
         if (totalLines > 0) {
             double lineModificationRate = (double) deletedLines / totalLines * 100;
-            System.out.println(codeType + "行削除率: " + String.format("%.1f", lineModificationRate) + "%");
+            logger.info("{}行削除率: {}%", codeType, String.format("%.1f", lineModificationRate));
         } else {
-            System.out.println(codeType + "行削除率: N/A (対象行なし)");
+            logger.info("{}行削除率: N/A (対象行なし)", codeType);
         }
+        logger.info("{}変更された行数: {}", codeType, changedLines);
+        logger.info("{}追加された行数: {}", codeType, addedLines);
         
-        System.out.println(codeType + "削除された要素数: " + deletedElements);
+        logger.info("{}削除された要素数: {}", codeType, deletedElements);
         if (!deletedElementsByType.isEmpty()) {
-            System.out.println(codeType + "削除された要素の種類別集計:");
+            logger.info("{}削除された要素の種類別集計:", codeType);
             deletedElementsByType.entrySet().stream()
                 .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .forEach(entry -> System.out.println("  " + entry.getKey() + ": " + entry.getValue()));
+                .forEach(entry -> logger.info("  {}: {}", entry.getKey(), entry.getValue()));
         } else {
-            System.out.println(codeType + "削除された要素: なし");
+            logger.info("{}削除された要素: なし", codeType);
         }
     }
     
@@ -230,6 +831,9 @@ public class CompilationMetrics {
     public int getIterationCount() { return iterationCount; }
     public void setIterationCount(int iterationCount) { this.iterationCount = iterationCount; }
     
+    public int getTestIterationCount() { return testIterationCount; }
+    public void setTestIterationCount(int testIterationCount) { this.testIterationCount = testIterationCount; }
+    
     // メインコード関連
     public int getTotalMainFiles() { return totalMainFiles; }
     public void setTotalMainFiles(int totalMainFiles) { this.totalMainFiles = totalMainFiles; }
@@ -239,6 +843,8 @@ public class CompilationMetrics {
     
     public Set<String> getModifiedMainFiles() { return modifiedMainFiles; }
     public int getDeletedMainLines() { return deletedMainLines; }
+    public int getAddedMainLines() { return addedMainLines; }
+    public int getChangedMainLines() { return changedMainLines; }
     
     // テストコード関連
     public int getTotalTestFiles() { return totalTestFiles; }
@@ -249,6 +855,8 @@ public class CompilationMetrics {
     
     public Set<String> getModifiedTestFiles() { return modifiedTestFiles; }
     public int getDeletedTestLines() { return deletedTestLines; }
+    public int getAddedTestLines() { return addedTestLines; }
+    public int getChangedTestLines() { return changedTestLines; }
     
     // 全体メトリクス（後方互換性のため残す）
     public int getTotalFiles() { return totalMainFiles + totalTestFiles; }
@@ -327,4 +935,68 @@ public class CompilationMetrics {
     public String getTotalExecutionTimeFormatted() { 
         return formatTime(totalExecutionTime); 
     }
-}
\ No newline at end of file
+    
+    // フェーズ別計測関連のgetters
+    public synchronized long getPhaseTotalNanos(Phase phase) { return phaseTotalNanos[phase.ordinal()]; }
+    public synchronized long getPhaseTotalBytes(Phase phase) { return phaseTotalBytes[phase.ordinal()]; }
+    public synchronized Map<String, long[]> getIterationPhaseNanos() {
+        Map<String, long[]> copy = new LinkedHashMap<>();
+        iterationPhaseNanos.forEach((k, v) -> copy.put(k, v.clone()));
+        return copy;
+    }
+    public synchronized Map<String, long[]> getIterationPhaseBytes() {
+        Map<String, long[]> copy = new LinkedHashMap<>();
+        iterationPhaseBytes.forEach((k, v) -> copy.put(k, v.clone()));
+        return copy;
+    }
+    
+    /**
+     * 処理時間の長い順にファイル単位の計測結果を取得
+     */
+    public synchronized List<FileStats> getSlowestFiles(int limit) {
+        return fileStats.stream()
+            .sorted(Comparator.comparingLong(FileStats::getTotalNanos).reversed())
+            .limit(limit)
+            .toList();
+    }
+    
+    // ライブメトリクス関連
+    public String getCurrentPhase() { return currentPhase; }
+    public void setCurrentPhase(String currentPhase) {
+        this.currentPhase = currentPhase;
+        this.lastProgressMillis = System.currentTimeMillis();
+    }
+    
+    public int getPendingFiles() { return pendingFiles; }
+    public void setPendingFiles(int pendingFiles) { this.pendingFiles = pendingFiles; }
+    
+    public long getLastProgressMillis() { return lastProgressMillis; }
+    public long getStartMillis() { return startMillis; }
+    public RollingWindow getCompileLatencies() { return compileLatencies; }
+    public RollingWindow getFixLatencies() { return fixLatencies; }
+    public RollingWindow getWriteLatencies() { return writeLatencies; }
+    public synchronized long getBytesWritten() { return bytesWritten; }
+    public synchronized int getFilesWritten() { return filesWritten; }
+    public synchronized int getWritesSkipped() { return writesSkipped; }
+    public synchronized int getModelCacheHits() { return modelCacheHits; }
+    public synchronized int getModelCacheMisses() { return modelCacheMisses; }
+    public synchronized int getModelCacheEvictions() { return modelCacheEvictions; }
+    public synchronized int getModelReparses() { return modelReparses; }
+    public synchronized long getModelReparseNanos() { return modelReparseNanos; }
+    public synchronized long getModelCachePeakBytes() { return modelCachePeakBytes; }
+    public synchronized int getModelSnapshotHits() { return modelSnapshotHits; }
+    public synchronized int getModelSnapshotMisses() { return modelSnapshotMisses; }
+    public synchronized long getModelSnapshotLoadNanos() { return modelSnapshotLoadNanos; }
+    public synchronized int getModelSnapshotWrites() { return modelSnapshotWrites; }
+    public synchronized long getModelSnapshotWriteNanos() { return modelSnapshotWriteNanos; }
+    
+    public synchronized double getModelCacheHitRate() {
+        int lookups = modelCacheHits + modelCacheMisses;
+        return lookups == 0 ? 0 : (double) modelCacheHits / lookups;
+    }
+    
+    public synchronized int getModifiedMainFileCount() { return modifiedMainFiles.size(); }
+    public synchronized int getModifiedTestFileCount() { return modifiedTestFiles.size(); }
+    public synchronized Map<String, Integer> getDeletedMainElementsByType() { return new TreeMap<>(deletedMainElementsByType); }
+    public synchronized Map<String, Integer> getDeletedTestElementsByType() { return new TreeMap<>(deletedTestElementsByType); }
+}
@@ -0,0 +1,72 @@
+package com.iwata.MavenCompiler;
+
+/**
+  javacの診断メッセージの種類（javacのメッセージキーに対応）
+  Maven経由ではキーそのものは出力されないため、メッセージ本文（英語・日本語ロケール）から判定する
+ **/
+public enum DiagnosticKey {
+    PACKAGE_DOES_NOT_EXIST("compiler.err.doesnt.exist",
+                           "does not exist", "は存在しません"),
+    CANNOT_FIND_SYMBOL("compiler.err.cant.resolve",
+                       "cannot find symbol", "シンボルを見つけられません"),
+    METHOD_DOES_NOT_OVERRIDE("compiler.err.method.does.not.override.superclass",
+                             "method does not override or implement a method from a supertype",
+                             "スーパータイプのメソッドをオーバーライドまたは実装しません"),
+    INCOMPATIBLE_TYPES("compiler.err.prob.found.req",
+                       "incompatible types", "不適合な型"),
+    MISSING_RETURN("compiler.err.missing.ret.stmt",
+                   "missing return statement", "return文が指定されていません"),
+    UNREACHABLE_STATEMENT("compiler.err.unreachable.stmt",
+                          "unreachable statement", "この文に制御が移ることはありません"),
+    OTHER("", new String[0]);
+
+    private final String javacKey;
+    private final String[] fragments;
+
+    DiagnosticKey(String javacKey, String... fragments) {
+        this.javacKey = javacKey;
+        this.fragments = fragments;
+    }
+
+    public String getJavacKey() { return javacKey; }
+
+    /**
+     * メッセージ本文から種類を判定（該当なしの場合はOTHER）
+     */
+    public static DiagnosticKey classify(String message) {
+        if (message == null) {
+            return OTHER;
+        }
+        for (DiagnosticKey key : values()) {
+            for (String fragment : key.fragments) {
+                if (message.contains(fragment)) {
+                    return key;
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * javacの診断コード（Diagnostic#getCode）から種類を判定（該当なしの場合はOTHER）
+     * compiler.err.cant.resolve.location のような派生コードも前方一致で対応付ける
+     */
+    public static DiagnosticKey fromJavacKey(String code) {
+        if (code == null) {
+            return OTHER;
+        }
+        for (DiagnosticKey key : values()) {
+            if (!key.javacKey.isEmpty() && code.startsWith(key.javacKey)) {
+                return key;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * ライブラリ削除によって参照先が解決できなくなったことを示す診断か
+     */
+    public boolean isUnresolvedReference() {
+        return this == PACKAGE_DOES_NOT_EXIST || this == CANNOT_FIND_SYMBOL;
+    }
+}
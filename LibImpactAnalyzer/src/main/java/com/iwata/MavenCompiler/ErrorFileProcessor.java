@@ -4,82 +4,317 @@ import com.iwata.MavenCompiler.CompilationMetrics;
 import com.iwata.MavenCompiler.ErrorInfo;
 import com.iwata.MavenCompiler.FileUtility;
 import spoon.Launcher;
+import spoon.compiler.Environment;
 import spoon.reflect.CtModel;
 import spoon.reflect.code.*;
 import spoon.reflect.cu.CompilationUnit;
 import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.*;
+import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.CtScanner;
 import spoon.support.sniper.SniperJavaPrettyPrinter;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
   エラーファイルの修正処理（メインコードとテストコード分離対応）
  **/
 public class ErrorFileProcessor {
+
+    private static final Logger logger = LogManager.getLogger(ErrorFileProcessor.class);
+    
+    // 同時に修正するファイル数の上限
+    private final int fixParallelism;
+    // ファイル修正の開始・終了と削除した要素の通知先
+    private final AnalysisEventPublisher events;
+    // 書き換えたファイルの参照を差し替える参照インデックス（nullの場合は更新しない）
+    private volatile ReferenceIndex referenceIndex;
+    // Spoonのモデル構築に渡す依存関係のクラスパス（nullの場合はクラスパスなしで型を推測する）
+    private volatile ProjectClasspath classpath;
+    // 修正しなかったファイルのモデルを次の反復まで保持するキャッシュ
+    private final ModelCache modelCache;
+    // 構築したモデルをディスクに保存し、次回以降の実行で同じ内容のファイルの構文解析を省略するスナップショット
+    private final ModelSnapshotStore modelSnapshots;
+    
+    public ErrorFileProcessor() {
+        this(AnalysisConfig.fromSystemProperties(), new AnalysisEventPublisher());
+    }
+    
+    public ErrorFileProcessor(AnalysisConfig config, AnalysisEventPublisher events) {
+        this(config.getFixParallelism(), events, ModelCache.shared(config), ModelSnapshotStore.fromConfig(config));
+    }
+    
+    public ErrorFileProcessor(int fixParallelism, AnalysisEventPublisher events, ModelCache modelCache,
+                              ModelSnapshotStore modelSnapshots) {
+        this.fixParallelism = fixParallelism;
+        this.events = events;
+        this.modelCache = modelCache;
+        this.modelSnapshots = modelSnapshots;
+    }
+    
+    /**
+     * モデル構築時に型を解決するための依存関係のクラスパスを設定
+     * 削除したライブラリの型は解決できないため、noClasspathモードのまま解決できる型だけに実際の型情報を使う
+     * クラスパスの解決は最初にモデルを構築するときに行う
+     */
+    public void setClasspath(ProjectClasspath classpath) {
+        this.classpath = classpath;
+    }
+    
+    /**
+     * ファイルを書き換えたときに更新する参照インデックスを設定
+     */
+    public void setReferenceIndex(ReferenceIndex referenceIndex) {
+        this.referenceIndex = referenceIndex;
+    }
+    
+    /**
+     * エラーファイルを修正し、直ちに書き込む
+     */
     public boolean processErrorFile(File file, ErrorInfo errorInfo, CompilationMetrics metrics) {
+        WriteBatch writeBatch = new WriteBatch();
+        boolean modified = processErrorFile(file, errorInfo, metrics, writeBatch);
+        return writeBatch.flush(metrics).isEmpty() && modified;
+    }
+    
+    /**
+     * 複数のエラーファイルを並列に修正し、修正後の内容を書き込みバッチに追加する
+     * 同時に処理するファイル数は fixParallelism まで
+     * @return 各ファイルが修正されたか（入力と同じ順序）
+     */
+    public List<Boolean> processErrorFiles(List<ErrorInfo> errorInfos, CompilationMetrics metrics, 
+                                           WriteBatch writeBatch) throws Exception {
+        return TaskExecutors.map("file-fix", errorInfos, fixParallelism, errorInfo -> {
+            File file = new File(errorInfo.getFilePath());
+            if (!file.exists()) {
+                logger.warn("ファイルが見つかりません: {}", file.getAbsolutePath());
+                return false;
+            }
+            return processErrorFile(file, errorInfo, metrics, writeBatch);
+        });
+    }
+    
+    /**
+     * エラーファイルを修正し、修正後の内容を書き込みバッチに追加する（書き込みは WriteBatch.flush で行う）
+     */
+    public boolean processErrorFile(File file, ErrorInfo errorInfo, CompilationMetrics metrics, 
+                                    WriteBatch writeBatch) {
+        CompilationMetrics.FileStats stats = metrics.startFile(errorInfo.getFileName(), errorInfo.getFilePath());
+        AnalyzerEvents.FileFixEvent event = new AnalyzerEvents.FileFixEvent();
+        event.begin();
+        boolean modified = false;
+        events.publish(new AnalysisEvent.FileFixStarted(stats.getIterationLabel(), errorInfo.getFilePath(), 
+                                                        errorInfo.getDiagnosticCount()));
         try {
-            System.out.println("\n--- " + errorInfo.getFileName() + " の修正処理開始 ---");
+            logger.info("\n--- {} の修正処理開始 ---", errorInfo.getFileName());
 
-            String originalContent = Files.readString(file.toPath(), StandardCharsets.UTF_8);
-            boolean isTestFile = errorInfo.getFilePath().contains("\\tests\\");
+            CompilationMetrics.PhaseTimer timer = CompilationMetrics.PhaseTimer.start();
+            byte[] originalBytes = Files.readAllBytes(file.toPath());
+            stats.record(CompilationMetrics.Phase.FILE_READ, timer);
+            boolean isTestFile = CleanerConfig.isTestPath(errorInfo.getFilePath());
 
-            Launcher launcher = new Launcher();
-            launcher.getEnvironment().setNoClasspath(true);
-            launcher.getEnvironment().setAutoImports(true);
-            launcher.getEnvironment().setPrettyPrinterCreator(
-                () -> new SniperJavaPrettyPrinter(launcher.getEnvironment())
-            );
-            launcher.addInputResource(file.getAbsolutePath());
-            launcher.buildModel();
-            CtModel model = launcher.getModel();
+            // 全エラーがimport文・単独の文の場合はSpoonを使わずに行を削除する
+            timer = CompilationMetrics.PhaseTimer.start();
+            TextFastPath.Edit edit = TextFastPath.plan(originalBytes, errorInfo, isTestFile);
+            stats.record(CompilationMetrics.Phase.TEXT_EDIT, timer);
+            if (edit != null) {
+                modified = applyTextEdit(file, errorInfo, edit, originalBytes, writeBatch, metrics, stats);
+                return modified;
+            }
+            String originalContent = new String(originalBytes, StandardCharsets.UTF_8);
 
-            boolean modified = false;
+            timer = CompilationMetrics.PhaseTimer.start();
+            String[] sourceClasspath = classpath != null ? classpath.toPathArray() : null;
+            Launcher launcher = modelCache.acquire(file.toPath(), originalBytes, sourceClasspath, metrics,
+                                                   () -> buildModel(file, originalBytes, sourceClasspath, metrics));
+            CtModel model = launcher.getModel();
+            stats.record(CompilationMetrics.Phase.BUILD_MODEL, timer);
+            int deletedBefore = stats.getElementsDeleted();
 
             if (isTestFile) {
                 // テストコードの場合: エラー行を含むテストメソッドを特定し、本体を削除してAssert.failを挿入
-                modified = handleTestFileErrors(launcher, model, errorInfo, metrics);
+                modified = handleTestFileErrors(launcher, model, errorInfo, metrics, stats);
             } else {
-                // メインコードの場合: 従来通りエラー行の要素を削除
+                // メインコードの場合: エラー列の参照を含む最小の要素を削除・スタブ化し、
+                // 特定できない行は従来通りエラー行の要素を削除
+                // 削除によって本体が変更されたメソッドのみをreturn文の補修対象とする
+                DirtyMethods dirtyMethods = new DirtyMethods();
                 for (int lineNum : errorInfo.getErrorLines()) {
+                    timer = CompilationMetrics.PhaseTimer.start();
+                    List<TargetedDeletion.Target> targets = resolveTargets(model, originalContent, errorInfo, lineNum);
+                    stats.record(CompilationMetrics.Phase.ELEMENT_LOOKUP, timer);
+                    if (targets != null) {
+                        timer = CompilationMetrics.PhaseTimer.start();
+                        modified = applyTargets(launcher, targets, dirtyMethods, metrics, stats) || modified;
+                        stats.record(CompilationMetrics.Phase.MODEL_EDIT, timer);
+                        continue;
+                    }
+
+                    timer = CompilationMetrics.PhaseTimer.start();
                     List<CtElement> targetNodes = model.getElements(e -> {
                         SourcePosition pos = e.getPosition();
                         return pos != null && pos.isValidPosition() && pos.getLine() == lineNum;
                     });
+                    stats.record(CompilationMetrics.Phase.ELEMENT_LOOKUP, timer);
 
+                    timer = CompilationMetrics.PhaseTimer.start();
                     for (CtElement element : targetNodes) {
                         String elementType = element.getClass().getSimpleName();
-                        System.out.println("削除対象要素: " + elementType + " - " + element);
+                        // 要素のダンプ（toString）はDEBUG有効時のみ評価される
+                        logger.debug("削除対象要素: {} - {}", elementType, element);
+                        dirtyMethods.elementDeleted(element);
                         element.delete();
-                        metrics.incrementDeletedElements(elementType, errorInfo.getFilePath());
+                        recordDeletion(metrics, elementType, stats);
                         modified = true;
                     }
                     
                     // エラー行で要素が見つからない場合の処理
                     if (targetNodes.isEmpty()) {
-                        modified = handleMissingElement(launcher, model, lineNum, metrics, errorInfo.getFilePath()) || modified;
+                        modified = handleMissingElement(launcher, model, lineNum, dirtyMethods, metrics, stats) || modified;
                     }
+                    stats.record(CompilationMetrics.Phase.MODEL_EDIT, timer);
                 }
 
                 // メソッドの本体が空または不完全になった場合の処理
-                modified = fixIncompleteMethods(launcher, model, metrics, errorInfo.getFilePath()) || modified;
+                timer = CompilationMetrics.PhaseTimer.start();
+                modified = fixIncompleteMethods(launcher, dirtyMethods, metrics, stats) || modified;
+                stats.record(CompilationMetrics.Phase.RETURN_REPAIR, timer);
             }
 
             // import文の処理とファイル書き込み
-            modified = processImportsAndSave(launcher, file, errorInfo, metrics, 
-                                            originalContent, modified) || modified;
+            modified = processImportsAndSave(launcher, file, errorInfo, metrics, stats,
+                                            originalBytes, originalContent, writeBatch, modified);
 
+            // モデルを変更しなかった場合のみ次の反復のために戻す
+            if (stats.getElementsDeleted() == deletedBefore) {
+                modelCache.release(file.toPath(), originalBytes, sourceClasspath, launcher, metrics);
+            }
             return modified;
 
         } catch (Exception e) {
-            System.out.println("ファイル処理中にエラーが発生しました: " + 
-                             errorInfo.getFileName() + " - " + e.getMessage());
-            e.printStackTrace();
+            logger.error("ファイル処理中にエラーが発生しました: {} - {}", errorInfo.getFileName(), e.getMessage(), e);
+            modified = false;
+            return false;
+        } finally {
+            metrics.finishFile(stats);
+            events.publish(new AnalysisEvent.FileFixFinished(stats, modified));
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = errorInfo.getFilePath();
+                event.iteration = stats.getIterationLabel();
+                event.errorLineCount = errorInfo.getErrorLines().length;
+                event.elementsDeleted = stats.getElementsDeleted();
+                event.bytesWritten = stats.getBytesWritten();
+                event.modified = modified;
+                event.textFastPath = stats.isTextFastPath();
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * ファイル1つのSpoonのモデルを構築（noClasspathモード、Sniperで元の書式を保って出力する）
+     * 同じ内容のスナップショットがあれば構文解析せずに復元し、なければ構築したモデルを保存する
+     */
+    private Launcher buildModel(File file, byte[] content, String[] sourceClasspath, CompilationMetrics metrics) {
+        if (modelSnapshots.isEnabled()) {
+            long start = System.nanoTime();
+            Launcher restored = modelSnapshots.load(file.toPath(), content, sourceClasspath,
+                                                    environment -> configureEnvironment(environment, sourceClasspath));
+            metrics.recordModelSnapshotLoad(restored != null, System.nanoTime() - start);
+            if (restored != null) {
+                return restored;
+            }
+        }
+        Launcher launcher = new Launcher();
+        configureEnvironment(launcher.getEnvironment(), sourceClasspath);
+        launcher.addInputResource(file.getAbsolutePath());
+        launcher.buildModel();
+        if (modelSnapshots.isEnabled()) {
+            long start = System.nanoTime();
+            modelSnapshots.save(file.toPath(), content, sourceClasspath, launcher);
+            metrics.recordModelSnapshotWrite(System.nanoTime() - start);
+        }
+        return launcher;
+    }
+    
+    private static void configureEnvironment(Environment environment, String[] sourceClasspath) {
+        environment.setNoClasspath(true);
+        if (sourceClasspath != null) {
+            environment.setSourceClasspath(sourceClasspath);
+        }
+        environment.setAutoImports(true);
+        environment.setPrettyPrinterCreator(() -> new SniperJavaPrettyPrinter(environment));
+    }
+    
+    /**
+     * 要素の削除（スタブ化・追加を含む）をメトリクスに記録し、購読者に通知
+     */
+    private void recordDeletion(CompilationMetrics metrics, String elementType, CompilationMetrics.FileStats stats) {
+        metrics.incrementDeletedElements(elementType, stats);
+        events.publish(new AnalysisEvent.ElementDeleted(stats.getIterationLabel(), stats.getFilePath(), elementType));
+    }
+    
+    /**
+     * ファイルを書き換えたときに、保持しているモデルを破棄して参照インデックスを更新
+     */
+    private void fileRewritten(File file, byte[] content) {
+        modelCache.invalidate(file.toPath());
+        ReferenceIndex index = referenceIndex;
+        if (index != null) {
+            index.update(file.toPath(), content);
+        }
+    }
+    
+    /**
+     * 書き込みに失敗したファイルについて、保持しているモデルを破棄し、参照インデックスをディスク上の内容に戻す
+     */
+    public void writeFailed(Path file) {
+        modelCache.invalidate(file);
+        ReferenceIndex index = referenceIndex;
+        if (index != null) {
+            try {
+                index.update(file, Files.readAllBytes(file));
+            } catch (IOException e) {
+                index.remove(file);
+            }
+        }
+    }
+    
+    /**
+     * 高速パスの編集内容を適用して書き込みバッチに追加
+     */
+    private boolean applyTextEdit(File file, ErrorInfo errorInfo, TextFastPath.Edit edit, byte[] originalBytes,
+                                  WriteBatch writeBatch, CompilationMetrics metrics, 
+                                  CompilationMetrics.FileStats stats) {
+        CompilationMetrics.PhaseTimer timer = CompilationMetrics.PhaseTimer.start();
+        byte[] result = edit.apply();
+        for (Map.Entry<Integer, TextFastPath.LineKind> entry : edit.getLines().entrySet()) {
+            logger.debug("削除対象行 ({}): {}", entry.getValue(), entry.getKey());
+            recordDeletion(metrics, 
+                entry.getValue() == TextFastPath.LineKind.IMPORT ? "CtImport" : "CtStatement (text)", stats);
+        }
+        stats.markTextFastPath();
+        stats.record(CompilationMetrics.Phase.TEXT_EDIT, timer);
+        
+        if (!writeBatch.add(file.toPath(), originalBytes, result)) {
+            metrics.recordWriteSkipped();
             return false;
         }
+        stats.addBytesWritten(result.length);
+        fileRewritten(file, result);
+        logger.info("テキスト編集で修正しました（Spoon未使用）: {}", errorInfo.getFileName());
+        
+        LineDiff.Result diff = LineDiff.Result.ofDeletedLines(edit.getDeletedLineCount());
+        metrics.addLineDiff(diff, errorInfo.getFilePath());
+        logger.info("行差分: {}", diff);
+        return true;
     }
     
     /**
@@ -87,14 +322,21 @@ public class ErrorFileProcessor {
      * testsディレクトリ内のファイルは全てテストコードとして扱う
      */
     private boolean handleTestFileErrors(Launcher launcher, CtModel model, 
-                                        ErrorInfo errorInfo, CompilationMetrics metrics) {
+                                        ErrorInfo errorInfo, CompilationMetrics metrics,
+                                        CompilationMetrics.FileStats stats) {
         boolean modified = false;
         Set<CtMethod<?>> processedMethods = new HashSet<>();
         
+        // メソッド一覧はエラー行ごとに変わらないため一度だけ検索する
+        CompilationMetrics.PhaseTimer timer = CompilationMetrics.PhaseTimer.start();
+        List<CtMethod<?>> methods = model.getElements(e -> e instanceof CtMethod<?>).stream()
+                .<CtMethod<?>>map(e -> (CtMethod<?>) e).toList();
+        stats.record(CompilationMetrics.Phase.ELEMENT_LOOKUP, timer);
+        
+        timer = CompilationMetrics.PhaseTimer.start();
         for (int lineNum : errorInfo.getErrorLines()) {
             // エラー行を含むメソッドを探す
-            for (CtMethod<?> method : model.getElements(e -> e instanceof CtMethod<?>).stream()
-                    .map(e -> (CtMethod<?>) e).toList()) {
+            for (CtMethod<?> method : methods) {
                 
                 // すでに処理済みのメソッドはスキップ
                 if (processedMethods.contains(method)) {
@@ -108,14 +350,13 @@ public class ErrorFileProcessor {
                     
                     // エラー行がメソッド内にあるかチェック
                     if (lineNum >= startLine && lineNum <= endLine) {
-                        System.out.println("テストメソッド内エラー検出: " + method.getSimpleName() + 
-                                         " (行 " + startLine + "-" + endLine + ")");
+                        logger.debug("テストメソッド内エラー検出: {} (行 {}-{})", method.getSimpleName(), startLine, endLine);
                         
                         // メソッド本体を削除
                         CtBlock<?> body = method.getBody();
                         if (body != null) {
                             body.getStatements().clear();
-                            System.out.println("メソッド本体を削除しました: " + method.getSimpleName());
+                            logger.info("メソッド本体を削除しました: {}", method.getSimpleName());
                         } else {
                             body = launcher.getFactory().Core().createBlock();
                             method.setBody(body);
@@ -128,32 +369,34 @@ public class ErrorFileProcessor {
                                     "org.junit.Assert.fail(\"[LIB-REMOVED] このテストは削除対象ライブラリ依存のため失敗扱い\")"
                                 );
                             body.addStatement(failStatement);
-                            System.out.println("Assert.fail文を挿入しました: " + method.getSimpleName());
+                            logger.info("Assert.fail文を挿入しました: {}", method.getSimpleName());
                         } catch (Exception e) {
-                            System.out.println("Assert.fail文の挿入に失敗しました: " + e.getMessage());
+                            logger.warn("Assert.fail文の挿入に失敗しました: {}", e.getMessage());
                             // フォールバック: 単純なthrow文を挿入
                             CtStatement throwStatement = launcher.getFactory().Code()
                                 .createCodeSnippetStatement(
                                     "throw new RuntimeException(\"[LIB-REMOVED] このテストは削除対象ライブラリ依存のため失敗扱い\")"
                                 );
                             body.addStatement(throwStatement);
-                            System.out.println("代わりにRuntimeExceptionをスローする文を挿入しました: " + method.getSimpleName());
+                            logger.info("代わりにRuntimeExceptionをスローする文を挿入しました: {}", method.getSimpleName());
                         }
                         
-                        metrics.incrementDeletedElements("TestMethodBody", errorInfo.getFilePath());
+                        recordDeletion(metrics, "TestMethodBody", stats);
                         processedMethods.add(method);
                         modified = true;
                     }
                 }
             }
         }
+        stats.record(CompilationMetrics.Phase.MODEL_EDIT, timer);
         
         return modified;
     }
     
     private boolean handleMissingElement(Launcher launcher, CtModel model, 
-                                        int lineNum, CompilationMetrics metrics, String filePath) {
-        System.out.println("エラー行 " + lineNum + " で要素が見つからないため、メソッドレベルで対応");
+                                        int lineNum, DirtyMethods dirtyMethods, CompilationMetrics metrics,
+                                        CompilationMetrics.FileStats stats) {
+        logger.debug("エラー行 {} で要素が見つからないため、メソッドレベルで対応", lineNum);
         
         for (CtMethod<?> method : model.getElements(e -> e instanceof CtMethod<?>).stream()
                 .map(e -> (CtMethod<?>) e).toList()) {
@@ -174,9 +417,9 @@ public class ErrorFileProcessor {
                             CtExpression<Object> defaultValue = createDefaultValue(launcher, returnType);
                             returnStmt.setReturnedExpression(defaultValue);
                             body.addStatement(returnStmt);
-                            System.out.println("エラー行を含むメソッドにreturn文を追加: " + 
-                                             method.getSignature());
-                            metrics.incrementDeletedElements("CtReturn (added)", filePath);
+                            logger.debug("エラー行を含むメソッドにreturn文を追加: {}", method::getSignature);
+                            dirtyMethods.methodChanged(method);
+                            recordDeletion(metrics, "CtReturn (added)", stats);
                             return true;
                         }
                     }
@@ -186,12 +429,118 @@ public class ErrorFileProcessor {
         return false;
     }
     
-    private boolean fixIncompleteMethods(Launcher launcher, CtModel model, 
-                                        CompilationMetrics metrics, String filePath) {
+    /**
+     * 行内の全診断について列位置から修正対象の要素を特定
+     * 未解決参照以外の診断・列情報のない診断を含む場合や、対象を特定できない場合はnull（行単位の削除を行う）
+     */
+    private List<TargetedDeletion.Target> resolveTargets(CtModel model, String content, 
+                                                         ErrorInfo errorInfo, int lineNum) {
+        int first = errorInfo.indexOfLine(lineNum);
+        if (first < 0) {
+            return null;
+        }
+        List<TargetedDeletion.Target> targets = new ArrayList<>();
+        for (int i = first; i < errorInfo.getDiagnosticCount() && errorInfo.getLine(i) == lineNum; i++) {
+            if (!errorInfo.getKey(i).isUnresolvedReference()) {
+                return null;
+            }
+            int offset = TargetedDeletion.toOffset(content, lineNum, errorInfo.getColumn(i));
+            if (offset < 0) {
+                return null;
+            }
+            CtElement smallest = TargetedDeletion.findSmallestAt(model, offset);
+            TargetedDeletion.Target target = smallest != null ? TargetedDeletion.resolve(smallest) : null;
+            if (target == null) {
+                return null;
+            }
+            targets.add(target);
+        }
+        return targets;
+    }
+    
+    /**
+     * 特定した要素を削除、または既定値のリテラルに置き換える
+     */
+    private boolean applyTargets(Launcher launcher, List<TargetedDeletion.Target> targets, DirtyMethods dirtyMethods,
+                                 CompilationMetrics metrics, CompilationMetrics.FileStats stats) {
         boolean modified = false;
+        for (TargetedDeletion.Target target : targets) {
+            CtElement element = target.getElement();
+            if (dirtyMethods.isDeleted(element)) {
+                // 同じ行の別の診断で祖先ごと削除済み
+                continue;
+            }
+            String elementType = element.getClass().getSimpleName();
+            if (target.getAction() == TargetedDeletion.Action.DELETE) {
+                logger.debug("削除対象要素: {} - {}", elementType, element);
+                dirtyMethods.elementDeleted(element);
+                element.delete();
+                recordDeletion(metrics, elementType, stats);
+            } else {
+                CtExpression<?> expression = (CtExpression<?>) element;
+                CtExpression<Object> stub = createDefaultValue(launcher, target.getStubType());
+                logger.debug("既定値に置き換え: {} - {} -> {}", elementType, expression, stub);
+                dirtyMethods.elementDeleted(expression);
+                expression.replace(stub);
+                recordDeletion(metrics, elementType + " (stubbed)", stats);
+            }
+            modified = true;
+        }
+        return modified;
+    }
+    
+    /**
+     * 削除・編集によって本体が変更されたメソッドの記録
+     * Spoonの要素のequals/hashCodeは構造比較のため、同一性で管理する
+     */
+    private static class DirtyMethods {
+        private final Set<CtMethod<?>> methods = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<CtElement> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
         
-        for (CtMethod<?> method : model.getElements(e -> e instanceof CtMethod<?>).stream()
-                .map(e -> (CtMethod<?>) e).toList()) {
+        void elementDeleted(CtElement element) {
+            deleted.add(element);
+            CtMethod<?> method = element.getParent(CtMethod.class);
+            if (method != null) {
+                methods.add(method);
+            }
+        }
+        
+        void methodChanged(CtMethod<?> method) {
+            methods.add(method);
+        }
+        
+        /**
+         * 変更されたメソッドのうち、自身または祖先が削除されていないもの
+         */
+        List<CtMethod<?>> remaining() {
+            List<CtMethod<?>> result = new ArrayList<>();
+            for (CtMethod<?> method : methods) {
+                if (!isDeleted(method)) {
+                    result.add(method);
+                }
+            }
+            return result;
+        }
+        
+        private boolean isDeleted(CtElement element) {
+            for (CtElement e = element; e != null; e = e.isParentInitialized() ? e.getParent() : null) {
+                if (deleted.contains(e)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * 変更されたメソッドのうち、本体が空またはreturn文が不足しているものにデフォルトのreturn文を追加
+     * （import文の削除はメソッド本体を変更しないため対象外）
+     */
+    private boolean fixIncompleteMethods(Launcher launcher, DirtyMethods dirtyMethods, 
+                                        CompilationMetrics metrics, CompilationMetrics.FileStats stats) {
+        boolean modified = false;
+        
+        for (CtMethod<?> method : dirtyMethods.remaining()) {
             
             CtBlock<?> body = method.getBody();
             CtTypeReference<?> returnType = method.getType();
@@ -208,8 +557,8 @@ public class ErrorFileProcessor {
                         method.setBody(body);
                     }
                     body.addStatement(returnStmt);
-                    System.out.println("空のメソッドにデフォルトreturn文を追加: " + method.getSignature());
-                    metrics.incrementDeletedElements("CtReturn (added)", filePath);
+                    logger.debug("空のメソッドにデフォルトreturn文を追加: {}", method::getSignature);
+                    recordDeletion(metrics, "CtReturn (added)", stats);
                     modified = true;
                 } else {
                     // return文の確認
@@ -221,9 +570,8 @@ public class ErrorFileProcessor {
                         CtExpression<Object> defaultValue = createDefaultValue(launcher, returnType);
                         returnStmt.setReturnedExpression(defaultValue);
                         body.addStatement(returnStmt);
-                        System.out.println("return文が不足しているメソッドにデフォルトreturn文を追加: " + 
-                                         method.getSignature());
-                        metrics.incrementDeletedElements("CtReturn (added)", filePath);
+                        logger.debug("return文が不足しているメソッドにデフォルトreturn文を追加: {}", method::getSignature);
+                        recordDeletion(metrics, "CtReturn (added)", stats);
                         modified = true;
                     }
                 }
@@ -234,12 +582,17 @@ public class ErrorFileProcessor {
     }
     
     private boolean processImportsAndSave(Launcher launcher, File file, ErrorInfo errorInfo,
-                                         CompilationMetrics metrics, String originalContent,
-                                         boolean alreadyModified) throws IOException {
+                                         CompilationMetrics metrics, CompilationMetrics.FileStats stats,
+                                         byte[] originalBytes, String originalContent, WriteBatch writeBatch,
+                                         boolean alreadyModified) {
         boolean modified = alreadyModified;
         
-        CompilationUnit targetUnit = launcher.getFactory().CompilationUnit().getMap().values().stream()
-                .filter(cu -> cu.getFile() != null && 
+        CompilationMetrics.PhaseTimer timer = CompilationMetrics.PhaseTimer.start();
+        // スナップショットから復元したモデルはファクトリのコンパイル単位の一覧が空のため、型の位置からも探す
+        CompilationUnit targetUnit = Stream.concat(
+                    launcher.getFactory().CompilationUnit().getMap().values().stream(),
+                    launcher.getModel().getAllTypes().stream().map(type -> type.getPosition().getCompilationUnit()))
+                .filter(cu -> cu != null && cu.getFile() != null && 
                             cu.getFile().getName().equals(errorInfo.getFileName()))
                 .findFirst()
                 .orElse(null);
@@ -249,50 +602,85 @@ public class ErrorFileProcessor {
             for (CtImport ctImport : targetUnit.getImports()) {
                 SourcePosition pos = ctImport.getPosition();
                 if (pos != null && pos.isValidPosition() && 
-                    errorInfo.getErrorLines().contains(pos.getLine())) {
-                    System.out.println("削除対象import文: " + ctImport);
+                    errorInfo.containsLine(pos.getLine())) {
+                    logger.debug("削除対象import文: {}", ctImport);
                     importsToRemove.add(ctImport);
-                    metrics.incrementDeletedElements("CtImport", errorInfo.getFilePath());
+                    recordDeletion(metrics, "CtImport", stats);
                     modified = true;
                 }
             }
             targetUnit.getImports().removeAll(importsToRemove);
+            stats.record(CompilationMetrics.Phase.MODEL_EDIT, timer);
 
             if (modified) {
+                timer = CompilationMetrics.PhaseTimer.start();
                 String result = targetUnit.prettyprint();
-                try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
-                    writer.print(result);
-                    System.out.println("修正後コードを元ファイルに上書き保存しました: " + 
-                                     errorInfo.getFileName());
+                stats.record(CompilationMetrics.Phase.PRETTY_PRINT, timer);
+                
+                byte[] bytes = result.getBytes(StandardCharsets.UTF_8);
+                if (!writeBatch.add(file.toPath(), originalBytes, bytes)) {
+                    // 出力が元の内容と同一の場合は修正なしとして扱う
+                    metrics.recordWriteSkipped();
+                    return false;
                 }
+                stats.addBytesWritten(bytes.length);
+                fileRewritten(file, bytes);
+                logger.info("修正後コードを書き込み対象に追加しました: {}", errorInfo.getFileName());
                 
-                int deletedLinesCount = FileUtility.calculateDeletedLines(originalContent, result);
+                LineDiff.Result diff = LineDiff.diff(originalContent, result);
                 // ファイルパス情報を渡してメイン/テストを判定
-                metrics.addDeletedLines(deletedLinesCount, errorInfo.getFilePath());
-                System.out.println("削除された行数: " + deletedLinesCount);
+                metrics.addLineDiff(diff, errorInfo.getFilePath());
+                logger.info("行差分: {}", diff);
             }
         } else {
-            System.out.println("指定ファイルの構文ユニットが見つかりませんでした: " + 
-                             errorInfo.getFileName());
+            logger.warn("指定ファイルの構文ユニットが見つかりませんでした: {}", errorInfo.getFileName());
         }
         
         return modified;
     }
     
+    /**
+     * 型の既定値のリテラル（ラッパー型は対応するプリミティブ型の既定値）
+     * long・float・doubleは型に合わせたリテラルにする（Long等のラッパー型にはintの0を代入できないため）
+     * 型変数や解決できない型はnull
+     */
     private CtExpression<Object> createDefaultValue(Launcher launcher, CtTypeReference<?> returnType) {
-        String typeStr = returnType.unbox().getSimpleName();
+        String typeStr = returnType instanceof CtTypeParameterReference ? "" : returnType.unbox().getSimpleName();
         return switch (typeStr) {
             case "boolean" -> launcher.getFactory().Code().createLiteral(false);
             case "char" -> launcher.getFactory().Code().createLiteral('\0');
-            case "byte", "short", "int", "long", "float", "double" ->
-                    launcher.getFactory().Code().createLiteral(0);
+            case "byte", "short", "int" -> launcher.getFactory().Code().createLiteral(0);
+            case "long" -> launcher.getFactory().Code().createLiteral(0L);
+            case "float" -> launcher.getFactory().Code().createLiteral(0f);
+            case "double" -> launcher.getFactory().Code().createLiteral(0d);
             default -> launcher.getFactory().Code().createLiteral(null);
         };
     }
     
     private boolean hasReturnStatement(CtBlock<?> block) {
-        return block.getElements(e -> e instanceof CtReturn<?>).stream()
-                .anyMatch(e -> true);
+        ReturnFinder finder = new ReturnFinder();
+        finder.scan(block);
+        return finder.found;
+    }
+    
+    /**
+     * 最初のreturn文が見つかった時点で走査を打ち切るスキャナー
+     * ラムダ式・匿名クラス・ローカルクラスのreturn文はメソッド自身のreturn文ではないため走査しない
+     */
+    private static class ReturnFinder extends CtScanner {
+        private boolean found = false;
+        
+        @Override
+        public void scan(CtElement element) {
+            if (!found && !(element instanceof CtLambda<?>) && !(element instanceof CtType<?>)) {
+                super.scan(element);
+            }
+        }
+        
+        @Override
+        public <R> void visitCtReturn(CtReturn<R> returnStatement) {
+            found = true;
+        }
     }
     
     private boolean hasUnreachableCodeAfterReturn(CtBlock<?> block) {
@@ -4,25 +4,127 @@ import java.util.*;
 
 /**
  * エラー情報を保持するクラス
+ * 診断（行・列・種類）は1件をlong 1つに詰めた配列で保持し、行→列の順にソートして重複を除く
+ *   上位32ビット: 行, 続く24ビット: 列, 下位8ビット: DiagnosticKeyの序数
+ * ソートは追加後の最初の参照時に行う（1ファイルは1スレッドで処理される前提）
  */
 public class ErrorInfo {
+    private static final DiagnosticKey[] KEYS = DiagnosticKey.values();
+    private static final int COLUMN_MASK = 0xFFFFFF;
+    private static final int[] NO_LINES = new int[0];
+
     private String fileName;
     private String filePath;
-    private Set<Integer> errorLines;
-    
+    private long[] diagnostics = new long[4];
+    private int diagnosticCount = 0;
+    private int[] errorLines = NO_LINES;
+    private boolean sorted = true;
+
     public ErrorInfo(String fileName, String filePath) {
         this.fileName = fileName;
         this.filePath = filePath;
-        this.errorLines = new HashSet<>();
     }
-    
+
     // Getters and Setters
     public String getFileName() { return fileName; }
     public void setFileName(String fileName) { this.fileName = fileName; }
-    
+
     public String getFilePath() { return filePath; }
     public void setFilePath(String filePath) { this.filePath = filePath; }
-    
-    public Set<Integer> getErrorLines() { return errorLines; }
-    public void addErrorLine(int lineNumber) { this.errorLines.add(lineNumber); }
-}
\ No newline at end of file
+
+    /**
+     * エラー行（昇順・重複なし）
+     * 内部の配列をそのまま返すため、呼び出し側で変更しないこと
+     */
+    public int[] getErrorLines() {
+        ensureSorted();
+        return errorLines;
+    }
+
+    /**
+     * 指定行にエラーがあるか（二分探索）
+     */
+    public boolean containsLine(int lineNumber) {
+        ensureSorted();
+        return Arrays.binarySearch(errorLines, lineNumber) >= 0;
+    }
+
+    public void addErrorLine(int lineNumber) {
+        addDiagnostic(lineNumber, 0, DiagnosticKey.OTHER);
+    }
+
+    /**
+     * 診断を追加（Mavenは同じエラーを複数回出力するため、同じ位置・種類のものはソート時に1件にまとめる）
+     */
+    public void addDiagnostic(int lineNumber, int column, DiagnosticKey key) {
+        if (diagnosticCount == diagnostics.length) {
+            diagnostics = Arrays.copyOf(diagnostics, diagnosticCount * 2);
+        }
+        diagnostics[diagnosticCount++] = ((long) lineNumber << 32)
+                                         | ((long) (Math.min(column, COLUMN_MASK) & COLUMN_MASK) << 8)
+                                         | key.ordinal();
+        sorted = false;
+    }
+
+    /**
+     * 指定行の最初の診断のインデックス（該当なしの場合は-1）
+     * 同じ行の診断は列の昇順で連続して並ぶ
+     */
+    public int indexOfLine(int lineNumber) {
+        ensureSorted();
+        int index = Arrays.binarySearch(diagnostics, 0, diagnosticCount, (long) lineNumber << 32);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < diagnosticCount && getLine(index) == lineNumber ? index : -1;
+    }
+
+    public int getDiagnosticCount() {
+        ensureSorted();
+        return diagnosticCount;
+    }
+
+    public int getLine(int index) {
+        ensureSorted();
+        return (int) (diagnostics[index] >>> 32);
+    }
+
+    public int getColumn(int index) {
+        ensureSorted();
+        return (int) (diagnostics[index] >>> 8) & COLUMN_MASK;
+    }
+
+    public DiagnosticKey getKey(int index) {
+        ensureSorted();
+        return KEYS[(int) diagnostics[index] & 0xFF];
+    }
+
+    private void ensureSorted() {
+        if (sorted) {
+            return;
+        }
+        Arrays.sort(diagnostics, 0, diagnosticCount);
+        int unique = 0;
+        int lineCount = 0;
+        for (int i = 0; i < diagnosticCount; i++) {
+            if (unique > 0 && diagnostics[unique - 1] == diagnostics[i]) {
+                continue;
+            }
+            if (unique == 0 || (diagnostics[unique - 1] >>> 32) != (diagnostics[i] >>> 32)) {
+                lineCount++;
+            }
+            diagnostics[unique++] = diagnostics[i];
+        }
+        diagnosticCount = unique;
+
+        errorLines = new int[lineCount];
+        int line = 0;
+        for (int i = 0; i < diagnosticCount; i++) {
+            int current = (int) (diagnostics[i] >>> 32);
+            if (line == 0 || errorLines[line - 1] != current) {
+                errorLines[line++] = current;
+            }
+        }
+        sorted = true;
+    }
+}
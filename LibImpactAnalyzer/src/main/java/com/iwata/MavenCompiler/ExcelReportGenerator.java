@@ -5,19 +5,34 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xddf.usermodel.chart.*;
 import org.apache.poi.xssf.usermodel.*;
 import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * Apache POIを使用してExcelレポートを生成するクラス
  */
 public class ExcelReportGenerator {
+
+    private static final Logger logger = LogManager.getLogger(ExcelReportGenerator.class);
     
-    private static final String OUTPUT_FILE = "CompilationReport.xlsx";
+    private static final int SLOWEST_FILES_LIMIT = 50;
     
     /**
-     * 修正結果をExcelファイルとして出力
+     * 修正結果をExcelファイルとして出力（出力先は CleanerConfig.REPORT_FILE）
      */
     public static void generateReport(CompilationMetrics metrics) {
+        generateReport(metrics, Paths.get(CleanerConfig.REPORT_FILE));
+    }
+    
+    /**
+     * 修正結果を指定したExcelファイルに出力
+     */
+    public static void generateReport(CompilationMetrics metrics, Path outputFile) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
             
             // シート1: ソースコードの影響範囲
@@ -29,15 +44,17 @@ public class ExcelReportGenerator {
             // シート3: サマリー情報
             createSummarySheet(workbook, metrics);
             
+            // シート4: 処理時間の内訳と処理時間の長いファイル
+            createPhaseBreakdownSheet(workbook, metrics);
+            
             // ファイルに書き込み
-            try (FileOutputStream fileOut = new FileOutputStream(OUTPUT_FILE)) {
+            try (FileOutputStream fileOut = new FileOutputStream(outputFile.toFile())) {
                 workbook.write(fileOut);
-                System.out.println("\nExcelレポートを生成しました: " + OUTPUT_FILE);
+                logger.info("\nExcelレポートを生成しました: {}", outputFile);
             }
             
         } catch (IOException e) {
-            System.err.println("Excelレポート生成中にエラーが発生しました: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Excelレポート生成中にエラーが発生しました: {}", e.getMessage(), e);
         }
     }
     
@@ -246,6 +263,8 @@ public class ExcelReportGenerator {
         createDataRow(sheet, rowNum++, "  削除行数", 
             String.format("%d (%.1f%%)", metrics.getDeletedMainLines(),
                 metrics.getTotalMainLines() > 0 ? (double) metrics.getDeletedMainLines() / metrics.getTotalMainLines() * 100 : 0));
+        createDataRow(sheet, rowNum++, "  変更行数", String.valueOf(metrics.getChangedMainLines()));
+        createDataRow(sheet, rowNum++, "  追加行数", String.valueOf(metrics.getAddedMainLines()));
         rowNum++;
         
         // テストコード情報
@@ -262,6 +281,8 @@ public class ExcelReportGenerator {
         createDataRow(sheet, rowNum++, "  削除行数", 
             String.format("%d (%.1f%%)", metrics.getDeletedTestLines(),
                 metrics.getTotalTestLines() > 0 ? (double) metrics.getDeletedTestLines() / metrics.getTotalTestLines() * 100 : 0));
+        createDataRow(sheet, rowNum++, "  変更行数", String.valueOf(metrics.getChangedTestLines()));
+        createDataRow(sheet, rowNum++, "  追加行数", String.valueOf(metrics.getAddedTestLines()));
         rowNum++;
         
         // テスト実行結果
@@ -319,6 +340,86 @@ public class ExcelReportGenerator {
         sheet.autoSizeColumn(1);
     }
     
+    /**
+     * 処理時間の内訳シートを作成（フェーズ別合計、反復ごと、処理時間の長いファイル）
+     */
+    private static void createPhaseBreakdownSheet(XSSFWorkbook workbook, CompilationMetrics metrics) {
+        XSSFSheet sheet = workbook.createSheet("処理時間の内訳");
+        CompilationMetrics.Phase[] phases = CompilationMetrics.Phase.values();
+        
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font headerFont = workbook.createFont();
+        headerFont.setBold(true);
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        
+        int rowNum = 0;
+        
+        // フェーズ別合計
+        Row phaseHeader = sheet.createRow(rowNum++);
+        createHeaderCell(phaseHeader, 0, "フェーズ", headerStyle);
+        createHeaderCell(phaseHeader, 1, "時間(ms)", headerStyle);
+        createHeaderCell(phaseHeader, 2, "割り当て(MB)", headerStyle);
+        for (CompilationMetrics.Phase phase : phases) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(phase.getLabel());
+            row.createCell(1).setCellValue(metrics.getPhaseTotalNanos(phase) / 1_000_000.0);
+            row.createCell(2).setCellValue(metrics.getPhaseTotalBytes(phase) / (1024.0 * 1024));
+        }
+        rowNum++;
+        
+        // 反復ごとの内訳（時間ms）
+        Row iterationHeader = sheet.createRow(rowNum++);
+        createHeaderCell(iterationHeader, 0, "反復", headerStyle);
+        for (int i = 0; i < phases.length; i++) {
+            createHeaderCell(iterationHeader, i + 1, phases[i].getLabel() + "(ms)", headerStyle);
+        }
+        for (Map.Entry<String, long[]> entry : metrics.getIterationPhaseNanos().entrySet()) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(entry.getKey());
+            long[] nanos = entry.getValue();
+            for (int i = 0; i < phases.length; i++) {
+                row.createCell(i + 1).setCellValue(nanos[i] / 1_000_000.0);
+            }
+        }
+        rowNum++;
+        
+        // 処理時間の長いファイル
+        List<CompilationMetrics.FileStats> slowest = metrics.getSlowestFiles(SLOWEST_FILES_LIMIT);
+        Row titleRow = sheet.createRow(rowNum++);
+        createHeaderCell(titleRow, 0, "処理時間の長いファイル (上位" + slowest.size() + "件)", headerStyle);
+        Row fileHeader = sheet.createRow(rowNum++);
+        createHeaderCell(fileHeader, 0, "ファイル", headerStyle);
+        createHeaderCell(fileHeader, 1, "反復", headerStyle);
+        createHeaderCell(fileHeader, 2, "合計(ms)", headerStyle);
+        createHeaderCell(fileHeader, 3, "割り当て(MB)", headerStyle);
+        for (int i = 0; i < phases.length; i++) {
+            createHeaderCell(fileHeader, i + 4, phases[i].getLabel() + "(ms)", headerStyle);
+        }
+        for (CompilationMetrics.FileStats stats : slowest) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(stats.getFilePath());
+            row.createCell(1).setCellValue(stats.getIterationLabel());
+            row.createCell(2).setCellValue(stats.getTotalNanos() / 1_000_000.0);
+            row.createCell(3).setCellValue(stats.getTotalBytes() / (1024.0 * 1024));
+            for (int i = 0; i < phases.length; i++) {
+                row.createCell(i + 4).setCellValue(stats.getPhaseNanos(phases[i]) / 1_000_000.0);
+            }
+        }
+        
+        // 列幅調整
+        for (int i = 0; i < phases.length + 4; i++) {
+            sheet.autoSizeColumn(i);
+        }
+    }
+    
+    private static void createHeaderCell(Row row, int column, String value, CellStyle style) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        cell.setCellStyle(style);
+    }
+    
     /**
      * データ行を作成するヘルパーメソッド
      */
@@ -385,7 +486,7 @@ public class ExcelReportGenerator {
                 }
             }
         } catch (Exception e) {
-            System.err.println("データラベルの設定中にエラーが発生しました: " + e.getMessage());
+            logger.warn("データラベルの設定中にエラーが発生しました: {}", e.getMessage());
         }
     }
 }
\ No newline at end of file
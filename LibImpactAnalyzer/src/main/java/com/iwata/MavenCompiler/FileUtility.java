@@ -6,11 +6,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
   ファイル操作のユーティリティクラス
  **/
 public class FileUtility {
+
+    private static final Logger logger = LogManager.getLogger(FileUtility.class);
     
     /**
       プロジェクト内の全Javaファイル数を取得（src + tests）
@@ -27,7 +32,7 @@ public class FileUtility {
         try {
             Path dirPath = Paths.get(directory);
             if (!Files.exists(dirPath)) {
-                System.out.println("ディレクトリが見つかりません: " + directory);
+                logger.warn("ディレクトリが見つかりません: {}", directory);
                 return 0;
             }
 
@@ -38,11 +43,26 @@ public class FileUtility {
 
             return javaFiles.size();
         } catch (IOException e) {
-            System.out.println("Javaファイル数の取得中にエラーが発生しました: " + e.getMessage());
+            logger.error("Javaファイル数の取得中にエラーが発生しました: {}", e.getMessage());
             return 0;
         }
     }
     
+    /**
+      指定ディレクトリ内のJavaファイルの一覧（ディレクトリがない場合は空）
+     **/
+    public static List<Path> listJavaFiles(String directory) throws IOException {
+        Path dirPath = Paths.get(directory);
+        if (!Files.exists(dirPath)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(dirPath)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(path -> path.toString().endsWith(".java"))
+                        .collect(Collectors.toList());
+        }
+    }
+    
     /**
       プロジェクト内の全Javaファイルの総行数を取得（src + tests）
      **/
@@ -58,7 +78,7 @@ public class FileUtility {
         try {
             Path dirPath = Paths.get(directory);
             if (!Files.exists(dirPath)) {
-                System.out.println("ディレクトリが見つかりません: " + directory);
+                logger.warn("ディレクトリが見つかりません: {}", directory);
                 return 0;
             }
 
@@ -73,13 +93,13 @@ public class FileUtility {
                     List<String> lines = Files.readAllLines(javaFile, StandardCharsets.UTF_8);
                     totalLines += lines.size();
                 } catch (IOException e) {
-                    System.out.println("ファイル読み取りエラー: " + javaFile + " - " + e.getMessage());
+                    logger.warn("ファイル読み取りエラー: {} - {}", javaFile, e.getMessage());
                 }
             }
 
             return totalLines;
         } catch (IOException e) {
-            System.out.println("Java行数の取得中にエラーが発生しました: " + e.getMessage());
+            logger.error("Java行数の取得中にエラーが発生しました: {}", e.getMessage());
             return 0;
         }
     }
@@ -98,6 +118,14 @@ public class FileUtility {
         return findJavaFileInDirectory(fileName, CleanerConfig.TEST_DIR);
     }
     
+    /**
+      指定したsrc・testsディレクトリでJavaファイルを検索
+     **/
+    public static String findJavaFile(String fileName, Path srcDir, Path testDir) {
+        String foundFile = findJavaFileInDirectory(fileName, srcDir.toString());
+        return foundFile != null ? foundFile : findJavaFileInDirectory(fileName, testDir.toString());
+    }
+    
     /**
       指定ディレクトリ内でJavaファイルを検索
      **/
@@ -118,23 +146,22 @@ public class FileUtility {
             }
 
             if (foundFiles.size() > 1) {
-                System.out.println("同名ファイルが複数見つかりました: " + fileName);
-                foundFiles.forEach(path -> System.out.println("  - " + path));
+                logger.warn("同名ファイルが複数見つかりました: {}", fileName);
+                foundFiles.forEach(path -> logger.warn("  - {}", path));
             }
 
             return foundFiles.get(0).toString();
         } catch (IOException e) {
-            System.out.println("ファイル検索中にエラーが発生しました: " + e.getMessage());
+            logger.error("ファイル検索中にエラーが発生しました: {}", e.getMessage());
             return null;
         }
     }
     
     /**
-      修正前後のファイルの行数を比較して削除された行数を計算
+      修正前後のファイルの行差分から削除された行数を計算
+      （追加・変更行数も必要な場合は LineDiff.diff を直接使用する）
      **/
     public static int calculateDeletedLines(String originalContent, String modifiedContent) {
-        int originalLines = originalContent.split("\\r?\\n").length;
-        int modifiedLines = modifiedContent.split("\\r?\\n").length;
-        return Math.max(0, originalLines - modifiedLines);
+        return LineDiff.diff(originalContent, modifiedContent).getDeleted();
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.iwata.MavenCompiler;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  他のJVMサービスから解析を呼び出すためのAPI
+  解析ごとに独立したMavenCompilationCleanerを作成し、設定はAnalysisConfigからのみ受け取るため、
+  同じJVMで複数の解析を同時に実行できる（同じプロジェクトの解析はファイルを書き換えるため、デーモンの解析も含めて順に実行する）
+
+  使用例:
+    try (ImpactAnalyzer analyzer = new ImpactAnalyzer(2)) {
+        AnalysisConfig config = AnalysisConfig.builder(projectDir).removeLibrary("org.example", "lib").build();
+        analyzer.analyze(config).thenAccept(result -> ...);
+    }
+ **/
+public class ImpactAnalyzer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ImpactAnalyzer.class);
+
+    private final ExecutorService executor;
+
+    /**
+     * @param concurrency 同時に実行する解析の数（仮想スレッドが使える場合は上限なし）
+     */
+    public ImpactAnalyzer(int concurrency) {
+        this.executor = TaskExecutors.newExecutor("impact-analyzer", concurrency);
+    }
+
+    /**
+     * 解析を非同期に実行
+     * 解析中の例外はCompletionExceptionとしてFutureに設定される
+     */
+    public CompletableFuture<AnalysisResult> analyze(AnalysisConfig config) {
+        return analyze(config, null);
+    }
+
+    /**
+     * 解析を非同期に実行し、進捗イベントを subscriber に配信
+     * subscriber は解析の開始前に購読され、解析の終了時にonComplete、失敗時にonErrorを受け取る
+     */
+    public CompletableFuture<AnalysisResult> analyze(AnalysisConfig config,
+                                                     Flow.Subscriber<? super AnalysisEvent> subscriber) {
+        return CompletableFuture.supplyAsync(() -> {
+            ReentrantLock lock = ProjectLocks.of(config.getProjectDir());
+            lock.lock();
+            try {
+                logger.info("解析を開始します: {}", config);
+                MavenCompilationCleaner cleaner = new MavenCompilationCleaner(config);
+                if (subscriber != null) {
+                    cleaner.getEvents().subscribe(subscriber);
+                }
+                return cleaner.runAnalysis();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                lock.unlock();
+            }
+        }, executor);
+    }
+
+    /**
+     * 新しい解析の受け付けを停止（実行中の解析は継続する）
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
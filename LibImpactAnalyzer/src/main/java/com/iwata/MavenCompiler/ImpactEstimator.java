@@ -0,0 +1,569 @@
+package com.iwata.MavenCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  コンパイルを行わずにライブラリ削除の影響を推定する（数秒で終わる事前見積もり）
+  削除するライブラリのjarからパッケージと型を列挙し、参照インデックス（ReferenceIndex）でそれらを参照している
+  ファイルを絞り込んでから、import文と参照名の位置を求めてライブラリの型を参照しているファイル・型・メソッド・テストを求める
+
+  ・直接の影響: ライブラリの型を参照している箇所（javacが最初の反復で報告するエラーにほぼ一致する）
+  ・間接の影響: 直接の影響を受けたメインコードの型を参照しているテストメソッド
+  推定した位置はErrorInfoとしてErrorFileProcessorに渡せる（cleaner.estimate.seed）
+  複数のライブラリを指定した場合は影響の大きい順に並べる（一括実行の優先順位付け用）
+
+  java -cp ... com.iwata.MavenCompiler.ImpactEstimator groupId:artifactId[=jarのパス] ...
+ **/
+public class ImpactEstimator {
+
+    private static final Logger logger = LogManager.getLogger(ImpactEstimator.class);
+
+    /**
+     * ライブラリのjarに含まれるパッケージと型
+     */
+    public static final class LibraryContents {
+        private final Path jar;
+        private final Set<String> packages = new HashSet<>();
+        // パッケージ → トップレベルの型の単純名
+        private final Map<String, Set<String>> typesByPackage = new HashMap<>();
+        // 型の完全修飾名（ネストした型は Outer.Inner）
+        private final Set<String> qualifiedTypes = new HashSet<>();
+
+        private LibraryContents(Path jar) {
+            this.jar = jar;
+        }
+
+        /**
+         * jarのクラスファイルの一覧から作成（クラスファイルの内容は読まない）
+         */
+        public static LibraryContents readJar(Path jar) throws IOException {
+            LibraryContents contents = new LibraryContents(jar);
+            try (ZipFile zip = new ZipFile(jar.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (!name.endsWith(".class") || name.startsWith("META-INF/")
+                            || name.endsWith("module-info.class") || name.endsWith("package-info.class")) {
+                        continue;
+                    }
+                    contents.addClass(name.substring(0, name.length() - ".class".length()));
+                }
+            }
+            return contents;
+        }
+
+        private void addClass(String binaryName) {
+            int slash = binaryName.lastIndexOf('/');
+            String packageName = slash >= 0 ? binaryName.substring(0, slash).replace('/', '.') : "";
+            String[] nested = binaryName.substring(slash + 1).split("\\$");
+            // 匿名クラス・ローカルクラス（数字で始まる名前）はソースから参照できない
+            for (String part : nested) {
+                if (part.isEmpty() || Character.isDigit(part.charAt(0))) {
+                    return;
+                }
+            }
+            packages.add(packageName);
+            typesByPackage.computeIfAbsent(packageName, p -> new HashSet<>()).add(nested[0]);
+            String qualified = packageName.isEmpty() ? "" : packageName + ".";
+            for (int i = 0; i < nested.length; i++) {
+                qualified += (i > 0 ? "." : "") + nested[i];
+                qualifiedTypes.add(qualified);
+            }
+        }
+
+        public Path getJar() { return jar; }
+        public Set<String> getPackages() { return Collections.unmodifiableSet(packages); }
+        public int getTypeCount() { return qualifiedTypes.size(); }
+
+        boolean isPackage(String name) {
+            return packages.contains(name);
+        }
+
+        boolean isType(String qualifiedName) {
+            return qualifiedTypes.contains(qualifiedName);
+        }
+
+        Set<String> typesIn(String packageName) {
+            return typesByPackage.getOrDefault(packageName, Collections.emptySet());
+        }
+
+        /**
+         * 名前の先頭がライブラリのパッケージのいずれかで始まるか（例: org.fakelib.FakeService.version）
+         */
+        boolean startsWithPackage(String name) {
+            for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+                if (packages.contains(name.substring(0, dot))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 推定したエラー1件
+     */
+    public static final class Hit {
+        private final int line;
+        private final int column;
+        private final String name;
+        private final DiagnosticKey key;
+
+        Hit(int line, int column, String name, DiagnosticKey key) {
+            this.line = line;
+            this.column = column;
+            this.name = name;
+            this.key = key;
+        }
+
+        public int getLine() { return line; }
+        public int getColumn() { return column; }
+        public String getName() { return name; }
+        public DiagnosticKey getKey() { return key; }
+    }
+
+    /**
+     * ファイル1つの推定結果
+     */
+    public static final class FileImpact {
+        private final Path file;
+        private final boolean testCode;
+        private final String packageName;
+        private final List<Hit> hits = new ArrayList<>();
+        private final Set<String> types = new TreeSet<>();
+        private final Set<String> methods = new TreeSet<>();
+        // 間接の影響の判定に使う字句解析の結果
+        private final SourceLexer.Outline outline;
+
+        FileImpact(Path file, boolean testCode, SourceLexer.Outline outline) {
+            this.file = file;
+            this.testCode = testCode;
+            this.packageName = outline.packageName;
+            this.outline = outline;
+        }
+
+        public Path getFile() { return file; }
+        public boolean isTestCode() { return testCode; }
+        public List<Hit> getHits() { return Collections.unmodifiableList(hits); }
+        /** 影響を受ける型（パッケージを含まない名前。例: Outer.Inner） */
+        public Set<String> getTypes() { return Collections.unmodifiableSet(types); }
+        /** 影響を受けるメソッド（型名#メソッド名） */
+        public Set<String> getMethods() { return Collections.unmodifiableSet(methods); }
+        public boolean isImpacted() { return !hits.isEmpty(); }
+
+        private String qualify(String typeName) {
+            return packageName.isEmpty() ? typeName : packageName + "." + typeName;
+        }
+    }
+
+    /**
+     * 推定結果
+     */
+    public static final class Estimate {
+        private final String library;
+        private final LibraryContents contents;
+        private final List<FileImpact> impactedFiles;
+        private final Set<String> directTests;
+        private final Set<String> indirectTests;
+        private final int scannedFiles;
+        private final long elapsedNanos;
+
+        Estimate(String library, LibraryContents contents, List<FileImpact> impactedFiles,
+                 Set<String> directTests, Set<String> indirectTests, int scannedFiles, long elapsedNanos) {
+            this.library = library;
+            this.contents = contents;
+            this.impactedFiles = impactedFiles;
+            this.directTests = directTests;
+            this.indirectTests = indirectTests;
+            this.scannedFiles = scannedFiles;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getLibrary() { return library; }
+        public LibraryContents getContents() { return contents; }
+        public List<FileImpact> getImpactedFiles() { return Collections.unmodifiableList(impactedFiles); }
+        /** ライブラリを直接参照しているテストメソッド（型名#メソッド名） */
+        public Set<String> getDirectTests() { return Collections.unmodifiableSet(directTests); }
+        /** 影響を受けたメインコードの型を参照しているテストメソッド */
+        public Set<String> getIndirectTests() { return Collections.unmodifiableSet(indirectTests); }
+        public int getScannedFiles() { return scannedFiles; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public int getHitCount() {
+            return impactedFiles.stream().mapToInt(f -> f.hits.size()).sum();
+        }
+
+        public long getImpactedFileCount(boolean testCode) {
+            return impactedFiles.stream().filter(f -> f.testCode == testCode).count();
+        }
+
+        public int getImpactedTypeCount() {
+            return impactedFiles.stream().mapToInt(f -> f.types.size()).sum();
+        }
+
+        public int getImpactedMethodCount() {
+            return impactedFiles.stream().mapToInt(f -> f.methods.size()).sum();
+        }
+
+        /**
+         * 優先順位付け用の影響の大きさ（推定エラー数＋影響を受けるテスト数）
+         */
+        public int getScore() {
+            return getHitCount() + directTests.size() + indirectTests.size();
+        }
+
+        /**
+         * 指定したファイルの影響を除いた推定結果（推定後に書き換えたファイルは行・列が一致しないため）
+         */
+        public Estimate withoutFiles(Collection<Path> files) {
+            Set<Path> excluded = new HashSet<>();
+            files.forEach(file -> excluded.add(file.toAbsolutePath().normalize()));
+            List<FileImpact> remaining = new ArrayList<>();
+            for (FileImpact impact : impactedFiles) {
+                if (!excluded.contains(impact.file.toAbsolutePath().normalize())) {
+                    remaining.add(impact);
+                }
+            }
+            return new Estimate(library, contents, remaining, directTests, indirectTests, scannedFiles, elapsedNanos);
+        }
+
+        /**
+         * 推定したエラーをファイルパスごとのErrorInfoに変換
+         * @param testCode trueの場合はテストコード、falseの場合はメインコードのみ
+         */
+        public Map<String, ErrorInfo> toExpectedErrors(boolean testCode) {
+            Map<String, ErrorInfo> errorFiles = new LinkedHashMap<>();
+            for (FileImpact impact : impactedFiles) {
+                if (impact.testCode != testCode) {
+                    continue;
+                }
+                String filePath = impact.file.toString();
+                ErrorInfo errorInfo = new ErrorInfo(impact.file.getFileName().toString(), filePath);
+                for (Hit hit : impact.hits) {
+                    errorInfo.addDiagnostic(hit.line, hit.column, hit.key);
+                }
+                errorFiles.put(filePath, errorInfo);
+            }
+            return errorFiles;
+        }
+
+        public void print() {
+            logger.info("\n===== 影響推定: {} =====", library);
+            logger.info("jar: {} (パッケージ {} 件, 型 {} 件)", contents.jar, contents.packages.size(),
+                        contents.getTypeCount());
+            logger.info("走査したファイル数: {} ({} ms)", scannedFiles, elapsedNanos / 1_000_000);
+            logger.info("影響を受けるファイル: {} (メインコード: {}, テストコード: {})", impactedFiles.size(),
+                        getImpactedFileCount(false), getImpactedFileCount(true));
+            logger.info("推定エラー数: {}", getHitCount());
+            logger.info("影響を受ける型: {}, メソッド: {}", getImpactedTypeCount(), getImpactedMethodCount());
+            logger.info("影響を受けるテストメソッド: 直接 {}, 間接 {}", directTests.size(), indirectTests.size());
+            for (FileImpact impact : impactedFiles) {
+                logger.debug("  [{}] {} (推定エラー {} 件, 型 {}, メソッド {})", impact.testCode ? "TEST" : "MAIN",
+                             impact.file.getFileName(), impact.hits.size(), impact.types, impact.methods);
+            }
+        }
+    }
+
+    private ImpactEstimator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            logger.info("使い方: ImpactEstimator groupId:artifactId[=jar] ...");
+            return;
+        }
+        List<Estimate> estimates = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String[] coordinates = (eq >= 0 ? arg.substring(0, eq) : arg).split(":");
+            if (coordinates.length != 2) {
+                throw new IllegalArgumentException("library must be groupId:artifactId: " + arg);
+            }
+            AnalysisConfig.Builder builder = AnalysisConfig.builder(Paths.get(CleanerConfig.PROJECT_DIR))
+                .removeLibrary(coordinates[0], coordinates[1]);
+            if (eq >= 0) {
+                builder.libraryJar(Paths.get(arg.substring(eq + 1)));
+            }
+            Estimate estimate = estimate(builder.build());
+            if (estimate != null) {
+                estimate.print();
+                estimates.add(estimate);
+            }
+        }
+        if (estimates.size() > 1) {
+            estimates.sort(Comparator.comparingInt(Estimate::getScore).reversed());
+            logger.info("\n===== 影響の大きい順 =====");
+            for (Estimate estimate : estimates) {
+                logger.info("  {} (スコア {}, ファイル {}, テスト {})", estimate.library, estimate.getScore(),
+                            estimate.impactedFiles.size(), estimate.directTests.size() + estimate.indirectTests.size());
+            }
+        }
+    }
+
+    /**
+     * 設定で指定されたライブラリの影響を推定（jarが見つからない場合はnull）
+     * pom.xmlからライブラリを削除する前に呼び出すこと（バージョンをpom.xmlから求めるため）
+     */
+    public static Estimate estimate(AnalysisConfig config) throws Exception {
+        return estimate(config, (ReferenceIndex) null);
+    }
+
+    /**
+     * 構築済みの参照インデックスを使って推定（nullの場合は構築する）
+     */
+    public static Estimate estimate(AnalysisConfig config, ReferenceIndex index) throws Exception {
+        Path jar = locateLibraryJar(config);
+        if (jar == null) {
+            logger.warn("ライブラリのjarが見つからないため影響を推定できません: {}:{}",
+                        config.getRemoveGroupId(), config.getRemoveArtifactId());
+            return null;
+        }
+        LibraryContents library = LibraryContents.readJar(jar);
+        return estimate(config, library, index != null ? index : ReferenceIndex.build(config));
+    }
+
+    /**
+     * 指定したライブラリの内容で影響を推定
+     */
+    public static Estimate estimate(AnalysisConfig config, LibraryContents library) throws Exception {
+        return estimate(config, library, ReferenceIndex.build(config));
+    }
+
+    /**
+     * 参照インデックスを使って影響を推定
+     * ライブラリのパッケージを参照しているファイルだけを字句解析し直して位置を求める
+     */
+    public static Estimate estimate(AnalysisConfig config, LibraryContents library, ReferenceIndex index)
+            throws Exception {
+        long start = System.nanoTime();
+        List<int[]> postings = new ArrayList<>();
+        for (String packageName : library.packages) {
+            postings.add(index.filesReferencingPackage(packageName));
+        }
+        List<FileImpact> scanned = scanFiles(config, index.toPaths(ReferenceIndex.union(postings)), library);
+
+        // 直接の影響を受けたテストメソッドと、影響を受けたメインコードの型を参照するテストメソッド
+        Set<String> impactedMainTypes = new HashSet<>();
+        Set<String> directTests = new TreeSet<>();
+        List<FileImpact> impacted = new ArrayList<>();
+        for (FileImpact impact : scanned) {
+            if (!impact.isImpacted()) {
+                continue;
+            }
+            impacted.add(impact);
+            if (impact.testCode) {
+                directTests.addAll(impact.methods);
+            } else {
+                for (String type : impact.types) {
+                    int dot = type.indexOf('.');
+                    impactedMainTypes.add(impact.qualify(dot >= 0 ? type.substring(0, dot) : type));
+                }
+            }
+        }
+
+        postings.clear();
+        for (String type : impactedMainTypes) {
+            postings.add(index.filesReferencingType(type.substring(type.lastIndexOf('.') + 1)));
+        }
+        List<Path> testFiles = new ArrayList<>();
+        for (Path file : index.toPaths(ReferenceIndex.union(postings))) {
+            if (isTestFile(config, file)) {
+                testFiles.add(file);
+            }
+        }
+        Set<String> indirectTests = new TreeSet<>();
+        for (FileImpact impact : scanFiles(config, testFiles, library)) {
+            collectIndirectTests(impact, impactedMainTypes, directTests, indirectTests);
+        }
+
+        return new Estimate(config.getRemoveGroupId() + ":" + config.getRemoveArtifactId(), library, impacted,
+                            directTests, indirectTests, index.getFileCount(), System.nanoTime() - start);
+    }
+
+    private static List<FileImpact> scanFiles(AnalysisConfig config, List<Path> files, LibraryContents library)
+            throws Exception {
+        Charset charset = Charset.forName(config.getSourceEncoding());
+        return TaskExecutors.map("impact-estimator", files, config.getFixParallelism(), file ->
+            scanFile(file, isTestFile(config, file), SourceLexer.parse(Files.readString(file, charset)), library));
+    }
+
+    private static boolean isTestFile(AnalysisConfig config, Path file) {
+        return file.startsWith(config.getTestDir());
+    }
+
+    /**
+     * ファイル1つのimport文と参照からライブラリを参照している箇所を求める
+     */
+    static FileImpact scanFile(Path file, boolean testCode, SourceLexer.Outline outline, LibraryContents library) {
+        FileImpact impact = new FileImpact(file, testCode, outline);
+        // このファイルでライブラリの型として解決される単純名
+        Set<String> librarySimpleNames = new HashSet<>();
+        Set<String> otherSimpleNames = new HashSet<>();
+        if (library.isPackage(outline.packageName)) {
+            librarySimpleNames.addAll(library.typesIn(outline.packageName));
+        }
+        for (SourceLexer.Import imp : outline.imports) {
+            String simpleName = imp.name.substring(imp.name.lastIndexOf('.') + 1);
+            if (imp.wildcard && !imp.isStatic) {
+                if (library.isPackage(imp.name)) {
+                    librarySimpleNames.addAll(library.typesIn(imp.name));
+                    impact.hits.add(new Hit(imp.line, imp.lastDotColumn, imp.name, DiagnosticKey.PACKAGE_DOES_NOT_EXIST));
+                }
+            } else if (library.isType(imp.name) || library.startsWithPackage(imp.name)) {
+                // 単一型のimport・staticインポート（static importのメンバー名も参照できなくなる）
+                librarySimpleNames.add(simpleName);
+                impact.hits.add(new Hit(imp.line, imp.lastDotColumn, imp.name, DiagnosticKey.PACKAGE_DOES_NOT_EXIST));
+            } else if (!imp.wildcard) {
+                otherSimpleNames.add(simpleName);
+            }
+        }
+        // 明示的にimportした同名の型・ファイル内で宣言した型が優先される
+        librarySimpleNames.removeAll(otherSimpleNames);
+        for (SourceLexer.Declaration type : outline.types) {
+            librarySimpleNames.remove(type.name);
+        }
+
+        for (SourceLexer.Reference reference : outline.references) {
+            int dot = reference.name.indexOf('.');
+            String first = dot >= 0 ? reference.name.substring(0, dot) : reference.name;
+            DiagnosticKey key;
+            if (librarySimpleNames.contains(first)) {
+                key = DiagnosticKey.CANNOT_FIND_SYMBOL;
+            } else if (dot >= 0 && library.startsWithPackage(reference.name)) {
+                key = DiagnosticKey.PACKAGE_DOES_NOT_EXIST;
+            } else {
+                continue;
+            }
+            impact.hits.add(new Hit(reference.line, reference.column, reference.name, key));
+            if (reference.type >= 0) {
+                impact.types.add(outline.typeName(reference.type));
+            }
+            if (reference.method >= 0) {
+                impact.methods.add(outline.methodName(reference.method));
+            }
+        }
+        return impact;
+    }
+
+    /**
+     * テストファイル内で、影響を受けたメインコードの型を参照しているテストメソッドを集める
+     */
+    private static void collectIndirectTests(FileImpact impact, Set<String> impactedMainTypes,
+                                             Set<String> directTests, Set<String> indirectTests) {
+        if (impactedMainTypes.isEmpty()) {
+            return;
+        }
+        SourceLexer.Outline outline = impact.outline;
+        // 単純名 → 完全修飾名（同じパッケージ、単一型のimport、オンデマンドのimportの順に解決）
+        Map<String, String> visible = new HashMap<>();
+        for (String type : impactedMainTypes) {
+            int dot = type.lastIndexOf('.');
+            String packageName = dot >= 0 ? type.substring(0, dot) : "";
+            boolean imported = false;
+            for (SourceLexer.Import imp : outline.imports) {
+                if (!imp.isStatic && (imp.wildcard ? imp.name.equals(packageName) : imp.name.equals(type))) {
+                    imported = true;
+                    break;
+                }
+            }
+            if (imported || packageName.equals(outline.packageName)) {
+                visible.put(type.substring(dot + 1), type);
+            }
+        }
+        for (SourceLexer.Reference reference : outline.references) {
+            if (reference.method < 0) {
+                continue;
+            }
+            int dot = reference.name.indexOf('.');
+            String first = dot >= 0 ? reference.name.substring(0, dot) : reference.name;
+            if (visible.containsKey(first) || impactedMainTypes.contains(reference.name)) {
+                String method = outline.methodName(reference.method);
+                if (!directTests.contains(method)) {
+                    indirectTests.add(method);
+                }
+            }
+        }
+    }
+
+    /**
+     * 削除するライブラリのjarを探す
+     * 設定で指定されたjar → pom.xmlに記載されたバージョンのjar（pom.xmlのローカルリポジトリ、~/.m2/repository）
+     * → バージョンが分からない場合はリポジトリ内の最も新しいバージョン
+     */
+    public static Path locateLibraryJar(AnalysisConfig config) throws IOException {
+        if (config.getLibraryJar() != null) {
+            return Files.isRegularFile(config.getLibraryJar()) ? config.getLibraryJar() : null;
+        }
+        String groupId = config.getRemoveGroupId();
+        String artifactId = config.getRemoveArtifactId();
+        if (artifactId == null) {
+            return null;
+        }
+        Path pom = config.getProjectDir().resolve("pom.xml");
+        String version = null;
+        List<Path> repositories = new ArrayList<>();
+        if (Files.exists(pom)) {
+            version = PomEditor.findDependencyVersion(pom, groupId, artifactId);
+            repositories.addAll(PomEditor.findLocalRepositories(pom));
+        }
+        String localRepository = System.getProperty("maven.repo.local");
+        repositories.add(localRepository != null ? Paths.get(localRepository)
+                         : Paths.get(System.getProperty("user.home"), ".m2", "repository"));
+
+        for (Path repository : repositories) {
+            Path artifactDir = repository.resolve(groupId.replace('.', File.separatorChar)).resolve(artifactId);
+            String candidateVersion = version != null ? version : latestVersion(artifactDir);
+            if (candidateVersion == null) {
+                continue;
+            }
+            Path jar = artifactDir.resolve(candidateVersion).resolve(artifactId + "-" + candidateVersion + ".jar");
+            if (Files.isRegularFile(jar)) {
+                return jar;
+            }
+        }
+        return null;
+    }
+
+    private static String latestVersion(Path artifactDir) throws IOException {
+        if (!Files.isDirectory(artifactDir)) {
+            return null;
+        }
+        try (Stream<Path> versions = Files.list(artifactDir)) {
+            return versions.filter(Files::isDirectory)
+                           .map(path -> path.getFileName().toString())
+                           .max(ImpactEstimator::compareVersions)
+                           .orElse(null);
+        }
+    }
+
+    /**
+     * バージョン文字列の比較（数字の部分は数値として比較する）
+     */
+    static int compareVersions(String a, String b) {
+        String[] left = a.split("[.\\-]");
+        String[] right = b.split("[.\\-]");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            String l = i < left.length ? left[i] : "0";
+            String r = i < right.length ? right[i] : "0";
+            int result;
+            if (l.matches("\\d+") && r.matches("\\d+")) {
+                result = Long.compare(Long.parseLong(l), Long.parseLong(r));
+            } else {
+                result = l.compareTo(r);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,228 @@
+package com.iwata.MavenCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipFile;
+import javax.tools.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  メインコードとテストコードをjavax.toolsで検査する（反復ごとに1回）
+  Mavenのサブプロセスを起動しないため、反復ごとのMaven起動とclean/出力の解析が不要になる
+  クラスファイルは出力せず、診断の収集だけを行う
+
+  Mavenのcompile・test-compileに合わせて
+  ・メインコードはcompileスコープ、テストコードはtestスコープのクラスパスでコンパイルする（テストコードはメインコードをソースパスから参照する）
+  ・言語レベルはpom.xmlのrelease（なければsource）を --release で渡す
+  制限事項（該当する場合は作成せず、呼び出し側はMavenでの修正に切り替える）
+  ・アノテーションプロセッサ（pom.xmlの指定、またはクラスパス上のjarのサービス登録）は実行しない
+    Lombok・MapStruct等が生成するメンバーが「シンボルが見つかりません」になり、正しいコードを削除してしまうため
+  ・compilerArgs等の追加の引数は再現しない
+  ・実行中のJDKより新しい言語レベルはコンパイルできない
+  ・親POMから継承した言語レベルは参照しない（pom.xmlに指定がない場合は実行中のJDKの既定）
+ **/
+public class InProcessCompiler {
+
+    private static final Logger logger = LogManager.getLogger(InProcessCompiler.class);
+
+    // 現在のJDKの --release が受け付ける最も古い言語レベル
+    private static final int MIN_RELEASE = 8;
+    private static final String PROCESSOR_SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+
+    private final JavaCompiler javac;
+    private final AnalysisConfig config;
+    private final ProjectClasspath mainClasspath;
+    private final ProjectClasspath testClasspath;
+    private final List<String> languageOptions;
+    private final AnalysisEventPublisher events;
+
+    private InProcessCompiler(JavaCompiler javac, AnalysisConfig config, ProjectClasspath mainClasspath,
+                              ProjectClasspath testClasspath, List<String> languageOptions,
+                              AnalysisEventPublisher events) {
+        this.javac = javac;
+        this.config = config;
+        this.mainClasspath = mainClasspath;
+        this.testClasspath = testClasspath;
+        this.languageOptions = languageOptions;
+        this.events = events;
+    }
+
+    /**
+     * 利用可能な場合のみ作成（JREで実行されている場合、クラスパスを解決できない場合、
+     * プロジェクトのコンパイラ設定を再現できない場合はnull）
+     */
+    public static InProcessCompiler createIfAvailable(AnalysisConfig config, ProjectClasspath classpath,
+                                                      AnalysisEventPublisher events) throws IOException {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            logger.warn("システムJavaコンパイラが見つかりません（JDKで実行してください）");
+            return null;
+        }
+        Path pom = config.getProjectDir().resolve("pom.xml");
+        List<String> languageOptions = List.of();
+        if (Files.exists(pom)) {
+            List<String> unsupported = PomEditor.findUnsupportedCompilerSettings(pom);
+            if (!unsupported.isEmpty()) {
+                logger.warn("pom.xmlのコンパイラ設定 {} はプロセス内コンパイルで再現できません", unsupported);
+                return null;
+            }
+            String release = toRelease(PomEditor.findCompilerRelease(pom));
+            if (release == null) {
+                return null;
+            }
+            languageOptions = release.isEmpty() ? List.of() : List.of("--release", release);
+        }
+        if (classpath.get() == null || classpath.mainScope().get() == null) {
+            return null;
+        }
+        if (!Files.exists(pom) || !PomEditor.disablesAnnotationProcessing(pom)) {
+            List<File> processors = findAnnotationProcessors(classpath.get());
+            if (!processors.isEmpty()) {
+                logger.warn("クラスパス上のアノテーションプロセッサはプロセス内コンパイルで実行しません: {}", processors);
+                return null;
+            }
+        }
+        return new InProcessCompiler(javac, config, classpath.mainScope(), classpath, languageOptions, events);
+    }
+
+    /**
+     * pom.xmlの言語レベルを --release の値に変換（指定なしは空文字、実行中のJDKでコンパイルできない場合はnull）
+     */
+    static String toRelease(String level) {
+        if (level == null) {
+            return "";
+        }
+        String release = level.startsWith("1.") ? level.substring(2) : level;
+        int feature;
+        try {
+            feature = Integer.parseInt(release);
+        } catch (NumberFormatException e) {
+            logger.warn("pom.xmlの言語レベルを解釈できません: {}", level);
+            return null;
+        }
+        if (feature < MIN_RELEASE || feature > Runtime.version().feature()) {
+            logger.warn("pom.xmlの言語レベル {} は実行中のJDK {} の --release で指定できません",
+                        level, Runtime.version().feature());
+            return null;
+        }
+        return release;
+    }
+
+    /**
+     * アノテーションプロセッサをサービス登録しているクラスパスの要素（javacは -proc:none でなければ自動で実行する）
+     */
+    static List<File> findAnnotationProcessors(List<File> classpath) {
+        List<File> processors = new ArrayList<>();
+        for (File entry : classpath) {
+            if (entry.isDirectory()) {
+                if (new File(entry, PROCESSOR_SERVICE).isFile()) {
+                    processors.add(entry);
+                }
+            } else if (entry.isFile()) {
+                try (ZipFile zip = new ZipFile(entry)) {
+                    if (zip.getEntry(PROCESSOR_SERVICE) != null) {
+                        processors.add(entry);
+                    }
+                } catch (IOException e) {
+                    logger.debug("jarを読み込めません: {}", entry);
+                }
+            }
+        }
+        return processors;
+    }
+
+    /**
+     * srcとtestsの全ファイルをコンパイルし、エラーのあるファイルと診断を抽出（キーはファイルの絶対パス）
+     */
+    public Map<String, ErrorInfo> compileAndExtractErrors() throws IOException {
+        AnalyzerEvents.CompileEvent event = new AnalyzerEvents.CompileEvent();
+        event.begin();
+
+        Map<String, ErrorInfo> errorFiles = new LinkedHashMap<>();
+        boolean success = compile(FileUtility.listJavaFiles(config.getSrcDir().toString()),
+                                  mainClasspath.get(), List.of(), errorFiles);
+        // テストコードはメインコードをソースパスから参照する（メインコードの診断は上で収集済み）
+        success &= compile(FileUtility.listJavaFiles(config.getTestDir().toString()),
+                           testClasspath.get(), List.of("-sourcepath", config.getSrcDir().toString()), errorFiles);
+
+        MavenCompiler.commitCompileEvent(event, "in-process", errorFiles, success ? 0 : 1);
+        if (events.hasSubscribers()) {
+            events.publish(new AnalysisEvent.DiagnosticsParsed("in-process", errorFiles, success ? 0 : 1));
+        }
+        return errorFiles;
+    }
+
+    /**
+     * ファイルをコンパイルし、それらのファイルのエラーを errorFiles に追加
+     */
+    private boolean compile(List<Path> sources, List<File> classpath, List<String> extraOptions,
+                            Map<String, ErrorInfo> errorFiles) throws IOException {
+        if (sources.isEmpty()) {
+            return true;
+        }
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        Charset encoding = Charset.forName(config.getSourceEncoding());
+        boolean success;
+        try (StandardJavaFileManager standard = javac.getStandardFileManager(collector, Locale.ROOT, encoding);
+             JavaFileManager fileManager = new DiscardingFileManager(standard)) {
+            standard.setLocation(StandardLocation.CLASS_PATH, classpath);
+            Iterable<? extends JavaFileObject> units = standard.getJavaFileObjectsFromPaths(sources);
+            List<String> options = new ArrayList<>(List.of("-proc:none", "-implicit:none", "-nowarn",
+                                                           "-Xmaxerrs", "1000000"));
+            options.addAll(languageOptions);
+            options.addAll(extraOptions);
+            success = javac.getTask(null, fileManager, collector, options, null, units).call();
+        }
+
+        Set<Path> compiled = new HashSet<>();
+        sources.forEach(source -> compiled.add(source.toAbsolutePath().normalize()));
+        for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                continue;
+            }
+            if (diagnostic.getSource() == null || diagnostic.getLineNumber() <= 0) {
+                logger.warn("ファイルに紐づかないコンパイルエラー: {}", diagnostic.getMessage(Locale.ROOT));
+                continue;
+            }
+            Path source = Path.of(diagnostic.getSource().toUri()).toAbsolutePath().normalize();
+            if (!compiled.contains(source)) {
+                // ソースパスから参照したファイルの診断
+                continue;
+            }
+            String filePath = source.toString();
+            ErrorInfo errorInfo = errorFiles.computeIfAbsent(filePath, 
+                path -> new ErrorInfo(Path.of(path).getFileName().toString(), path));
+            errorInfo.addDiagnostic((int) diagnostic.getLineNumber(), (int) Math.max(0, diagnostic.getColumnNumber()),
+                                    DiagnosticKey.fromJavacKey(diagnostic.getCode()));
+        }
+        return success;
+    }
+
+    /**
+     * クラスファイルの出力を破棄するファイルマネージャ
+     */
+    private static final class DiscardingFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        DiscardingFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, 
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("discard:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
+}
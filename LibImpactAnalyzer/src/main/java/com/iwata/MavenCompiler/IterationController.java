@@ -0,0 +1,187 @@
+package com.iwata.MavenCompiler;
+
+import java.util.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  修正ループの継続・終了を判断するクラス
+  反復ごとのエラー数と修正したファイル数を記録し、次の場合は上限に達する前に終了する
+    ・エラー数が最小値を下回らない反復が続いた（停滞）
+    ・以前と同じエラーの集合に戻った（振動）
+    ・時間予算内に次の反復が終わらない見込み
+  通常の上限（AnalysisConfig#getMaxIterations）に達しても、直前の反復でエラー数が減っていれば
+  AnalysisConfig#getHardMaxIterations まで延長する
+  判断はすべてCompilationMetricsに記録する
+ **/
+public class IterationController {
+
+    private static final Logger logger = LogManager.getLogger(IterationController.class);
+
+    /**
+     * 反復ごとの判断
+     */
+    public enum Decision {
+        /** 次の反復へ進む */
+        CONTINUE,
+        /** 通常の上限を超えて延長する */
+        EXTEND,
+        /** エラーがなくなった */
+        CONVERGED,
+        /** 修正したファイルがない */
+        NO_CHANGE,
+        /** エラー数が減らない反復が続いた */
+        STALLED,
+        /** 以前と同じエラーの集合に戻った */
+        OSCILLATING,
+        /** 時間予算を使い切った */
+        BUDGET_EXHAUSTED,
+        /** 反復回数の上限に達した */
+        LIMIT_REACHED;
+
+        public boolean isStop() {
+            return this != CONTINUE && this != EXTEND;
+        }
+    }
+
+    private final String codeType;
+    private final CompilationMetrics metrics;
+    private final AnalysisConfig config;
+    private final long deadlineMillis;
+    private final Set<Long> seenFingerprints = new HashSet<>();
+    private int bestErrorCount = Integer.MAX_VALUE;
+    private int stalledIterations = 0;
+    private boolean improvedLastIteration = false;
+    private long iterationStartMillis;
+    private long totalIterationMillis = 0;
+    private int finishedIterations = 0;
+    private Decision lastDecision = Decision.CONTINUE;
+
+    /**
+     * @param deadlineMillis 時間予算の期限（エポックミリ秒、Long.MAX_VALUEで無制限）
+     */
+    public IterationController(String codeType, CompilationMetrics metrics, AnalysisConfig config, long deadlineMillis) {
+        this.codeType = codeType;
+        this.metrics = metrics;
+        this.config = config;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * 時間予算（秒、0以下で無制限）から期限を計算（無制限の場合はLong.MAX_VALUE）
+     */
+    public static long deadlineFrom(long startMillis, long budgetSeconds) {
+        return budgetSeconds > 0 ? startMillis + budgetSeconds * 1000 : Long.MAX_VALUE;
+    }
+
+    /**
+     * 反復を開始してよいか判定
+     */
+    public boolean shouldStart(int iteration) {
+        if (iteration > config.getHardMaxIterations()) {
+            return stop(iteration, Decision.LIMIT_REACHED, "上限 " + config.getHardMaxIterations() + " 回");
+        }
+        if (iteration > config.getMaxIterations()) {
+            if (!improvedLastIteration) {
+                return stop(iteration, Decision.LIMIT_REACHED, "上限 " + config.getMaxIterations() + " 回（収束傾向なし）");
+            }
+            metrics.recordIterationDecision(codeType, iteration, Decision.EXTEND, "エラー数が減少中のため延長");
+            logger.info("[{}] エラー数が減少中のため反復を延長します ({} 回目)", codeType, iteration);
+        }
+        long now = System.currentTimeMillis();
+        if (deadlineMillis != Long.MAX_VALUE) {
+            long expected = finishedIterations > 0 ? totalIterationMillis / finishedIterations : 0;
+            if (now + expected > deadlineMillis) {
+                return stop(iteration, Decision.BUDGET_EXHAUSTED,
+                            "残り " + Math.max(0, deadlineMillis - now) + "ms, 1反復の平均 " + expected + "ms");
+            }
+        }
+        iterationStartMillis = now;
+        return true;
+    }
+
+    /**
+     * コンパイルエラーがなくなった
+     */
+    public void converged(int iteration) {
+        stop(iteration, Decision.CONVERGED, null);
+    }
+
+    /**
+     * 反復の結果を記録し、次の反復へ進むかを判定
+     * @param errorFiles この反復のコンパイルで検出したエラー
+     * @param modifiedFiles この反復で修正したファイル数
+     * @return 次の反復へ進む場合はtrue
+     */
+    public boolean afterIteration(int iteration, Map<String, ErrorInfo> errorFiles, int modifiedFiles) {
+        totalIterationMillis += System.currentTimeMillis() - iterationStartMillis;
+        finishedIterations++;
+
+        int errorCount = 0;
+        for (ErrorInfo errorInfo : errorFiles.values()) {
+            errorCount += errorInfo.getDiagnosticCount();
+        }
+        String detail = "エラー " + errorCount + " 件 / " + errorFiles.size() + " ファイル, 修正 " + modifiedFiles + " ファイル";
+
+        if (modifiedFiles == 0) {
+            return stop(iteration, Decision.NO_CHANGE, detail);
+        }
+        if (!seenFingerprints.add(fingerprint(errorFiles))) {
+            return stop(iteration, Decision.OSCILLATING, detail);
+        }
+        improvedLastIteration = errorCount < bestErrorCount;
+        if (improvedLastIteration) {
+            bestErrorCount = errorCount;
+            stalledIterations = 0;
+        } else if (++stalledIterations >= config.getStallLimit()) {
+            return stop(iteration, Decision.STALLED, detail + ", 最小 " + bestErrorCount + " 件から "
+                                                     + stalledIterations + " 回改善なし");
+        }
+        lastDecision = Decision.CONTINUE;
+        metrics.recordIterationDecision(codeType, iteration, Decision.CONTINUE, detail);
+        return true;
+    }
+
+    /**
+     * 最後の判断（ループ終了後の終了理由の表示用）
+     */
+    public Decision getLastDecision() {
+        return lastDecision;
+    }
+
+    private boolean stop(int iteration, Decision decision, String detail) {
+        lastDecision = decision;
+        metrics.recordIterationDecision(codeType, iteration, decision, detail);
+        if (decision != Decision.CONVERGED) {
+            logger.info("[{}] 反復を終了します: {}{}", codeType, decision, detail != null ? " (" + detail + ")" : "");
+        }
+        return false;
+    }
+
+    /**
+     * エラーの集合の指紋（ファイルの順序に依存しない）
+     */
+    static long fingerprint(Map<String, ErrorInfo> errorFiles) {
+        long fingerprint = 0;
+        for (Map.Entry<String, ErrorInfo> entry : errorFiles.entrySet()) {
+            ErrorInfo errorInfo = entry.getValue();
+            long hash = entry.getKey().hashCode();
+            for (int i = 0; i < errorInfo.getDiagnosticCount(); i++) {
+                hash = hash * 31 + errorInfo.getLine(i);
+                hash = hash * 31 + errorInfo.getColumn(i);
+                hash = hash * 31 + errorInfo.getKey(i).ordinal();
+            }
+            fingerprint += mix(hash);
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
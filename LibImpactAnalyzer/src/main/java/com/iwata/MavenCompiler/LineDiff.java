@@ -0,0 +1,292 @@
+package com.iwata.MavenCompiler;
+
+import java.util.Arrays;
+
+/**
+  行単位の差分計算（Myersの線形空間アルゴリズム）
+  各行は文字オフセットの範囲とハッシュ値で表現し、行ごとのStringは生成しない
+  メモリ使用量は行数に比例する（O(N)）
+  連続する変更箇所（hunk）ごとに、削除行と追加行の対応する分を「変更」として数える
+ **/
+public final class LineDiff {
+
+    /**
+     * 差分の集計結果
+     */
+    public static final class Result {
+        private int added;
+        private int deleted;
+        private int changed;
+
+        /**
+         * 行の削除のみを行った場合の集計結果（差分計算を省略できる場合に使用）
+         */
+        static Result ofDeletedLines(int lines) {
+            Result result = new Result();
+            result.deleted = lines;
+            return result;
+        }
+
+        public int getAdded() { return added; }
+        public int getDeleted() { return deleted; }
+        public int getChanged() { return changed; }
+
+        @Override
+        public String toString() {
+            return "追加 " + added + " 行, 削除 " + deleted + " 行, 変更 " + changed + " 行";
+        }
+    }
+
+    /**
+     * 行の位置情報とハッシュ
+     */
+    private static final class Lines {
+        final CharSequence text;
+        final int[] start;
+        final int[] end;
+        final int[] hash;
+        final int count;
+
+        Lines(CharSequence text) {
+            this.text = text;
+            int length = text.length();
+            int n = 0;
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) == '\n') {
+                    n++;
+                }
+            }
+            // 末尾が改行で終わらない場合は最終行を1行として数える
+            if (length > 0 && text.charAt(length - 1) != '\n') {
+                n++;
+            }
+            this.count = n;
+            this.start = new int[n];
+            this.end = new int[n];
+            this.hash = new int[n];
+
+            int line = 0;
+            int lineStart = 0;
+            int h = 0;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    int lineEnd = (i > lineStart && text.charAt(i - 1) == '\r') ? i - 1 : i;
+                    if (lineEnd != i) {
+                        // 行末の\rはハッシュから除外する
+                        h = hashOf(text, lineStart, lineEnd);
+                    }
+                    start[line] = lineStart;
+                    end[line] = lineEnd;
+                    hash[line] = h;
+                    line++;
+                    lineStart = i + 1;
+                    h = 0;
+                } else {
+                    h = 31 * h + c;
+                }
+            }
+            if (line < n) {
+                start[line] = lineStart;
+                end[line] = length;
+                hash[line] = h;
+            }
+        }
+
+        private static int hashOf(CharSequence text, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            return h;
+        }
+    }
+
+    private final Lines a;
+    private final Lines b;
+    private final Result result = new Result();
+    private int pendingDeleted = 0;
+    private int pendingAdded = 0;
+    private int[] forward;
+    private int[] backward;
+
+    private LineDiff(CharSequence original, CharSequence modified) {
+        this.a = new Lines(original);
+        this.b = new Lines(modified);
+    }
+
+    /**
+     * 修正前後のテキストの行差分を計算
+     */
+    public static Result diff(CharSequence original, CharSequence modified) {
+        LineDiff diff = new LineDiff(original, modified);
+        int maxD = (diff.a.count + diff.b.count + 1) / 2 + 1;
+        diff.forward = new int[2 * maxD + 2];
+        diff.backward = new int[2 * maxD + 2];
+        diff.compare(0, diff.a.count, 0, diff.b.count);
+        diff.flushHunk();
+        return diff.result;
+    }
+
+    private boolean lineEquals(int i, int j) {
+        if (a.hash[i] != b.hash[j]) {
+            return false;
+        }
+        int length = a.end[i] - a.start[i];
+        if (length != b.end[j] - b.start[j]) {
+            return false;
+        }
+        int offsetA = a.start[i];
+        int offsetB = b.start[j];
+        for (int k = 0; k < length; k++) {
+            if (a.text.charAt(offsetA + k) != b.text.charAt(offsetB + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * a[a0, a1) と b[b0, b1) を比較し、出現順に一致・削除・追加を集計
+     */
+    private void compare(int a0, int a1, int b0, int b1) {
+        // 共通の先頭行
+        int prefix = 0;
+        while (a0 + prefix < a1 && b0 + prefix < b1 && lineEquals(a0 + prefix, b0 + prefix)) {
+            prefix++;
+        }
+        if (prefix > 0) {
+            match();
+        }
+        a0 += prefix;
+        b0 += prefix;
+
+        // 共通の末尾行（集計は中間部分の後）
+        int suffix = 0;
+        while (a1 - suffix > a0 && b1 - suffix > b0 && lineEquals(a1 - suffix - 1, b1 - suffix - 1)) {
+            suffix++;
+        }
+        a1 -= suffix;
+        b1 -= suffix;
+
+        if (a0 == a1) {
+            pendingAdded += b1 - b0;
+        } else if (b0 == b1) {
+            pendingDeleted += a1 - a0;
+        } else {
+            int[] split = middleSnake(a0, a1, b0, b1);
+            if (split == null) {
+                // 共通部分なし
+                pendingDeleted += a1 - a0;
+                pendingAdded += b1 - b0;
+            } else {
+                compare(a0, split[0], b0, split[1]);
+                compare(split[0], a1, split[1], b1);
+            }
+        }
+
+        if (suffix > 0) {
+            match();
+        }
+    }
+
+    /**
+     * 前方・後方から同時に探索し、最短編集経路の中間点を求める
+     * 共通部分がない場合はnullを返す
+     */
+    private int[] middleSnake(int a0, int a1, int b0, int b1) {
+        int n = a1 - a0;
+        int m = b1 - b0;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD;
+        Arrays.fill(forward, 0, length + 2, -1);
+        Arrays.fill(backward, 0, length + 2, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        boolean front = (delta % 2 != 0);
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])) {
+                    x1 = forward[k1Offset + 1];
+                } else {
+                    x1 = forward[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && lineEquals(a0 + x1, b0 + y1)) {
+                    x1++;
+                    y1++;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    k1end += 2;
+                } else if (y1 > m) {
+                    k1start += 2;
+                } else if (front) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && backward[k2Offset] != -1) {
+                        int x2 = n - backward[k2Offset];
+                        if (x1 >= x2) {
+                            return new int[] {a0 + x1, b0 + y1};
+                        }
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && backward[k2Offset - 1] < backward[k2Offset + 1])) {
+                    x2 = backward[k2Offset + 1];
+                } else {
+                    x2 = backward[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && lineEquals(a1 - x2 - 1, b1 - y2 - 1)) {
+                    x2++;
+                    y2++;
+                }
+                backward[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && forward[k1Offset] != -1) {
+                        int x1 = forward[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return new int[] {a0 + x1, b0 + y1};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private void match() {
+        flushHunk();
+    }
+
+    /**
+     * 1つのhunkを確定し、削除と追加の重なり分を変更として集計
+     */
+    private void flushHunk() {
+        int changed = Math.min(pendingDeleted, pendingAdded);
+        result.changed += changed;
+        result.deleted += pendingDeleted - changed;
+        result.added += pendingAdded - changed;
+        pendingDeleted = 0;
+        pendingAdded = 0;
+    }
+}
@@ -7,130 +7,288 @@ import com.iwata.MavenCompiler.ErrorInfo;
 import com.iwata.MavenCompiler.ErrorFileProcessor;
 import com.iwata.MavenCompiler.FileUtility;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Flow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
   Mavenプロジェクトのコンパイルエラーを自動修正するメインクラス
   修正順序: メインコード完了後 → テストコード
  **/
 public class MavenCompilationCleaner {
+
+    private static final Logger logger = LogManager.getLogger(MavenCompilationCleaner.class);
     
+    private final AnalysisConfig config;
     private final MavenCompiler compiler;
-    private final ErrorFileProcessor processor;
-    private final CompilationMetrics metrics;
+    // Spoon（JDT）を読み込むため、最初に修正が必要になったときに作成する
+    private ErrorFileProcessor processor;
+    // 依存関係のクラスパス（解決は最初に必要になったときに行う）
+    private volatile ProjectClasspath classpath;
+    // キャッシュから結果を返す場合は保存されていたメトリクスに置き換える
+    private volatile CompilationMetrics metrics;
+    private final WriteBatch writeBatch = new WriteBatch();
+    // 進捗イベントの配信（解析の終了時に完了を通知する）
+    private final AnalysisEventPublisher events = new AnalysisEventPublisher();
+    // ソースの参照インデックス（影響推定を行う場合のみ構築する）
+    private volatile ReferenceIndex referenceIndex;
+    // 修正ループ全体の時間予算の期限（メインコードとテストコードで共有）
+    private long deadlineMillis = Long.MAX_VALUE;
     
     public MavenCompilationCleaner() {
-        this.compiler = new MavenCompiler();
-        this.processor = new ErrorFileProcessor();
+        this(AnalysisConfig.fromSystemProperties());
+    }
+    
+    public MavenCompilationCleaner(AnalysisConfig config) {
+        this.config = config;
+        this.compiler = new MavenCompiler(config, events);
         this.metrics = new CompilationMetrics();
     }
     
+    public AnalysisConfig getConfig() {
+        return config;
+    }
+    
+    public CompilationMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * ソースが参照しているパッケージ・型の転置インデックス（構築していない場合はnull）
+     */
+    public ReferenceIndex getReferenceIndex() {
+        return referenceIndex;
+    }
+    
+    /**
+     * 進捗イベントの配信元（解析の開始前に購読すること。解析の終了時にonComplete、失敗時にonErrorが通知される）
+     */
+    public Flow.Publisher<AnalysisEvent> getEvents() {
+        return events;
+    }
+    
     public static void main(String[] args) throws Exception {
         MavenCompilationCleaner cleaner = new MavenCompilationCleaner();
         cleaner.run();
     }
     
     public void run() throws Exception {
+        // ライブメトリクスサーバー（cleaner.metricsPort 指定時のみ）
+        try (MetricsHttpServer metricsServer = MetricsHttpServer.startIfConfigured(metrics)) {
+            runAnalysis();
+        }
+    }
+    
+    /**
+     * 解析を実行（ライブメトリクスサーバーは起動しない。デーモンなど組み込み用）
+     * 1つのインスタンスで実行できる解析は1回のみ（終了時にビルド出力のログを閉じる）
+     */
+    public AnalysisResult runAnalysis() throws Exception {
+        try {
+            AnalysisResult result = analyze();
+            events.close();
+            return result;
+        } catch (Exception | Error e) {
+            events.closeExceptionally(e);
+            throw e;
+        } finally {
+            compiler.close();
+        }
+    }
+    
+    private AnalysisResult analyze() throws Exception {
         long totalStartTime = System.nanoTime();
         
+        // キャッシュのキーはライブラリを削除する前のソースから計算する
+        ResultCache cache = config.getCacheDir() != null ? new ResultCache(config.getCacheDir()) : null;
+        ResultCache.Snapshot snapshot = cache != null ? ResultCache.Snapshot.take(config) : null;
+        
+        // 静的な影響推定（pom.xmlに記載されたバージョンのjarを使うため、ライブラリの削除前に行う）
+        // 参照インデックスは修正でファイルを書き換えるたびに更新される
+        ImpactEstimator.Estimate estimate = null;
+        if (config.isEstimateSeed() && config.getRemoveArtifactId() != null) {
+            referenceIndex = ReferenceIndex.build(config);
+            estimate = ImpactEstimator.estimate(config, referenceIndex);
+            if (estimate != null) {
+                estimate.print();
+            }
+        }
+        
+        // 指定されたライブラリをpom.xmlから削除
+        if (config.getRemoveArtifactId() != null) {
+            PomEditor.removeDependency(config.getProjectDir().resolve("pom.xml"), 
+                                       config.getRemoveGroupId(), config.getRemoveArtifactId());
+        }
+        
         // 初期メトリクスの設定（メインコードとテストコードを分離）
-        int mainFileCount = FileUtility.countJavaFilesInDirectory(CleanerConfig.SRC_DIR);
-        int testFileCount = FileUtility.countJavaFilesInDirectory(CleanerConfig.TEST_DIR);
-        int mainLineCount = FileUtility.countJavaLinesInDirectory(CleanerConfig.SRC_DIR);
-        int testLineCount = FileUtility.countJavaLinesInDirectory(CleanerConfig.TEST_DIR);
+        String srcDir = config.getSrcDir().toString();
+        String testDir = config.getTestDir().toString();
+        int mainFileCount = FileUtility.countJavaFilesInDirectory(srcDir);
+        int testFileCount = FileUtility.countJavaFilesInDirectory(testDir);
+        int mainLineCount = FileUtility.countJavaLinesInDirectory(srcDir);
+        int testLineCount = FileUtility.countJavaLinesInDirectory(testDir);
         
         metrics.setTotalMainFiles(mainFileCount);
         metrics.setTotalTestFiles(testFileCount);
         metrics.setTotalMainLines(mainLineCount);
         metrics.setTotalTestLines(testLineCount);
         
-        System.out.println("プロジェクト内の全Javaファイル数: " + (mainFileCount + testFileCount));
-        System.out.println("  - srcディレクトリ: " + mainFileCount);
-        System.out.println("  - testsディレクトリ: " + testFileCount);
-        System.out.println("プロジェクト内の全行数: " + (mainLineCount + testLineCount));
-        System.out.println("  - srcディレクトリ: " + mainLineCount);
-        System.out.println("  - testsディレクトリ: " + testLineCount);
+        logger.info("プロジェクト内の全Javaファイル数: {}", (mainFileCount + testFileCount));
+        logger.info("  - srcディレクトリ: {}", mainFileCount);
+        logger.info("  - testsディレクトリ: {}", testFileCount);
+        logger.info("プロジェクト内の全行数: {}", (mainLineCount + testLineCount));
+        logger.info("  - srcディレクトリ: {}", mainLineCount);
+        logger.info("  - testsディレクトリ: {}", testLineCount);
+        
+        if (cache != null) {
+            ResultCache.Entry cached = cache.find(snapshot);
+            if (cached != null) {
+                return replayCachedResult(cached, snapshot);
+            }
+            ResultCache.Entry previous = cache.findPrevious(snapshot);
+            if (previous != null) {
+                estimate = replayPrevious(previous, snapshot, estimate, referenceIndex, metrics);
+            }
+        }
         
         long deletionStartTime = System.nanoTime();
+        deadlineMillis = IterationController.deadlineFrom(System.currentTimeMillis(), config.getTimeBudgetSeconds());
         
-        // フェーズ1: メインコードの修正
-        System.out.println("\n========================================");
-        System.out.println("フェーズ1: メインコードの修正を開始");
-        System.out.println("========================================");
-        long mainCodeStartTime = System.nanoTime();
-        boolean mainCodeSuccess = processMainCode();
-        long mainCodeEndTime = System.nanoTime();
-        long mainCodeDeletionTime = mainCodeEndTime - mainCodeStartTime;
-        metrics.setMainCodeDeletionTime(mainCodeDeletionTime);
+        // 依存関係のクラスパスはライブラリを削除した後のpom.xmlで一度だけ解決し、Spoonとプロセス内コンパイルで共有する
+        classpath = new ProjectClasspath(config.getProjectDir(), config.getBuildOutputLog());
+        if (estimate != null && classpath.containsLibrary(config.getRemoveGroupId(), config.getRemoveArtifactId(),
+                                                          estimate.getContents().getJar())) {
+            // 推移的な依存関係で残ったライブラリの型は解決できるため、予測したエラーは発生しない
+            logger.info("削除したライブラリが依存関係のクラスパスに残っているため、影響推定による事前修正を行いません");
+            estimate = null;
+        }
+        
+        // 同時修正モード: プロセス内コンパイルが使えない場合は従来の2フェーズで修正
+        InProcessCompiler inProcessCompiler = null;
+        if (config.isCombined()) {
+            inProcessCompiler = InProcessCompiler.createIfAvailable(config, classpath, events);
+            if (inProcessCompiler == null) {
+                logger.warn("プロセス内コンパイルを利用できないため、メインコード・テストコードを順に修正します");
+            }
+        }
         
-        // フェーズ2: テストコードの修正
-        System.out.println("\n========================================");
-        System.out.println("フェーズ2: テストコードの修正を開始");
-        System.out.println("========================================");
-        long testCodeStartTime = System.nanoTime();
-        boolean testCodeSuccess = processTestCode();
-        long testCodeEndTime = System.nanoTime();
-        long testCodeDeletionTime = testCodeEndTime - testCodeStartTime;
-        metrics.setTestCodeDeletionTime(testCodeDeletionTime);
+        boolean mainCodeSuccess;
+        boolean testCodeSuccess;
+        if (inProcessCompiler != null) {
+            logger.info("\n========================================");
+            logger.info("メインコード・テストコードの同時修正を開始");
+            logger.info("========================================");
+            long combinedStartTime = System.nanoTime();
+            metrics.setCurrentPhase("COMBINED_FIX");
+            if (estimate != null) {
+                Map<String, ErrorInfo> expected = estimate.toExpectedErrors(false);
+                expected.putAll(estimate.toExpectedErrors(true));
+                seedExpectedErrors("COMBINED", expected);
+            }
+            mainCodeSuccess = testCodeSuccess = processCombinedCode(inProcessCompiler);
+            // 両者を区別できないため、所要時間はメインコード側に計上する
+            metrics.setMainCodeDeletionTime(System.nanoTime() - combinedStartTime);
+        } else {
+            // フェーズ1: メインコードの修正
+            logger.info("\n========================================");
+            logger.info("フェーズ1: メインコードの修正を開始");
+            logger.info("========================================");
+            long mainCodeStartTime = System.nanoTime();
+            metrics.setCurrentPhase("MAIN_FIX");
+            if (estimate != null) {
+                seedExpectedErrors("MAIN", estimate.toExpectedErrors(false));
+            }
+            mainCodeSuccess = processMainCode();
+            long mainCodeEndTime = System.nanoTime();
+            long mainCodeDeletionTime = mainCodeEndTime - mainCodeStartTime;
+            metrics.setMainCodeDeletionTime(mainCodeDeletionTime);
+            
+            // フェーズ2: テストコードの修正
+            logger.info("\n========================================");
+            logger.info("フェーズ2: テストコードの修正を開始");
+            logger.info("========================================");
+            long testCodeStartTime = System.nanoTime();
+            metrics.setCurrentPhase("TEST_FIX");
+            if (estimate != null) {
+                seedExpectedErrors("TEST", estimate.toExpectedErrors(true));
+            }
+            testCodeSuccess = processTestCode();
+            long testCodeEndTime = System.nanoTime();
+            long testCodeDeletionTime = testCodeEndTime - testCodeStartTime;
+            metrics.setTestCodeDeletionTime(testCodeDeletionTime);
+        }
         
         long deletionEndTime = System.nanoTime();
         long totalDeletionTime = deletionEndTime - deletionStartTime;
         metrics.setTotalDeletionTime(totalDeletionTime);
         
         boolean compilationSuccess = mainCodeSuccess && testCodeSuccess;
+        MavenCompiler.TestResult testResult = null;
         
         if (compilationSuccess) {
-            System.out.println("\n最終的にコンパイル成功");
-            
+            logger.info("\n最終的にコンパイル成功");
+        }
+        if (compilationSuccess && config.isRunTests()) {
             // テスト実行
-            System.out.println("\n===== テスト実行 =====");
+            logger.info("\n===== テスト実行 =====");
             long testExecStartTime = System.nanoTime();
+            metrics.setCurrentPhase("TEST_RUN");
+            metrics.startIteration("TEST-RUN", 1);
             try {
-                MavenCompiler.TestResult testResult = compiler.runMavenTest();
+                CompilationMetrics.PhaseTimer testTimer = CompilationMetrics.PhaseTimer.start();
+                testResult = compiler.runMavenTest();
+                metrics.recordPhase(CompilationMetrics.Phase.MAVEN_TEST, testTimer);
                 metrics.setTestResult(testResult);
                 
-                System.out.println("テスト実行完了");
-                System.out.println("総テスト数: " + testResult.getTotalTests());
-                System.out.println("成功: " + testResult.getPassedTests());
-                System.out.println("失敗: " + testResult.getFailedTests());
-                System.out.println("エラー: " + testResult.getErrorTests());
-                System.out.println("スキップ: " + testResult.getSkippedTests());
-                System.out.println("通過率: " + String.format("%.1f", testResult.getPassRate()) + "%");
+                logger.info("テスト実行完了");
+                logger.info("総テスト数: {}", testResult.getTotalTests());
+                logger.info("成功: {}", testResult.getPassedTests());
+                logger.info("失敗: {}", testResult.getFailedTests());
+                logger.info("エラー: {}", testResult.getErrorTests());
+                logger.info("スキップ: {}", testResult.getSkippedTests());
+                logger.info("通過率: {}%", String.format("%.1f", testResult.getPassRate()));
                 
                 // 失敗したテストメソッド名の表示
                 if (!testResult.getLibRemovedTestMethods().isEmpty()) {
-                    System.out.println("\n[LIB-REMOVED] ライブラリ削除により失敗したテストメソッド (" + 
-                                     testResult.getLibRemovedTestMethods().size() + "件):");
+                    logger.info("\n[LIB-REMOVED] ライブラリ削除により失敗したテストメソッド ({}件):", testResult.getLibRemovedTestMethods().size());
                     for (String failedTest : testResult.getLibRemovedTestMethods()) {
-                        System.out.println("  - " + failedTest);
+                        logger.info("  - {}", failedTest);
                     }
                 }
                 
                 if (!testResult.getFailedTestMethods().isEmpty()) {
-                    System.out.println("\n通常の失敗したテストメソッド (" + 
-                                     testResult.getFailedTestMethods().size() + "件):");
+                    logger.info("\n通常の失敗したテストメソッド ({}件):", testResult.getFailedTestMethods().size());
                     for (String failedTest : testResult.getFailedTestMethods()) {
-                        System.out.println("  - " + failedTest);
+                        logger.info("  - {}", failedTest);
                     }
                 }
                 
                 if (!testResult.getErrorTestMethods().isEmpty()) {
-                    System.out.println("\nエラーが発生したテストメソッド (" + 
-                                     testResult.getErrorTestMethods().size() + "件):");
+                    logger.info("\nエラーが発生したテストメソッド ({}件):", testResult.getErrorTestMethods().size());
                     for (String errorTest : testResult.getErrorTestMethods()) {
-                        System.out.println("  - " + errorTest);
+                        logger.info("  - {}", errorTest);
                     }
                 }
             } catch (Exception e) {
-                System.out.println("テスト実行中にエラーが発生しました: " + e.getMessage());
+                logger.warn("テスト実行中にエラーが発生しました: {}", e.getMessage(), e);
                 // テストが実行できない場合でも処理を続行
             }
             long testExecEndTime = System.nanoTime();
             long testExecutionTime = testExecEndTime - testExecStartTime;
             metrics.setTestExecutionTime(testExecutionTime);
-        } else {
-            System.out.println("最大回数に到達。未解決のエラーがあります。");
+        } else if (!compilationSuccess) {
+            logger.warn("最大回数に到達。未解決のエラーがあります。");
         }
         
         long totalEndTime = System.nanoTime();
@@ -144,21 +302,219 @@ public class MavenCompilationCleaner {
         printExecutionTimes();
         
         // Excelレポートを生成
-        System.out.println("\n===== Excelレポート生成 =====");
-        ExcelReportGenerator.generateReport(metrics);
+        if (config.getReportFile() != null) {
+            logger.info("\n===== Excelレポート生成 =====");
+            metrics.setCurrentPhase("REPORT");
+            ExcelReportGenerator.generateReport(metrics, config.getReportFile());
+        }
+        if (cache != null) {
+            try {
+                cache.store(snapshot, metrics, testResult, compilationSuccess);
+            } catch (IOException e) {
+                logger.warn("解析結果をキャッシュに保存できませんでした: {}", e.getMessage());
+            }
+        }
+        metrics.setCurrentPhase("DONE");
+        return new AnalysisResult(config, compilationSuccess, metrics, testResult, false);
+    }
+    
+    /**
+     * 以前の解析結果から変更のないファイルの修正を書き戻す
+     * 影響推定の行・列は書き戻す前のソースのものなので、書き戻したファイルは事前修正の対象から除き、参照インデックスも更新する
+     * @return 書き戻したファイルを除いた推定結果（推定していない場合はnull）
+     */
+    static ImpactEstimator.Estimate replayPrevious(ResultCache.Entry previous, ResultCache.Snapshot snapshot,
+                                                   ImpactEstimator.Estimate estimate, ReferenceIndex referenceIndex,
+                                                   CompilationMetrics metrics) throws IOException {
+        List<Path> replayed = ResultCache.replay(previous, snapshot, metrics);
+        logger.info("以前の解析結果から変更のないファイルの修正を再適用しました: {} / {} ファイル", 
+                    replayed.size(), previous.getFileCount());
+        if (referenceIndex != null) {
+            for (Path file : replayed) {
+                referenceIndex.update(file, Files.readAllBytes(file));
+            }
+        }
+        return estimate != null ? estimate.withoutFiles(replayed) : null;
+    }
+    
+    /**
+     * ソースが同じ以前の解析結果を再現（修正後の内容を書き戻し、保存されていたメトリクスとテスト結果を返す）
+     */
+    private AnalysisResult replayCachedResult(ResultCache.Entry cached, ResultCache.Snapshot snapshot) throws Exception {
+        int replayed = ResultCache.replay(cached, snapshot, null).size();
+        logger.info("\nソースが同じ以前の解析結果をキャッシュから再現しました: 修正ファイル {} 件 (ソースのハッシュ {})", 
+                    replayed, snapshot.getTreeHash());
+        metrics = cached.getMetrics();
+        metrics.printMetrics();
+        printExecutionTimes();
+        if (config.getReportFile() != null) {
+            logger.info("\n===== Excelレポート生成 =====");
+            ExcelReportGenerator.generateReport(metrics, config.getReportFile());
+        }
+        metrics.setCurrentPhase("DONE");
+        return new AnalysisResult(config, cached.isCompilationSuccessful(), metrics, cached.getTestResult(), true);
     }
     
     /**
      * 実行時間の計測結果を出力
      */
     private void printExecutionTimes() {
-        System.out.println("\n========== 実行時間計測結果 ==========");
-        System.out.println("1. メインコード削除の実行時間: " + metrics.getMainCodeDeletionTimeFormatted());
-        System.out.println("2. テストコード削除の実行時間: " + metrics.getTestCodeDeletionTimeFormatted());
-        System.out.println("3. メインコード、テストコード削除の実行時間: " + metrics.getTotalDeletionTimeFormatted());
-        System.out.println("4. テスト実行時間: " + metrics.getTestExecutionTimeFormatted());
-        System.out.println("5. 全体の実行時間: " + metrics.getTotalExecutionTimeFormatted());
-        System.out.println("=====================================");
+        logger.info("\n========== 実行時間計測結果 ==========");
+        logger.info("1. メインコード削除の実行時間: {}", metrics.getMainCodeDeletionTimeFormatted());
+        logger.info("2. テストコード削除の実行時間: {}", metrics.getTestCodeDeletionTimeFormatted());
+        logger.info("3. メインコード、テストコード削除の実行時間: {}", metrics.getTotalDeletionTimeFormatted());
+        logger.info("4. テスト実行時間: {}", metrics.getTestExecutionTimeFormatted());
+        logger.info("5. 全体の実行時間: {}", metrics.getTotalExecutionTimeFormatted());
+        logger.info("=====================================");
+    }
+    
+    /**
+     * 反復の終了をJFRイベントに記録し、購読者に通知
+     */
+    private void commitIterationEvent(AnalyzerEvents.IterationEvent event, String codeType, 
+                                      int iteration, int errorFiles, int modifiedFiles,
+                                      IterationController.Decision decision) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.codeType = codeType;
+            event.iteration = iteration;
+            event.errorFiles = errorFiles;
+            event.modifiedFiles = modifiedFiles;
+            event.decision = decision.name();
+            event.commit();
+        }
+        events.publish(new AnalysisEvent.IterationFinished(codeType, iteration, errorFiles, modifiedFiles, decision));
+    }
+    
+    /**
+     * エラーのある各ファイルを修正し、反復内で修正した内容をまとめて書き込む
+     * @return 修正したファイル数
+     */
+    private int fixErrorFiles(Map<String, ErrorInfo> errorFiles) throws Exception {
+        for (ErrorInfo errorInfo : errorFiles.values()) {
+            logger.info("  [{}] {} (エラー行: {})", codeLabel(errorInfo), errorInfo.getFileName(), 
+                        Arrays.toString(errorInfo.getErrorLines()));
+        }
+
+        List<ErrorInfo> errorInfos = new ArrayList<>(errorFiles.values());
+        // 書き込みに失敗したファイルの記録を戻すため、修正前の記録を複製しておく
+        Map<String, CompilationMetrics.FileEdit> editsBefore = new HashMap<>();
+        for (ErrorInfo errorInfo : errorInfos) {
+            editsBefore.put(errorInfo.getFilePath(), metrics.copyFileEdit(errorInfo.getFilePath()));
+        }
+        List<Boolean> results = processor().processErrorFiles(errorInfos, metrics, writeBatch);
+        Set<Path> failed = new HashSet<>();
+        for (Path path : writeBatch.flush(metrics)) {
+            failed.add(path.toAbsolutePath().normalize());
+        }
+        int modifiedCount = 0;
+        for (int i = 0; i < errorInfos.size(); i++) {
+            ErrorInfo errorInfo = errorInfos.get(i);
+            Path path = Paths.get(errorInfo.getFilePath()).toAbsolutePath().normalize();
+            if (results.get(i) && failed.contains(path)) {
+                // 書き込めなかったファイルは修正しなかったものとして扱う
+                metrics.revertFileEdit(errorInfo.getFilePath(), editsBefore.get(errorInfo.getFilePath()));
+                processor().writeFailed(path);
+                logger.warn("書き込みに失敗したため修正を取り消しました: [{}] {}", codeLabel(errorInfo), errorInfo.getFileName());
+            } else if (results.get(i)) {
+                modifiedCount++;
+                metrics.addModifiedFile(errorInfo.getFileName(), errorInfo.getFilePath());
+                logger.info("修正完了: [{}] {}", codeLabel(errorInfo), errorInfo.getFileName());
+            } else {
+                logger.info("修正すべきノードが見つかりません: [{}] {}", codeLabel(errorInfo), errorInfo.getFileName());
+            }
+        }
+        return modifiedCount;
+    }
+    
+    /**
+     * 影響推定で予測したエラーを、最初のコンパイルの前に修正（反復0回目として計上する）
+     * 予測が外れた箇所や残ったエラーは通常の反復でコンパイラの診断から修正される
+     */
+    private void seedExpectedErrors(String codeType, Map<String, ErrorInfo> expectedErrors) throws Exception {
+        if (expectedErrors.isEmpty()) {
+            return;
+        }
+        logger.info("\n===== 影響推定による事前修正 ({}) - 予測エラーファイル数: {} =====", codeType, expectedErrors.size());
+        metrics.startIteration(codeType, 0);
+        int modifiedCount = fixErrorFiles(expectedErrors);
+        logger.info("事前修正したファイル数: {}", modifiedCount);
+    }
+    
+    /**
+     * ファイルの修正処理（初回のみ作成。エラーがない場合はSpoonのクラスを読み込まない）
+     */
+    private synchronized ErrorFileProcessor processor() {
+        if (processor == null) {
+            processor = new ErrorFileProcessor(config, events);
+            if (config.isSpoonClasspath()) {
+                processor.setClasspath(classpath);
+            }
+            processor.setReferenceIndex(referenceIndex);
+        }
+        return processor;
+    }
+    
+    private static String codeLabel(ErrorInfo errorInfo) {
+        return CleanerConfig.isTestPath(errorInfo.getFilePath()) ? "TEST" : "MAIN";
+    }
+    
+    /**
+     * メインコードとテストコードをまとめて修正（cleaner.combined）
+     * 反復ごとに両方をプロセス内で1回だけコンパイルし、見つかったエラーを種別に関係なく修正する
+     * メトリクスはファイルのパスからメインコード・テストコードに分類される
+     */
+    private boolean processCombinedCode(InProcessCompiler inProcessCompiler) throws Exception {
+        int iteration = 1;
+        boolean success = false;
+        IterationController controller = new IterationController("COMBINED", metrics, config, deadlineMillis);
+        
+        while (controller.shouldStart(iteration)) {
+            logger.info("\n===== メイン・テストコード同時修正 - ループ {} 回目 =====", iteration);
+            metrics.setIterationCount(iteration);
+            metrics.setTestIterationCount(iteration);
+            metrics.startIteration("COMBINED", iteration);
+            AnalyzerEvents.IterationEvent iterationEvent = new AnalyzerEvents.IterationEvent();
+            iterationEvent.begin();
+
+            CompilationMetrics.PhaseTimer compileTimer = CompilationMetrics.PhaseTimer.start();
+            Map<String, ErrorInfo> errorFiles = inProcessCompiler.compileAndExtractErrors();
+            metrics.recordPhase(CompilationMetrics.Phase.MAVEN_COMPILE, compileTimer);
+            
+            if (errorFiles.isEmpty()) {
+                logger.info("メインコードのコンパイル成功");
+                logger.info("テストコードのコンパイル成功");
+                success = true;
+                controller.converged(iteration);
+                commitIterationEvent(iterationEvent, "COMBINED", iteration, 0, 0, controller.getLastDecision());
+                break;
+            }
+
+            long testFiles = errorFiles.values().stream().filter(e -> CleanerConfig.isTestPath(e.getFilePath())).count();
+            logger.info("エラーファイル数: {} (メインコード: {}, テストコード: {})", 
+                        errorFiles.size(), errorFiles.size() - testFiles, testFiles);
+            metrics.setPendingFiles(errorFiles.size());
+
+            int modifiedCount = fixErrorFiles(errorFiles);
+            boolean proceed = controller.afterIteration(iteration, errorFiles, modifiedCount);
+            commitIterationEvent(iterationEvent, "COMBINED", iteration, errorFiles.size(), modifiedCount, 
+                                 controller.getLastDecision());
+
+            if (modifiedCount == 0) {
+                logger.info("修正されたファイルがありませんでした。");
+            }
+            if (!proceed) {
+                break;
+            }
+
+            iteration++;
+        }
+        
+        if (!success) {
+            logger.warn("警告: メイン・テストコードの修正が完了していません（{}）", controller.getLastDecision());
+        }
+        
+        return success;
     }
     
     /**
@@ -167,49 +523,41 @@ public class MavenCompilationCleaner {
     private boolean processMainCode() throws Exception {
         int iteration = 1;
         boolean mainCodeSuccess = false;
+        IterationController controller = new IterationController("MAIN", metrics, config, deadlineMillis);
         
-        while (iteration <= CleanerConfig.MAX_ITERATIONS) {
-            System.out.println("\n===== メインコード修正 - ループ " + iteration + " 回目 =====");
+        while (controller.shouldStart(iteration)) {
+            logger.info("\n===== メインコード修正 - ループ {} 回目 =====", iteration);
             metrics.setIterationCount(iteration);
+            metrics.startIteration("MAIN", iteration);
+            AnalyzerEvents.IterationEvent iterationEvent = new AnalyzerEvents.IterationEvent();
+            iterationEvent.begin();
 
             // メインコードのみコンパイル実行
+            CompilationMetrics.PhaseTimer compileTimer = CompilationMetrics.PhaseTimer.start();
             Map<String, ErrorInfo> mainErrorFiles = compiler.runMavenCompileAndExtractErrors();
+            metrics.recordPhase(CompilationMetrics.Phase.MAVEN_COMPILE, compileTimer);
             
             if (mainErrorFiles.isEmpty()) {
-                System.out.println("メインコードのコンパイル成功");
+                logger.info("メインコードのコンパイル成功");
                 mainCodeSuccess = true;
+                controller.converged(iteration);
+                commitIterationEvent(iterationEvent, "MAIN", iteration, 0, 0, controller.getLastDecision());
                 break;
             }
 
-            System.out.println("メインコードのエラーファイル数: " + mainErrorFiles.size());
+            logger.info("メインコードのエラーファイル数: {}", mainErrorFiles.size());
+            metrics.setPendingFiles(mainErrorFiles.size());
             
-            for (ErrorInfo errorInfo : mainErrorFiles.values()) {
-                System.out.println("  [MAIN] " + errorInfo.getFileName() + 
-                                 " (エラー行: " + errorInfo.getErrorLines() + ")");
-            }
-
-            boolean anyModified = false;
-
-            // 各エラーファイルに対して修正処理を実行
-            for (ErrorInfo errorInfo : mainErrorFiles.values()) {
-                File file = new File(errorInfo.getFilePath());
-                if (!file.exists()) {
-                    System.out.println("ファイルが見つかりません: " + file.getAbsolutePath());
-                    continue;
-                }
-
-                boolean modified = processor.processErrorFile(file, errorInfo, metrics);
-                if (modified) {
-                    anyModified = true;
-                    metrics.addModifiedFile(errorInfo.getFileName(), errorInfo.getFilePath());
-                    System.out.println("修正完了: [MAIN] " + errorInfo.getFileName());
-                } else {
-                    System.out.println("修正すべきノードが見つかりません: [MAIN] " + errorInfo.getFileName());
-                }
-            }
+            int modifiedCount = fixErrorFiles(mainErrorFiles);
+            boolean anyModified = modifiedCount > 0;
+            boolean proceed = controller.afterIteration(iteration, mainErrorFiles, modifiedCount);
+            commitIterationEvent(iterationEvent, "MAIN", iteration, mainErrorFiles.size(), modifiedCount, 
+                                 controller.getLastDecision());
 
             if (!anyModified) {
-                System.out.println("メインコードで修正されたファイルがありませんでした。");
+                logger.info("メインコードで修正されたファイルがありませんでした。");
+            }
+            if (!proceed) {
                 break;
             }
 
@@ -217,7 +565,7 @@ public class MavenCompilationCleaner {
         }
         
         if (!mainCodeSuccess) {
-            System.out.println("警告: メインコードの修正が完了していません（最大反復回数に到達）");
+            logger.warn("警告: メインコードの修正が完了していません（{}）", controller.getLastDecision());
         }
         
         return mainCodeSuccess;
@@ -229,48 +577,41 @@ public class MavenCompilationCleaner {
     private boolean processTestCode() throws Exception {
         int iteration = 1;
         boolean testCodeSuccess = false;
+        IterationController controller = new IterationController("TEST", metrics, config, deadlineMillis);
         
-        while (iteration <= CleanerConfig.MAX_ITERATIONS) {
-            System.out.println("\n===== テストコード修正 - ループ " + iteration + " 回目 =====");
+        while (controller.shouldStart(iteration)) {
+            logger.info("\n===== テストコード修正 - ループ {} 回目 =====", iteration);
+            metrics.setTestIterationCount(iteration);
+            metrics.startIteration("TEST", iteration);
+            AnalyzerEvents.IterationEvent iterationEvent = new AnalyzerEvents.IterationEvent();
+            iterationEvent.begin();
 
             // テストコードのみコンパイル実行
+            CompilationMetrics.PhaseTimer compileTimer = CompilationMetrics.PhaseTimer.start();
             Map<String, ErrorInfo> testErrorFiles = compiler.runMavenTestCompileAndExtractErrors();
+            metrics.recordPhase(CompilationMetrics.Phase.MAVEN_COMPILE, compileTimer);
             
             if (testErrorFiles.isEmpty()) {
-                System.out.println("テストコードのコンパイル成功");
+                logger.info("テストコードのコンパイル成功");
                 testCodeSuccess = true;
+                controller.converged(iteration);
+                commitIterationEvent(iterationEvent, "TEST", iteration, 0, 0, controller.getLastDecision());
                 break;
             }
 
-            System.out.println("テストコードのエラーファイル数: " + testErrorFiles.size());
+            logger.info("テストコードのエラーファイル数: {}", testErrorFiles.size());
+            metrics.setPendingFiles(testErrorFiles.size());
             
-            for (ErrorInfo errorInfo : testErrorFiles.values()) {
-                System.out.println("  [TEST] " + errorInfo.getFileName() + 
-                                 " (エラー行: " + errorInfo.getErrorLines() + ")");
-            }
-
-            boolean anyModified = false;
-
-            // 各エラーファイルに対して修正処理を実行
-            for (ErrorInfo errorInfo : testErrorFiles.values()) {
-                File file = new File(errorInfo.getFilePath());
-                if (!file.exists()) {
-                    System.out.println("ファイルが見つかりません: " + file.getAbsolutePath());
-                    continue;
-                }
-
-                boolean modified = processor.processErrorFile(file, errorInfo, metrics);
-                if (modified) {
-                    anyModified = true;
-                    metrics.addModifiedFile(errorInfo.getFileName(), errorInfo.getFilePath());
-                    System.out.println("修正完了: [TEST] " + errorInfo.getFileName());
-                } else {
-                    System.out.println("修正すべきノードが見つかりません: [TEST] " + errorInfo.getFileName());
-                }
-            }
+            int modifiedCount = fixErrorFiles(testErrorFiles);
+            boolean anyModified = modifiedCount > 0;
+            boolean proceed = controller.afterIteration(iteration, testErrorFiles, modifiedCount);
+            commitIterationEvent(iterationEvent, "TEST", iteration, testErrorFiles.size(), modifiedCount, 
+                                 controller.getLastDecision());
 
             if (!anyModified) {
-                System.out.println("テストコードで修正されたファイルがありませんでした。");
+                logger.info("テストコードで修正されたファイルがありませんでした。");
+            }
+            if (!proceed) {
                 break;
             }
 
@@ -278,7 +619,7 @@ public class MavenCompilationCleaner {
         }
         
         if (!testCodeSuccess) {
-            System.out.println("警告: テストコードの修正が完了していません（最大反復回数に到達）");
+            logger.warn("警告: テストコードの修正が完了していません（{}）", controller.getLastDecision());
         }
         
         return testCodeSuccess;
@@ -4,19 +4,60 @@ import com.iwata.MavenCompiler.CleanerConfig;
 import com.iwata.MavenCompiler.ErrorInfo;
 import com.iwata.MavenCompiler.FileUtility;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
   Mavenコンパイルの実行とエラー抽出
  **/
-public class MavenCompiler {
+public class MavenCompiler implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(MavenCompiler.class);
+    
+    // 例: [ERROR] /path/to/Foo.java:[12,8] package org.example does not exist
+    private static final Pattern COMPILE_ERROR_PATTERN = 
+        Pattern.compile("([^\\\\/:*?\"<>|]+\\.java).*?\\[(\\d+),(\\d+)?\\]?\\s*(.*)");
+    private static final Pattern TEST_SUMMARY_PATTERN = 
+        Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)");
+    // 失敗したテストメソッド名のパターン
+    // 例: [ERROR] ncdsearch.comparison.algorithm.NgramTest.testNgramSimilarity -- Time elapsed: 0 s <<< FAILURE!
+    private static final Pattern FAILED_TEST_PATTERN = 
+        Pattern.compile("\\[ERROR\\]\\s+([\\w.]+)\\.([\\w]+)\\s+--\\s+Time elapsed:.*<<<\\s+FAILURE!");
+    // エラーが発生したテストメソッド名のパターン
+    // 例: [ERROR] ncdsearch.comparison.algorithm.NgramTest.testNgramSimilarity -- Time elapsed: 0 s <<< ERROR!
+    private static final Pattern ERROR_TEST_PATTERN = 
+        Pattern.compile("\\[ERROR\\]\\s+([\\w.]+)\\.([\\w]+)\\s+--\\s+Time elapsed:.*<<<\\s+ERROR!");
+    private static final String LIB_REMOVED_MARKER = "[LIB-REMOVED]";
+    
+    // 生のビルド出力の出力先（設定に応じてファイル／コンソール／破棄。closeで解放する）
+    private final BuildOutputPipeline.Sink outputSink;
+    private final AnalysisConfig config;
+    private final AnalysisEventPublisher events;
+    
+    public MavenCompiler() {
+        this(AnalysisConfig.fromSystemProperties());
+    }
+    
+    public MavenCompiler(AnalysisConfig config) {
+        this(config, new AnalysisEventPublisher());
+    }
+    
+    /**
+     * @param events 診断の抽出とテストメソッドの結果を通知する配信先
+     */
+    public MavenCompiler(AnalysisConfig config, AnalysisEventPublisher events) {
+        this.config = config;
+        this.events = events;
+        this.outputSink = BuildOutputPipeline.createSink(config.getBuildOutputLog());
+    }
     
     /**
      * テスト結果を格納するクラス
      */
-    public static class TestResult {
+    public static class TestResult implements Serializable {
+        private static final long serialVersionUID = 1L;
         private int totalTests = 0;
         private int passedTests = 0;
         private int failedTests = 0;
@@ -56,135 +97,113 @@ public class MavenCompiler {
     }
     
     public Map<String, ErrorInfo> runMavenCompileAndExtractErrors() throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(CleanerConfig.getMavenCmd(), "clean", "compile");
-        pb.directory(new File(CleanerConfig.PROJECT_DIR));
-        pb.redirectErrorStream(true);
-
-        Process process = pb.start();
-        BufferedReader reader = new BufferedReader(
-            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
-        );
-
-        Map<String, ErrorInfo> errorFiles = new HashMap<>();
-        Pattern errorPattern = Pattern.compile("([^\\\\/:*?\"<>|]+\\.java).*?\\[(\\d+),");
-
-        String line;
-        while ((line = reader.readLine()) != null) {
-            System.out.println(line);
-            
-            Matcher m = errorPattern.matcher(line);
-            if (m.find()) {
-                String fileName = m.group(1);
-                int lineNumber = Integer.parseInt(m.group(2));
-                
-                String filePath = FileUtility.findJavaFile(fileName);
-                if (filePath != null) {
-                    ErrorInfo errorInfo = errorFiles.computeIfAbsent(fileName, 
-                        k -> new ErrorInfo(fileName, filePath));
-                    errorInfo.addErrorLine(lineNumber);
-                }
-            }
-        }
-        process.waitFor();
-
-        return errorFiles;
+        return runCompileGoal("clean compile", "clean", "compile");
     }
     
     /**
      * Mavenテストを実行してテスト結果を取得
      */
     public TestResult runMavenTest() throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(CleanerConfig.getMavenCmd(), "test");
-        pb.directory(new File(CleanerConfig.PROJECT_DIR));
-        pb.redirectErrorStream(true);
-
-        Process process = pb.start();
-        BufferedReader reader = new BufferedReader(
-            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
-        );
+        AnalyzerEvents.TestRunEvent event = new AnalyzerEvents.TestRunEvent();
+        event.begin();
+        Process process = startMaven("test");
+        BuildOutputPipeline output = new BuildOutputPipeline(process.getInputStream(), outputSink).start();
 
         TestResult result = new TestResult();
         
-        // パターン定義
-        Pattern testSummaryPattern = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)");
-        // 失敗したテストメソッド名のパターン
-        // 例: [ERROR] ncdsearch.comparison.algorithm.NgramTest.testNgramSimilarity -- Time elapsed: 0 s <<< FAILURE!
-        Pattern failedTestPattern = Pattern.compile("\\[ERROR\\]\\s+([\\w.]+)\\.([\\w]+)\\s+--\\s+Time elapsed:.*<<<\\s+FAILURE!");
-        // エラーが発生したテストメソッド名のパターン
-        // 例: [ERROR] ncdsearch.comparison.algorithm.NgramTest.testNgramSimilarity -- Time elapsed: 0 s <<< ERROR!
-        Pattern errorTestPattern = Pattern.compile("\\[ERROR\\]\\s+([\\w.]+)\\.([\\w]+)\\s+--\\s+Time elapsed:.*<<<\\s+ERROR!");
-        // [LIB-REMOVED]メッセージのパターン
-        Pattern libRemovedPattern = Pattern.compile("\\[LIB-REMOVED\\]");
-        
         String line;
         String lastFailedTest = null;
         String lastErrorTest = null;
         boolean nextLineIsLibRemoved = false;
         boolean isCheckingError = false;
         
-        while ((line = reader.readLine()) != null) {
-            System.out.println(line);
-            
-            // テストサマリーの解析
-            Matcher summaryMatcher = testSummaryPattern.matcher(line);
-            if (summaryMatcher.find()) {
-                int testsRun = Integer.parseInt(summaryMatcher.group(1));
-                int failures = Integer.parseInt(summaryMatcher.group(2));
-                int errors = Integer.parseInt(summaryMatcher.group(3));
-                int skipped = Integer.parseInt(summaryMatcher.group(4));
+        int exitCode;
+        try {
+            while ((line = output.nextLine()) != null) {
+                // テストサマリーの解析
+                Matcher summaryMatcher = line.contains("Tests run:") ? TEST_SUMMARY_PATTERN.matcher(line) : null;
+                if (summaryMatcher != null && summaryMatcher.find()) {
+                    int testsRun = Integer.parseInt(summaryMatcher.group(1));
+                    int failures = Integer.parseInt(summaryMatcher.group(2));
+                    int errors = Integer.parseInt(summaryMatcher.group(3));
+                    int skipped = Integer.parseInt(summaryMatcher.group(4));
                 
-                result.setTotalTests(testsRun);
-                result.setFailedTests(failures);
-                result.setErrorTests(errors);
-                result.setPassedTests(testsRun - failures - errors - skipped);
-                result.setSkippedTests(skipped);
-            }
-            
-            // エラーが発生したテストメソッド名の解析
-            Matcher errorMatcher = errorTestPattern.matcher(line);
-            if (errorMatcher.find()) {
-                String className = errorMatcher.group(1);
-                String methodName = errorMatcher.group(2);
-                String fullTestName = className + "." + methodName;
-                lastErrorTest = fullTestName;
-                result.addErrorTestMethod(fullTestName);
-                isCheckingError = false;
-                nextLineIsLibRemoved = false;
-                continue;
-            }
+                    result.setTotalTests(testsRun);
+                    result.setFailedTests(failures);
+                    result.setErrorTests(errors);
+                    result.setPassedTests(testsRun - failures - errors - skipped);
+                    result.setSkippedTests(skipped);
+                }
             
-            // 失敗したテストメソッド名の解析
-            Matcher failedMatcher = failedTestPattern.matcher(line);
-            if (failedMatcher.find()) {
-                String className = failedMatcher.group(1);
-                String methodName = failedMatcher.group(2);
-                String fullTestName = className + "." + methodName;
-                lastFailedTest = fullTestName;
-                nextLineIsLibRemoved = true;
-                isCheckingError = false;
-            }
+                // テストメソッド単位の失敗・エラー行は "[ERROR]" で始まり "<<<" を含む
+                boolean isTestFailureLine = line.startsWith("[ERROR]") && line.contains("<<<");
             
-            // [LIB-REMOVED]メッセージの検出
-            if (nextLineIsLibRemoved && lastFailedTest != null) {
-                Matcher libRemovedMatcher = libRemovedPattern.matcher(line);
-                if (libRemovedMatcher.find()) {
-                    result.addLibRemovedTestMethod(lastFailedTest);
-                    lastFailedTest = null;
+                // エラーが発生したテストメソッド名の解析
+                Matcher errorMatcher = isTestFailureLine ? ERROR_TEST_PATTERN.matcher(line) : null;
+                if (errorMatcher != null && errorMatcher.find()) {
+                    String className = errorMatcher.group(1);
+                    String methodName = errorMatcher.group(2);
+                    String fullTestName = className + "." + methodName;
+                    lastErrorTest = fullTestName;
+                    result.addErrorTestMethod(fullTestName);
+                    events.publish(new AnalysisEvent.TestCaseResult(fullTestName, AnalysisEvent.TestCaseResult.Outcome.ERROR));
+                    isCheckingError = false;
                     nextLineIsLibRemoved = false;
-                } else if (line.contains("at org.junit.Assert.fail") || 
-                          line.contains("at org.junit.Assert.assertTrue") ||
-                          line.contains("at org.junit.Assert.assertEquals")) {
-                    // スタックトレースの最初の行まで来たら判定を完了
-                    if (!result.getLibRemovedTestMethods().contains(lastFailedTest)) {
-                        result.addFailedTestMethod(lastFailedTest);
+                    continue;
+                }
+            
+                // 失敗したテストメソッド名の解析
+                Matcher failedMatcher = isTestFailureLine ? FAILED_TEST_PATTERN.matcher(line) : null;
+                if (failedMatcher != null && failedMatcher.find()) {
+                    String className = failedMatcher.group(1);
+                    String methodName = failedMatcher.group(2);
+                    String fullTestName = className + "." + methodName;
+                    lastFailedTest = fullTestName;
+                    nextLineIsLibRemoved = true;
+                    isCheckingError = false;
+                }
+            
+                // [LIB-REMOVED]メッセージの検出
+                if (nextLineIsLibRemoved && lastFailedTest != null) {
+                    if (line.contains(LIB_REMOVED_MARKER)) {
+                        result.addLibRemovedTestMethod(lastFailedTest);
+                        events.publish(new AnalysisEvent.TestCaseResult(lastFailedTest, 
+                                                                        AnalysisEvent.TestCaseResult.Outcome.LIB_REMOVED));
+                        lastFailedTest = null;
+                        nextLineIsLibRemoved = false;
+                    } else if (line.contains("at org.junit.Assert.fail") || 
+                              line.contains("at org.junit.Assert.assertTrue") ||
+                              line.contains("at org.junit.Assert.assertEquals")) {
+                        // スタックトレースの最初の行まで来たら判定を完了
+                        if (!result.getLibRemovedTestMethods().contains(lastFailedTest)) {
+                            result.addFailedTestMethod(lastFailedTest);
+                            events.publish(new AnalysisEvent.TestCaseResult(lastFailedTest, 
+                                                                            AnalysisEvent.TestCaseResult.Outcome.FAILED));
+                        }
+                        lastFailedTest = null;
+                        nextLineIsLibRemoved = false;
                     }
-                    lastFailedTest = null;
-                    nextLineIsLibRemoved = false;
                 }
             }
+        
+            exitCode = process.waitFor();
+        } finally {
+            release(process, output);
+        }
+        if (exitCode != 0 && result.getTotalTests() == 0) {
+            printFailureContext("test", output);
         }
         
-        process.waitFor();
+        event.end();
+        if (event.shouldCommit()) {
+            event.totalTests = result.getTotalTests();
+            event.passedTests = result.getPassedTests();
+            event.failedTests = result.getFailedTests();
+            event.errorTests = result.getErrorTests();
+            event.skippedTests = result.getSkippedTests();
+            event.exitCode = exitCode;
+            event.commit();
+        }
         return result;
     }
     
@@ -192,37 +211,126 @@ public class MavenCompiler {
      * テスト実行と関連のコンパイルエラー抽出
      */
     public Map<String, ErrorInfo> runMavenTestCompileAndExtractErrors() throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(CleanerConfig.getMavenCmd(), "test-compile");
-        pb.directory(new File(CleanerConfig.PROJECT_DIR));
-        pb.redirectErrorStream(true);
-
-        Process process = pb.start();
-        BufferedReader reader = new BufferedReader(
-            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
-        );
+        return runCompileGoal("test-compile", "test-compile");
+    }
+    
+    /**
+     * 指定ゴールでコンパイルを実行し、エラーのあるファイルと行を抽出
+     */
+    private Map<String, ErrorInfo> runCompileGoal(String goalLabel, String... goals) throws Exception {
+        AnalyzerEvents.CompileEvent event = new AnalyzerEvents.CompileEvent();
+        event.begin();
+        Process process = startMaven(goals);
+        BuildOutputPipeline output = new BuildOutputPipeline(process.getInputStream(), outputSink).start();
 
         Map<String, ErrorInfo> errorFiles = new HashMap<>();
-        Pattern errorPattern = Pattern.compile("([^\\\\/:*?\"<>|]+\\.java).*?\\[(\\d+),");
 
         String line;
-        while ((line = reader.readLine()) != null) {
-            System.out.println(line);
+        int exitCode;
+        try {
+            while ((line = output.nextLine()) != null) {
+                if (!isDiagnosticCandidate(line)) {
+                    continue;
+                }
             
-            Matcher m = errorPattern.matcher(line);
-            if (m.find()) {
-                String fileName = m.group(1);
-                int lineNumber = Integer.parseInt(m.group(2));
+                Matcher m = COMPILE_ERROR_PATTERN.matcher(line);
+                if (m.find()) {
+                    String fileName = m.group(1);
+                    int lineNumber = Integer.parseInt(m.group(2));
+                    int column = m.group(3) != null ? Integer.parseInt(m.group(3)) : 0;
+                    String message = m.group(4);
                 
-                String filePath = FileUtility.findJavaFile(fileName);
-                if (filePath != null) {
-                    ErrorInfo errorInfo = errorFiles.computeIfAbsent(fileName, 
-                        k -> new ErrorInfo(fileName, filePath));
-                    errorInfo.addErrorLine(lineNumber);
+                    ErrorInfo errorInfo = errorFiles.get(fileName);
+                    if (errorInfo == null) {
+                        // ファイル検索はディレクトリ走査を伴うため、ファイルごとに1回だけ行う
+                        String filePath = FileUtility.findJavaFile(fileName, config.getSrcDir(), config.getTestDir());
+                        if (filePath == null) {
+                            continue;
+                        }
+                        errorInfo = new ErrorInfo(fileName, filePath);
+                        errorFiles.put(fileName, errorInfo);
+                    }
+                    errorInfo.addDiagnostic(lineNumber, column, DiagnosticKey.classify(message));
                 }
             }
+            exitCode = process.waitFor();
+        } finally {
+            release(process, output);
+        }
+        if (exitCode != 0 && errorFiles.isEmpty()) {
+            printFailureContext(goalLabel, output);
+        }
+        commitCompileEvent(event, goalLabel, errorFiles, exitCode);
+        if (events.hasSubscribers()) {
+            events.publish(new AnalysisEvent.DiagnosticsParsed(goalLabel, errorFiles, exitCode));
         }
-        process.waitFor();
 
         return errorFiles;
     }
+    
+    /**
+     * 解析の途中で例外が発生した場合も出力の読み出しを止めず、終了していないプロセスは停止する
+     */
+    /**
+     * 生のビルド出力の出力先を解放する（以降のビルド出力は書き込まれない）
+     */
+    @Override
+    public void close() {
+        try {
+            outputSink.close();
+        } catch (IOException e) {
+            logger.warn("ビルド出力のログを閉じられませんでした: {}", e.getMessage());
+        }
+    }
+    
+    static void release(Process process, BuildOutputPipeline output) {
+        output.close();
+        if (process.isAlive()) {
+            process.destroy();
+        }
+    }
+    
+    /**
+     * 正規表現を適用する前の安価な候補判定
+     * 診断行は "xxx.java" と "[行,列]" を含む。警告行はエラーとして扱わない
+     */
+    private static boolean isDiagnosticCandidate(String line) {
+        return line.indexOf(".java") >= 0 && line.indexOf('[') >= 0 && !line.startsWith("[WARNING]");
+    }
+    
+    private Process startMaven(String... goals) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(CleanerConfig.getMavenCmd());
+        command.addAll(Arrays.asList(goals));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(config.getProjectDir().toFile());
+        pb.redirectErrorStream(true);
+        return pb.start();
+    }
+    
+    /**
+     * ビルドが失敗したのに結果を解析できなかった場合、保持している末尾の出力を表示
+     */
+    private void printFailureContext(String goalLabel, BuildOutputPipeline output) {
+        List<String> tail = output.tail();
+        logger.warn("mvn {} が失敗しました。出力の末尾 {} 行 (全 {} 行):", goalLabel, tail.size(), output.getLineCount());
+        for (String tailLine : tail) {
+            logger.warn("  | {}", tailLine);
+        }
+    }
+    
+    /**
+     * コンパイル呼び出しのJFRイベントを記録
+     */
+    static void commitCompileEvent(AnalyzerEvents.CompileEvent event, String goal,
+                                    Map<String, ErrorInfo> errorFiles, int exitCode) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.goal = goal;
+            event.errorFiles = errorFiles.size();
+            event.errorCount = errorFiles.values().stream().mapToInt(e -> e.getErrorLines().length).sum();
+            event.exitCode = exitCode;
+            event.commit();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+package com.iwata.MavenCompiler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  実行中の進捗をlocalhostに公開する組み込みHTTPサーバー
+    /metrics       Prometheusテキスト形式
+    /metrics.json  JSON形式
+  現在のフェーズ、反復回数、未処理・修正済みファイル数、種類別の削除要素数、
+  コンパイルと修正処理の直近のレイテンシを出力する
+ **/
+public class MetricsHttpServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(MetricsHttpServer.class);
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final CompilationMetrics metrics;
+
+    public MetricsHttpServer(int port, CompilationMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/metrics", this::handleMetrics);
+        this.server.createContext("/metrics.json", this::handleJson);
+        this.executor = TaskExecutors.newExecutor("metrics-http", 1);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * CleanerConfig.METRICS_PORT が指定されている場合のみサーバーを起動（未指定時はnull）
+     */
+    public static MetricsHttpServer startIfConfigured(CompilationMetrics metrics) {
+        if (CleanerConfig.METRICS_PORT < 0) {
+            return null;
+        }
+        try {
+            MetricsHttpServer server = new MetricsHttpServer(CleanerConfig.METRICS_PORT, metrics);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            logger.warn("ライブメトリクスサーバーを起動できませんでした: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+        logger.info("ライブメトリクスを公開しています: http://localhost:{}/metrics", getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        // コンテキストは前方一致のため、/metrics 以外のパスは404とする
+        if (!"/metrics".equals(exchange.getRequestURI().getPath())) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        respond(exchange, PROMETHEUS_CONTENT_TYPE, renderPrometheus());
+    }
+
+    private void handleJson(HttpExchange exchange) throws IOException {
+        respond(exchange, JSON_CONTENT_TYPE, renderJson());
+    }
+
+    private void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Prometheusテキスト形式で出力
+     */
+    String renderPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        long now = System.currentTimeMillis();
+
+        gauge(sb, "lia_phase", "現在の処理フェーズ", "phase=\"" + escapeLabel(metrics.getCurrentPhase()) + "\"", 1);
+        gauge(sb, "lia_main_iteration", "メインコード修正の反復回数", null, metrics.getIterationCount());
+        gauge(sb, "lia_test_iteration", "テストコード修正の反復回数", null, metrics.getTestIterationCount());
+        gauge(sb, "lia_files_pending", "現在の反復で未処理のエラーファイル数", null, metrics.getPendingFiles());
+
+        sb.append("# HELP lia_files_fixed 修正されたファイル数\n# TYPE lia_files_fixed gauge\n");
+        sb.append("lia_files_fixed{code=\"main\"} ").append(metrics.getModifiedMainFileCount()).append('\n');
+        sb.append("lia_files_fixed{code=\"test\"} ").append(metrics.getModifiedTestFileCount()).append('\n');
+
+        sb.append("# HELP lia_elements_deleted_total 種類別の削除要素数\n# TYPE lia_elements_deleted_total counter\n");
+        appendElementCounters(sb, "main", metrics.getDeletedMainElementsByType());
+        appendElementCounters(sb, "test", metrics.getDeletedTestElementsByType());
+
+        sb.append("# HELP lia_iteration_decisions_total 反復制御の判断の回数\n# TYPE lia_iteration_decisions_total counter\n");
+        Map<String, Integer> decisionCounts = new TreeMap<>();
+        for (CompilationMetrics.IterationDecision decision : metrics.getIterationDecisions()) {
+            decisionCounts.merge("code=\"" + decision.getCodeType().toLowerCase() + "\",decision=\"" 
+                                 + decision.getDecision() + "\"", 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : decisionCounts.entrySet()) {
+            sb.append("lia_iteration_decisions_total{").append(entry.getKey()).append("} ")
+              .append(entry.getValue()).append('\n');
+        }
+
+        summary(sb, "lia_compile_latency_seconds", "直近のコンパイル所要時間", metrics.getCompileLatencies());
+        summary(sb, "lia_file_fix_latency_seconds", "直近のファイル修正所要時間", metrics.getFixLatencies());
+        summary(sb, "lia_file_write_latency_seconds", "直近のファイル書き込み所要時間", metrics.getWriteLatencies());
+        sb.append("# HELP lia_bytes_written_total 書き込んだバイト数\n# TYPE lia_bytes_written_total counter\n");
+        sb.append("lia_bytes_written_total ").append(metrics.getBytesWritten()).append('\n');
+        sb.append("# HELP lia_writes_skipped_total 内容に変更がなく省略した書き込み数\n# TYPE lia_writes_skipped_total counter\n");
+        sb.append("lia_writes_skipped_total ").append(metrics.getWritesSkipped()).append('\n');
+        sb.append("# HELP lia_model_cache_lookups_total モデルキャッシュの検索数\n# TYPE lia_model_cache_lookups_total counter\n");
+        sb.append("lia_model_cache_lookups_total{result=\"hit\"} ").append(metrics.getModelCacheHits()).append('\n');
+        sb.append("lia_model_cache_lookups_total{result=\"miss\"} ").append(metrics.getModelCacheMisses()).append('\n');
+        sb.append("# HELP lia_model_cache_evictions_total 予算超過で破棄したモデル数\n# TYPE lia_model_cache_evictions_total counter\n");
+        sb.append("lia_model_cache_evictions_total ").append(metrics.getModelCacheEvictions()).append('\n');
+        sb.append("# HELP lia_model_reparse_seconds_total 破棄したモデルの再構築に要した時間\n# TYPE lia_model_reparse_seconds_total counter\n");
+        sb.append("lia_model_reparse_seconds_total ").append(metrics.getModelReparseNanos() / 1e9).append('\n');
+        sb.append("# HELP lia_model_snapshot_loads_total スナップショットからのモデルの復元\n# TYPE lia_model_snapshot_loads_total counter\n");
+        sb.append("lia_model_snapshot_loads_total{result=\"restored\"} ").append(metrics.getModelSnapshotHits()).append('\n');
+        sb.append("lia_model_snapshot_loads_total{result=\"missed\"} ").append(metrics.getModelSnapshotMisses()).append('\n');
+
+        gauge(sb, "lia_elapsed_seconds", "実行開始からの経過時間", null, (now - metrics.getStartMillis()) / 1000.0);
+        gauge(sb, "lia_last_progress_timestamp_seconds", "最後に進捗があった時刻（停滞検知用）", null,
+              metrics.getLastProgressMillis() / 1000.0);
+        return sb.toString();
+    }
+
+    private void appendElementCounters(StringBuilder sb, String code, Map<String, Integer> byType) {
+        for (Map.Entry<String, Integer> entry : byType.entrySet()) {
+            sb.append("lia_elements_deleted_total{code=\"").append(code)
+              .append("\",type=\"").append(escapeLabel(entry.getKey())).append("\"} ")
+              .append(entry.getValue()).append('\n');
+        }
+    }
+
+    private void gauge(StringBuilder sb, String name, String help, String labels, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name);
+        if (labels != null) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ').append(formatNumber(value)).append('\n');
+    }
+
+    private void summary(StringBuilder sb, String name, String help, CompilationMetrics.RollingWindow window) {
+        long[] values = window.sortedValues();
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" summary\n");
+        // 分位数は直近の窓、_sum・_countはPrometheusの規約どおりこれまでの累積
+        for (double q : QUANTILES) {
+            sb.append(name).append("{quantile=\"").append(q).append("\"} ")
+              .append(formatNumber(quantile(values, q) / 1e9)).append('\n');
+        }
+        sb.append(name).append("_sum ").append(formatNumber(window.getSum() / 1e9)).append('\n');
+        sb.append(name).append("_count ").append(window.getCount()).append('\n');
+    }
+
+    /**
+     * JSON形式で出力
+     */
+    String renderJson() {
+        return toJson(metrics);
+    }
+
+    /**
+     * メトリクスのスナップショットをJSONに変換（デーモンのジョブ結果でも使用）
+     */
+    static String toJson(CompilationMetrics metrics) {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"phase\":\"").append(escapeJson(metrics.getCurrentPhase())).append("\",");
+        sb.append("\"mainIteration\":").append(metrics.getIterationCount()).append(',');
+        sb.append("\"testIteration\":").append(metrics.getTestIterationCount()).append(',');
+        sb.append("\"filesPending\":").append(metrics.getPendingFiles()).append(',');
+        sb.append("\"filesFixed\":{\"main\":").append(metrics.getModifiedMainFileCount())
+          .append(",\"test\":").append(metrics.getModifiedTestFileCount()).append("},");
+        sb.append("\"elementsDeleted\":{\"main\":");
+        appendJsonCounts(sb, metrics.getDeletedMainElementsByType());
+        sb.append(",\"test\":");
+        appendJsonCounts(sb, metrics.getDeletedTestElementsByType());
+        sb.append("},");
+        sb.append("\"compileLatencyMs\":");
+        appendJsonLatency(sb, metrics.getCompileLatencies());
+        sb.append(",\"fileFixLatencyMs\":");
+        appendJsonLatency(sb, metrics.getFixLatencies());
+        sb.append(",\"fileWriteLatencyMs\":");
+        appendJsonLatency(sb, metrics.getWriteLatencies());
+        sb.append(",\"bytesWritten\":").append(metrics.getBytesWritten());
+        sb.append(",\"writesSkipped\":").append(metrics.getWritesSkipped());
+        sb.append(",\"modelCache\":{\"hits\":").append(metrics.getModelCacheHits())
+          .append(",\"misses\":").append(metrics.getModelCacheMisses())
+          .append(",\"evictions\":").append(metrics.getModelCacheEvictions())
+          .append(",\"reparses\":").append(metrics.getModelReparses())
+          .append(",\"reparseMs\":").append(metrics.getModelReparseNanos() / 1_000_000)
+          .append(",\"peakBytes\":").append(metrics.getModelCachePeakBytes()).append('}');
+        sb.append(",\"modelSnapshot\":{\"restored\":").append(metrics.getModelSnapshotHits())
+          .append(",\"missed\":").append(metrics.getModelSnapshotMisses())
+          .append(",\"loadMs\":").append(metrics.getModelSnapshotLoadNanos() / 1_000_000)
+          .append(",\"written\":").append(metrics.getModelSnapshotWrites()).append('}');
+        sb.append(",\"iterationDecisions\":[");
+        List<CompilationMetrics.IterationDecision> decisions = metrics.getIterationDecisions();
+        for (int i = 0; i < decisions.size(); i++) {
+            CompilationMetrics.IterationDecision decision = decisions.get(i);
+            sb.append(i > 0 ? "," : "").append("{\"code\":\"").append(escapeJson(decision.getCodeType()))
+              .append("\",\"iteration\":").append(decision.getIteration())
+              .append(",\"decision\":\"").append(decision.getDecision()).append('"');
+            if (decision.getDetail() != null) {
+                sb.append(",\"detail\":\"").append(escapeJson(decision.getDetail())).append('"');
+            }
+            sb.append('}');
+        }
+        sb.append(']');
+        sb.append(",\"elapsedMs\":").append(System.currentTimeMillis() - metrics.getStartMillis());
+        sb.append(",\"lastProgressEpochMs\":").append(metrics.getLastProgressMillis());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static void appendJsonCounts(StringBuilder sb, Map<String, Integer> counts) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append('"').append(escapeJson(entry.getKey())).append("\":").append(entry.getValue());
+            first = false;
+        }
+        sb.append('}');
+    }
+
+    private static void appendJsonLatency(StringBuilder sb, CompilationMetrics.RollingWindow window) {
+        long[] values = window.sortedValues();
+        sb.append("{\"count\":").append(window.getCount());
+        sb.append(",\"window\":").append(values.length);
+        for (double q : QUANTILES) {
+            sb.append(",\"p").append((int) Math.round(q * 100)).append("\":")
+              .append(formatNumber(quantile(values, q) / 1e6));
+        }
+        sb.append(",\"max\":").append(formatNumber(values.length > 0 ? values[values.length - 1] / 1e6 : 0));
+        sb.append('}');
+    }
+
+    private static double quantile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static String escapeJson(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
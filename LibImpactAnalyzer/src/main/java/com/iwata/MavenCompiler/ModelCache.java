@@ -0,0 +1,162 @@
+package com.iwata.MavenCompiler;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import spoon.Launcher;
+
+/**
+  ファイル（コンパイル単位）ごとのSpoonのモデルのキャッシュ（バイト数の予算つき）
+  修正しなかったファイルは次の反復でも同じ内容のまま再び修正対象になることが多いため、
+  構築したモデルを内容・クラスパスとともに保持し、どちらも一致すれば構文解析を省略する
+
+  ・モデルは取り出した時点でキャッシュから外し、1つのスレッドだけが使う
+  ・修正でモデルを変更した場合は戻さない（変更後のモデルの位置情報は新しい内容と一致しないため）
+  ・保持するモデルの推定サイズの合計が予算を超えたら、最も前に修正したファイルのモデルから破棄する
+  ・破棄したファイルは次に必要になったときに再構築する（再構築の回数と時間はCompilationMetricsに記録）
+  推定サイズはソースのバイト数に比例するものとする（1バイトあたり約80バイトのモデルを実測）
+  予算はヒープに対するものなので、同じJVMで同時に実行する解析（ImpactAnalyzer・デーモン）は設定が同じなら1つのキャッシュを共有する
+ **/
+public class ModelCache {
+
+    private static final Logger logger = LogManager.getLogger(ModelCache.class);
+
+    // モデル1つの固定分（Factory・Environmentなど）
+    private static final long FIXED_BYTES_PER_MODEL = 64 * 1024;
+    // 予算・推定サイズの設定ごとの共有キャッシュ
+    private static final Map<List<Long>, ModelCache> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * 保持しているモデル
+     */
+    private static final class Entry {
+        private final byte[] content;
+        private final String[] classpath;
+        private final Launcher launcher;
+        private final long retainedBytes;
+
+        Entry(byte[] content, String[] classpath, Launcher launcher, long retainedBytes) {
+            this.content = content;
+            this.classpath = classpath;
+            this.launcher = launcher;
+            this.retainedBytes = retainedBytes;
+        }
+    }
+
+    private final long budgetBytes;
+    private final long bytesPerSourceByte;
+    // 戻した順（先頭が最も前に修正したファイル）
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>();
+    // 予算超過で破棄したファイルと、その時点の内容のハッシュ（再構築の判定用）
+    private final Map<Path, Integer> evicted = new HashMap<>();
+    private long retainedBytes = 0;
+
+    /**
+     * @param budgetBytes 保持するモデルの推定サイズの上限（0以下の場合はキャッシュしない）
+     */
+    public ModelCache(long budgetBytes, long bytesPerSourceByte) {
+        this.budgetBytes = budgetBytes;
+        this.bytesPerSourceByte = bytesPerSourceByte;
+    }
+
+    /**
+     * 解析の設定の予算でJVM全体で共有するキャッシュ（同じ予算の解析には同じキャッシュを返す）
+     */
+    public static ModelCache shared(AnalysisConfig config) {
+        long budget = config.getModelCacheBytes();
+        long perSourceByte = config.getModelCacheBytesPerSourceByte();
+        return SHARED.computeIfAbsent(List.of(budget, perSourceByte), key -> new ModelCache(budget, perSourceByte));
+    }
+
+    public boolean isEnabled() {
+        return budgetBytes > 0;
+    }
+
+    /**
+     * ファイルのモデルを取り出す（内容・モデル構築時のクラスパスが一致するモデルがなければ構築する）
+     * 取り出したモデルは release で戻すまでキャッシュに含まれない
+     */
+    public Launcher acquire(Path path, byte[] content, String[] classpath, CompilationMetrics metrics,
+                            Supplier<Launcher> builder) {
+        if (!isEnabled()) {
+            return builder.get();
+        }
+        Integer evictedHash;
+        synchronized (this) {
+            Entry entry = entries.remove(path);
+            if (entry != null) {
+                retainedBytes -= entry.retainedBytes;
+                if (Arrays.equals(entry.content, content) && Arrays.equals(entry.classpath, classpath)) {
+                    metrics.recordModelCacheLookup(true);
+                    return entry.launcher;
+                }
+            }
+            evictedHash = evicted.remove(path);
+        }
+        metrics.recordModelCacheLookup(false);
+        long start = System.nanoTime();
+        Launcher launcher = builder.get();
+        if (evictedHash != null && evictedHash == Arrays.hashCode(content)) {
+            metrics.recordModelReparse(System.nanoTime() - start);
+        }
+        return launcher;
+    }
+
+    /**
+     * 変更していないモデルを戻す（予算を超える場合は古いものから破棄する）
+     */
+    public void release(Path path, byte[] content, String[] classpath, Launcher launcher, CompilationMetrics metrics) {
+        if (!isEnabled()) {
+            return;
+        }
+        long size = estimateRetainedBytes(content.length);
+        if (size > budgetBytes) {
+            logger.debug("モデルが予算を超えるためキャッシュしません: {} ({} bytes)", path, size);
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(path, new Entry(content, classpath, launcher, size));
+            if (previous != null) {
+                retainedBytes -= previous.retainedBytes;
+            }
+            retainedBytes += size;
+            evicted.remove(path);
+            Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+            while (retainedBytes > budgetBytes && eldest.hasNext()) {
+                Map.Entry<Path, Entry> victim = eldest.next();
+                eldest.remove();
+                retainedBytes -= victim.getValue().retainedBytes;
+                evicted.put(victim.getKey(), Arrays.hashCode(victim.getValue().content));
+                metrics.recordModelCacheEviction();
+                logger.debug("モデルを破棄しました: {}", victim.getKey());
+            }
+            metrics.recordModelCacheSize(retainedBytes);
+        }
+    }
+
+    /**
+     * ファイルのモデルを破棄（ファイルを外部で書き換えた場合など）
+     */
+    public synchronized void invalidate(Path path) {
+        Entry entry = entries.remove(path);
+        if (entry != null) {
+            retainedBytes -= entry.retainedBytes;
+        }
+        evicted.remove(path);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    long estimateRetainedBytes(int sourceBytes) {
+        return FIXED_BYTES_PER_MODEL + (long) sourceBytes * bytesPerSourceByte;
+    }
+}
@@ -0,0 +1,231 @@
+package com.iwata.MavenCompiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import spoon.Launcher;
+import spoon.compiler.Environment;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.cu.position.NoSourcePosition;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.modelobs.SourceFragmentCreator;
+import spoon.support.sniper.SniperJavaPrettyPrinter;
+
+/**
+  ファイル（コンパイル単位）ごとのSpoonのモデルのスナップショット（ディスクに保存）
+  モデルの構築（構文解析）は修正処理で最も大きな固定費のため、修正前のモデルを直列化して保存し、
+  次回以降の実行・中断からの再開・デーモンの再起動で同じ内容のファイルを修正するときは構文解析の代わりに読み込む
+  内容が変わったファイルはキーが一致しないため、そのファイルだけを再構築する
+
+  キーは（ソースの内容、ファイルの絶対パス、モデル構築時のクラスパス、Spoonのバージョン）のハッシュ
+  ・Spoonの直列化ではEnvironmentとコンパイル単位の一覧が保存されないため、読み込み後に構築時と同じ設定を行う
+  ・読み込めないスナップショット（Spoonの更新でクラスが変わった場合、許可しないクラスを含む場合など）は削除して再構築する
+  ・保存先の合計サイズが上限を超えたら、最も前に使ったスナップショットから削除する
+ **/
+public class ModelSnapshotStore {
+
+    private static final Logger logger = LogManager.getLogger(ModelSnapshotStore.class);
+
+    private static final String SUFFIX = ".model";
+    // 読み込むクラスをSpoonのモデル・JDK・本ツールの型に限定する（要素の入れ子が深いため深さの上限はResultCacheより大きい）
+    private static final ObjectInputFilter MODEL_FILTER = ObjectInputFilter.Config.createFilter(
+        "spoon.**;java.**;com.iwata.MavenCompiler.*;maxdepth=1000;!*");
+    private static final String SPOON_VERSION = Objects.toString(Launcher.class.getPackage().getImplementationVersion(),
+                                                                 "unknown");
+
+    // 保存先（nullの場合は保存も読み込みもしない）
+    private final Path dir;
+    private final long maxBytes;
+    // 保存先の合計サイズ（初回の保存時に集計する）
+    private long totalBytes = -1;
+
+    public ModelSnapshotStore(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 解析の設定の保存先と上限で作成（保存先が未指定の場合は無効）
+     */
+    public static ModelSnapshotStore fromConfig(AnalysisConfig config) {
+        return new ModelSnapshotStore(config.getModelSnapshotDir(), config.getModelSnapshotMaxBytes());
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * 内容が一致するスナップショットからモデルを復元（ない場合・読み込めない場合はnull）
+     * @param configure モデル構築時と同じEnvironmentの設定
+     */
+    public Launcher load(Path file, byte[] content, String[] classpath, Consumer<Environment> configure) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Path snapshot = dir.resolve(key(file, content, classpath) + SUFFIX);
+        if (!Files.exists(snapshot)) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(snapshot))))) {
+            in.setObjectInputFilter(MODEL_FILTER);
+            Factory factory = (Factory) in.readObject();
+            Launcher launcher = new Launcher(factory);
+            configure.accept(launcher.getEnvironment());
+            restore(factory);
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+            logger.debug("スナップショットからモデルを復元しました: {}", file);
+            return launcher;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("スナップショットを読み込めないため削除します: {} - {}", snapshot, e.toString());
+            delete(snapshot);
+            return null;
+        }
+    }
+
+    /**
+     * 構築した直後（変更する前）のモデルを保存
+     */
+    public void save(Path file, byte[] content, String[] classpath, Launcher launcher) {
+        if (!isEnabled()) {
+            return;
+        }
+        Factory factory = launcher.getFactory();
+        // コンパイル単位の位置は初回の参照時に作られ、未作成の位置は直列化すると復元できないため先に作る
+        for (CtCompilationUnit unit : factory.CompilationUnit().getMap().values()) {
+            unit.getPosition();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+            out.writeObject(factory);
+        } catch (IOException e) {
+            logger.warn("モデルを直列化できませんでした: {} - {}", file, e.toString());
+            return;
+        }
+        Path snapshot = dir.resolve(key(file, content, classpath) + SUFFIX);
+        try {
+            Files.createDirectories(dir);
+            WriteBatch.writeAtomically(snapshot, bytes.toByteArray());
+        } catch (IOException e) {
+            logger.warn("スナップショットを保存できませんでした: {} - {}", snapshot, e.getMessage());
+            return;
+        }
+        prune(bytes.size());
+    }
+
+    /**
+     * 直列化されないEnvironment・ファクトリへの参照を復元
+     * Spoonの読み込み処理はモジュール配下の要素しか辿らないため、コンパイル単位（import文など）も辿る
+     * 位置なし（NOPOSITION）は同一性で比較されるため、直列化で複製されたものを差し替える
+     * Sniperでの出力に必要な変更の記録は、モデル構築時と同様に最初のプリンタを作ってから開始する
+     */
+    private static void restore(Factory factory) {
+        CtScanner scanner = new CtScanner() {
+            @Override
+            protected void enter(CtElement element) {
+                element.setFactory(factory);
+                if (element.getPosition().getClass() == NoSourcePosition.class) {
+                    element.setPosition(SourcePosition.NOPOSITION);
+                }
+            }
+        };
+        scanner.scan(factory.getModel().getAllModules());
+        Set<CtCompilationUnit> units = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CtType<?> type : factory.getModel().getAllTypes()) {
+            CtCompilationUnit unit = type.getPosition().getCompilationUnit();
+            if (unit != null && units.add(unit)) {
+                scanner.scan(unit);
+            }
+        }
+        Environment environment = factory.getEnvironment();
+        if (environment.createPrettyPrinter() instanceof SniperJavaPrettyPrinter) {
+            new SourceFragmentCreator().attachTo(environment);
+        }
+    }
+
+    /**
+     * 合計サイズが上限を超えた場合に、最終使用日時の古いスナップショットから削除
+     */
+    private synchronized void prune(long addedBytes) {
+        if (totalBytes < 0) {
+            totalBytes = listSnapshots().mapToLong(ModelSnapshotStore::sizeOf).sum();
+        } else {
+            totalBytes += addedBytes;
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        List<Path> oldestFirst = listSnapshots()
+            .sorted(Comparator.comparingLong(ModelSnapshotStore::lastModified))
+            .toList();
+        for (Path snapshot : oldestFirst) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            long size = sizeOf(snapshot);
+            if (delete(snapshot)) {
+                totalBytes -= size;
+            }
+        }
+        logger.debug("スナップショットを整理しました: 合計 {} bytes", totalBytes);
+    }
+
+    private Stream<Path> listSnapshots() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList().stream();
+        } catch (IOException e) {
+            return Stream.empty();
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean delete(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("スナップショットを削除できませんでした: {}", path);
+            return false;
+        }
+    }
+
+    /**
+     * スナップショットのキー（内容・パス・クラスパス・Spoonのバージョンのハッシュ）
+     */
+    static String key(Path file, byte[] content, String[] classpath) {
+        String context = file.toAbsolutePath().normalize() + "\0"
+                         + (classpath != null ? String.join(File.pathSeparator, classpath) : "") + "\0" + SPOON_VERSION;
+        byte[] contextBytes = context.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[content.length + 1 + contextBytes.length];
+        System.arraycopy(content, 0, key, 0, content.length);
+        System.arraycopy(contextBytes, 0, key, content.length + 1, contextBytes.length);
+        return ResultCache.sha256(key);
+    }
+}
@@ -0,0 +1,169 @@
+package com.iwata.MavenCompiler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  pom.xmlの依存関係をテキストレベルで編集するユーティリティ
+  （書式やコメントを崩さないようDOMは使わずに該当ブロックのみ削除する）
+ **/
+public class PomEditor {
+
+    private static final Logger logger = LogManager.getLogger(PomEditor.class);
+
+    private static final Pattern DEPENDENCY_BLOCK = Pattern.compile(
+        "[ \\t]*<dependency>.*?</dependency>[ \\t]*\\r?\\n?", Pattern.DOTALL);
+    private static final Pattern VERSION_TAG = Pattern.compile("<version>([^<]*)</version>");
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Pattern REPOSITORY_URL = Pattern.compile(
+        "<repository>.*?<url>([^<]*)</url>.*?</repository>", Pattern.DOTALL);
+    private static final Pattern PROC_NONE = Pattern.compile("<proc>\\s*none\\s*</proc>");
+    // 言語レベルの指定（優先順）
+    private static final List<String> COMPILER_LEVEL_TAGS = List.of(
+        "release", "maven.compiler.release", "source", "maven.compiler.source");
+    private static final List<String> UNSUPPORTED_COMPILER_TAGS = List.of(
+        "annotationProcessorPaths", "annotationProcessors", "compilerArgs", "compilerArgument", "compilerArguments");
+
+    /**
+      指定したgroupId:artifactIdの依存関係をpom.xmlから削除
+      削除した場合はtrueを返す
+     **/
+    public static boolean removeDependency(Path pomFile, String groupId, String artifactId) throws IOException {
+        String content = Files.readString(pomFile, StandardCharsets.UTF_8);
+        String groupTag = "<groupId>" + groupId + "</groupId>";
+        String artifactTag = "<artifactId>" + artifactId + "</artifactId>";
+
+        Matcher m = DEPENDENCY_BLOCK.matcher(content);
+        StringBuilder result = new StringBuilder(content.length());
+        boolean removed = false;
+        while (m.find()) {
+            String block = m.group();
+            if (block.contains(groupTag) && block.contains(artifactTag)) {
+                m.appendReplacement(result, "");
+                removed = true;
+            } else {
+                m.appendReplacement(result, Matcher.quoteReplacement(block));
+            }
+        }
+        m.appendTail(result);
+
+        if (removed) {
+            Files.writeString(pomFile, result.toString(), StandardCharsets.UTF_8);
+            logger.info("pom.xmlから依存関係を削除しました: {}:{}", groupId, artifactId);
+        } else {
+            logger.info("pom.xmlに該当する依存関係がありません: {}:{}", groupId, artifactId);
+        }
+        return removed;
+    }
+
+    /**
+      指定したgroupId:artifactIdの依存関係のバージョン（${...} はpom.xml内のpropertiesから解決）
+      依存関係がない、またはバージョンを解決できない場合はnull
+     **/
+    public static String findDependencyVersion(Path pomFile, String groupId, String artifactId) throws IOException {
+        String content = Files.readString(pomFile, StandardCharsets.UTF_8);
+        String groupTag = "<groupId>" + groupId + "</groupId>";
+        String artifactTag = "<artifactId>" + artifactId + "</artifactId>";
+        Matcher m = DEPENDENCY_BLOCK.matcher(content);
+        while (m.find()) {
+            String block = m.group();
+            if (!block.contains(groupTag) || !block.contains(artifactTag)) {
+                continue;
+            }
+            Matcher version = VERSION_TAG.matcher(block);
+            if (!version.find()) {
+                return null;
+            }
+            return resolveProperty(content, version.group(1).trim());
+        }
+        return null;
+    }
+
+    /**
+      maven-compiler-plugin の言語レベル（release、なければsource。${...} はpom.xml内のpropertiesから解決）
+      指定がない場合・解決できない場合はnull（親POMから継承した設定は参照しない）
+     **/
+    public static String findCompilerRelease(Path pomFile) throws IOException {
+        String content = Files.readString(pomFile, StandardCharsets.UTF_8);
+        for (String tag : COMPILER_LEVEL_TAGS) {
+            Matcher m = Pattern.compile("<" + Pattern.quote(tag) + ">\\s*([^<]+?)\\s*</").matcher(content);
+            if (m.find()) {
+                return resolveProperty(content, m.group(1));
+            }
+        }
+        return null;
+    }
+
+    /**
+      maven-compiler-plugin の設定のうち、javax.toolsでのコンパイルで再現しないもの（アノテーションプロセッサ、追加の引数）
+      <proc>none</proc> でアノテーション処理を無効にしている場合、プロセッサの指定は含めない
+     **/
+    public static List<String> findUnsupportedCompilerSettings(Path pomFile) throws IOException {
+        String content = Files.readString(pomFile, StandardCharsets.UTF_8);
+        boolean procNone = PROC_NONE.matcher(content).find();
+        List<String> settings = new ArrayList<>();
+        for (String tag : UNSUPPORTED_COMPILER_TAGS) {
+            if (procNone && tag.startsWith("annotationProcessor")) {
+                continue;
+            }
+            if (content.contains("<" + tag + ">") || content.contains("<" + tag + " ")) {
+                settings.add(tag);
+            }
+        }
+        return settings;
+    }
+
+    /**
+      pom.xmlで <proc>none</proc> が指定されているか
+     **/
+    public static boolean disablesAnnotationProcessing(Path pomFile) throws IOException {
+        return PROC_NONE.matcher(Files.readString(pomFile, StandardCharsets.UTF_8)).find();
+    }
+
+    /**
+      ${...} の形の値をpom.xml内のpropertiesから解決（解決できない場合はnull、参照でない場合はそのまま）
+     **/
+    private static String resolveProperty(String content, String value) {
+        Matcher property = PROPERTY_REFERENCE.matcher(value);
+        if (property.matches()) {
+            Matcher definition = Pattern.compile("<" + Pattern.quote(property.group(1)) + ">\\s*([^<]+?)\\s*</")
+                                        .matcher(content);
+            return definition.find() ? definition.group(1) : null;
+        }
+        return value;
+    }
+
+    /**
+      pom.xmlに宣言されたリポジトリのうち、ローカルのディレクトリを指すもの
+      （file: のURL、および ${project.baseUri}・${basedir}・${project.basedir} からの相対指定）
+     **/
+    public static List<Path> findLocalRepositories(Path pomFile) throws IOException {
+        String content = Files.readString(pomFile, StandardCharsets.UTF_8);
+        Path baseDir = pomFile.toAbsolutePath().getParent();
+        List<Path> repositories = new ArrayList<>();
+        Matcher m = REPOSITORY_URL.matcher(content);
+        while (m.find()) {
+            String url = m.group(1).trim()
+                .replace("${project.baseUri}", baseDir.toUri().toString())
+                .replace("${project.basedir}", baseDir.toString())
+                .replace("${basedir}", baseDir.toString());
+            try {
+                if (url.startsWith("file:")) {
+                    repositories.add(Paths.get(URI.create(url)));
+                } else if (!url.contains("://")) {
+                    repositories.add(Paths.get(url));
+                }
+            } catch (IllegalArgumentException e) {
+                logger.debug("リポジトリのURLを解釈できません: {}", url);
+            }
+        }
+        return repositories;
+    }
+}
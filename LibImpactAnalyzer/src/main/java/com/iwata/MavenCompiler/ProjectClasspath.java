@@ -0,0 +1,231 @@
+package com.iwata.MavenCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  対象プロジェクトの依存関係のクラスパス（testスコープを含む。mainScope() はメインコードのコンパイル用）
+  mvn dependency:build-classpath で一度だけ解決し、プロセス内コンパイルとSpoonのモデル構築で使い回す
+  修正処理はpom.xmlを変更しないため、実行中に再解決する必要はない
+
+  解決結果は（pom.xmlの内容、プロジェクトのパス）のハッシュをキーとしてファイルに保存し、
+  次回以降の実行ではMavenを起動せずに読み込む（記載されたjarが1つでも存在しない場合は再解決する）
+ **/
+public class ProjectClasspath {
+
+    private static final Logger logger = LogManager.getLogger(ProjectClasspath.class);
+
+    private final Path projectDir;
+    private final Path buildOutputLog;
+    // 解決結果の保存先（nullの場合は保存しない）
+    private final Path cacheDir;
+    // compileスコープ（compile・provided・system）のみ
+    private final boolean mainScope;
+    private ProjectClasspath mainScopeClasspath;
+    private List<File> entries;
+    private boolean resolved = false;
+
+    public ProjectClasspath(Path projectDir, Path buildOutputLog) {
+        this(projectDir, buildOutputLog, CleanerConfig.CLASSPATH_CACHE_DIR.isEmpty() 
+                                         ? null : Paths.get(CleanerConfig.CLASSPATH_CACHE_DIR));
+    }
+
+    public ProjectClasspath(Path projectDir, Path buildOutputLog, Path cacheDir) {
+        this(projectDir, buildOutputLog, cacheDir, false);
+    }
+
+    private ProjectClasspath(Path projectDir, Path buildOutputLog, Path cacheDir, boolean mainScope) {
+        this.projectDir = projectDir;
+        this.buildOutputLog = buildOutputLog;
+        this.cacheDir = cacheDir;
+        this.mainScope = mainScope;
+    }
+
+    /**
+     * メインコードのコンパイルに使うクラスパス（testスコープの依存関係を含まない。初回の get() で解決する）
+     */
+    public synchronized ProjectClasspath mainScope() {
+        if (mainScope) {
+            return this;
+        }
+        if (mainScopeClasspath == null) {
+            mainScopeClasspath = new ProjectClasspath(projectDir, buildOutputLog, cacheDir, true);
+        }
+        return mainScopeClasspath;
+    }
+
+    /**
+     * クラスパスを取得（初回のみ保存済みの結果を読み込むかMavenで解決、失敗した場合はnull）
+     */
+    public synchronized List<File> get() {
+        if (!resolved) {
+            resolved = true;
+            Path cacheFile = cacheFile();
+            entries = cacheFile != null ? readCache(cacheFile) : null;
+            if (entries == null) {
+                entries = resolve(projectDir, buildOutputLog, mainScope);
+                if (entries != null && cacheFile != null) {
+                    writeCache(cacheFile, entries);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * クラスパスをファイルパスの配列で取得（Spoonの setSourceClasspath 用、解決できない場合はnull）
+     */
+    public String[] toPathArray() {
+        List<File> files = get();
+        return files != null ? files.stream().map(File::getAbsolutePath).toArray(String[]::new) : null;
+    }
+
+    /**
+     * 指定したライブラリのjarがクラスパスに含まれるか（他の依存関係から推移的に取り込まれている場合など）
+     * ローカルリポジトリの配置（groupIdのディレクトリ/artifactId/バージョン/jar）で判定するため、別のバージョンも含む
+     * クラスパスを解決できない場合はfalse
+     * @param jar 影響推定に使ったjar（リポジトリの外のjarを指定した場合の一致判定用、nullの場合は使わない）
+     */
+    public boolean containsLibrary(String groupId, String artifactId, Path jar) {
+        List<File> files = get();
+        if (files == null) {
+            return false;
+        }
+        Path groupPath = Paths.get(groupId.replace('.', File.separatorChar));
+        for (File file : files) {
+            Path path = file.toPath().toAbsolutePath().normalize();
+            if (jar != null && path.equals(jar.toAbsolutePath().normalize())) {
+                return true;
+            }
+            Path versionDir = path.getParent();
+            Path artifactDir = versionDir != null ? versionDir.getParent() : null;
+            if (artifactDir != null && artifactDir.getFileName().toString().equals(artifactId)
+                && artifactDir.getParent() != null && artifactDir.getParent().endsWith(groupPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解決結果の保存先のファイル（保存しない場合はnull）
+     */
+    Path cacheFile() {
+        Path pom = projectDir.resolve("pom.xml");
+        if (cacheDir == null || !Files.exists(pom)) {
+            return null;
+        }
+        try {
+            byte[] pomContent = Files.readAllBytes(pom);
+            byte[] projectPath = projectDir.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+            byte[] key = new byte[pomContent.length + 1 + projectPath.length];
+            System.arraycopy(pomContent, 0, key, 0, pomContent.length);
+            System.arraycopy(projectPath, 0, key, pomContent.length + 1, projectPath.length);
+            return cacheDir.resolve((mainScope ? "classpath-main-" : "classpath-") + ResultCache.sha256(key) + ".txt");
+        } catch (IOException e) {
+            logger.warn("pom.xmlを読み込めないためクラスパスを保存しません: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存したクラスパスを読み込む（ファイルがない場合、記載されたファイルが存在しない場合はnull）
+     */
+    static List<File> readCache(Path cacheFile) {
+        if (!Files.exists(cacheFile)) {
+            return null;
+        }
+        try {
+            List<File> files = parse(Files.readString(cacheFile, StandardCharsets.UTF_8));
+            for (File file : files) {
+                if (!file.exists()) {
+                    logger.info("保存したクラスパスのファイルが存在しないため再解決します: {}", file);
+                    return null;
+                }
+            }
+            logger.info("保存したクラスパスを使用します: {}", cacheFile);
+            return files;
+        } catch (IOException e) {
+            logger.warn("保存したクラスパスを読み込めませんでした: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeCache(Path cacheFile, List<File> files) {
+        StringJoiner classpath = new StringJoiner(File.pathSeparator);
+        files.forEach(file -> classpath.add(file.getPath()));
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            WriteBatch.writeAtomically(cacheFile, classpath.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("クラスパスを保存できませんでした: {}", e.getMessage());
+        }
+    }
+
+    private static List<File> resolve(Path projectDir, Path buildOutputLog, boolean mainScope) {
+        Path outputFile = null;
+        try {
+            outputFile = Files.createTempFile("lia-classpath", ".txt");
+            List<String> command = new ArrayList<>(List.of(CleanerConfig.getMavenCmd(), "-q", "dependency:build-classpath",
+                                                           "-Dmdep.outputFile=" + outputFile.toAbsolutePath()));
+            if (mainScope) {
+                // compileスコープの指定でcompile・provided・systemの依存関係になる（javacのメインコードのクラスパスと同じ）
+                command.add("-DincludeScope=compile");
+            }
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.directory(projectDir.toFile());
+            pb.redirectErrorStream(true);
+            Process process = pb.start();
+            int exitCode;
+            try (BuildOutputPipeline.Sink sink = BuildOutputPipeline.createSink(buildOutputLog)) {
+                BuildOutputPipeline output = new BuildOutputPipeline(process.getInputStream(), sink).start();
+                try {
+                    while (output.nextLine() != null) {
+                        // 出力は生のビルド出力の出力先に流すだけ
+                    }
+                    exitCode = process.waitFor();
+                } finally {
+                    MavenCompiler.release(process, output);
+                }
+            }
+            if (exitCode != 0) {
+                logger.warn("クラスパスの解決に失敗しました (mvn dependency:build-classpath 終了コード {})", exitCode);
+                return null;
+            }
+            return parse(Files.readString(outputFile, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("クラスパスの解決に失敗しました: {}", e.getMessage(), e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (outputFile != null) {
+                try {
+                    Files.deleteIfExists(outputFile);
+                } catch (IOException e) {
+                    logger.debug("一時ファイルを削除できませんでした: {}", outputFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * パス区切り文字で区切られたクラスパス文字列を分解
+     */
+    static List<File> parse(String classpath) {
+        List<File> files = new ArrayList<>();
+        for (String entry : classpath.trim().split(File.pathSeparator)) {
+            if (!entry.isBlank()) {
+                files.add(new File(entry.trim()));
+            }
+        }
+        logger.info("依存関係のクラスパス: {} 件", files.size());
+        return files;
+    }
+}
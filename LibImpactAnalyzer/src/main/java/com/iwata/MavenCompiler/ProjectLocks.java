@@ -0,0 +1,26 @@
+package com.iwata.MavenCompiler;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+  プロジェクトごとのロック（JVM全体で共有）
+  解析はプロジェクトのpom.xml・ソースを書き換えるため、ImpactAnalyzer・デーモンのどちらから実行されても
+  同じプロジェクトの解析は同時に1つだけにする
+ **/
+final class ProjectLocks {
+
+    private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private ProjectLocks() {
+    }
+
+    /**
+     * プロジェクトのロック（同じディレクトリには常に同じロックを返す）
+     */
+    static ReentrantLock of(Path projectDir) {
+        return LOCKS.computeIfAbsent(projectDir.toAbsolutePath().normalize(), dir -> new ReentrantLock());
+    }
+}
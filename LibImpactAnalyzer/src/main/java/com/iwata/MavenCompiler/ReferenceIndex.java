@@ -0,0 +1,278 @@
+package com.iwata.MavenCompiler;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  プロジェクトのソースが参照しているパッケージ名・型の単純名から、参照しているファイルを引く転置インデックス
+  ファイルはint型のIDで表し、名前ごとのポスティングリストはIDの昇順のint配列で保持する
+  （検索はポスティングリストの長さに比例し、ファイル全体の走査は不要）
+
+  ・構築はSourceLexerの字句解析のみで行い（Spoonのモデルは作らない）、ファイルごとに並列に解析する
+  ・ErrorFileProcessorがファイルを書き換えたときは、そのファイルの名前だけを差し替える（update）
+
+  索引に入れる名前
+    パッケージ: import文と完全修飾名の参照のパッケージ部分、およびファイル自身のパッケージ宣言
+               （同じパッケージの型はimportなしで参照できるため）
+    型: import文の型名、大文字で始まる参照名（完全修飾名の場合は最初の大文字で始まる部分）
+ **/
+public class ReferenceIndex {
+
+    private static final Logger logger = LogManager.getLogger(ReferenceIndex.class);
+
+    private static final int[] NO_FILES = new int[0];
+
+    /**
+     * ファイルIDの昇順のポスティングリスト
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * ファイル1つから取り出した名前
+     */
+    static final class Terms {
+        final Set<String> packages = new HashSet<>();
+        final Set<String> types = new HashSet<>();
+    }
+
+    private final Charset charset;
+    private final List<Path> files = new ArrayList<>();
+    private final Map<Path, Integer> fileIds = new HashMap<>();
+    private final Map<String, Postings> packagePostings = new HashMap<>();
+    private final Map<String, Postings> typePostings = new HashMap<>();
+    // ファイルIDごとの索引済みの名前（更新時に古いポスティングを取り除くため）
+    private final List<Terms> fileTerms = new ArrayList<>();
+
+    public ReferenceIndex(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * プロジェクトのsrc・testsディレクトリのファイルから構築
+     */
+    public static ReferenceIndex build(AnalysisConfig config) throws Exception {
+        List<Path> paths = new ArrayList<>(FileUtility.listJavaFiles(config.getSrcDir().toString()));
+        paths.addAll(FileUtility.listJavaFiles(config.getTestDir().toString()));
+        return build(paths, Charset.forName(config.getSourceEncoding()), config.getFixParallelism());
+    }
+
+    /**
+     * 指定したファイルから構築（字句解析はファイルごとに並列に行い、索引への追加は1スレッドで行う）
+     */
+    public static ReferenceIndex build(List<Path> paths, Charset charset, int parallelism) throws Exception {
+        long start = System.nanoTime();
+        ReferenceIndex index = new ReferenceIndex(charset);
+        List<Terms> terms = TaskExecutors.map("reference-index", paths, parallelism,
+                                              path -> extractTerms(SourceLexer.parse(Files.readString(path, charset))));
+        for (int i = 0; i < paths.size(); i++) {
+            index.put(paths.get(i), terms.get(i));
+        }
+        logger.info("参照インデックスを構築しました: {} ファイル, パッケージ {} 件, 型 {} 件 ({} ms)", paths.size(),
+                    index.packagePostings.size(), index.typePostings.size(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    /**
+     * ファイルの内容が変わったときに索引を更新（未登録のファイルは追加する）
+     */
+    public void update(Path path, String content) {
+        Terms terms = extractTerms(SourceLexer.parse(content));
+        put(path, terms);
+    }
+
+    /**
+     * ファイルの内容が変わったときに索引を更新（バイト列はインデックスの文字コードで読む）
+     */
+    public void update(Path path, byte[] content) {
+        update(path, new String(content, charset));
+    }
+
+    /**
+     * ファイルを索引から取り除く（IDは再利用しない）
+     */
+    public synchronized void remove(Path path) {
+        Integer id = fileIds.get(normalize(path));
+        if (id != null) {
+            removePostings(id);
+            fileTerms.set(id, new Terms());
+        }
+    }
+
+    private synchronized void put(Path path, Terms terms) {
+        Path key = normalize(path);
+        Integer id = fileIds.get(key);
+        if (id == null) {
+            id = files.size();
+            files.add(key);
+            fileIds.put(key, id);
+            fileTerms.add(terms);
+        } else {
+            removePostings(id);
+            fileTerms.set(id, terms);
+        }
+        for (String name : terms.packages) {
+            packagePostings.computeIfAbsent(name, n -> new Postings()).add(id);
+        }
+        for (String name : terms.types) {
+            typePostings.computeIfAbsent(name, n -> new Postings()).add(id);
+        }
+    }
+
+    private void removePostings(int id) {
+        Terms old = fileTerms.get(id);
+        for (String name : old.packages) {
+            removePosting(packagePostings, name, id);
+        }
+        for (String name : old.types) {
+            removePosting(typePostings, name, id);
+        }
+    }
+
+    private static void removePosting(Map<String, Postings> postings, String name, int id) {
+        Postings list = postings.get(name);
+        if (list != null) {
+            list.remove(id);
+            if (list.size == 0) {
+                postings.remove(name);
+            }
+        }
+    }
+
+    /**
+     * 指定したパッケージを参照しているファイルのID（昇順）
+     */
+    public synchronized int[] filesReferencingPackage(String packageName) {
+        Postings list = packagePostings.get(packageName);
+        return list != null ? list.toArray() : NO_FILES;
+    }
+
+    /**
+     * 指定した単純名の型を参照しているファイルのID（昇順）
+     */
+    public synchronized int[] filesReferencingType(String simpleName) {
+        Postings list = typePostings.get(simpleName);
+        return list != null ? list.toArray() : NO_FILES;
+    }
+
+    public synchronized Path getFile(int id) {
+        return files.get(id);
+    }
+
+    public synchronized int getFileId(Path path) {
+        return fileIds.getOrDefault(normalize(path), -1);
+    }
+
+    public synchronized int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * IDの配列をファイルのパスに変換
+     */
+    public synchronized List<Path> toPaths(int[] ids) {
+        List<Path> paths = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            paths.add(files.get(id));
+        }
+        return paths;
+    }
+
+    /**
+     * 複数のポスティングリストの和集合（昇順・重複なし）
+     */
+    public static int[] union(Collection<int[]> postings) {
+        BitSet ids = new BitSet();
+        for (int[] list : postings) {
+            for (int id : list) {
+                ids.set(id);
+            }
+        }
+        return ids.stream().toArray();
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 字句解析の結果から索引に入れる名前を取り出す
+     */
+    static Terms extractTerms(SourceLexer.Outline outline) {
+        Terms terms = new Terms();
+        if (!outline.packageName.isEmpty()) {
+            terms.packages.add(outline.packageName);
+        }
+        for (SourceLexer.Import imp : outline.imports) {
+            if (imp.isStatic) {
+                addQualifiedName(terms, imp.name);
+            } else if (imp.wildcard) {
+                terms.packages.add(imp.name);
+            } else {
+                int dot = imp.name.lastIndexOf('.');
+                if (dot > 0) {
+                    terms.packages.add(imp.name.substring(0, dot));
+                }
+                terms.types.add(imp.name.substring(dot + 1));
+            }
+        }
+        for (SourceLexer.Reference reference : outline.references) {
+            addQualifiedName(terms, reference.name);
+        }
+        return terms;
+    }
+
+    /**
+     * 名前の最初の大文字で始まる部分を型、それより前をパッケージとして追加（大文字の部分がなければ追加しない）
+     */
+    private static void addQualifiedName(Terms terms, String name) {
+        int start = 0;
+        while (start < name.length()) {
+            int end = name.indexOf('.', start);
+            if (end < 0) {
+                end = name.length();
+            }
+            if (Character.isUpperCase(name.charAt(start))) {
+                if (start > 0) {
+                    terms.packages.add(name.substring(0, start - 1));
+                }
+                terms.types.add(name.substring(start, end));
+                return;
+            }
+            start = end + 1;
+        }
+    }
+}
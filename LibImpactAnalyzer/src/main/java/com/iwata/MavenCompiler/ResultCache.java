@@ -0,0 +1,301 @@
+package com.iwata.MavenCompiler;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  実行をまたいで解析結果を保存するディスクキャッシュ（cleaner.cacheDir 指定時のみ）
+  キーは（解析前のpom.xml・src・testsの内容のハッシュ、削除するライブラリ、解析器のバージョン、反復の設定）
+  保存する内容は最終的なメトリクス、テスト結果、修正したファイルの修正後の内容
+
+  ・ソースが前回と同じ場合: 修正後の内容を書き戻し、保存した結果をそのまま返す（コンパイル・テストは行わない）
+  ・ソースの一部が変わった場合: 同じライブラリの直近の結果のうち、内容が変わっていないファイルの修正だけを
+    再適用してから通常の解析を行う（変わったファイルと、その影響で新たにエラーになったファイルだけが修正対象になる）
+  解析器のバージョンはクラスファイル（またはjar）の内容のハッシュで、解析器を更新すると以前の結果は使われない
+
+  配置: {cacheDir}/{シナリオのハッシュ}/{ソースのハッシュ}.bin
+ **/
+public class ResultCache {
+
+    private static final Logger logger = LogManager.getLogger(ResultCache.class);
+
+    private static final String ENTRY_SUFFIX = ".bin";
+    // キャッシュから読み込むクラスを解析結果の型に限定する
+    private static final ObjectInputFilter ENTRY_FILTER = ObjectInputFilter.Config.createFilter(
+        "com.iwata.MavenCompiler.*;java.lang.*;java.util.*;maxdepth=20;!*");
+
+    private final Path cacheDir;
+
+    public ResultCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * 解析前のプロジェクトの状態（pom.xmlからライブラリを削除する前に取得する）
+     */
+    public static final class Snapshot {
+        private final Path projectDir;
+        private final String scenarioKey;
+        private final String treeHash;
+        // プロジェクトからの相対パス（区切りは/）とファイルの内容のハッシュ
+        private final Map<String, String> fileHashes;
+
+        private Snapshot(Path projectDir, String scenarioKey, String treeHash, Map<String, String> fileHashes) {
+            this.projectDir = projectDir;
+            this.scenarioKey = scenarioKey;
+            this.treeHash = treeHash;
+            this.fileHashes = fileHashes;
+        }
+
+        public static Snapshot take(AnalysisConfig config) throws IOException {
+            Path projectDir = config.getProjectDir();
+            Map<String, String> fileHashes = new TreeMap<>();
+            List<Path> files = new ArrayList<>(FileUtility.listJavaFiles(config.getSrcDir().toString()));
+            files.addAll(FileUtility.listJavaFiles(config.getTestDir().toString()));
+            for (Path file : files) {
+                fileHashes.put(relativize(projectDir, file), sha256(Files.readAllBytes(file)));
+            }
+
+            MessageDigest tree = newDigest();
+            Path pom = projectDir.resolve("pom.xml");
+            update(tree, "pom.xml=" + (Files.exists(pom) ? sha256(Files.readAllBytes(pom)) : "-"));
+            fileHashes.forEach((path, hash) -> update(tree, path + "=" + hash));
+
+            MessageDigest scenario = newDigest();
+            update(scenario, config.getRemoveGroupId() + ":" + config.getRemoveArtifactId());
+            update(scenario, analyzerVersion());
+            update(scenario, "combined=" + config.isCombined() + ",maxIterations=" + config.getMaxIterations()
+                             + ",hardMaxIterations=" + config.getHardMaxIterations()
+                             + ",stallLimit=" + config.getStallLimit() + ",runTests=" + config.isRunTests()
+                             + ",estimateSeed=" + config.isEstimateSeed());
+            return new Snapshot(projectDir, toHex(scenario.digest()), toHex(tree.digest()), fileHashes);
+        }
+
+        public String getTreeHash() { return treeHash; }
+    }
+
+    /**
+     * 修正したファイル1件の記録
+     */
+    static final class FileRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String originalHash;
+        private final byte[] content;
+        private final CompilationMetrics.FileEdit edit;
+
+        FileRecord(String originalHash, byte[] content, CompilationMetrics.FileEdit edit) {
+            this.originalHash = originalHash;
+            this.content = content;
+            this.edit = edit;
+        }
+    }
+
+    /**
+     * 1回の解析の結果
+     */
+    public static final class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String treeHash;
+        private final long createdMillis = System.currentTimeMillis();
+        private final boolean compilationSuccessful;
+        private final CompilationMetrics metrics;
+        private final MavenCompiler.TestResult testResult;
+        // プロジェクトからの相対パスと修正内容
+        private final Map<String, FileRecord> files;
+
+        Entry(String treeHash, boolean compilationSuccessful, CompilationMetrics metrics,
+              MavenCompiler.TestResult testResult, Map<String, FileRecord> files) {
+            this.treeHash = treeHash;
+            this.compilationSuccessful = compilationSuccessful;
+            this.metrics = metrics;
+            this.testResult = testResult;
+            this.files = files;
+        }
+
+        public String getTreeHash() { return treeHash; }
+        public long getCreatedMillis() { return createdMillis; }
+        public boolean isCompilationSuccessful() { return compilationSuccessful; }
+        public CompilationMetrics getMetrics() { return metrics; }
+        public MavenCompiler.TestResult getTestResult() { return testResult; }
+        public int getFileCount() { return files.size(); }
+    }
+
+    /**
+     * ソースが同じ解析の結果（ない場合はnull）
+     */
+    public Entry find(Snapshot snapshot) {
+        return read(scenarioDir(snapshot).resolve(snapshot.treeHash + ENTRY_SUFFIX));
+    }
+
+    /**
+     * 同じシナリオで直近に保存された結果（ソースが異なるもの。ない場合はnull）
+     */
+    public Entry findPrevious(Snapshot snapshot) {
+        Path dir = scenarioDir(snapshot);
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        try (Stream<Path> entries = Files.list(dir)) {
+            Optional<Path> latest = entries
+                .filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                .max(Comparator.comparingLong(ResultCache::lastModified));
+            return latest.map(this::read).orElse(null);
+        } catch (IOException e) {
+            logger.warn("キャッシュの一覧を取得できませんでした: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存した修正のうち、修正前の内容が現在のファイルと一致するものを書き戻す（中断しても途中まで書いたファイルが残らないよう置き換えで書く）
+     * @param metrics 書き戻した修正を加算するメトリクス（nullの場合は加算しない）
+     * @return 書き戻したファイル
+     */
+    public static List<Path> replay(Entry entry, Snapshot snapshot, CompilationMetrics metrics) throws IOException {
+        List<Path> replayed = new ArrayList<>();
+        for (Map.Entry<String, FileRecord> file : entry.files.entrySet()) {
+            FileRecord record = file.getValue();
+            if (!record.originalHash.equals(snapshot.fileHashes.get(file.getKey()))) {
+                continue;
+            }
+            Path path = snapshot.projectDir.resolve(file.getKey());
+            WriteBatch.writeAtomically(path, record.content);
+            if (metrics != null && record.edit != null) {
+                metrics.replayFileEdit(record.edit, path.getFileName().toString(), path.toString());
+            }
+            replayed.add(path);
+        }
+        return replayed;
+    }
+
+    /**
+     * 解析結果を保存（解析前から内容が変わったファイルを修正内容として記録する）
+     */
+    public void store(Snapshot snapshot, CompilationMetrics metrics, MavenCompiler.TestResult testResult,
+                      boolean compilationSuccessful) throws IOException {
+        Map<String, CompilationMetrics.FileEdit> edits = new HashMap<>();
+        for (CompilationMetrics.FileEdit edit : metrics.getFileEdits()) {
+            edits.put(relativize(snapshot.projectDir, Paths.get(edit.getFilePath())), edit);
+        }
+        Map<String, FileRecord> files = new TreeMap<>();
+        for (Map.Entry<String, String> file : snapshot.fileHashes.entrySet()) {
+            Path path = snapshot.projectDir.resolve(file.getKey());
+            if (!Files.exists(path)) {
+                continue;
+            }
+            byte[] content = Files.readAllBytes(path);
+            if (!sha256(content).equals(file.getValue())) {
+                files.put(file.getKey(), new FileRecord(file.getValue(), content, edits.get(file.getKey())));
+            }
+        }
+
+        Entry entry = new Entry(snapshot.treeHash, compilationSuccessful, metrics, testResult, files);
+        Path dir = scenarioDir(snapshot);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(snapshot.treeHash + ENTRY_SUFFIX);
+        Path tmp = Files.createTempFile(dir, snapshot.treeHash, ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeObject(entry);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("解析結果をキャッシュに保存しました: {} (修正ファイル {} 件)", target, files.size());
+    }
+
+    private Entry read(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            in.setObjectInputFilter(ENTRY_FILTER);
+            return (Entry) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("キャッシュを読み込めませんでした（無視します）: {} - {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path scenarioDir(Snapshot snapshot) {
+        return cacheDir.resolve(snapshot.scenarioKey);
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String relativize(Path projectDir, Path file) {
+        return projectDir.relativize(file.toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 解析器のバージョン（クラスファイルまたはjarの内容のハッシュ）
+     */
+    static String analyzerVersion() {
+        return AnalyzerVersionHolder.VERSION;
+    }
+
+    private static final class AnalyzerVersionHolder {
+        static final String VERSION = computeAnalyzerVersion();
+
+        private static String computeAnalyzerVersion() {
+            CodeSource source = ResultCache.class.getProtectionDomain().getCodeSource();
+            try {
+                Path location = source != null ? Paths.get(source.getLocation().toURI()) : null;
+                if (location == null) {
+                    return "unknown";
+                }
+                if (Files.isRegularFile(location)) {
+                    return sha256(Files.readAllBytes(location));
+                }
+                MessageDigest digest = newDigest();
+                try (Stream<Path> paths = Files.walk(location)) {
+                    for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".class")).sorted()::iterator) {
+                        update(digest, location.relativize(path).toString());
+                        digest.update(Files.readAllBytes(path));
+                    }
+                }
+                return toHex(digest.digest());
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                logger.warn("解析器のバージョンを特定できませんでした: {}", e.getMessage());
+                return "unknown";
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    static String sha256(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.iwata.MavenCompiler;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  合成プロジェクトに対するエンドツーエンドのスケールテストハーネス
+  規模ごとに SyntheticCorpusGenerator でプロジェクトを生成し、ライブラリを削除した上で
+  MavenCompilationCleaner を子JVMで実行する（CleanerConfigが静的設定のため、規模ごとにJVMを分ける）
+  反復回数、フェーズごとの実行時間、ヒープ使用量のピークを scale-results.csv に記録する
+ **/
+public class ScaleTestHarness {
+
+    private static final Logger logger = LogManager.getLogger(ScaleTestHarness.class);
+
+    private static final String SINGLE_RUN_OPTION = "--single";
+    private static final String RESULT_FILE = "scale-results.csv";
+    private static final String CSV_HEADER =
+        "files,mainIterations,testIterations,mainDeletionMs,testDeletionMs,totalDeletionMs,"
+        + "testExecutionMs,totalExecutionMs,peakHeapBytes,exitCode";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && SINGLE_RUN_OPTION.equals(args[0])) {
+            runSingle(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        if (args.length < 1) {
+            logger.info("使い方: ScaleTestHarness <作業ディレクトリ> [ファイル数...]");
+            return;
+        }
+
+        Path workDir = Paths.get(args[0]).toAbsolutePath();
+        int[] sizes = args.length > 1
+            ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+            : new int[] {1_000, 10_000, 50_000};
+
+        Path resultFile = workDir.resolve(RESULT_FILE);
+        Files.createDirectories(workDir);
+        if (!Files.exists(resultFile)) {
+            Files.writeString(resultFile, CSV_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+
+        for (int size : sizes) {
+            Path projectDir = workDir.resolve("corpus-" + size);
+            SyntheticCorpusGenerator.generate(projectDir, size);
+            SyntheticCorpusGenerator.removeLibrary(projectDir);
+
+            String row = runChildJvm(projectDir, size);
+            Files.writeString(resultFile, row + System.lineSeparator(), StandardCharsets.UTF_8,
+                              StandardOpenOption.APPEND);
+            logger.info("スケールテスト結果: {}", row);
+        }
+        logger.info("結果を出力しました: {}", resultFile);
+    }
+
+    /**
+     * 子JVMでクリーナーを実行し、結果のCSV行を返す
+     */
+    private static String runChildJvm(Path projectDir, int size) throws IOException, InterruptedException {
+        Path childResult = projectDir.resolve("scale-run.properties");
+        Files.deleteIfExists(childResult);
+
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>();
+        command.add(javaBin);
+        // 親JVMのヒープ上限指定を引き継ぐ
+        for (String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (jvmArg.startsWith("-Xmx")) {
+                command.add(jvmArg);
+            }
+        }
+        command.add("-Dcleaner.projectDir=" + projectDir);
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add(ScaleTestHarness.class.getName());
+        command.add(SINGLE_RUN_OPTION);
+        command.add(projectDir.toString());
+        command.add(childResult.toString());
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(projectDir.toFile());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(projectDir.resolve("scale-run.log").toFile());
+        int exitCode = pb.start().waitFor();
+
+        Properties props = new Properties();
+        if (Files.exists(childResult)) {
+            try (Reader reader = Files.newBufferedReader(childResult, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            }
+        } else {
+            logger.warn("子JVMの結果ファイルがありません（ログ: {}）", projectDir.resolve("scale-run.log"));
+        }
+
+        return String.join(",",
+            String.valueOf(size),
+            props.getProperty("mainIterations", ""),
+            props.getProperty("testIterations", ""),
+            props.getProperty("mainDeletionMs", ""),
+            props.getProperty("testDeletionMs", ""),
+            props.getProperty("totalDeletionMs", ""),
+            props.getProperty("testExecutionMs", ""),
+            props.getProperty("totalExecutionMs", ""),
+            props.getProperty("peakHeapBytes", ""),
+            String.valueOf(exitCode));
+    }
+
+    /**
+     * 子JVMは作業ディレクトリが異なるため、クラスパスを絶対パスに変換
+     */
+    private static String absoluteClassPath() {
+        StringJoiner joiner = new StringJoiner(File.pathSeparator);
+        for (String entry : System.getProperty("java.class.path").split(Pattern.quote(File.pathSeparator))) {
+            if (!entry.isEmpty()) {
+                joiner.add(Paths.get(entry).toAbsolutePath().toString());
+            }
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 子JVM側: クリーナーを実行してメトリクスをプロパティファイルに書き出す
+     */
+    private static void runSingle(Path projectDir, Path resultFile) throws Exception {
+        if (!Paths.get(CleanerConfig.PROJECT_DIR).toAbsolutePath().equals(projectDir.toAbsolutePath())) {
+            throw new IllegalStateException("cleaner.projectDir が対象プロジェクトと一致しません: " + CleanerConfig.PROJECT_DIR);
+        }
+        resetPeakHeapUsage();
+
+        MavenCompilationCleaner cleaner = new MavenCompilationCleaner();
+        cleaner.run();
+        CompilationMetrics metrics = cleaner.getMetrics();
+
+        Properties props = new Properties();
+        props.setProperty("mainIterations", String.valueOf(metrics.getIterationCount()));
+        props.setProperty("testIterations", String.valueOf(metrics.getTestIterationCount()));
+        props.setProperty("mainDeletionMs", String.valueOf(metrics.getMainCodeDeletionTime() / 1_000_000));
+        props.setProperty("testDeletionMs", String.valueOf(metrics.getTestCodeDeletionTime() / 1_000_000));
+        props.setProperty("totalDeletionMs", String.valueOf(metrics.getTotalDeletionTime() / 1_000_000));
+        props.setProperty("testExecutionMs", String.valueOf(metrics.getTestExecutionTime() / 1_000_000));
+        props.setProperty("totalExecutionMs", String.valueOf(metrics.getTotalExecutionTime() / 1_000_000));
+        props.setProperty("peakHeapBytes", String.valueOf(peakHeapUsage()));
+
+        try (Writer writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+            props.store(writer, "ScaleTestHarness single run: " + projectDir);
+        }
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * ヒープ領域の各メモリプールのピーク使用量の合計
+     */
+    private static long peakHeapUsage() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+}
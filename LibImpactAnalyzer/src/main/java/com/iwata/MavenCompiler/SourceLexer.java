@@ -0,0 +1,489 @@
+package com.iwata.MavenCompiler;
+
+import java.util.*;
+
+/**
+  Spoonのモデルを構築せずにJavaソースの構造を読み取る軽量な字句解析
+  コメント・文字列・文字リテラルを読み飛ばし、次の情報だけを抽出する
+    ・package宣言とimport文
+    ・型宣言・メソッド宣言とその行範囲（波括弧の対応から判定）
+    ・コード中の名前の参照（識別子をドットでつないだ列。メソッド呼び出しの後に続くメンバー名は除く）
+  列番号はjavacと同じく1始まりで、タブを8桁単位に展開して数える
+  構文の誤りがあっても例外は送出せず、読み取れた範囲の結果を返す
+ **/
+final class SourceLexer {
+
+    static final byte IDENT = 0;
+    static final byte DOT = 1;
+    static final byte LPAREN = 2;
+    static final byte RPAREN = 3;
+    static final byte LBRACE = 4;
+    static final byte RBRACE = 5;
+    static final byte SEMI = 6;
+    static final byte COMMA = 7;
+    static final byte AT = 8;
+    static final byte STAR = 9;
+    static final byte LT = 10;
+    static final byte GT = 11;
+    static final byte LITERAL = 12;
+    static final byte OTHER = 13;
+
+    private static final int TAB_WIDTH = 8;
+
+    private static final Set<String> KEYWORDS = Set.of(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+        "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while", "true", "false", "null", "var", "yield", "record", "sealed", "permits");
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record");
+
+    /**
+     * トークン列（種類・位置を並列の配列で保持）
+     */
+    static final class Tokens {
+        private final String source;
+        private byte[] kinds = new byte[256];
+        private int[] starts = new int[256];
+        private int[] ends = new int[256];
+        private int[] lines = new int[256];
+        private int[] columns = new int[256];
+        private int count = 0;
+
+        private Tokens(String source) {
+            this.source = source;
+        }
+
+        private void add(byte kind, int start, int end, int line, int column) {
+            if (count == kinds.length) {
+                int capacity = count * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+            }
+            kinds[count] = kind;
+            starts[count] = start;
+            ends[count] = end;
+            lines[count] = line;
+            columns[count] = column;
+            count++;
+        }
+
+        int size() { return count; }
+        byte kind(int i) { return kinds[i]; }
+        int line(int i) { return lines[i]; }
+        int column(int i) { return columns[i]; }
+        String text(int i) { return source.substring(starts[i], ends[i]); }
+
+        boolean is(int i, String text) {
+            int length = ends[i] - starts[i];
+            return kinds[i] == IDENT && length == text.length() && source.startsWith(text, starts[i]);
+        }
+
+        byte kindAt(int i) {
+            return i >= 0 && i < count ? kinds[i] : OTHER;
+        }
+    }
+
+    /**
+     * import文
+     */
+    static final class Import {
+        final String name;
+        final boolean isStatic;
+        final boolean wildcard;
+        final int line;
+        // 最後のドットの列（javacが「パッケージは存在しません」を報告する位置）
+        final int lastDotColumn;
+
+        Import(String name, boolean isStatic, boolean wildcard, int line, int lastDotColumn) {
+            this.name = name;
+            this.isStatic = isStatic;
+            this.wildcard = wildcard;
+            this.line = line;
+            this.lastDotColumn = lastDotColumn;
+        }
+    }
+
+    /**
+     * 型宣言・メソッド宣言（行範囲）
+     */
+    static final class Declaration {
+        final String name;
+        // メソッドの場合は宣言している型のインデックス、型の場合は外側の型のインデックス（なければ-1）
+        final int owner;
+        final int startLine;
+        int endLine;
+
+        Declaration(String name, int owner, int startLine) {
+            this.name = name;
+            this.owner = owner;
+            this.startLine = startLine;
+            this.endLine = startLine;
+        }
+    }
+
+    /**
+     * コード中の名前の参照
+     */
+    static final class Reference {
+        final String name;
+        final int line;
+        final int column;
+        // 参照を含む型・メソッドのインデックス（なければ-1）。宣言の前の注釈やシグネチャはその宣言に含める
+        int type;
+        int method;
+
+        Reference(String name, int line, int column, int type, int method) {
+            this.name = name;
+            this.line = line;
+            this.column = column;
+            this.type = type;
+            this.method = method;
+        }
+    }
+
+    /**
+     * ファイル1つの解析結果
+     */
+    static final class Outline {
+        String packageName = "";
+        final List<Import> imports = new ArrayList<>();
+        final List<Declaration> types = new ArrayList<>();
+        final List<Declaration> methods = new ArrayList<>();
+        final List<Reference> references = new ArrayList<>();
+
+        /**
+         * 型の名前（外側の型を含む。例: Outer.Inner）
+         */
+        String typeName(int index) {
+            if (index < 0) {
+                return null;
+            }
+            Declaration type = types.get(index);
+            return type.owner >= 0 ? typeName(type.owner) + "." + type.name : type.name;
+        }
+
+        /**
+         * メソッドの名前（型名#メソッド名）
+         */
+        String methodName(int index) {
+            if (index < 0) {
+                return null;
+            }
+            Declaration method = methods.get(index);
+            return typeName(method.owner) + "#" + method.name;
+        }
+    }
+
+    private SourceLexer() {
+    }
+
+    /**
+     * トークンに分割（コメントと空白は除く）
+     */
+    static Tokens tokenize(String source) {
+        Tokens tokens = new Tokens(source);
+        int length = source.length();
+        int line = 1;
+        int column = 1;
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\n') {
+                line++;
+                column = 1;
+                i++;
+                continue;
+            }
+            if (c == '\t') {
+                column = ((column - 1) / TAB_WIDTH + 1) * TAB_WIDTH + 1;
+                i++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                column++;
+                i++;
+                continue;
+            }
+            int start = i;
+            int startLine = line;
+            int startColumn = column;
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                while (i < length && source.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                i += 2;
+                column += 2;
+                while (i < length && !(source.charAt(i) == '*' && i + 1 < length && source.charAt(i + 1) == '/')) {
+                    if (source.charAt(i) == '\n') {
+                        line++;
+                        column = 1;
+                    } else {
+                        column++;
+                    }
+                    i++;
+                }
+                i = Math.min(length, i + 2);
+                column += 2;
+                continue;
+            }
+            byte kind;
+            if (c == '"' || c == '\'') {
+                boolean textBlock = c == '"' && source.startsWith("\"\"\"", i);
+                String terminator = textBlock ? "\"\"\"" : String.valueOf(c);
+                i += terminator.length();
+                while (i < length && !source.startsWith(terminator, i)) {
+                    char current = source.charAt(i);
+                    if (current == '\\') {
+                        i++;
+                        column++;
+                    } else if (current == '\n') {
+                        if (!textBlock) {
+                            break;
+                        }
+                        line++;
+                        column = 0;
+                    }
+                    i++;
+                    column++;
+                }
+                if (source.startsWith(terminator, i)) {
+                    i += terminator.length();
+                    column += terminator.length();
+                }
+                // 開始の引用符（テキストブロックは直後に改行があるため数えない）
+                column += textBlock ? 0 : 1;
+                tokens.add(LITERAL, start, i, startLine, startColumn);
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+                    i++;
+                }
+                kind = IDENT;
+            } else if (Character.isDigit(c)) {
+                while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_'
+                                      || (source.charAt(i) == '.' && i + 1 < length
+                                          && Character.isDigit(source.charAt(i + 1))))) {
+                    i++;
+                }
+                kind = LITERAL;
+            } else if (c == '.' && source.startsWith("...", i)) {
+                i += 3;
+                kind = OTHER;
+            } else {
+                i++;
+                kind = symbolKind(c);
+            }
+            column += i - start;
+            tokens.add(kind, start, i, startLine, startColumn);
+        }
+        return tokens;
+    }
+
+    private static byte symbolKind(char c) {
+        switch (c) {
+            case '.': return DOT;
+            case '(': return LPAREN;
+            case ')': return RPAREN;
+            case '{': return LBRACE;
+            case '}': return RBRACE;
+            case ';': return SEMI;
+            case ',': return COMMA;
+            case '@': return AT;
+            case '*': return STAR;
+            case '<': return LT;
+            case '>': return GT;
+            default: return OTHER;
+        }
+    }
+
+    /**
+     * ソースを解析
+     */
+    static Outline parse(String source) {
+        Tokens tokens = tokenize(source);
+        Outline outline = new Outline();
+        // 波括弧ごとの外側の型・メソッドのインデックスと、外側が型の本体か
+        Deque<int[]> scopes = new ArrayDeque<>();
+        int currentType = -1;
+        int currentMethod = -1;
+        boolean typeBody = false;
+        // 宣言済みで本体の波括弧をまだ開いていない型
+        int pendingType = -1;
+        // 直前の文・ブロックの区切り以降の最初の参照（宣言の注釈・シグネチャの参照の開始位置）
+        int headerStart = 0;
+
+        int n = tokens.size();
+        int i = 0;
+        while (i < n) {
+            byte kind = tokens.kind(i);
+            if (kind == IDENT && scopes.isEmpty() && (tokens.is(i, "package") || tokens.is(i, "import"))) {
+                i = parseHeader(tokens, i, outline);
+                headerStart = outline.references.size();
+                continue;
+            }
+            if (kind == IDENT && TYPE_KEYWORDS.contains(tokens.text(i)) && tokens.kindAt(i - 1) != DOT
+                    && tokens.kindAt(i + 1) == IDENT && currentMethod < 0
+                    && (!tokens.is(i, "record") || tokens.kindAt(i + 2) == LPAREN || tokens.kindAt(i + 2) == LT)) {
+                outline.types.add(new Declaration(tokens.text(i + 1), currentType, tokens.line(i)));
+                pendingType = outline.types.size() - 1;
+                reassign(outline.references, headerStart, pendingType, -1);
+                i += 2;
+                continue;
+            }
+            if (kind == LBRACE) {
+                scopes.push(new int[] {currentType, currentMethod, typeBody ? 1 : 0});
+                if (pendingType >= 0) {
+                    currentType = pendingType;
+                    currentMethod = -1;
+                    typeBody = true;
+                    pendingType = -1;
+                } else if (typeBody) {
+                    int nameIndex = methodNameBefore(tokens, i);
+                    if (nameIndex >= 0) {
+                        outline.methods.add(new Declaration(tokens.text(nameIndex), currentType, tokens.line(nameIndex)));
+                        currentMethod = outline.methods.size() - 1;
+                        reassign(outline.references, headerStart, currentType, currentMethod);
+                    }
+                    typeBody = false;
+                }
+                headerStart = outline.references.size();
+                i++;
+                continue;
+            }
+            if (kind == RBRACE) {
+                int line = tokens.line(i);
+                if (!scopes.isEmpty()) {
+                    int[] outer = scopes.pop();
+                    if (currentType != outer[0]) {
+                        outline.types.get(currentType).endLine = line;
+                    }
+                    if (currentMethod >= 0 && currentMethod != outer[1]) {
+                        outline.methods.get(currentMethod).endLine = line;
+                    }
+                    currentType = outer[0];
+                    currentMethod = outer[1];
+                    typeBody = outer[2] == 1;
+                }
+                headerStart = outline.references.size();
+                i++;
+                continue;
+            }
+            if (kind == SEMI) {
+                headerStart = outline.references.size();
+                i++;
+                continue;
+            }
+            if (kind == IDENT && tokens.kindAt(i - 1) != DOT && !KEYWORDS.contains(tokens.text(i))) {
+                int end = i;
+                while (tokens.kindAt(end + 1) == DOT && tokens.kindAt(end + 2) == IDENT) {
+                    end += 2;
+                }
+                StringBuilder name = new StringBuilder(tokens.text(i));
+                for (int part = i + 2; part <= end; part += 2) {
+                    name.append('.').append(tokens.text(part));
+                }
+                outline.references.add(new Reference(name.toString(), tokens.line(i), tokens.column(i),
+                                                     pendingType >= 0 ? pendingType : currentType, currentMethod));
+                i = end + 1;
+                continue;
+            }
+            i++;
+        }
+        return outline;
+    }
+
+    private static void reassign(List<Reference> references, int from, int type, int method) {
+        for (int r = from; r < references.size(); r++) {
+            references.get(r).type = type;
+            references.get(r).method = method;
+        }
+    }
+
+    /**
+     * package宣言・import文を読み取り、次のトークンの位置を返す
+     */
+    private static int parseHeader(Tokens tokens, int i, Outline outline) {
+        boolean isImport = tokens.is(i, "import");
+        int line = tokens.line(i);
+        i++;
+        boolean isStatic = false;
+        if (isImport && i < tokens.size() && tokens.is(i, "static")) {
+            isStatic = true;
+            i++;
+        }
+        StringBuilder name = new StringBuilder();
+        boolean wildcard = false;
+        int lastDotColumn = 0;
+        while (i < tokens.size() && tokens.kind(i) != SEMI) {
+            byte kind = tokens.kind(i);
+            if (kind == IDENT) {
+                name.append(tokens.text(i));
+            } else if (kind == DOT) {
+                name.append('.');
+                lastDotColumn = tokens.column(i);
+            } else if (kind == STAR) {
+                wildcard = true;
+            } else {
+                break;
+            }
+            i++;
+        }
+        String qualified = name.toString();
+        if (wildcard && qualified.endsWith(".")) {
+            qualified = qualified.substring(0, qualified.length() - 1);
+        }
+        if (isImport) {
+            outline.imports.add(new Import(qualified, isStatic, wildcard, line, lastDotColumn));
+        } else {
+            outline.packageName = qualified;
+        }
+        return i + 1;
+    }
+
+    /**
+     * 型の本体で開いた波括弧がメソッド（コンストラクタ）の本体であれば、その名前のトークンの位置を返す
+     * 名前 ( ... ) [throws 型, ...] { の形のみを対象とし、初期化ブロックなどは-1
+     */
+    private static int methodNameBefore(Tokens tokens, int brace) {
+        int j = brace - 1;
+        // throws節を読み飛ばす
+        int k = j;
+        while (k >= 0 && (tokens.kind(k) == IDENT || tokens.kind(k) == DOT || tokens.kind(k) == COMMA
+                          || tokens.kind(k) == LT || tokens.kind(k) == GT)) {
+            if (tokens.is(k, "throws")) {
+                j = k - 1;
+                break;
+            }
+            k--;
+        }
+        if (tokens.kindAt(j) != RPAREN) {
+            return -1;
+        }
+        int depth = 0;
+        for (; j >= 0; j--) {
+            byte kind = tokens.kind(j);
+            if (kind == RPAREN) {
+                depth++;
+            } else if (kind == LPAREN && --depth == 0) {
+                break;
+            } else if (kind == LBRACE || kind == RBRACE || kind == SEMI) {
+                return -1;
+            }
+        }
+        int name = j - 1;
+        if (name < 0 || tokens.kind(name) != IDENT || KEYWORDS.contains(tokens.text(name))
+                || tokens.kindAt(name - 1) == AT) {
+            return -1;
+        }
+        return name;
+    }
+}
@@ -0,0 +1,371 @@
+package com.iwata.MavenCompiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.*;
+import java.util.stream.Collectors;
+import javax.tools.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  スケールテスト用の合成Mavenプロジェクト生成クラス
+  削除対象の疑似ライブラリ(org.fakelib)に対して、以下の依存パターンを持つソースを決まった割合で生成する
+    - 依存なし / importのみ / フィールド型 / メソッド呼び出し / 継承
+  テストコードの半数はライブラリを直接利用する
+  ライブラリjarはローカルでコンパイルし、プロジェクト内のファイルリポジトリに配置する（ネットワーク不要）
+ **/
+public class SyntheticCorpusGenerator {
+
+    private static final Logger logger = LogManager.getLogger(SyntheticCorpusGenerator.class);
+
+    public static final String LIB_GROUP_ID = "org.fakelib";
+    public static final String LIB_ARTIFACT_ID = "fakelib";
+    public static final String LIB_VERSION = "1.0";
+
+    private static final int FILES_PER_PACKAGE = 100;
+    private static final int SOURCES_PER_TEST = 10;
+
+    /**
+     * 生成するソースファイルのライブラリ依存パターン
+     */
+    public enum Usage {
+        NONE, IMPORT_ONLY, FIELD_TYPE, METHOD_CALL, INHERITANCE
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            logger.info("使い方: SyntheticCorpusGenerator <出力ディレクトリ> [ファイル数...]");
+            return;
+        }
+        Path outputDir = Paths.get(args[0]);
+        int[] sizes = args.length > 1
+            ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+            : new int[] {1_000, 10_000, 50_000};
+
+        for (int size : sizes) {
+            generate(outputDir.resolve("corpus-" + size), size);
+        }
+    }
+
+    /**
+     * 指定ファイル数の合成プロジェクトを生成
+     */
+    public static void generate(Path projectDir, int sourceFileCount) throws IOException {
+        logger.info("合成プロジェクトを生成します: {} (ソースファイル数: {})", projectDir, sourceFileCount);
+        Files.createDirectories(projectDir);
+
+        buildLibraryRepository(projectDir.resolve("repo"));
+        writePom(projectDir);
+
+        Path srcDir = projectDir.resolve("src");
+        Path testDir = projectDir.resolve("tests");
+        int testCount = 0;
+        for (int i = 0; i < sourceFileCount; i++) {
+            String packageName = packageName(i);
+            String className = className(i);
+            Usage usage = usageOf(i);
+            writeSource(srcDir, packageName, className, sourceCode(packageName, className, usage));
+
+            if (i % SOURCES_PER_TEST == 0) {
+                boolean usesLibrary = (i / SOURCES_PER_TEST) % 2 == 1;
+                writeSource(testDir, packageName, className + "Test",
+                            testCode(packageName, className, usesLibrary));
+                testCount++;
+            }
+        }
+        logger.info("生成完了: ソース {} ファイル, テスト {} ファイル", sourceFileCount, testCount);
+    }
+
+    /**
+     * 生成済みプロジェクトのpom.xmlから疑似ライブラリを削除（影響分析の起点）
+     */
+    public static boolean removeLibrary(Path projectDir) throws IOException {
+        return PomEditor.removeDependency(projectDir.resolve("pom.xml"), LIB_GROUP_ID, LIB_ARTIFACT_ID);
+    }
+
+    /**
+     * ファイル番号から依存パターンを決定（決定的に循環させる）
+     */
+    public static Usage usageOf(int index) {
+        Usage[] values = Usage.values();
+        return values[index % values.length];
+    }
+
+    private static String packageName(int index) {
+        return String.format("gen.p%04d", index / FILES_PER_PACKAGE);
+    }
+
+    private static String className(int index) {
+        // findJavaFileはファイル名で検索するため、プロジェクト全体で一意な名前にする
+        return String.format("C%05d", index);
+    }
+
+    private static void writeSource(Path root, String packageName, String className, String code) throws IOException {
+        Path dir = root.resolve(packageName.replace('.', File.separatorChar));
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(className + ".java"), code, StandardCharsets.UTF_8);
+    }
+
+    private static String sourceCode(String packageName, String className, Usage usage) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(packageName).append(";\n\n");
+
+        switch (usage) {
+            case IMPORT_ONLY, METHOD_CALL -> sb.append("import org.fakelib.FakeService;\n\n");
+            case FIELD_TYPE -> sb.append("import org.fakelib.FakeValue;\n\n");
+            case INHERITANCE -> sb.append("import org.fakelib.FakeBase;\n\n");
+            default -> { }
+        }
+
+        sb.append("public class ").append(className);
+        if (usage == Usage.INHERITANCE) {
+            sb.append(" extends FakeBase");
+        }
+        sb.append(" {\n");
+        sb.append("    private int count;\n");
+        if (usage == Usage.FIELD_TYPE) {
+            sb.append("    private FakeValue value = new FakeValue(1);\n");
+        }
+        sb.append("\n");
+
+        sb.append("    public int increment(int step) {\n");
+        sb.append("        count += step;\n");
+        sb.append("        return count;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    public String label() {\n");
+        sb.append("        return \"").append(className).append(":\" + count;\n");
+        sb.append("    }\n");
+
+        switch (usage) {
+            case FIELD_TYPE -> {
+                sb.append("\n    public int valueOf() {\n");
+                sb.append("        return value.get() + count;\n");
+                sb.append("    }\n");
+            }
+            case METHOD_CALL -> {
+                sb.append("\n    public int compute(int x) {\n");
+                sb.append("        FakeService service = new FakeService();\n");
+                sb.append("        int doubled = service.compute(x);\n");
+                sb.append("        return doubled + count;\n");
+                sb.append("    }\n\n");
+                sb.append("    public String version() {\n");
+                sb.append("        return \"v\" + FakeService.version();\n");
+                sb.append("    }\n");
+            }
+            case INHERITANCE -> {
+                sb.append("\n    @Override\n");
+                sb.append("    public int value() {\n");
+                sb.append("        return baseValue() + count;\n");
+                sb.append("    }\n");
+            }
+            default -> { }
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String testCode(String packageName, String className, boolean usesLibrary) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(packageName).append(";\n\n");
+        if (usesLibrary) {
+            sb.append("import org.fakelib.FakeService;\n");
+        }
+        sb.append("import org.junit.Assert;\n");
+        sb.append("import org.junit.Test;\n\n");
+        sb.append("public class ").append(className).append("Test {\n\n");
+
+        sb.append("    @Test\n");
+        sb.append("    public void testIncrement() {\n");
+        sb.append("        ").append(className).append(" target = new ").append(className).append("();\n");
+        sb.append("        Assert.assertEquals(2, target.increment(2));\n");
+        sb.append("    }\n");
+
+        if (usesLibrary) {
+            sb.append("\n    @Test\n");
+            sb.append("    public void testLibrary() {\n");
+            sb.append("        FakeService service = new FakeService();\n");
+            sb.append("        Assert.assertEquals(4, service.compute(2));\n");
+            sb.append("    }\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void writePom(Path projectDir) throws IOException {
+        String pom = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+              xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+              <modelVersion>4.0.0</modelVersion>
+
+              <groupId>gen</groupId>
+              <artifactId>synthetic-corpus</artifactId>
+              <version>0.0.1-SNAPSHOT</version>
+
+              <properties>
+                <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+                <maven.compiler.release>17</maven.compiler.release>
+              </properties>
+
+              <repositories>
+                <repository>
+                  <id>local-stub</id>
+                  <url>${project.baseUri}repo</url>
+                </repository>
+              </repositories>
+
+              <dependencies>
+                <dependency>
+                  <groupId>%s</groupId>
+                  <artifactId>%s</artifactId>
+                  <version>%s</version>
+                </dependency>
+                <dependency>
+                  <groupId>junit</groupId>
+                  <artifactId>junit</artifactId>
+                  <version>4.13.2</version>
+                  <scope>test</scope>
+                </dependency>
+              </dependencies>
+
+              <build>
+                <sourceDirectory>src</sourceDirectory>
+                <testSourceDirectory>tests</testSourceDirectory>
+              </build>
+            </project>
+            """.formatted(LIB_GROUP_ID, LIB_ARTIFACT_ID, LIB_VERSION);
+        Files.writeString(projectDir.resolve("pom.xml"), pom, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 疑似ライブラリをコンパイルしてMavenリポジトリ形式で配置
+     */
+    private static void buildLibraryRepository(Path repoDir) throws IOException {
+        Path artifactDir = repoDir.resolve(LIB_GROUP_ID.replace('.', File.separatorChar))
+                                  .resolve(LIB_ARTIFACT_ID).resolve(LIB_VERSION);
+        Files.createDirectories(artifactDir);
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("FakeService", """
+            package org.fakelib;
+
+            public class FakeService {
+                public int compute(int x) {
+                    return x * 2;
+                }
+
+                public String describe(String s) {
+                    return "fake:" + s;
+                }
+
+                public static String version() {
+                    return "1.0";
+                }
+            }
+            """);
+        sources.put("FakeBase", """
+            package org.fakelib;
+
+            public abstract class FakeBase {
+                protected int baseValue() {
+                    return 1;
+                }
+
+                public abstract int value();
+            }
+            """);
+        sources.put("FakeValue", """
+            package org.fakelib;
+
+            public class FakeValue {
+                private final int value;
+
+                public FakeValue(int value) {
+                    this.value = value;
+                }
+
+                public int get() {
+                    return value;
+                }
+            }
+            """);
+
+        Path workDir = Files.createTempDirectory("fakelib");
+        try {
+            Path srcDir = workDir.resolve("src").resolve("org").resolve("fakelib");
+            Path classesDir = workDir.resolve("classes");
+            Files.createDirectories(srcDir);
+            Files.createDirectories(classesDir);
+
+            List<File> sourceFiles = new ArrayList<>();
+            for (Map.Entry<String, String> entry : sources.entrySet()) {
+                Path source = srcDir.resolve(entry.getKey() + ".java");
+                Files.writeString(source, entry.getValue(), StandardCharsets.UTF_8);
+                sourceFiles.add(source.toFile());
+            }
+
+            JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+            if (javac == null) {
+                throw new IOException("JDKのコンパイラが見つかりません（JREではなくJDKで実行してください）");
+            }
+            try (StandardJavaFileManager fileManager = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+                boolean ok = javac.getTask(null, fileManager, null,
+                        List.of("--release", "17", "-d", classesDir.toString()), null,
+                        fileManager.getJavaFileObjectsFromFiles(sourceFiles)).call();
+                if (!ok) {
+                    throw new IOException("疑似ライブラリのコンパイルに失敗しました");
+                }
+            }
+
+            Path jarFile = artifactDir.resolve(LIB_ARTIFACT_ID + "-" + LIB_VERSION + ".jar");
+            writeJar(classesDir, jarFile);
+        } finally {
+            deleteRecursively(workDir);
+        }
+
+        String libPom = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>%s</groupId>
+              <artifactId>%s</artifactId>
+              <version>%s</version>
+            </project>
+            """.formatted(LIB_GROUP_ID, LIB_ARTIFACT_ID, LIB_VERSION);
+        Files.writeString(artifactDir.resolve(LIB_ARTIFACT_ID + "-" + LIB_VERSION + ".pom"), libPom, StandardCharsets.UTF_8);
+    }
+
+    private static void writeJar(Path classesDir, Path jarFile) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        List<Path> classFiles;
+        try (var paths = Files.walk(classesDir)) {
+            classFiles = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarFile), manifest)) {
+            for (Path classFile : classFiles) {
+                String entryName = classesDir.relativize(classFile).toString().replace(File.separatorChar, '/');
+                jar.putNextEntry(new JarEntry(entryName));
+                Files.copy(classFile, jar);
+                jar.closeEntry();
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            List<Path> all = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path path : all) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
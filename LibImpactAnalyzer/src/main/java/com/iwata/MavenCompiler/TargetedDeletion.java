@@ -0,0 +1,271 @@
+package com.iwata.MavenCompiler;
+
+import java.util.List;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.*;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.*;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeReference;
+
+/**
+  診断の行・列から、解決できない参照を含む最小の要素を特定する
+  行単位で要素を削除すると、1行に書かれたメソッドチェーンや宣言全体が消えて次の反復で新たなエラーが発生するため、
+  参照を含む式・文・宣言のうち最も小さいものだけを削除またはスタブ（既定値のリテラル）に置き換える
+  対象を特定できない場合はnullを返し、呼び出し側で従来の行単位の削除を行う
+ **/
+final class TargetedDeletion {
+
+    // javacはタブを8桁単位で展開して列を数える
+    private static final int TAB_WIDTH = 8;
+
+    /**
+     * 修正方法
+     */
+    enum Action {
+        /** 要素を削除 */
+        DELETE,
+        /** 式を既定値のリテラルに置き換え */
+        STUB
+    }
+
+    /**
+     * 修正対象の要素と修正方法
+     */
+    static final class Target {
+        private final CtElement element;
+        private final Action action;
+        // スタブの型（DELETEの場合はnull）
+        private final CtTypeReference<?> stubType;
+
+        private Target(CtElement element, Action action) {
+            this(element, action, null);
+        }
+
+        private Target(CtElement element, Action action, CtTypeReference<?> stubType) {
+            this.element = element;
+            this.action = action;
+            this.stubType = stubType;
+        }
+
+        CtElement getElement() { return element; }
+        Action getAction() { return action; }
+        CtTypeReference<?> getStubType() { return stubType; }
+    }
+
+    private TargetedDeletion() {
+    }
+
+    /**
+     * javacの行・列（1始まり、タブは8桁単位）をソース中の文字オフセットに変換（範囲外の場合は-1）
+     */
+    static int toOffset(CharSequence content, int line, int column) {
+        if (line < 1 || column < 1) {
+            return -1;
+        }
+        int offset = 0;
+        for (int current = 1; current < line; current++) {
+            while (offset < content.length() && content.charAt(offset) != '\n') {
+                offset++;
+            }
+            if (offset >= content.length()) {
+                return -1;
+            }
+            offset++;
+        }
+        int col = 0;
+        while (offset < content.length() && content.charAt(offset) != '\n' && col + 1 < column) {
+            col = content.charAt(offset) == '\t' ? (col / TAB_WIDTH * TAB_WIDTH) + TAB_WIDTH : col + 1;
+            offset++;
+        }
+        return col + 1 == column ? offset : -1;
+    }
+
+    /**
+     * 指定オフセットを含む最小の要素（型の外の場合はnull）
+     * 位置を含む子要素だけをたどるため、モデル全体は走査しない
+     */
+    static CtElement findSmallestAt(CtModel model, int offset) {
+        for (CtType<?> type : model.getAllTypes()) {
+            if (contains(type, offset)) {
+                return descend(type, offset);
+            }
+        }
+        return null;
+    }
+
+    private static CtElement descend(CtElement root, int offset) {
+        CtElement current = root;
+        while (true) {
+            CtElement next = null;
+            int nextSize = Integer.MAX_VALUE;
+            for (CtElement child : current.getDirectChildren()) {
+                if (child instanceof CtComment || child.isImplicit() || !contains(child, offset)) {
+                    continue;
+                }
+                SourcePosition pos = child.getPosition();
+                int size = pos.getSourceEnd() - pos.getSourceStart();
+                if (size < nextSize) {
+                    next = child;
+                    nextSize = size;
+                }
+            }
+            if (next == null) {
+                return current;
+            }
+            current = next;
+        }
+    }
+
+    private static boolean contains(CtElement element, int offset) {
+        SourcePosition pos = element.getPosition();
+        return pos != null && pos.isValidPosition()
+               && pos.getSourceStart() <= offset && offset <= pos.getSourceEnd();
+    }
+
+    /**
+     * 参照を含む最小の要素から親をたどり、削除またはスタブに置き換える要素を決定
+     *   ・ブロック内の文、フィールド、アノテーション、extends/implementsの型 → 削除
+     *   ・引数、初期化式、代入の右辺、演算子の被演算子、if文・条件演算子の条件式、return文の式 → スタブ
+     *   ・アクセスの対象（a.b() の a など）が壊れている場合はアクセス全体を対象にする
+     *   ・スタブの型が分からない場合は、nullリテラルでは別のエラーになりうるため、式を含む文を削除する
+     * メソッド・パラメータ・ラムダ・型の宣言に達した場合は特定できないものとしてnullを返す
+     */
+    static Target resolve(CtElement smallest) {
+        CtElement current = smallest;
+        while (current != null && current.isParentInitialized()) {
+            CtElement parent = current.getParent();
+            CtRole role = current.getRoleInParent();
+
+            if (current instanceof CtAnnotation<?> || current instanceof CtField<?>) {
+                return new Target(current, Action.DELETE);
+            }
+            if (current instanceof CtTypeReference<?> && (role == CtRole.SUPER_TYPE || role == CtRole.INTERFACE)) {
+                return new Target(current, Action.DELETE);
+            }
+            if (current instanceof CtStatement && parent instanceof CtStatementList) {
+                return new Target(current, Action.DELETE);
+            }
+            if (current instanceof CtExecutable<?> || current instanceof CtType<?>
+                || current instanceof CtParameter<?> || current instanceof CtCatchVariable<?>) {
+                // ラムダはメソッドと同様に扱い、式全体をnullに置き換えることはしない
+                return null;
+            }
+            if (current instanceof CtExpression<?> expression && isStubbable(role, parent)) {
+                CtTypeReference<?> stubType = expectedType(expression, expression.getFactory());
+                if (stubType == null) {
+                    CtStatement statement = enclosingStatement(expression);
+                    return statement != null ? new Target(statement, Action.DELETE) : null;
+                }
+                return new Target(current, Action.STUB, stubType);
+            }
+            if (!(current instanceof CtReference) && !(current instanceof CtExpression<?>)
+                && !(current instanceof CtStatement)) {
+                return null;
+            }
+            current = parent;
+        }
+        return null;
+    }
+
+    private static boolean isStubbable(CtRole role, CtElement parent) {
+        if (role == null || parent instanceof CtLambda<?>) {
+            return false;
+        }
+        return switch (role) {
+            case ARGUMENT -> true;
+            // ループの条件を定数にすると到達不能なコードのエラーになりうる
+            case CONDITION -> parent instanceof CtIf || parent instanceof CtConditional<?>;
+            case ASSIGNMENT -> parent instanceof CtAssignment<?, ?>;
+            case LEFT_OPERAND, RIGHT_OPERAND -> parent instanceof CtBinaryOperator<?>;
+            case THEN, ELSE -> parent instanceof CtConditional<?>;
+            case DEFAULT_EXPRESSION -> parent instanceof CtLocalVariable<?> || parent instanceof CtField<?>;
+            case EXPRESSION -> parent instanceof CtReturn<?>
+                               || parent instanceof CtUnaryOperator<?> operator && !isIncrementOrDecrement(operator);
+            default -> false;
+        };
+    }
+
+    /**
+     * ++/--の被演算子は変数でなければならず、リテラルには置き換えられない
+     */
+    private static boolean isIncrementOrDecrement(CtUnaryOperator<?> operator) {
+        return switch (operator.getKind()) {
+            case PREINC, PREDEC, POSTINC, POSTDEC -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * 式を含む、ブロック内の文（ない場合はnull）
+     */
+    private static CtStatement enclosingStatement(CtElement element) {
+        CtElement current = element;
+        while (current != null && current.isParentInitialized()) {
+            CtElement parent = current.getParent();
+            if (current instanceof CtStatement statement && parent instanceof CtStatementList) {
+                return statement;
+            }
+            if (current instanceof CtExecutable<?> || current instanceof CtType<?>) {
+                return null;
+            }
+            current = parent;
+        }
+        return null;
+    }
+
+    /**
+     * スタブに置き換える式が期待される型（不明な場合はnull）
+     */
+    static CtTypeReference<?> expectedType(CtExpression<?> expression, Factory factory) {
+        CtElement parent = expression.getParent();
+        CtRole role = expression.getRoleInParent();
+        if (role == CtRole.CONDITION) {
+            return factory.Type().booleanPrimitiveType();
+        }
+        if (role == CtRole.DEFAULT_EXPRESSION && parent instanceof CtVariable<?> variable) {
+            return variable.getType();
+        }
+        if (role == CtRole.ASSIGNMENT && parent instanceof CtAssignment<?, ?> assignment) {
+            return assignment.getAssigned() != null ? assignment.getAssigned().getType() : null;
+        }
+        if (role == CtRole.ARGUMENT && parent instanceof CtAbstractInvocation<?> invocation) {
+            // 呼び出し先のパラメータの型（可変長引数・解決できない呼び出し先の場合は不明）
+            List<CtTypeReference<?>> parameters = invocation.getExecutable() != null
+                                                  ? invocation.getExecutable().getParameters() : List.of();
+            List<CtExpression<?>> arguments = invocation.getArguments();
+            if (parameters.size() != arguments.size()) {
+                return null;
+            }
+            // 要素のequalsは構造比較のため、同一性で位置を探す
+            for (int i = 0; i < arguments.size(); i++) {
+                if (arguments.get(i) == expression) {
+                    return parameters.get(i);
+                }
+            }
+            return null;
+        }
+        if (parent instanceof CtReturn<?>) {
+            CtExecutable<?> executable = parent.getParent(CtExecutable.class);
+            return executable instanceof CtMethod<?> method ? method.getType() : null;
+        }
+        if (parent instanceof CtBinaryOperator<?> operator) {
+            BinaryOperatorKind kind = operator.getKind();
+            if (kind == BinaryOperatorKind.AND || kind == BinaryOperatorKind.OR) {
+                return factory.Type().booleanPrimitiveType();
+            }
+            CtExpression<?> other = role == CtRole.LEFT_OPERAND ? operator.getRightHandOperand()
+                                                                : operator.getLeftHandOperand();
+            CtTypeReference<?> otherType = other != null ? other.getType() : null;
+            return otherType != null && otherType.isPrimitive() ? otherType : null;
+        }
+        if (parent instanceof CtUnaryOperator<?> operator) {
+            return operator.getKind() == UnaryOperatorKind.NOT
+                   ? factory.Type().booleanPrimitiveType()
+                   : factory.Type().integerPrimitiveType();
+        }
+        return expression.getType();
+    }
+}
@@ -0,0 +1,173 @@
+package com.iwata.MavenCompiler;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  ブロッキング処理（サブプロセス出力の読み出し、ファイルの解析・修正・書き込み）を実行するスレッドの作成
+  JDK 21以降では仮想スレッドを使用し、JDK 17ではデーモンのプラットフォームスレッドで代替する
+  仮想スレッドのAPIはJDK 17でコンパイルできないため、リフレクションで呼び出す
+  cleaner.virtualThreads=false で仮想スレッドを無効化できる
+ **/
+public final class TaskExecutors {
+
+    private static final Logger logger = LogManager.getLogger(TaskExecutors.class);
+
+    // 仮想スレッドのビルダー（Thread.ofVirtual()）とそのメソッド。利用できない場合はnull
+    private static final Object VIRTUAL_BUILDER;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Object builder = null;
+        Method name = null;
+        Method factory = null;
+        Method perTask = null;
+        if (CleanerConfig.VIRTUAL_THREADS) {
+            try {
+                builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = builderClass.getMethod("factory");
+                perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            } catch (ReflectiveOperationException e) {
+                builder = null;
+            }
+        }
+        VIRTUAL_BUILDER = builder;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = perTask;
+        logger.debug("タスク実行スレッド: {}", builder != null ? "仮想スレッド" : "プラットフォームスレッド");
+    }
+
+    /**
+     * 例外を送出できるタスク
+     */
+    @FunctionalInterface
+    public interface Task<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    private TaskExecutors() {
+    }
+
+    public static boolean isVirtual() {
+        return VIRTUAL_BUILDER != null;
+    }
+
+    /**
+     * スレッドを作成して開始（仮想スレッド、またはデーモンのプラットフォームスレッド）
+     */
+    public static Thread startThread(String name, Runnable task) {
+        Thread thread = threadFactory(name).newThread(task);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * タスクごとにスレッドを割り当てるExecutor
+     * 仮想スレッドが使えない場合は platformThreads 本のデーモンスレッドのプールで代替する
+     */
+    public static ExecutorService newExecutor(String name, int platformThreads) {
+        if (isVirtual()) {
+            try {
+                return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory(name));
+            } catch (ReflectiveOperationException e) {
+                logger.debug("仮想スレッドのExecutorを作成できませんでした: {}", e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), platformThreadFactory(name));
+    }
+
+    /**
+     * 上限なしでタスクごとにスレッドを割り当てるExecutor（長時間待機するタスク用）
+     * 仮想スレッドが使えない場合はデーモンスレッドのキャッシュプールで代替する
+     */
+    public static ExecutorService newUnboundedExecutor(String name) {
+        if (isVirtual()) {
+            try {
+                return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory(name));
+            } catch (ReflectiveOperationException e) {
+                logger.debug("仮想スレッドのExecutorを作成できませんでした: {}", e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool(platformThreadFactory(name));
+    }
+
+    /**
+     * 各要素にタスクを並列に適用し、結果を入力と同じ順序で返す
+     * 同時に実行するタスクは maxConcurrency 件まで（Spoonのモデルなどメモリを多く使う処理の上限）
+     * いずれかのタスクが失敗した場合は、全タスクの終了を待ってから最初の例外を送出する
+     */
+    public static <T, R> List<R> map(String name, List<T> items, int maxConcurrency, Task<T, R> task)
+            throws Exception {
+        if (items.size() <= 1 || maxConcurrency <= 1) {
+            List<R> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(task.apply(item));
+            }
+            return results;
+        }
+        int concurrency = Math.min(items.size(), maxConcurrency);
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorService executor = newExecutor(name, concurrency);
+        try {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return task.apply(item);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<R> results = new ArrayList<>(items.size());
+            Exception failure = null;
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(null);
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        if (isVirtual()) {
+            try {
+                Object named = BUILDER_NAME.invoke(VIRTUAL_BUILDER, name + "-", 0L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(named);
+            } catch (ReflectiveOperationException e) {
+                logger.debug("仮想スレッドを作成できませんでした: {}", e.getMessage());
+            }
+        }
+        return platformThreadFactory(name);
+    }
+
+    private static ThreadFactory platformThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
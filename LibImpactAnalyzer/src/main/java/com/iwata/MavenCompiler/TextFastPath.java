@@ -0,0 +1,283 @@
+package com.iwata.MavenCompiler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+  Spoonのモデルを構築せずに、ファイルのバイト列上でエラー行を削除する高速パス
+  ファイル内の全エラーが以下のいずれかに該当する場合のみ適用する
+    ・解決できないパッケージ/シンボルを参照するimport文の行
+    ・解決できないシンボルを参照する、1行で完結した単独の文（メインコードのみ）
+  テストコードはエラーを含むメソッドをAssert.failに置き換えるため、import文のみを対象とする
+  条件を満たさないファイルは従来通りSpoonで修正する
+ **/
+final class TextFastPath {
+
+    /**
+     * 削除する行の種類
+     */
+    enum LineKind { IMPORT, STATEMENT }
+
+    // 単独の文としては扱わない（削除すると制御構造やreturn文の補完が必要になる）先頭キーワード
+    private static final Set<String> EXCLUDED_KEYWORDS = Set.of(
+        "return", "throw", "break", "continue", "yield", "case", "default", "else",
+        "if", "for", "while", "do", "switch", "try", "catch", "finally", "synchronized",
+        "package", "import", "assert");
+
+    /**
+     * 適用可能な場合の編集内容
+     */
+    static final class Edit {
+        private final byte[] content;
+        private final int[] lineStarts;
+        private final SortedMap<Integer, LineKind> lines;
+
+        private Edit(byte[] content, int[] lineStarts, SortedMap<Integer, LineKind> lines) {
+            this.content = content;
+            this.lineStarts = lineStarts;
+            this.lines = lines;
+        }
+
+        /** 削除する行（1始まりの行番号）と種類 */
+        SortedMap<Integer, LineKind> getLines() { return lines; }
+
+        int getDeletedLineCount() { return lines.size(); }
+
+        /**
+         * 対象行を改行ごと取り除いたバイト列を作成
+         */
+        byte[] apply() {
+            int removed = 0;
+            for (int line : lines.keySet()) {
+                removed += lineEnd(lineStarts, content, line - 1) - lineStarts[line - 1];
+            }
+            byte[] result = new byte[content.length - removed];
+            int from = 0;
+            int to = 0;
+            for (int line : lines.keySet()) {
+                int start = lineStarts[line - 1];
+                System.arraycopy(content, from, result, to, start - from);
+                to += start - from;
+                from = lineEnd(lineStarts, content, line - 1);
+            }
+            System.arraycopy(content, from, result, to, content.length - from);
+            return result;
+        }
+    }
+
+    private TextFastPath() {
+    }
+
+    /**
+     * 高速パスを適用できるか判定し、適用できる場合は編集内容を返す（できない場合はnull）
+     */
+    static Edit plan(byte[] content, ErrorInfo errorInfo, boolean isTestFile) {
+        int diagnosticCount = errorInfo.getDiagnosticCount();
+        if (diagnosticCount == 0) {
+            return null;
+        }
+        int[] lineStarts = lineStarts(content);
+        SortedMap<Integer, LineKind> lines = new TreeMap<>();
+        for (int i = 0; i < diagnosticCount; i++) {
+            if (!errorInfo.getKey(i).isUnresolvedReference()) {
+                return null;
+            }
+            int line = errorInfo.getLine(i);
+            if (line < 1 || line > lineStarts.length) {
+                return null;
+            }
+            LineKind kind = classifyLine(content, lineStarts, line - 1, isTestFile);
+            if (kind == null) {
+                return null;
+            }
+            lines.put(line, kind);
+        }
+        return new Edit(content, lineStarts, lines);
+    }
+
+    private static LineKind classifyLine(byte[] content, int[] lineStarts, int index, boolean isTestFile) {
+        int[] bounds = trimmedBounds(content, lineStarts, index);
+        if (isImport(content, bounds[0], bounds[1])) {
+            return LineKind.IMPORT;
+        }
+        if (!isTestFile && isStandaloneStatement(content, lineStarts, index, bounds[0], bounds[1])) {
+            return LineKind.STATEMENT;
+        }
+        return null;
+    }
+
+    /**
+     * 1行で完結したimport文か（コメント付きの行は対象外）
+     */
+    private static boolean isImport(byte[] content, int from, int to) {
+        if (!startsWithWord(content, from, to, "import")) {
+            return false;
+        }
+        if (content[to - 1] != ';') {
+            return false;
+        }
+        for (int i = from; i < to - 1; i++) {
+            if (content[i] == ';' || content[i] == '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 1行で完結した単独の文か
+     *   ・行末が";"で、";"は行末の1つのみ、括弧の対応が行内で閉じている
+     *   ・波括弧、コメント、テキストブロックを含まない
+     *   ・制御構造やreturn等のキーワード、アノテーションで始まらない
+     *   ・直前のコード行が";"、"{"、"}"で終わる（複数行にまたがる文の途中ではない）
+     */
+    private static boolean isStandaloneStatement(byte[] content, int[] lineStarts, int index, int from, int to) {
+        if (to - from < 2 || content[to - 1] != ';' || !isStatementStart(content[from])) {
+            return false;
+        }
+        if (EXCLUDED_KEYWORDS.contains(firstWord(content, from, to))) {
+            return false;
+        }
+        if (!isBalanced(content, from, to, true)) {
+            return false;
+        }
+        return previousLineEndsStatement(content, lineStarts, index);
+    }
+
+    private static boolean previousLineEndsStatement(byte[] content, int[] lineStarts, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            int[] bounds = trimmedBounds(content, lineStarts, i);
+            int from = bounds[0];
+            int to = bounds[1];
+            if (from == to || (to - from >= 2 && content[from] == '/' && content[from + 1] == '/')) {
+                // 空行と行コメントは読み飛ばす
+                continue;
+            }
+            byte last = content[to - 1];
+            return (last == ';' || last == '{' || last == '}') && isBalanced(content, from, to, false);
+        }
+        return true;
+    }
+
+    /**
+     * 文字列・文字リテラルの外側で丸括弧の対応が取れているか
+     * requireSingleStatement が true の場合は、波括弧とコメントを含まず ";" が行末の1つのみであることも確認する
+     */
+    private static boolean isBalanced(byte[] content, int from, int to, boolean requireSingleStatement) {
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            byte b = content[i];
+            if (b == '"' || b == '\'') {
+                if (b == '"' && i + 2 < to && content[i + 1] == '"' && content[i + 2] == '"') {
+                    // テキストブロック
+                    return false;
+                }
+                i = skipLiteral(content, i, to);
+                if (i < 0) {
+                    return false;
+                }
+            } else if (b == '(') {
+                depth++;
+            } else if (b == ')') {
+                if (--depth < 0) {
+                    return false;
+                }
+            } else if (requireSingleStatement) {
+                if (b == '{' || b == '}' || b == '/' && i + 1 < to && (content[i + 1] == '/' || content[i + 1] == '*')) {
+                    return false;
+                }
+                if (b == ';' && i != to - 1) {
+                    return false;
+                }
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * リテラルの終わりの引用符の位置を返す（行内で閉じていない場合は-1）
+     */
+    private static int skipLiteral(byte[] content, int quote, int to) {
+        byte delimiter = content[quote];
+        for (int i = quote + 1; i < to; i++) {
+            if (content[i] == '\\') {
+                i++;
+            } else if (content[i] == delimiter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isStatementStart(byte b) {
+        // 識別子の先頭（UTF-8の多バイト文字を含む）またはキャスト等の丸括弧
+        return Character.isJavaIdentifierStart(b & 0xff) || (b & 0x80) != 0 || b == '(';
+    }
+
+    private static String firstWord(byte[] content, int from, int to) {
+        int end = from;
+        while (end < to && (Character.isJavaIdentifierPart(content[end] & 0xff) || (content[end] & 0x80) != 0)) {
+            end++;
+        }
+        return new String(content, from, end - from, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWithWord(byte[] content, int from, int to, String word) {
+        if (to - from <= word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (content[from + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        byte next = content[from + word.length()];
+        return next == ' ' || next == '\t';
+    }
+
+    /**
+     * 行頭・行末の空白と改行を除いた範囲 [from, to)
+     */
+    private static int[] trimmedBounds(byte[] content, int[] lineStarts, int index) {
+        int from = lineStarts[index];
+        int to = lineEnd(lineStarts, content, index);
+        while (to > from && isWhitespace(content[to - 1])) {
+            to--;
+        }
+        while (from < to && isWhitespace(content[from])) {
+            from++;
+        }
+        return new int[] {from, to};
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f';
+    }
+
+    /**
+     * 各行の先頭オフセット
+     */
+    private static int[] lineStarts(byte[] content) {
+        int count = 1;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n' && i + 1 < content.length) {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        int line = 1;
+        for (int i = 0; i < content.length && line < count; i++) {
+            if (content[i] == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * 改行を含めた行の終端オフセット
+     */
+    private static int lineEnd(int[] lineStarts, byte[] content, int index) {
+        return index + 1 < lineStarts.length ? lineStarts[index + 1] : content.length;
+    }
+}
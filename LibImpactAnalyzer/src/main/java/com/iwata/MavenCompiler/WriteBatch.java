@@ -0,0 +1,128 @@
+package com.iwata.MavenCompiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+  1回の反復で修正したファイルの内容をまとめて書き込むバッチ
+  修正処理中はメモリ上に保持し、反復の最後に並列で書き込む
+  書き込みは同じディレクトリの一時ファイルに書いてから置き換える（ATOMIC_MOVE）ため、
+  途中でプロセスが終了しても元のファイルが途中まで書かれた状態にはならない
+ **/
+public class WriteBatch {
+
+    private static final Logger logger = LogManager.getLogger(WriteBatch.class);
+
+    private final Map<Path, byte[]> pending = new LinkedHashMap<>();
+
+    /**
+     * 書き込み内容を追加（元の内容と同一の場合は追加せずfalseを返す）
+     */
+    public synchronized boolean add(Path target, byte[] originalContent, byte[] newContent) {
+        if (Arrays.equals(originalContent, newContent)) {
+            logger.debug("内容に変更がないため書き込みをスキップします: {}", target);
+            return false;
+        }
+        pending.put(target, newContent);
+        return true;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * 保持しているファイルを並列に書き込み、バッチを空にする
+     * 失敗したファイルがあっても他のファイルの書き込みは続行し、失敗したファイルの一覧を返す
+     */
+    public List<Path> flush(CompilationMetrics metrics) {
+        List<Map.Entry<Path, byte[]>> entries;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+            entries = new ArrayList<>(pending.entrySet());
+            pending.clear();
+        }
+
+        CompilationMetrics.PhaseTimer timer = CompilationMetrics.PhaseTimer.start();
+        int threads = Math.min(entries.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = TaskExecutors.newExecutor("write-batch", threads);
+        List<Path> failed = new ArrayList<>();
+        try {
+            List<Future<?>> futures = new ArrayList<>(entries.size());
+            for (Map.Entry<Path, byte[]> entry : entries) {
+                futures.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    writeAtomically(entry.getKey(), entry.getValue());
+                    metrics.recordWrite(entry.getValue().length, System.nanoTime() - start);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    logger.error("ファイルの書き込みに失敗しました: {} - {}", entries.get(i).getKey(), 
+                                 e.getCause().getMessage(), e.getCause());
+                    failed.add(entries.get(i).getKey());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.error("ファイルの書き込み中に割り込まれました: {}", entries.get(i).getKey());
+                    failed.add(entries.get(i).getKey());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        metrics.recordPhase(CompilationMetrics.Phase.FILE_WRITE, timer);
+        logger.info("{} ファイルを書き込みました", entries.size() - failed.size());
+        return failed;
+    }
+
+    /**
+     * 一時ファイルに書き込んでから対象ファイルを置き換える
+     */
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // 置き換えの前に内容をディスクに反映する（クラッシュ後に空のファイルに置き換わらないため）
+                channel.force(true);
+            }
+            copyPermissions(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 一時ファイル（0600で作成される）に元のファイルの権限を設定（元のファイルがない場合・POSIX以外では何もしない）
+     */
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+        if (!Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException e) {
+            logger.debug("POSIXの権限に対応していないため権限をコピーしません: {}", target);
+        }
+    }
+}
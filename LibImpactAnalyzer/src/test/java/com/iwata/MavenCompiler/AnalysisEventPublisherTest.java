@@ -0,0 +1,68 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for AnalysisEventPublisher.
+ */
+public class AnalysisEventPublisherTest {
+
+    @Test
+    public void deliversEventsInOrderOnDemand() throws Exception {
+        List<AnalysisEvent> received = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        AnalysisEventPublisher events = new AnalysisEventPublisher(2);
+        events.subscribe(new Flow.Subscriber<AnalysisEvent>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(AnalysisEvent event) {
+                received.add(event);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        // バッファ（2件）より多いイベントは購読者の要求に合わせて送られる
+        for (int i = 1; i <= 10; i++) {
+            events.publish(new AnalysisEvent.IterationFinished("MAIN", i, 1, 1, IterationController.Decision.CONTINUE));
+        }
+        events.close();
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(10, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i + 1, ((AnalysisEvent.IterationFinished) received.get(i)).getIteration());
+        }
+    }
+
+    @Test
+    public void ignoresEventsWithoutSubscribers() {
+        AnalysisEventPublisher events = new AnalysisEventPublisher();
+        events.publish(new AnalysisEvent.ElementDeleted("MAIN-1", "A.java", "CtImport"));
+        events.close();
+        events.publish(new AnalysisEvent.ElementDeleted("MAIN-1", "A.java", "CtImport"));
+    }
+}
@@ -0,0 +1,188 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for AnalyzerDaemon.
+ */
+public class AnalyzerDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void parsesQueryParameters() {
+        Map<String, String> params = AnalyzerDaemon.parseQuery("projectDir=%2Ftmp%2Fa+b&combined&priority=3");
+        assertEquals(Map.of("projectDir", "/tmp/a b", "combined", "", "priority", "3"), params);
+        assertTrue(AnalyzerDaemon.parseQuery(null).isEmpty());
+    }
+
+    @Test
+    public void ordersJobsByPriorityThenSubmission() {
+        AnalysisConfig config = AnalysisConfig.builder(tempDir).build();
+        PriorityQueue<AnalyzerDaemon.Job> queue = new PriorityQueue<>();
+        queue.add(new AnalyzerDaemon.Job(1, 0, config));
+        queue.add(new AnalyzerDaemon.Job(2, 5, config));
+        queue.add(new AnalyzerDaemon.Job(3, 0, config));
+        queue.add(new AnalyzerDaemon.Job(4, 5, config));
+
+        StringBuilder order = new StringBuilder();
+        while (!queue.isEmpty()) {
+            order.append(queue.poll().toJson().replaceAll("\\{\"id\":(\\d+).*", "$1"));
+        }
+        assertEquals("2413", order.toString());
+    }
+
+    @Test
+    public void submitsAndStreamsJobWithToken() throws Exception {
+        Path tokenFile = tempDir.resolve("daemon.token");
+        try (AnalyzerDaemon daemon = new AnalyzerDaemon(0, 1, tokenFile).start()) {
+            assertEquals(daemon.getToken(), Files.readString(tokenFile));
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+            }
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + daemon.getPort() + "/jobs";
+
+            // pom.xmlのないプロジェクトはライブラリの削除で失敗する
+            Path project = Files.createDirectories(tempDir.resolve("project"));
+            String query = "?projectDir=" + URLEncoder.encode(project.toString(), StandardCharsets.UTF_8)
+                           + "&library=org.lib:lib";
+            HttpRequest.Builder submit = HttpRequest.newBuilder(URI.create(base + query))
+                .POST(HttpRequest.BodyPublishers.noBody());
+            assertEquals(401, send(client, submit.copy()).statusCode());
+            assertEquals(403, send(client, submit.copy().header("Authorization", "Bearer " + daemon.getToken())
+                                                  .header("Origin", "http://example.com")).statusCode());
+
+            HttpResponse<String> accepted = send(client, submit.copy()
+                .header("Authorization", "Bearer " + daemon.getToken()));
+            assertEquals(202, accepted.statusCode());
+            Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(accepted.body());
+            assertTrue(id.find());
+
+            HttpResponse<String> stream = send(client, HttpRequest.newBuilder(URI.create(base + "/" + id.group(1) + "/stream"))
+                .header("Authorization", "Bearer " + daemon.getToken()));
+            List<String> lines = stream.body().lines().toList();
+            assertTrue(lines.get(lines.size() - 1).contains("\"status\":\"FAILED\""));
+
+            // 終了したジョブは保持件数を超えると一覧から削除される
+            daemon.pruneJobs(0, Long.MAX_VALUE);
+            assertEquals(404, send(client, HttpRequest.newBuilder(URI.create(base + "/" + id.group(1)))
+                .header("Authorization", "Bearer " + daemon.getToken())).statusCode());
+        }
+        assertTrue(Files.notExists(tokenFile));
+    }
+
+    @Test
+    public void streamsDoNotBlockOtherRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (AnalyzerDaemon daemon = new AnalyzerDaemon(0, 1, tempDir.resolve("daemon.token"),
+                                                        config -> new BlockingCleaner(config, release)).start()) {
+            HttpClient client = HttpClient.newHttpClient();
+            long id = daemon.submit(AnalysisConfig.builder(tempDir).build(), 0);
+            URI job = URI.create("http://localhost:" + daemon.getPort() + "/jobs/" + id);
+
+            // HTTPの処理スレッド数（4）を超えるストリームを同時に開く
+            List<InputStream> streams = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(job + "/stream"))
+                    .header("Authorization", "Bearer " + daemon.getToken()).build();
+                streams.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                                  .get(10, TimeUnit.SECONDS).body());
+            }
+            HttpResponse<String> status = client.sendAsync(HttpRequest.newBuilder(job)
+                    .header("Authorization", "Bearer " + daemon.getToken()).build(), HttpResponse.BodyHandlers.ofString())
+                .get(10, TimeUnit.SECONDS);
+            assertEquals(200, status.statusCode());
+
+            release.countDown();
+            for (InputStream stream : streams) {
+                try (stream) {
+                    List<String> lines = new String(stream.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+                    assertTrue(lines.get(lines.size() - 1).contains("\"status\":\"DONE\""));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void keepsWorkerAliveAfterError() throws Exception {
+        CountDownLatch release = new CountDownLatch(0);
+        List<AnalysisConfig> created = new ArrayList<>();
+        try (AnalyzerDaemon daemon = new AnalyzerDaemon(0, 1, tempDir.resolve("daemon.token"), config -> {
+                 created.add(config);
+                 if (created.size() == 1) {
+                     return new BlockingCleaner(config, release) {
+                         @Override
+                         public AnalysisResult runAnalysis() {
+                             throw new StackOverflowError("analysis");
+                         }
+                     };
+                 }
+                 return new BlockingCleaner(config, release);
+             }).start()) {
+            HttpClient client = HttpClient.newHttpClient();
+            long failed = daemon.submit(AnalysisConfig.builder(tempDir).build(), 0);
+            long next = daemon.submit(AnalysisConfig.builder(tempDir).build(), 0);
+
+            String failedStatus = lastStreamLine(client, daemon, failed);
+            assertTrue(failedStatus.contains("\"status\":\"FAILED\""));
+            assertTrue(failedStatus.contains("StackOverflowError"));
+            // 同じワーカー・同じプロジェクトの次のジョブが実行される
+            assertTrue(lastStreamLine(client, daemon, next).contains("\"status\":\"DONE\""));
+        }
+    }
+
+    /**
+     * 解析を行わず、releaseが開くまで待機する解析
+     */
+    private static class BlockingCleaner extends MavenCompilationCleaner {
+        private final CountDownLatch release;
+
+        BlockingCleaner(AnalysisConfig config, CountDownLatch release) {
+            super(config);
+            this.release = release;
+        }
+
+        @Override
+        public AnalysisResult runAnalysis() throws Exception {
+            release.await();
+            return null;
+        }
+    }
+
+    private static String lastStreamLine(HttpClient client, AnalyzerDaemon daemon, long id) throws Exception {
+        HttpResponse<String> stream = send(client, HttpRequest.newBuilder(
+                URI.create("http://localhost:" + daemon.getPort() + "/jobs/" + id + "/stream"))
+            .header("Authorization", "Bearer " + daemon.getToken()));
+        List<String> lines = stream.body().lines().toList();
+        return lines.get(lines.size() - 1);
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,92 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for BuildOutputPipeline.
+ */
+public class BuildOutputPipelineTest {
+
+    private static ByteArrayInputStream lines(int count) {
+        String text = IntStream.range(0, count).mapToObj(i -> "line " + i).collect(Collectors.joining("\n", "", "\n"));
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void keepsDeliveringLinesWhenSinkFails() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        BuildOutputPipeline.Sink failing = line -> {
+            writes.incrementAndGet();
+            throw new IOException("disk full");
+        };
+        BuildOutputPipeline output = new BuildOutputPipeline(lines(50), failing, 4, 10).start();
+
+        List<String> received = new ArrayList<>();
+        String line;
+        while ((line = output.nextLine()) != null) {
+            received.add(line);
+        }
+        assertEquals(50, received.size());
+        assertEquals("line 49", received.get(49));
+        // 失敗後は破棄用のSinkに切り替わる
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    public void drainsToTheEndAfterConsumerStops() throws Exception {
+        BuildOutputPipeline output = new BuildOutputPipeline(lines(1000), BuildOutputPipeline.DISCARD, 1, 3).start();
+        assertEquals("line 0", output.nextLine());
+        output.close();
+        assertNull(output.nextLine());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (output.getLineCount() < 1000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1000, output.getLineCount());
+        assertEquals(List.of("line 997", "line 998", "line 999"), output.tail());
+    }
+
+    @Test
+    public void sharesRotationBetweenSinksOfSameFile(@TempDir Path tempDir) throws Exception {
+        Path log = tempDir.resolve("build.log");
+        BuildOutputPipeline.Sink first = BuildOutputPipeline.openShared(log, 100, 1);
+        BuildOutputPipeline.Sink second = BuildOutputPipeline.openShared(tempDir.resolve(".").resolve("build.log"), 100, 1);
+        assertEquals(2, BuildOutputPipeline.references(log));
+
+        // 10文字ずつ交互に15行（合計150文字）書き込むと、100文字の時点で1回だけローテーションする
+        for (int i = 0; i < 15; i++) {
+            (i % 2 == 0 ? first : second).write("line-" + String.format("%04d", i));
+        }
+        first.flush();
+        assertEquals(10, Files.readAllLines(tempDir.resolve("build.log.1")).size());
+        assertEquals(5, Files.readAllLines(log).size());
+
+        first.close();
+        first.close();
+        assertEquals(1, BuildOutputPipeline.references(log));
+        second.write("after first closed");
+        second.close();
+        assertEquals(0, BuildOutputPipeline.references(log));
+
+        // close後の書き込みは破棄され、ファイルを開き直さない
+        Files.delete(log);
+        second.write("after close");
+        assertFalse(Files.exists(log));
+    }
+}
@@ -0,0 +1,67 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for per-file edits in CompilationMetrics.
+ */
+public class CompilationMetricsTest {
+
+    private static final String MAIN = File.separator + "p" + File.separator + "src" + File.separator + "A.java";
+    private static final String TEST = File.separator + "p" + File.separator + "tests" + File.separator + "ATest.java";
+
+    @Test
+    public void aggregatesEditsPerFile() {
+        CompilationMetrics metrics = new CompilationMetrics();
+        metrics.addDeletedLines(3, MAIN);
+        metrics.incrementDeletedElements("CtImportImpl", MAIN);
+        metrics.incrementDeletedElements("CtImportImpl", MAIN);
+        metrics.incrementDeletedElements("CtInvocationImpl", TEST);
+        metrics.addDeletedLines(1, TEST);
+
+        List<CompilationMetrics.FileEdit> edits = metrics.getFileEdits();
+        assertEquals(2, edits.size());
+        CompilationMetrics.FileEdit main = edits.get(0);
+        assertEquals(MAIN, main.getFilePath());
+        assertFalse(main.isTestFile());
+        assertEquals(3, main.getDeletedLines());
+        assertEquals(2, main.getDeletedElements());
+        assertTrue(edits.get(1).isTestFile());
+        assertEquals(1, edits.get(1).getDeletedElementsByType().get("CtInvocationImpl"));
+    }
+
+    @Test
+    public void fileEditsAreSnapshots() {
+        CompilationMetrics metrics = new CompilationMetrics();
+        metrics.addDeletedLines(1, MAIN);
+        List<CompilationMetrics.FileEdit> edits = metrics.getFileEdits();
+        metrics.addDeletedLines(5, MAIN);
+        assertEquals(1, edits.get(0).getDeletedLines());
+        assertEquals(6, metrics.getFileEdits().get(0).getDeletedLines());
+    }
+
+    @Test
+    public void revertsEditsOfFailedWrite() {
+        CompilationMetrics metrics = new CompilationMetrics();
+        metrics.addDeletedLines(2, MAIN);
+        metrics.incrementDeletedElements("CtImportImpl", MAIN);
+        CompilationMetrics.FileEdit before = metrics.copyFileEdit(MAIN);
+        metrics.addDeletedLines(4, MAIN);
+        metrics.incrementDeletedElements("CtInvocationImpl", MAIN);
+
+        metrics.revertFileEdit(MAIN, before);
+        assertEquals(2, metrics.getDeletedMainLines());
+        assertEquals(1, metrics.getFileEdits().get(0).getDeletedElements());
+        assertFalse(metrics.getFileEdits().get(0).getDeletedElementsByType().containsKey("CtInvocationImpl"));
+
+        metrics.revertFileEdit(MAIN, null);
+        assertEquals(0, metrics.getDeletedMainLines());
+        assertTrue(metrics.getFileEdits().isEmpty());
+    }
+}
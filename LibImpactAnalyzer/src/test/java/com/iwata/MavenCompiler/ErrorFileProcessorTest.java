@@ -0,0 +1,123 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for ErrorFileProcessor.
+ */
+public class ErrorFileProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void addsReturnOnlyToMethodTouchedByDeletion() throws Exception {
+        // b にもreturn文はないが、削除の対象ではないため変更しない
+        String b = "    public int b(int x) {\n"
+                   + "        throw new UnsupportedOperationException();\n"
+                   + "    }\n";
+        String result = fix("package app;\n"
+                            + "\n"
+                            + "public class Sample {\n"
+                            + "    public int a(int x) {\n"
+                            + "        return Missing.compute(x);\n"
+                            + "    }\n"
+                            + "\n"
+                            + b
+                            + "}\n", 5);
+
+        assertFalse(result.contains("Missing"));
+        assertTrue(methodBody(result, "a").contains("return0;"));
+        assertTrue(result.contains(compact(b)));
+    }
+
+    @Test
+    public void treatsEnclosingMethodOfLambdaAsTouched() throws Exception {
+        String result = fix("package app;\n"
+                            + "\n"
+                            + "import java.util.List;\n"
+                            + "\n"
+                            + "public class Sample {\n"
+                            + "    public int count(List<String> items) {\n"
+                            + "        items.forEach(item -> {\n"
+                            + "            if (item.isEmpty()) return;\n"
+                            + "        });\n"
+                            + "        return Missing.count(items);\n"
+                            + "    }\n"
+                            + "}\n", 10);
+
+        // ラムダ式のreturn文はメソッドのreturn文として数えない
+        assertFalse(result.contains("Missing"));
+        assertTrue(result.contains("if(item.isEmpty())return;"));
+        assertTrue(methodBody(result, "count").contains("return0;"));
+    }
+
+    @Test
+    public void treatsAnonymousClassMethodAsTouched() throws Exception {
+        String outer = "    public int outer(int x) {\n"
+                       + "        IntSupplier supplier = new IntSupplier() {\n";
+        String result = fix("package app;\n"
+                            + "\n"
+                            + "import java.util.function.IntSupplier;\n"
+                            + "\n"
+                            + "public class Sample {\n"
+                            + outer
+                            + "            @Override\n"
+                            + "            public int getAsInt() {\n"
+                            + "                return Missing.compute(x);\n"
+                            + "            }\n"
+                            + "        };\n"
+                            + "        return supplier.getAsInt();\n"
+                            + "    }\n"
+                            + "}\n", 10);
+
+        // 削除された文に最も近いメソッド（匿名クラスのgetAsInt）にreturn文を追加し、外側のメソッドは変更しない
+        assertFalse(result.contains("Missing"));
+        assertTrue(methodBody(result, "getAsInt").contains("return0;"));
+        assertTrue(result.contains(compact(outer)));
+        assertTrue(result.endsWith("};returnsupplier.getAsInt();}}"));
+    }
+
+    /**
+     * 指定行のエラーを修正した結果のソース
+     */
+    private String fix(String source, int errorLine) throws IOException {
+        Path file = tempDir.resolve("src/main/java/app/Sample.java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source, StandardCharsets.UTF_8);
+        ErrorInfo errorInfo = new ErrorInfo(file.getFileName().toString(), file.toString());
+        errorInfo.addErrorLine(errorLine);
+
+        ErrorFileProcessor processor = new ErrorFileProcessor(AnalysisConfig.builder(tempDir).build(),
+                                                              new AnalysisEventPublisher());
+        CompilationMetrics metrics = new CompilationMetrics();
+        WriteBatch writeBatch = new WriteBatch();
+        assertTrue(processor.processErrorFile(file.toFile(), errorInfo, metrics, writeBatch));
+        assertEquals(1, writeBatch.size());
+        assertTrue(writeBatch.flush(metrics).isEmpty());
+        // 出力は整形し直される場合があるため、空白を除いて比較する
+        return compact(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    private static String compact(String source) {
+        return source.replaceAll("\\s+", "");
+    }
+
+    /**
+     * メソッドの宣言から次のメソッドの宣言（またはファイル末尾）までのテキスト（空白を除いたソース）
+     */
+    private static String methodBody(String source, String name) {
+        int start = source.indexOf(name + "(");
+        int end = source.indexOf("public", start);
+        return source.substring(start, end < 0 ? source.length() : end);
+    }
+}
@@ -0,0 +1,51 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for ErrorInfo.
+ */
+public class ErrorInfoTest {
+
+    @Test
+    public void sortsAndDeduplicatesDiagnostics() {
+        ErrorInfo info = new ErrorInfo("A.java", "/tmp/A.java");
+        info.addDiagnostic(17, 5, DiagnosticKey.CANNOT_FIND_SYMBOL);
+        info.addDiagnostic(3, 19, DiagnosticKey.PACKAGE_DOES_NOT_EXIST);
+        info.addDiagnostic(17, 5, DiagnosticKey.CANNOT_FIND_SYMBOL);
+        info.addDiagnostic(17, 2, DiagnosticKey.INCOMPATIBLE_TYPES);
+        info.addDiagnostic(3, 19, DiagnosticKey.PACKAGE_DOES_NOT_EXIST);
+
+        assertEquals(3, info.getDiagnosticCount());
+        assertArrayEquals(new int[] {3, 17}, info.getErrorLines());
+
+        assertEquals(3, info.getLine(0));
+        assertEquals(19, info.getColumn(0));
+        assertEquals(DiagnosticKey.PACKAGE_DOES_NOT_EXIST, info.getKey(0));
+        assertEquals(17, info.getLine(1));
+        assertEquals(2, info.getColumn(1));
+        assertEquals(DiagnosticKey.INCOMPATIBLE_TYPES, info.getKey(1));
+        assertEquals(5, info.getColumn(2));
+        assertEquals(DiagnosticKey.CANNOT_FIND_SYMBOL, info.getKey(2));
+    }
+
+    @Test
+    public void containsLineAfterFurtherAdditions() {
+        ErrorInfo info = new ErrorInfo("A.java", "/tmp/A.java");
+        info.addErrorLine(10);
+        assertTrue(info.containsLine(10));
+        assertFalse(info.containsLine(11));
+
+        info.addErrorLine(11);
+        info.addErrorLine(100000);
+        assertTrue(info.containsLine(11));
+        assertTrue(info.containsLine(100000));
+        assertFalse(info.containsLine(12));
+        assertArrayEquals(new int[] {10, 11, 100000}, info.getErrorLines());
+    }
+}
@@ -0,0 +1,97 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for ImpactEstimator.
+ */
+public class ImpactEstimatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void estimatesImpactFromLibraryJar() throws Exception {
+        Path project = tempDir.resolve("project");
+        write(project.resolve("pom.xml"),
+              "<project><properties><lib.version>1.2</lib.version></properties>\n"
+              + "<repositories><repository><id>local</id><url>${project.baseUri}repo</url></repository></repositories>\n"
+              + "<dependencies><dependency><groupId>org.lib</groupId><artifactId>lib</artifactId>"
+              + "<version>${lib.version}</version></dependency></dependencies></project>\n");
+        Path jar = project.resolve("repo/org/lib/lib/1.2/lib-1.2.jar");
+        Files.createDirectories(jar.getParent());
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : List.of("org/lib/Api.class", "org/lib/Api$Inner.class", "org/lib/Api$1.class",
+                                        "META-INF/MANIFEST.MF")) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.closeEntry();
+            }
+        }
+        Path user = write(project.resolve("src/app/User.java"),
+              "package app;\n"
+              + "\n"
+              + "import org.lib.Api;\n"
+              + "\n"
+              + "public class User {\n"
+              + "    public int plain() { return 1; }\n"
+              + "\n"
+              + "    public int call() {\n"
+              + "        return new Api().value() + org.lib.Api.Inner.CONSTANT;\n"
+              + "    }\n"
+              + "}\n");
+        write(project.resolve("src/app/Other.java"), "package app;\n\npublic class Other {\n}\n");
+        write(project.resolve("tests/app/UserTest.java"),
+              "package app;\n"
+              + "\n"
+              + "public class UserTest {\n"
+              + "    public void testCall() {\n"
+              + "        new User().call();\n"
+              + "    }\n"
+              + "}\n");
+
+        AnalysisConfig config = AnalysisConfig.builder(project).removeLibrary("org.lib", "lib").build();
+        assertEquals(jar.toAbsolutePath(), ImpactEstimator.locateLibraryJar(config).toAbsolutePath());
+
+        ImpactEstimator.Estimate estimate = ImpactEstimator.estimate(config);
+        assertEquals(3, estimate.getScannedFiles());
+        assertEquals(2, estimate.getContents().getTypeCount());
+        assertEquals(1, estimate.getImpactedFiles().size());
+        ImpactEstimator.FileImpact impact = estimate.getImpactedFiles().get(0);
+        assertEquals(List.of("User#call"), List.copyOf(impact.getMethods()));
+        assertTrue(estimate.getIndirectTests().contains("UserTest#testCall"));
+
+        Map<String, ErrorInfo> expected = estimate.toExpectedErrors(false);
+        ErrorInfo errorInfo = expected.get(user.toString());
+        assertEquals(3, errorInfo.getDiagnosticCount());
+        assertEquals(DiagnosticKey.PACKAGE_DOES_NOT_EXIST, errorInfo.getKey(0));
+        assertEquals(3, errorInfo.getLine(0));
+        assertEquals(15, errorInfo.getColumn(0));
+        assertEquals(9, errorInfo.getLine(1));
+        assertEquals(DiagnosticKey.CANNOT_FIND_SYMBOL, errorInfo.getKey(1));
+        assertEquals(DiagnosticKey.PACKAGE_DOES_NOT_EXIST, errorInfo.getKey(2));
+        assertTrue(estimate.toExpectedErrors(true).isEmpty());
+    }
+
+    @Test
+    public void comparesVersionsNumerically() {
+        assertTrue(ImpactEstimator.compareVersions("1.10", "1.9") > 0);
+        assertTrue(ImpactEstimator.compareVersions("2.0-beta", "2.0-alpha") > 0);
+        assertEquals(0, ImpactEstimator.compareVersions("1.0", "1.0.0"));
+    }
+
+    private static Path write(Path path, String content) throws Exception {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for InProcessCompiler.
+ */
+public class InProcessCompilerTest {
+
+    private static final String POM =
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+        + "  <modelVersion>4.0.0</modelVersion>\n"
+        + "  <groupId>test</groupId><artifactId>in-process</artifactId><version>1</version>\n"
+        + "  <properties>\n"
+        + "    <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n"
+        + "    <maven.compiler.release>17</maven.compiler.release>\n"
+        + "  </properties>\n"
+        + "  <dependencies>\n"
+        + "    <dependency><groupId>junit</groupId><artifactId>junit</artifactId><version>4.13.2</version>"
+        + "<scope>test</scope></dependency>\n"
+        + "  </dependencies>\n"
+        + "  <build><sourceDirectory>src</sourceDirectory><testSourceDirectory>tests</testSourceDirectory>"
+        + "%s</build>\n"
+        + "</project>\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void convertsCompilerLevelToRelease() {
+        assertEquals("", InProcessCompiler.toRelease(null));
+        assertEquals("8", InProcessCompiler.toRelease("1.8"));
+        assertEquals("11", InProcessCompiler.toRelease("11"));
+        assertNull(InProcessCompiler.toRelease("99"));
+        assertNull(InProcessCompiler.toRelease("1.6"));
+    }
+
+    @Test
+    public void fallsBackWhenPomConfiguresAnnotationProcessors() throws Exception {
+        Path project = tempDir.resolve("project");
+        write(project.resolve("pom.xml"), String.format(POM,
+              "<plugins><plugin><artifactId>maven-compiler-plugin</artifactId><configuration>"
+              + "<annotationProcessorPaths><path><groupId>org.projectlombok</groupId>"
+              + "<artifactId>lombok</artifactId></path></annotationProcessorPaths>"
+              + "</configuration></plugin></plugins>"));
+        AnalysisConfig config = AnalysisConfig.builder(project).build();
+        // クラスパスを解決する前にpom.xmlの設定で判定する
+        assertNull(InProcessCompiler.createIfAvailable(
+            config, new ProjectClasspath(project, tempDir.resolve("build.log"), null), new AnalysisEventPublisher()));
+    }
+
+    @Test
+    public void reportsSameDiagnosticsAsMaven() throws Exception {
+        assumeTrue(mavenAvailable(), "mvn is not available");
+        Path project = tempDir.resolve("project");
+        write(project.resolve("pom.xml"), String.format(POM, ""));
+        // メインコードからtestスコープの依存関係（JUnit）は参照できない
+        Path main = write(project.resolve("src/app/Main.java"),
+              "package app;\n"
+              + "\n"
+              + "import org.junit.Assert;\n"
+              + "import missing.Thing;\n"
+              + "\n"
+              + "public class Main {\n"
+              + "    public int value() { return 1; }\n"
+              + "}\n");
+        write(project.resolve("tests/app/MainTest.java"),
+              "package app;\n"
+              + "\n"
+              + "import org.junit.Test;\n"
+              + "\n"
+              + "public class MainTest {\n"
+              + "    @Test\n"
+              + "    public void value() {\n"
+              + "        new Main().value();\n"
+              + "        Unknown unknown = null;\n"
+              + "    }\n"
+              + "}\n");
+        AnalysisConfig config = AnalysisConfig.builder(project).buildOutputLog(tempDir.resolve("build.log")).build();
+        try (MavenCompiler maven = new MavenCompiler(config)) {
+            InProcessCompiler inProcess = InProcessCompiler.createIfAvailable(
+                config, new ProjectClasspath(project, config.getBuildOutputLog(), null), new AnalysisEventPublisher());
+            assertNotNull(inProcess);
+
+            Map<String, String> mainErrors = lines(maven.runMavenCompileAndExtractErrors());
+            assertFalse(mainErrors.isEmpty());
+            Map<String, String> inProcessErrors = lines(inProcess.compileAndExtractErrors());
+            inProcessErrors.remove("MainTest.java");
+            assertEquals(mainErrors, inProcessErrors);
+
+            // メインコードを修正した後はテストコードの診断が一致する
+            write(main, "package app;\n\npublic class Main {\n    public int value() { return 1; }\n}\n");
+            Map<String, String> testErrors = lines(maven.runMavenTestCompileAndExtractErrors());
+            assertEquals(Map.of("MainTest.java", "[9]"), testErrors);
+            assertEquals(testErrors, lines(inProcess.compileAndExtractErrors()));
+        }
+    }
+
+    /**
+     * ファイル名 → エラー行
+     */
+    private static Map<String, String> lines(Map<String, ErrorInfo> errorFiles) {
+        return errorFiles.values().stream().collect(Collectors.toMap(
+            ErrorInfo::getFileName, info -> Arrays.toString(info.getErrorLines()), (a, b) -> a, TreeMap::new));
+    }
+
+    private static boolean mavenAvailable() {
+        try {
+            Process process = new ProcessBuilder(CleanerConfig.getMavenCmd(), "-v").redirectErrorStream(true).start();
+            process.getInputStream().transferTo(java.io.OutputStream.nullOutputStream());
+            return process.waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static Path write(Path path, String content) throws Exception {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
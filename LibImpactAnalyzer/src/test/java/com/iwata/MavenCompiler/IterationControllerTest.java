@@ -0,0 +1,74 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for IterationController.
+ */
+public class IterationControllerTest {
+
+    private static final AnalysisConfig CONFIG = AnalysisConfig.builder(Paths.get("target")).build();
+
+    @Test
+    public void continuesWhileErrorsShrink() {
+        IterationController controller = new IterationController("MAIN", new CompilationMetrics(), CONFIG, Long.MAX_VALUE);
+        assertTrue(controller.shouldStart(1));
+        assertTrue(controller.afterIteration(1, errors("A.java", 1, 2, 3), 1));
+        assertTrue(controller.shouldStart(2));
+        assertTrue(controller.afterIteration(2, errors("A.java", 5), 1));
+        assertEquals(IterationController.Decision.CONTINUE, controller.getLastDecision());
+    }
+
+    @Test
+    public void stopsWhenErrorSetRepeats() {
+        IterationController controller = new IterationController("MAIN", new CompilationMetrics(), CONFIG, Long.MAX_VALUE);
+        controller.shouldStart(1);
+        assertTrue(controller.afterIteration(1, errors("A.java", 4, 9), 1));
+        controller.shouldStart(2);
+        assertTrue(controller.afterIteration(2, errors("A.java", 7), 1));
+        controller.shouldStart(3);
+        assertFalse(controller.afterIteration(3, errors("A.java", 4, 9), 1));
+        assertEquals(IterationController.Decision.OSCILLATING, controller.getLastDecision());
+    }
+
+    @Test
+    public void stopsWhenErrorCountStalls() {
+        IterationController controller = new IterationController("TEST", new CompilationMetrics(), CONFIG, Long.MAX_VALUE);
+        controller.shouldStart(1);
+        assertTrue(controller.afterIteration(1, errors("A.java", 1), 1));
+        for (int i = 2; i <= CONFIG.getStallLimit(); i++) {
+            controller.shouldStart(i);
+            assertTrue(controller.afterIteration(i, errors("A.java", i * 10), 1));
+        }
+        int last = CONFIG.getStallLimit() + 1;
+        controller.shouldStart(last);
+        assertFalse(controller.afterIteration(last, errors("A.java", last * 10), 1));
+        assertEquals(IterationController.Decision.STALLED, controller.getLastDecision());
+    }
+
+    @Test
+    public void stopsWhenBudgetIsSpent() {
+        CompilationMetrics metrics = new CompilationMetrics();
+        IterationController controller = new IterationController("MAIN", metrics, CONFIG, System.currentTimeMillis() - 1);
+        assertFalse(controller.shouldStart(1));
+        assertEquals(IterationController.Decision.BUDGET_EXHAUSTED, controller.getLastDecision());
+        assertEquals(1, metrics.getIterationDecisions().size());
+    }
+
+    private static Map<String, ErrorInfo> errors(String file, int... lines) {
+        ErrorInfo info = new ErrorInfo(file, "/tmp/" + file);
+        for (int line : lines) {
+            info.addDiagnostic(line, 1, DiagnosticKey.CANNOT_FIND_SYMBOL);
+        }
+        Map<String, ErrorInfo> errors = new LinkedHashMap<>();
+        errors.put(info.getFilePath(), info);
+        return errors;
+    }
+}
@@ -0,0 +1,103 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for LineDiff.
+ */
+public class LineDiffTest {
+
+    @Test
+    public void identicalTextHasNoDifference() {
+        LineDiff.Result result = LineDiff.diff("a\nb\nc\n", "a\nb\nc\n");
+        assertEquals(0, result.getAdded());
+        assertEquals(0, result.getDeleted());
+        assertEquals(0, result.getChanged());
+    }
+
+    @Test
+    public void countsPureDeletion() {
+        LineDiff.Result result = LineDiff.diff("a\nb\nc\nd\n", "a\nd\n");
+        assertEquals(0, result.getAdded());
+        assertEquals(2, result.getDeleted());
+        assertEquals(0, result.getChanged());
+    }
+
+    @Test
+    public void separateDeletionAndAdditionAreNotCancelledOut() {
+        LineDiff.Result result = LineDiff.diff("a\nb\nc\nd\n", "a\nc\nd\ne\n");
+        assertEquals(1, result.getAdded());
+        assertEquals(1, result.getDeleted());
+        assertEquals(0, result.getChanged());
+    }
+
+    @Test
+    public void replacedLinesInOneHunkAreChanges() {
+        LineDiff.Result result = LineDiff.diff("x\n  a();\n  b();\n  c();\ny\n", "x\n  fail();\ny\n");
+        assertEquals(0, result.getAdded());
+        assertEquals(2, result.getDeleted());
+        assertEquals(1, result.getChanged());
+    }
+
+    @Test
+    public void ignoresLineSeparatorStyleAndMissingFinalNewline() {
+        LineDiff.Result result = LineDiff.diff("a\r\nb\r\nc", "a\nb\nc\n");
+        assertEquals(0, result.getAdded());
+        assertEquals(0, result.getDeleted());
+        assertEquals(0, result.getChanged());
+    }
+
+    @Test
+    public void handlesEmptyText() {
+        assertEquals(3, LineDiff.diff("a\nb\nc\n", "").getDeleted());
+        assertEquals(2, LineDiff.diff("", "a\nb").getAdded());
+    }
+
+    @Test
+    public void editCountMatchesLongestCommonSubsequence() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> a = randomLines(random);
+            List<String> b = randomLines(random);
+            LineDiff.Result result = LineDiff.diff(join(a), join(b));
+
+            int lcs = lcs(a, b);
+            int removed = result.getDeleted() + result.getChanged();
+            int inserted = result.getAdded() + result.getChanged();
+            assertEquals(a.size() - lcs, removed, "round " + round);
+            assertEquals(b.size() - lcs, inserted, "round " + round);
+        }
+    }
+
+    private static List<String> randomLines(Random random) {
+        int count = random.nextInt(30);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add("line" + random.nextInt(6));
+        }
+        return lines;
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static int lcs(List<String> a, List<String> b) {
+        int[][] table = new int[a.size() + 1][b.size() + 1];
+        for (int i = 1; i <= a.size(); i++) {
+            for (int j = 1; j <= b.size(); j++) {
+                table[i][j] = a.get(i - 1).equals(b.get(j - 1))
+                    ? table[i - 1][j - 1] + 1
+                    : Math.max(table[i - 1][j], table[i][j - 1]);
+            }
+        }
+        return table[a.size()][b.size()];
+    }
+}
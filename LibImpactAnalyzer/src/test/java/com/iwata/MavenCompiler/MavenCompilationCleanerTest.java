@@ -0,0 +1,93 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for MavenCompilationCleaner.
+ */
+public class MavenCompilationCleanerTest {
+
+    private static final String USER =
+        "package app;\n"
+        + "\n"
+        + "import org.lib.Api;\n"
+        + "\n"
+        + "public class User {\n"
+        + "    public int call() {\n"
+        + "        return new Api().value();\n"
+        + "    }\n"
+        + "}\n";
+
+    private static final String FIXED_USER =
+        "package app;\n"
+        + "\n"
+        + "public class User {\n"
+        + "    public int call() {\n"
+        + "        return 0;\n"
+        + "    }\n"
+        + "}\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void doesNotSeedFilesReplayedFromCache() throws Exception {
+        Path project = tempDir.resolve("project");
+        write(project.resolve("pom.xml"),
+              "<project><repositories><repository><id>local</id><url>${project.baseUri}repo</url></repository>"
+              + "</repositories>\n<dependencies><dependency><groupId>org.lib</groupId><artifactId>lib</artifactId>"
+              + "<version>1.0</version></dependency></dependencies></project>\n");
+        Path jar = project.resolve("repo/org/lib/lib/1.0/lib-1.0.jar");
+        Files.createDirectories(jar.getParent());
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("org/lib/Api.class"));
+            zip.closeEntry();
+        }
+        Path user = write(project.resolve("src/app/User.java"), USER);
+        Path other = write(project.resolve("src/app/Other.java"), "package app;\n\npublic class Other {\n}\n");
+        AnalysisConfig config = AnalysisConfig.builder(project).removeLibrary("org.lib", "lib")
+            .cacheDir(tempDir.resolve("cache")).estimateSeed(true).build();
+        ResultCache cache = new ResultCache(config.getCacheDir());
+
+        // 1回目の解析: Userを修正して保存
+        ResultCache.Snapshot first = ResultCache.Snapshot.take(config);
+        write(user, FIXED_USER);
+        cache.store(first, new CompilationMetrics(), null, true);
+
+        // 2回目の解析: Otherだけ変わったため、Userの修正は書き戻される
+        write(user, USER);
+        write(other, "package app;\n\npublic class Other {\n    int x;\n}\n");
+        ResultCache.Snapshot second = ResultCache.Snapshot.take(config);
+        assertNull(cache.find(second));
+        ReferenceIndex index = ReferenceIndex.build(config);
+        ImpactEstimator.Estimate estimate = ImpactEstimator.estimate(config, index);
+        assertNotNull(estimate);
+        assertEquals(List.of(user.toAbsolutePath().normalize()),
+                     estimate.getImpactedFiles().stream().map(f -> f.getFile().toAbsolutePath().normalize()).toList());
+
+        ImpactEstimator.Estimate seeded = MavenCompilationCleaner.replayPrevious(
+            cache.findPrevious(second), second, estimate, index, new CompilationMetrics());
+        assertEquals(FIXED_USER, Files.readString(user));
+        // 書き戻したファイルの行・列は推定時と異なるため、事前修正の対象にしない
+        assertTrue(seeded.getImpactedFiles().isEmpty());
+        assertTrue(seeded.toExpectedErrors(false).isEmpty());
+        assertEquals(0, index.filesReferencingPackage("org.lib").length);
+    }
+
+    private static Path write(Path path, String content) throws Exception {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,71 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+import spoon.Launcher;
+
+/**
+ * Unit test for ModelCache.
+ */
+public class ModelCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyReleasedModels() {
+        // 1モデル分（固定分64KB＋ソース）の予算
+        ModelCache cache = new ModelCache(64 * 1024 + 1000, 10);
+        CompilationMetrics metrics = new CompilationMetrics();
+        Path a = Paths.get("A.java");
+        Path b = Paths.get("B.java");
+        byte[] contentA = "class A {}".getBytes(StandardCharsets.UTF_8);
+        byte[] contentB = "class B {}".getBytes(StandardCharsets.UTF_8);
+
+        Launcher first = cache.acquire(a, contentA, null, metrics, Launcher::new);
+        cache.release(a, contentA, null, first, metrics);
+        assertSame(first, cache.acquire(a, contentA, null, metrics, Launcher::new));
+        cache.release(a, contentA, null, first, metrics);
+
+        // 内容が変わった場合は使わない
+        Launcher changed = cache.acquire(a, "class A { int x; }".getBytes(StandardCharsets.UTF_8), null, metrics, Launcher::new);
+        assertNotSame(first, changed);
+        cache.release(a, contentA, null, first, metrics);
+
+        // Bを戻すと予算を超えるため、先に戻したAが破棄される
+        Launcher modelB = cache.acquire(b, contentB, null, metrics, Launcher::new);
+        cache.release(b, contentB, null, modelB, metrics);
+        assertEquals(1, cache.size());
+        assertNotSame(first, cache.acquire(a, contentA, null, metrics, Launcher::new));
+
+        assertEquals(1, metrics.getModelCacheHits());
+        assertEquals(4, metrics.getModelCacheMisses());
+        assertEquals(1, metrics.getModelCacheEvictions());
+        assertEquals(1, metrics.getModelReparses());
+    }
+
+    @Test
+    public void sharesCacheBetweenAnalysesWithSameBudget() {
+        AnalysisConfig config = AnalysisConfig.builder(Paths.get("a")).modelCacheBytes(1 << 20).build();
+        AnalysisConfig other = AnalysisConfig.builder(Paths.get("b")).modelCacheBytes(1 << 20).build();
+        assertSame(ModelCache.shared(config), ModelCache.shared(other));
+        assertNotSame(ModelCache.shared(config), ModelCache.shared(config.toBuilder().modelCacheBytes(1 << 21).build()));
+    }
+
+    @Test
+    public void rebuildsModelForDifferentClasspath() {
+        ModelCache cache = new ModelCache(Long.MAX_VALUE, 10);
+        CompilationMetrics metrics = new CompilationMetrics();
+        Path a = Paths.get("A.java");
+        byte[] content = "class A {}".getBytes(StandardCharsets.UTF_8);
+        String[] classpath = {"lib.jar"};
+
+        Launcher withLibrary = cache.acquire(a, content, classpath, metrics, Launcher::new);
+        cache.release(a, content, classpath, withLibrary, metrics);
+        // 同じJVMの別の解析（別のライブラリを削除した状態）のモデルは使わない
+        assertNotSame(withLibrary, cache.acquire(a, content, null, metrics, Launcher::new));
+    }
+}
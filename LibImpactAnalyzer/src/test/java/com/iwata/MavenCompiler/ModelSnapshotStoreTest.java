@@ -0,0 +1,116 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spoon.Launcher;
+import spoon.compiler.Environment;
+import spoon.reflect.code.CtReturn;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.sniper.SniperJavaPrettyPrinter;
+
+/**
+ * Unit test for ModelSnapshotStore.
+ */
+public class ModelSnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void restoresModelThatPrintsLikeTheParsedOne() throws Exception {
+        Path file = tempDir.resolve("Counter.java");
+        byte[] content = ("package app;\n"
+                          + "\n"
+                          + "import java.util.List;\n"
+                          + "\n"
+                          + "public class Counter {\n"
+                          + "\tprivate int count;\n"
+                          + "\n"
+                          + "\tpublic int increment(int step) {\n"
+                          + "\t\tcount += step;\n"
+                          + "\t\treturn count;\n"
+                          + "\t}\n"
+                          + "}\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(file, content);
+        ModelSnapshotStore store = new ModelSnapshotStore(tempDir.resolve("snapshots"), Long.MAX_VALUE);
+
+        assertNull(store.load(file, content, null, ModelSnapshotStoreTest::configure));
+        Launcher parsed = new Launcher();
+        configure(parsed.getEnvironment());
+        parsed.addInputResource(file.toString());
+        parsed.buildModel();
+        store.save(file, content, null, parsed);
+
+        Launcher restored = store.load(file, content, null, ModelSnapshotStoreTest::configure);
+        assertNotNull(restored);
+        assertEquals(removeReturn(parsed), removeReturn(restored));
+        assertEquals(0, restored.getModel().getElements(new TypeFilter<>(CtReturn.class)).size());
+
+        // 内容・クラスパスが異なる場合は復元しない
+        byte[] changed = new String(content, StandardCharsets.UTF_8).replace("step", "delta")
+                                                                    .getBytes(StandardCharsets.UTF_8);
+        assertNull(store.load(file, changed, null, ModelSnapshotStoreTest::configure));
+        assertNull(store.load(file, content, new String[] {"lib.jar"}, ModelSnapshotStoreTest::configure));
+    }
+
+    @Test
+    public void prunesSnapshotsOverBudget() throws Exception {
+        Path dir = tempDir.resolve("snapshots");
+        ModelSnapshotStore store = new ModelSnapshotStore(dir, 1);
+        Path file = tempDir.resolve("A.java");
+        byte[] content = "class A {}\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(file, content);
+        Launcher launcher = new Launcher();
+        configure(launcher.getEnvironment());
+        launcher.addInputResource(file.toString());
+        launcher.buildModel();
+
+        store.save(file, content, null, launcher);
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void rejectsSnapshotWithUnexpectedClasses() throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve("snapshots"));
+        Path file = tempDir.resolve("A.java");
+        byte[] content = "class A {}\n".getBytes(StandardCharsets.UTF_8);
+        Path snapshot = dir.resolve(ModelSnapshotStore.key(file, content, null) + ".model");
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(Files.newOutputStream(snapshot)))) {
+            out.writeObject(new ObjectName("app:type=Unexpected"));
+        }
+
+        ModelSnapshotStore store = new ModelSnapshotStore(dir, Long.MAX_VALUE);
+        assertNull(store.load(file, content, null, ModelSnapshotStoreTest::configure));
+        assertFalse(Files.exists(snapshot));
+    }
+
+    /**
+     * 最初のreturn文を削除してSniperで出力
+     */
+    private static String removeReturn(Launcher launcher) {
+        CtReturn<?> ret = launcher.getModel().getElements(new TypeFilter<>(CtReturn.class)).get(0);
+        CtCompilationUnit unit = ret.getPosition().getCompilationUnit();
+        ret.delete();
+        return unit.prettyprint();
+    }
+
+    private static void configure(Environment environment) {
+        environment.setNoClasspath(true);
+        environment.setAutoImports(true);
+        environment.setPrettyPrinterCreator(() -> new SniperJavaPrettyPrinter(environment));
+    }
+}
@@ -0,0 +1,108 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for ProjectClasspath.
+ */
+public class ProjectClasspathTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void matchesLibraryByRepositoryLayout() throws Exception {
+        Path repository = tempDir.resolve("repository");
+        Path jar = touch(repository.resolve("org/example/lib-core/1.2/lib-core-1.2.jar"));
+        Path other = touch(repository.resolve("org/other/util/2.0/util-2.0.jar"));
+        ProjectClasspath classpath = withCachedEntries(jar, other);
+
+        // 推移的に取り込まれた別のバージョンも一致とみなす
+        assertTrue(classpath.containsLibrary("org.example", "lib-core", null));
+        assertTrue(classpath.containsLibrary("org.other", "util", null));
+        assertFalse(classpath.containsLibrary("org.example", "lib", null));
+        assertFalse(classpath.containsLibrary("com.example", "lib-core", null));
+        assertFalse(classpath.containsLibrary("org.example", "util", null));
+    }
+
+    @Test
+    public void matchesExplicitJarOutsideRepository() throws Exception {
+        Path jar = touch(tempDir.resolve("libs/custom.jar"));
+        ProjectClasspath classpath = withCachedEntries(jar);
+
+        assertFalse(classpath.containsLibrary("org.example", "custom", null));
+        assertTrue(classpath.containsLibrary("org.example", "custom", tempDir.resolve("libs/../libs/custom.jar")));
+        assertFalse(classpath.containsLibrary("org.example", "custom", tempDir.resolve("libs/other.jar")));
+    }
+
+    @Test
+    public void ignoresCacheListingMissingJar() throws Exception {
+        Path present = touch(tempDir.resolve("libs/present.jar"));
+        Path cacheFile = tempDir.resolve("classpath.txt");
+        Files.writeString(cacheFile, present + File.pathSeparator, StandardCharsets.UTF_8);
+        assertEquals(List.of(present.toFile()), ProjectClasspath.readCache(cacheFile));
+
+        // jarが削除された（ローカルリポジトリの掃除など）場合は再解決させる
+        Files.writeString(cacheFile, present + File.pathSeparator + tempDir.resolve("libs/removed.jar"),
+                          StandardCharsets.UTF_8);
+        assertNull(ProjectClasspath.readCache(cacheFile));
+        assertNull(ProjectClasspath.readCache(tempDir.resolve("missing.txt")));
+    }
+
+    @Test
+    public void changesCacheKeyWhenPomChanges() throws Exception {
+        Path project = Files.createDirectories(tempDir.resolve("project"));
+        Path cacheDir = tempDir.resolve("cache");
+        Files.writeString(project.resolve("pom.xml"), "<project><version>1</version></project>", StandardCharsets.UTF_8);
+        ProjectClasspath classpath = new ProjectClasspath(project, tempDir.resolve("build.log"), cacheDir);
+        Path before = classpath.cacheFile();
+        assertNotNull(before);
+        assertEquals(cacheDir, before.getParent());
+        assertEquals(before, new ProjectClasspath(project, tempDir.resolve("build.log"), cacheDir).cacheFile());
+        // メインコード用のクラスパスは別のキーで保存する
+        assertNotEquals(before, classpath.mainScope().cacheFile());
+
+        Files.writeString(project.resolve("pom.xml"), "<project><version>2</version></project>", StandardCharsets.UTF_8);
+        assertNotEquals(before, classpath.cacheFile());
+
+        // 保存先を指定しない場合、pom.xmlがない場合は保存しない
+        assertNull(new ProjectClasspath(project, tempDir.resolve("build.log"), null).cacheFile());
+        assertNull(new ProjectClasspath(tempDir, tempDir.resolve("build.log"), cacheDir).cacheFile());
+    }
+
+    /**
+     * 指定したファイルを保存済みのクラスパスとして読み込む（Mavenを起動しない）
+     */
+    private ProjectClasspath withCachedEntries(Path... files) throws IOException {
+        Path project = Files.createDirectories(tempDir.resolve("project"));
+        Files.writeString(project.resolve("pom.xml"), "<project/>", StandardCharsets.UTF_8);
+        ProjectClasspath classpath = new ProjectClasspath(project, tempDir.resolve("build.log"), tempDir.resolve("cache"));
+        StringBuilder entries = new StringBuilder();
+        for (Path file : files) {
+            entries.append(file).append(File.pathSeparator);
+        }
+        Files.createDirectories(classpath.cacheFile().getParent());
+        Files.writeString(classpath.cacheFile(), entries, StandardCharsets.UTF_8);
+        assertEquals(files.length, classpath.get().size());
+        return classpath;
+    }
+
+    private static Path touch(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[0]);
+    }
+}
@@ -0,0 +1,50 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for ReferenceIndex.
+ */
+public class ReferenceIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void indexesAndUpdatesReferences() throws Exception {
+        Path a = write("A.java", "package app;\n\nimport org.lib.Api;\n\nclass A { Api api; }\n");
+        Path b = write("B.java", "package app;\n\nimport org.lib.*;\n\nclass B { String s = org.other.Util.NAME; }\n");
+        Path c = write("C.java", "package app;\n\nimport static org.lib.Api.value;\n\nclass C { A a; }\n");
+        ReferenceIndex index = ReferenceIndex.build(List.of(a, b, c), StandardCharsets.UTF_8, 2);
+
+        assertEquals(3, index.getFileCount());
+        assertArrayEquals(new int[] {0, 1, 2}, index.filesReferencingPackage("org.lib"));
+        assertArrayEquals(new int[] {0, 2}, index.filesReferencingType("Api"));
+        assertArrayEquals(new int[] {1}, index.filesReferencingPackage("org.other"));
+        assertArrayEquals(new int[] {1}, index.filesReferencingType("Util"));
+        assertArrayEquals(new int[] {2}, index.filesReferencingType("A"));
+        assertArrayEquals(new int[] {0, 1, 2}, index.filesReferencingPackage("app"));
+
+        // 書き換え後は古い参照が取り除かれる
+        index.update(a, "package app;\n\nclass A { Object api; }\n");
+        assertArrayEquals(new int[] {1, 2}, index.filesReferencingPackage("org.lib"));
+        assertArrayEquals(new int[] {2}, index.filesReferencingType("Api"));
+
+        index.remove(c);
+        assertArrayEquals(new int[0], index.filesReferencingType("Api"));
+        assertEquals(List.of(b), index.toPaths(ReferenceIndex.union(List.of(
+            index.filesReferencingPackage("org.lib"), index.filesReferencingType("Util")))));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
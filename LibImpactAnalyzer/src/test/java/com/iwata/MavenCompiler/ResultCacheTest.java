@@ -0,0 +1,63 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for ResultCache.
+ */
+public class ResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void replaysEditsOfUnchangedFiles() throws Exception {
+        Path project = tempDir.resolve("project");
+        Path a = write(project.resolve("src/A.java"), "import lib.X;\nclass A {}\n");
+        Path b = write(project.resolve("src/B.java"), "import lib.Y;\nclass B {}\n");
+        write(project.resolve("pom.xml"), "<project/>");
+        AnalysisConfig config = AnalysisConfig.builder(project).removeLibrary("lib", "lib").build();
+        ResultCache cache = new ResultCache(tempDir.resolve("cache"));
+
+        // 1回目: AとBを修正して保存
+        ResultCache.Snapshot first = ResultCache.Snapshot.take(config);
+        assertNull(cache.find(first));
+        CompilationMetrics metrics = new CompilationMetrics();
+        metrics.incrementDeletedElements("CtImport", a.toString());
+        write(a, "class A {}\n");
+        write(b, "class B {}\n");
+        cache.store(first, metrics, null, true);
+
+        // 同じソース: 保存した結果がそのまま見つかる
+        write(a, "import lib.X;\nclass A {}\n");
+        write(b, "import lib.Y;\nclass B {}\n");
+        ResultCache.Entry hit = cache.find(ResultCache.Snapshot.take(config));
+        assertNotNull(hit);
+        assertEquals(2, hit.getFileCount());
+
+        // Bだけ変更: Aの修正のみ再適用される
+        write(b, "import lib.Y;\nclass B { int x; }\n");
+        ResultCache.Snapshot second = ResultCache.Snapshot.take(config);
+        assertNull(cache.find(second));
+        ResultCache.Entry previous = cache.findPrevious(second);
+        assertNotNull(previous);
+        CompilationMetrics replayed = new CompilationMetrics();
+        assertEquals(1, ResultCache.replay(previous, second, replayed).size());
+        assertEquals("class A {}\n", Files.readString(a));
+        assertEquals("import lib.Y;\nclass B { int x; }\n", Files.readString(b));
+        assertEquals(1, replayed.getFileEdits().get(0).getDeletedElements());
+    }
+
+    private static Path write(Path path, String content) throws Exception {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
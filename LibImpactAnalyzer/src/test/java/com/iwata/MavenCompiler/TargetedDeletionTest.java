@@ -0,0 +1,99 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtLocalVariable;
+import spoon.support.compiler.VirtualFile;
+
+/**
+ * Unit test for TargetedDeletion.
+ */
+public class TargetedDeletionTest {
+
+    private static final String SOURCE =
+        "public class A {\n" +
+        "    int f(int x) {\n" +
+        "        int y = helper(x, FakeService.value());\n" +
+        "        FakeService service = new FakeService();\n" +
+        "        return y;\n" +
+        "    }\n" +
+        "    int helper(int a, int b) { return a + b; }\n" +
+        "}\n";
+
+    @Test
+    public void convertsJavacColumnsWithTabs() {
+        String content = "a\n\tb\n";
+        assertEquals(0, TargetedDeletion.toOffset(content, 1, 1));
+        assertEquals(2, TargetedDeletion.toOffset(content, 2, 1));
+        assertEquals(3, TargetedDeletion.toOffset(content, 2, 9));
+        assertEquals(-1, TargetedDeletion.toOffset(content, 2, 5));
+        assertEquals(-1, TargetedDeletion.toOffset(content, 4, 1));
+    }
+
+    @Test
+    public void stubsBrokenArgumentOnly() {
+        CtModel model = build();
+        int offset = TargetedDeletion.toOffset(SOURCE, 3, 27);
+        TargetedDeletion.Target target = TargetedDeletion.resolve(TargetedDeletion.findSmallestAt(model, offset));
+        assertNotNull(target);
+        assertEquals(TargetedDeletion.Action.STUB, target.getAction());
+        assertEquals("FakeService.value()", target.getElement().toString());
+        assertEquals("helper", ((CtInvocation<?>) target.getElement().getParent()).getExecutable().getSimpleName());
+    }
+
+    @Test
+    public void deletesStatementWithBrokenType() {
+        CtModel model = build();
+        int offset = TargetedDeletion.toOffset(SOURCE, 4, 9);
+        TargetedDeletion.Target target = TargetedDeletion.resolve(TargetedDeletion.findSmallestAt(model, offset));
+        assertNotNull(target);
+        assertEquals(TargetedDeletion.Action.DELETE, target.getAction());
+        assertTrue(target.getElement() instanceof CtLocalVariable<?>);
+    }
+
+    @Test
+    public void deletesStatementWhenStubTypeIsUnknown() {
+        String source =
+            "public class B {\n" +
+            "    void g(int i) {\n" +
+            "        while (Fake.ready()) { i++; }\n" +
+            "        Fake.counter++;\n" +
+            "        Fake.log(Fake.value());\n" +
+            "    }\n" +
+            "}\n";
+        CtModel model = build(source, "B.java");
+        // ループの条件・++の被演算子・型の分からない引数はスタブにせず文ごと削除する
+        for (int[] position : new int[][] {{3, 16}, {4, 9}, {5, 18}}) {
+            int offset = TargetedDeletion.toOffset(source, position[0], position[1]);
+            TargetedDeletion.Target target = TargetedDeletion.resolve(TargetedDeletion.findSmallestAt(model, offset));
+            assertNotNull(target);
+            assertEquals(TargetedDeletion.Action.DELETE, target.getAction());
+            assertTrue(target.getElement().getParent() instanceof CtBlock<?>);
+        }
+    }
+
+    @Test
+    public void givesUpOutsideOfTypes() {
+        assertNull(TargetedDeletion.findSmallestAt(build(), SOURCE.length() + 10));
+    }
+
+    private static CtModel build() {
+        return build(SOURCE, "A.java");
+    }
+
+    private static CtModel build(String source, String name) {
+        Launcher launcher = new Launcher();
+        launcher.getEnvironment().setNoClasspath(true);
+        launcher.getEnvironment().setCommentEnabled(false);
+        launcher.addInputResource(new VirtualFile(source, name));
+        return launcher.buildModel();
+    }
+}
@@ -0,0 +1,41 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for TaskExecutors.
+ */
+public class TaskExecutorsTest {
+
+    @Test
+    public void mapKeepsInputOrderAndLimitsConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> results = TaskExecutors.map("test", List.of(5, 1, 4, 2, 3), 2, n -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(n * 5L);
+            running.decrementAndGet();
+            return n * 10;
+        });
+        assertEquals(List.of(50, 10, 40, 20, 30), results);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void mapRethrowsTaskFailure() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+            TaskExecutors.map("test", List.of(1, 2, 3), 3, n -> {
+                if (n == 2) {
+                    throw new IllegalStateException("boom");
+                }
+                return n;
+            }));
+        assertEquals("boom", e.getMessage());
+    }
+}
@@ -0,0 +1,86 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for TextFastPath.
+ */
+public class TextFastPathTest {
+
+    private static final String SOURCE =
+        "package p;\n" +
+        "import org.fakelib.FakeService;\n" +
+        "import java.util.List;\n" +
+        "public class A {\n" +
+        "    int f() {\n" +
+        "        FakeService.call(\"a;b\");\n" +
+        "        int x = helper(1,\n" +
+        "            FakeService.value());\n" +
+        "        return FakeService.value();\n" +
+        "    }\n" +
+        "}\n";
+
+    @Test
+    public void removesImportAndStandaloneStatementLines() {
+        ErrorInfo info = errors(2, DiagnosticKey.PACKAGE_DOES_NOT_EXIST, 6, DiagnosticKey.CANNOT_FIND_SYMBOL);
+        TextFastPath.Edit edit = TextFastPath.plan(bytes(SOURCE), info, false);
+        assertNotNull(edit);
+        assertEquals(TextFastPath.LineKind.IMPORT, edit.getLines().get(2));
+        assertEquals(TextFastPath.LineKind.STATEMENT, edit.getLines().get(6));
+        assertEquals(SOURCE.replace("import org.fakelib.FakeService;\n", "")
+                           .replace("        FakeService.call(\"a;b\");\n", ""),
+                     new String(edit.apply(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void keepsCrLfOfRemainingLines() {
+        String source = "import a.B;\r\nimport c.D;\r\nclass X {}\r\n";
+        TextFastPath.Edit edit = TextFastPath.plan(bytes(source), errors(1, DiagnosticKey.PACKAGE_DOES_NOT_EXIST), false);
+        assertNotNull(edit);
+        assertEquals("import c.D;\r\nclass X {}\r\n", new String(edit.apply(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void fallsBackForReturnAndMultiLineStatements() {
+        assertNull(TextFastPath.plan(bytes(SOURCE), errors(9, DiagnosticKey.CANNOT_FIND_SYMBOL), false));
+        assertNull(TextFastPath.plan(bytes(SOURCE), errors(8, DiagnosticKey.CANNOT_FIND_SYMBOL), false));
+        assertNull(TextFastPath.plan(bytes(SOURCE), errors(7, DiagnosticKey.CANNOT_FIND_SYMBOL), false));
+    }
+
+    @Test
+    public void fallsBackWhenAnyDiagnosticIsNotEligible() {
+        ErrorInfo info = errors(2, DiagnosticKey.PACKAGE_DOES_NOT_EXIST, 5, DiagnosticKey.METHOD_DOES_NOT_OVERRIDE);
+        assertNull(TextFastPath.plan(bytes(SOURCE), info, false));
+    }
+
+    @Test
+    public void testCodeOnlyUsesImportLines() {
+        assertNotNull(TextFastPath.plan(bytes(SOURCE), errors(2, DiagnosticKey.PACKAGE_DOES_NOT_EXIST), true));
+        assertNull(TextFastPath.plan(bytes(SOURCE), errors(6, DiagnosticKey.CANNOT_FIND_SYMBOL), true));
+    }
+
+    @Test
+    public void classifiesEnglishAndJapaneseMessages() {
+        assertEquals(DiagnosticKey.PACKAGE_DOES_NOT_EXIST, DiagnosticKey.classify("package org.fakelib does not exist"));
+        assertEquals(DiagnosticKey.PACKAGE_DOES_NOT_EXIST, DiagnosticKey.classify("パッケージorg.fakelibは存在しません"));
+        assertEquals(DiagnosticKey.CANNOT_FIND_SYMBOL, DiagnosticKey.classify("cannot find symbol"));
+        assertEquals(DiagnosticKey.OTHER, DiagnosticKey.classify("';' expected"));
+    }
+
+    private static ErrorInfo errors(Object... lineAndKey) {
+        ErrorInfo info = new ErrorInfo("A.java", "/tmp/A.java");
+        for (int i = 0; i < lineAndKey.length; i += 2) {
+            info.addDiagnostic((Integer) lineAndKey[i], 1, (DiagnosticKey) lineAndKey[i + 1]);
+        }
+        return info;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
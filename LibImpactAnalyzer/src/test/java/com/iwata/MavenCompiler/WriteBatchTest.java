@@ -0,0 +1,33 @@
+package com.iwata.MavenCompiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for WriteBatch.
+ */
+public class WriteBatchTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void keepsPermissionsOfRewrittenFile() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Path file = Files.writeString(tempDir.resolve("A.java"), "class A {}\n");
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+
+        WriteBatch.writeAtomically(file, "class A { int x; }\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("class A { int x; }\n", Files.readString(file));
+        assertEquals("rw-r--r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+    }
+}